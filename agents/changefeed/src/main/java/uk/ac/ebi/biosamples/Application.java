@@ -0,0 +1,13 @@
+package uk.ac.ebi.biosamples;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+
+@SpringBootApplication
+public class Application {
+
+	public static void main(String[] args) {
+		System.exit(SpringApplication.exit(SpringApplication.run(Application.class, args)));
+	}
+}
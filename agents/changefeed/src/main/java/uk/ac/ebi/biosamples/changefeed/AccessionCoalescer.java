@@ -0,0 +1,73 @@
+package uk.ac.ebi.biosamples.changefeed;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.BsonTimestamp;
+
+/**
+ * Gathers the accessions touched by a burst of oplog entries so that each
+ * sample is only reindexed once per window, however many writes hit it.
+ * 
+ * Also tracks the position of the last oplog entry seen, so that once a batch
+ * has been sent the position can be persisted as the point to resume from.
+ * Because every drain empties the whole buffer, everything up to and including
+ * that position has been handled.
+ * 
+ * Not thread-safe; owned by the thread tailing the oplog.
+ *
+ */
+public class AccessionCoalescer {
+
+	private final long window;
+	private final int batchMax;
+
+	private final Set<String> pending = new LinkedHashSet<>();
+	private BsonTimestamp position = null;
+	private long windowStart = -1;
+
+	public AccessionCoalescer(long window, int batchMax) {
+		this.window = window;
+		this.batchMax = batchMax;
+	}
+
+	/**
+	 * Record that an oplog entry has been read. The accession may be null if the
+	 * entry did not map to a sample, but its position still needs to be tracked.
+	 */
+	public void add(String accession, BsonTimestamp timestamp, long now) {
+		if (accession != null) {
+			if (pending.isEmpty()) {
+				windowStart = now;
+			}
+			pending.add(accession);
+		}
+		if (timestamp != null) {
+			position = timestamp;
+		}
+	}
+
+	public boolean isDue(long now) {
+		if (pending.size() >= batchMax) {
+			return true;
+		}
+		return !pending.isEmpty() && now - windowStart >= window;
+	}
+
+	public boolean hasPending() {
+		return !pending.isEmpty();
+	}
+
+	public BsonTimestamp getPosition() {
+		return position;
+	}
+
+	public List<String> drain() {
+		List<String> batch = new ArrayList<>(pending);
+		pending.clear();
+		windowStart = -1;
+		return batch;
+	}
+}
@@ -0,0 +1,62 @@
+package uk.ac.ebi.biosamples.changefeed;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.stereotype.Service;
+
+import uk.ac.ebi.biosamples.MessageContent;
+import uk.ac.ebi.biosamples.Messaging;
+import uk.ac.ebi.biosamples.model.Sample;
+import uk.ac.ebi.biosamples.service.SampleReadService;
+
+/**
+ * Sends one indexing message per accession, using the same message shape as
+ * the reindex pipeline.
+ * 
+ * Deliberately does not write the curated static view, because that would
+ * itself appear in the oplog and feed back into the agent.
+ *
+ */
+@Service
+public class ChangeFeedMessageSender {
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final SampleReadService sampleReadService;
+	private final AmqpTemplate amqpTemplate;
+
+	public ChangeFeedMessageSender(SampleReadService sampleReadService, AmqpTemplate amqpTemplate) {
+		this.sampleReadService = sampleReadService;
+		this.amqpTemplate = amqpTemplate;
+	}
+
+	public void send(List<String> accessions) throws InterruptedException {
+		Map<String, Future<Optional<Sample>>> futures = new LinkedHashMap<>();
+		for (String accession : accessions) {
+			futures.put(accession, sampleReadService.fetchAsync(accession, Optional.empty()));
+		}
+		for (Map.Entry<String, Future<Optional<Sample>>> entry : futures.entrySet()) {
+			try {
+				Optional<Sample> sample = entry.getValue().get();
+				if (sample.isPresent()) {
+					amqpTemplate.convertAndSend(Messaging.exchangeForIndexingSolr, "",
+							MessageContent.build(sample.get(), null, Collections.emptyList(), false));
+				} else {
+					log.warn("Unable to fetch changed sample " + entry.getKey());
+				}
+			} catch (ExecutionException e) {
+				log.error("Problem fetching changed sample " + entry.getKey(), e);
+			}
+		}
+		log.info("Sent " + accessions.size() + " changed samples for indexing");
+	}
+}
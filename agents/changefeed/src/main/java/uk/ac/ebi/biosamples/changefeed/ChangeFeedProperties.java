@@ -0,0 +1,50 @@
+package uk.ac.ebi.biosamples.changefeed;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ChangeFeedProperties {
+
+	//collections whose changes should trigger a reindex of the affected sample
+	@Value("${biosamples.agent.changefeed.collections:mongoSample,mongoSampleCurated,mongoCurationLink,mongoCurationLinkTombstone}")
+	private String[] collections;
+
+	//in milliseconds, how long to gather changes before sending one message per accession
+	@Value("${biosamples.agent.changefeed.window:1000}")
+	private long window;
+
+	//number of distinct accessions to gather before sending regardless of the window
+	@Value("${biosamples.agent.changefeed.batch.max:1000}")
+	private int batchMax;
+
+	//collection to persist the position in the oplog to resume from after a restart
+	@Value("${biosamples.agent.changefeed.token.collection:mongoChangeFeedToken}")
+	private String tokenCollection;
+
+	@Value("${biosamples.agent.changefeed.stayalive:true}")
+	private boolean stayalive;
+
+	public List<String> getCollections() {
+		return Arrays.asList(collections);
+	}
+
+	public long getWindow() {
+		return window;
+	}
+
+	public int getBatchMax() {
+		return batchMax;
+	}
+
+	public String getTokenCollection() {
+		return tokenCollection;
+	}
+
+	public boolean getStayalive() {
+		return stayalive;
+	}
+}
@@ -0,0 +1,123 @@
+package uk.ac.ebi.biosamples.changefeed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.CursorType;
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+
+/**
+ * Tails the replica set oplog for writes to the sample, curated sample and
+ * curation link collections and sends the affected samples for indexing.
+ * 
+ * This catches writes that do not go through the webapp SampleService, such as
+ * pipelines that write to mongo directly, without needing a full reindex.
+ * 
+ * Requires mongo to be running as a replica set (a single member set is enough)
+ * so that the local.oplog.rs collection exists. The mongo driver in use
+ * predates change streams, so the oplog is read directly with a tailable cursor
+ * and the timestamp of the last handled entry serves as the resume token.
+ *
+ */
+@Component
+public class ChangeFeedRunner implements ApplicationRunner {
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final MongoClient mongoClient;
+	private final MongoDbFactory mongoDbFactory;
+	private final ChangeFeedProperties changeFeedProperties;
+	private final OplogEntryTranslator oplogEntryTranslator;
+	private final ResumeTokenStore resumeTokenStore;
+	private final ChangeFeedMessageSender changeFeedMessageSender;
+
+	public ChangeFeedRunner(MongoClient mongoClient, MongoDbFactory mongoDbFactory,
+			ChangeFeedProperties changeFeedProperties, OplogEntryTranslator oplogEntryTranslator,
+			ResumeTokenStore resumeTokenStore, ChangeFeedMessageSender changeFeedMessageSender) {
+		this.mongoClient = mongoClient;
+		this.mongoDbFactory = mongoDbFactory;
+		this.changeFeedProperties = changeFeedProperties;
+		this.oplogEntryTranslator = oplogEntryTranslator;
+		this.resumeTokenStore = resumeTokenStore;
+		this.changeFeedMessageSender = changeFeedMessageSender;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		MongoCollection<Document> oplog = mongoClient.getDatabase("local").getCollection("oplog.rs");
+
+		BsonTimestamp position = resumeTokenStore.load();
+		if (position == null) {
+			//no previous run, start from the current end of the oplog
+			Document last = oplog.find().sort(new Document("$natural", -1)).limit(1).first();
+			if (last == null) {
+				throw new IllegalStateException("Oplog is empty or missing; is mongo running as a replica set?");
+			}
+			position = (BsonTimestamp) last.get("ts");
+			resumeTokenStore.save(position);
+		}
+		log.info("Starting change feed from oplog position " + position);
+
+		AccessionCoalescer coalescer = new AccessionCoalescer(changeFeedProperties.getWindow(),
+				changeFeedProperties.getBatchMax());
+
+		do {
+			try (MongoCursor<Document> cursor = oplog.find(getFilter(position))
+					.cursorType(CursorType.TailableAwait)
+					.oplogReplay(true)
+					.noCursorTimeout(true)
+					.maxAwaitTime(changeFeedProperties.getWindow(), TimeUnit.MILLISECONDS)
+					.iterator()) {
+				//tryNext returns null whenever the await times out, which gives
+				//a chance to send a partially filled window
+				while (cursor.getServerCursor() != null || cursor.hasNext()) {
+					Document entry = cursor.tryNext();
+					if (entry != null) {
+						Optional<String> accession = oplogEntryTranslator.getAccession(entry);
+						coalescer.add(accession.orElse(null), (BsonTimestamp) entry.get("ts"),
+								System.currentTimeMillis());
+					}
+					if (coalescer.isDue(System.currentTimeMillis())) {
+						position = flush(coalescer);
+					}
+				}
+			}
+			//cursor was closed by the server e.g. on failover; send what we have then reopen
+			if (coalescer.hasPending()) {
+				position = flush(coalescer);
+			}
+		} while (changeFeedProperties.getStayalive());
+	}
+
+	private BsonTimestamp flush(AccessionCoalescer coalescer) throws InterruptedException {
+		BsonTimestamp position = coalescer.getPosition();
+		changeFeedMessageSender.send(coalescer.drain());
+		//only persist once the messages have been sent, so a crash repeats rather than loses them
+		resumeTokenStore.save(position);
+		return position;
+	}
+
+	private Bson getFilter(BsonTimestamp position) {
+		String database = mongoDbFactory.getDb().getName();
+		List<String> namespaces = new ArrayList<>();
+		for (String collection : changeFeedProperties.getCollections()) {
+			namespaces.add(database + "." + collection);
+		}
+		return Filters.and(Filters.gt("ts", position), Filters.in("ns", namespaces));
+	}
+}
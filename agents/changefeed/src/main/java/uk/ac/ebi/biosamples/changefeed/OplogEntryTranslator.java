@@ -0,0 +1,89 @@
+package uk.ac.ebi.biosamples.changefeed;
+
+import java.util.Optional;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import uk.ac.ebi.biosamples.model.StaticViewWrapper;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+import uk.ac.ebi.biosamples.mongo.repo.MongoCurationLinkRepository;
+
+/**
+ * Works out which sample accession an oplog entry affects.
+ * 
+ * Sample collections are keyed on accession so that is read directly from the
+ * entry. Curation links are keyed on a hash, so for updates the link has to be
+ * looked up to find its sample. The removal of a curation link only records
+ * its hash, so deleted links are resolved from the tombstone that is written
+ * just before the link is removed instead.
+ *
+ */
+@Service
+public class OplogEntryTranslator {
+
+	private static final String CURATION_LINK_COLLECTION = "mongoCurationLink";
+	private static final String CURATION_LINK_TOMBSTONE_COLLECTION = "mongoCurationLinkTombstone";
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final MongoCurationLinkRepository mongoCurationLinkRepository;
+
+	public OplogEntryTranslator(MongoCurationLinkRepository mongoCurationLinkRepository) {
+		this.mongoCurationLinkRepository = mongoCurationLinkRepository;
+	}
+
+	public Optional<String> getAccession(Document entry) {
+		String ns = entry.getString("ns");
+		String op = entry.getString("op");
+		if (ns == null || op == null || ns.indexOf('.') < 0) {
+			return Optional.empty();
+		}
+		String collection = ns.substring(ns.indexOf('.') + 1);
+		Document o = (Document) entry.get("o");
+		Document o2 = (Document) entry.get("o2");
+
+		if (StaticViewWrapper.SAMPLE_PRIMARY_REPO_MONGO.equals(collection)
+				|| StaticViewWrapper.SAMPLE_CURATED_REPO_MONGO.equals(collection)) {
+			return getId(op, o, o2);
+		} else if (CURATION_LINK_COLLECTION.equals(collection)) {
+			if ("i".equals(op) && o != null && o.getString("sample") != null) {
+				return Optional.of(o.getString("sample"));
+			} else if ("u".equals(op)) {
+				Optional<String> hash = getId(op, o, o2);
+				if (hash.isPresent()) {
+					MongoCurationLink link = mongoCurationLinkRepository.findOne(hash.get());
+					if (link != null) {
+						return Optional.of(link.getSample());
+					}
+				}
+			} else if ("d".equals(op)) {
+				log.trace("Deleted curation link " + o + " is resolved from its tombstone");
+			}
+		} else if (CURATION_LINK_TOMBSTONE_COLLECTION.equals(collection)) {
+			//tombstones are upserted, so are either inserted whole or have their sample set again
+			if ("i".equals(op) && o != null && o.getString("sample") != null) {
+				return Optional.of(o.getString("sample"));
+			} else if ("u".equals(op) && o != null && o.get("$set") instanceof Document
+					&& ((Document) o.get("$set")).getString("sample") != null) {
+				return Optional.of(((Document) o.get("$set")).getString("sample"));
+			}
+		}
+		return Optional.empty();
+	}
+
+	private Optional<String> getId(String op, Document o, Document o2) {
+		Object id = null;
+		if ("i".equals(op) || "d".equals(op)) {
+			id = o == null ? null : o.get("_id");
+		} else if ("u".equals(op)) {
+			id = o2 == null ? null : o2.get("_id");
+		}
+		if (id == null) {
+			return Optional.empty();
+		}
+		return Optional.of(id.toString());
+	}
+}
@@ -0,0 +1,53 @@
+package uk.ac.ebi.biosamples.changefeed;
+
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+
+/**
+ * Persists the timestamp of the last oplog entry whose changes have been sent
+ * for indexing, so a restarted agent carries on from where it stopped rather
+ * than from the current end of the oplog.
+ *
+ */
+@Service
+public class ResumeTokenStore {
+
+	private static final String TOKEN_ID = "oplog";
+
+	private final MongoClient mongoClient;
+	private final MongoDbFactory mongoDbFactory;
+	private final ChangeFeedProperties changeFeedProperties;
+
+	public ResumeTokenStore(MongoClient mongoClient, MongoDbFactory mongoDbFactory,
+			ChangeFeedProperties changeFeedProperties) {
+		this.mongoClient = mongoClient;
+		this.mongoDbFactory = mongoDbFactory;
+		this.changeFeedProperties = changeFeedProperties;
+	}
+
+	public BsonTimestamp load() {
+		Document token = getCollection().find(Filters.eq("_id", TOKEN_ID)).first();
+		if (token == null) {
+			return null;
+		}
+		return (BsonTimestamp) token.get("ts");
+	}
+
+	public void save(BsonTimestamp timestamp) {
+		getCollection().updateOne(Filters.eq("_id", TOKEN_ID),
+				new Document("$set", new Document("ts", timestamp)),
+				new UpdateOptions().upsert(true));
+	}
+
+	private MongoCollection<Document> getCollection() {
+		return mongoClient.getDatabase(mongoDbFactory.getDb().getName())
+				.getCollection(changeFeedProperties.getTokenCollection());
+	}
+}
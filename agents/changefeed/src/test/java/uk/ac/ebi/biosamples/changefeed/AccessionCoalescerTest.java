@@ -0,0 +1,55 @@
+package uk.ac.ebi.biosamples.changefeed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.bson.BsonTimestamp;
+import org.junit.Test;
+
+public class AccessionCoalescerTest {
+
+	@Test
+	public void repeated_updates_within_window_are_sent_once() {
+		AccessionCoalescer coalescer = new AccessionCoalescer(1000, 100);
+		coalescer.add("SAMEA1", new BsonTimestamp(1, 1), 0);
+		coalescer.add("SAMEA2", new BsonTimestamp(1, 2), 10);
+		coalescer.add("SAMEA1", new BsonTimestamp(1, 3), 20);
+
+		assertFalse(coalescer.isDue(500));
+		assertTrue(coalescer.isDue(1000));
+		assertEquals(new BsonTimestamp(1, 3), coalescer.getPosition());
+		assertEquals(Arrays.asList("SAMEA1", "SAMEA2"), coalescer.drain());
+		assertFalse(coalescer.hasPending());
+	}
+
+	@Test
+	public void full_batch_is_due_before_window_ends() {
+		AccessionCoalescer coalescer = new AccessionCoalescer(1000, 2);
+		coalescer.add("SAMEA1", new BsonTimestamp(1, 1), 0);
+		assertFalse(coalescer.isDue(0));
+		coalescer.add("SAMEA2", new BsonTimestamp(1, 2), 0);
+		assertTrue(coalescer.isDue(0));
+	}
+
+	@Test
+	public void unresolved_entries_advance_position_only() {
+		AccessionCoalescer coalescer = new AccessionCoalescer(0, 100);
+		coalescer.add(null, new BsonTimestamp(2, 1), 0);
+		assertFalse(coalescer.hasPending());
+		assertFalse(coalescer.isDue(1000));
+		assertEquals(new BsonTimestamp(2, 1), coalescer.getPosition());
+	}
+
+	@Test
+	public void window_restarts_after_drain() {
+		AccessionCoalescer coalescer = new AccessionCoalescer(1000, 100);
+		coalescer.add("SAMEA1", new BsonTimestamp(1, 1), 0);
+		coalescer.drain();
+		coalescer.add("SAMEA1", new BsonTimestamp(1, 2), 5000);
+		assertFalse(coalescer.isDue(5500));
+		assertTrue(coalescer.isDue(6000));
+	}
+}
@@ -0,0 +1,96 @@
+package uk.ac.ebi.biosamples.changefeed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Curation;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+import uk.ac.ebi.biosamples.mongo.repo.MongoCurationLinkRepository;
+
+public class OplogEntryTranslatorTest {
+
+	private MongoCurationLinkRepository mongoCurationLinkRepository;
+	private OplogEntryTranslator translator;
+
+	@Before
+	public void setup() {
+		mongoCurationLinkRepository = mock(MongoCurationLinkRepository.class);
+		translator = new OplogEntryTranslator(mongoCurationLinkRepository);
+	}
+
+	@Test
+	public void sample_insert_uses_document_id() {
+		Document entry = entry("i", "biosamples.mongoSample", new Document("_id", "SAMEA1"), null);
+		assertEquals(Optional.of("SAMEA1"), translator.getAccession(entry));
+	}
+
+	@Test
+	public void curated_sample_update_uses_query_id() {
+		Document entry = entry("u", "biosamples.mongoSampleCurated",
+				new Document("$set", new Document("name", "x")), new Document("_id", "SAMEA2"));
+		assertEquals(Optional.of("SAMEA2"), translator.getAccession(entry));
+	}
+
+	@Test
+	public void curation_link_insert_uses_sample_field() {
+		Document entry = entry("i", "biosamples.mongoCurationLink",
+				new Document("_id", "hash").append("sample", "SAMEA3"), null);
+		assertEquals(Optional.of("SAMEA3"), translator.getAccession(entry));
+	}
+
+	@Test
+	public void curation_link_update_looks_up_link() {
+		Curation curation = Curation.build(Attribute.build("a", "b"), Attribute.build("a", "c"));
+		MongoCurationLink link = MongoCurationLink.build("SAMEA4", curation, "self.test", Instant.now());
+		when(mongoCurationLinkRepository.findOne("hash")).thenReturn(link);
+		Document entry = entry("u", "biosamples.mongoCurationLink",
+				new Document("$set", new Document("domain", "x")), new Document("_id", "hash"));
+		assertEquals(Optional.of("SAMEA4"), translator.getAccession(entry));
+	}
+
+	@Test
+	public void curation_link_delete_is_unresolved() {
+		Document entry = entry("d", "biosamples.mongoCurationLink", new Document("_id", "hash"), null);
+		assertFalse(translator.getAccession(entry).isPresent());
+	}
+
+	@Test
+	public void curation_link_tombstone_insert_uses_sample_field() {
+		Document entry = entry("i", "biosamples.mongoCurationLinkTombstone",
+				new Document("_id", "hash").append("sample", "SAMEA5").append("deleted", new Date()), null);
+		assertEquals(Optional.of("SAMEA5"), translator.getAccession(entry));
+	}
+
+	@Test
+	public void curation_link_tombstone_update_uses_set_sample() {
+		Document entry = entry("u", "biosamples.mongoCurationLinkTombstone",
+				new Document("$set", new Document("sample", "SAMEA6").append("deleted", new Date())),
+				new Document("_id", "hash"));
+		assertEquals(Optional.of("SAMEA6"), translator.getAccession(entry));
+	}
+
+	@Test
+	public void noop_is_unresolved() {
+		Document entry = entry("n", "", new Document("msg", "periodic noop"), null);
+		assertFalse(translator.getAccession(entry).isPresent());
+	}
+
+	private Document entry(String op, String ns, Document o, Document o2) {
+		Document entry = new Document("op", op).append("ns", ns).append("o", o);
+		if (o2 != null) {
+			entry.append("o2", o2);
+		}
+		return entry;
+	}
+}
@@ -0,0 +1,97 @@
+package uk.ac.ebi.biosamples.changefeed;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Curation;
+import uk.ac.ebi.biosamples.mongo.EmbeddedMongo;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+import uk.ac.ebi.biosamples.mongo.model.MongoSample;
+import uk.ac.ebi.biosamples.mongo.repo.MongoCurationLinkRepository;
+import uk.ac.ebi.biosamples.mongo.repo.MongoCurationLinkRepositoryImpl;
+
+/**
+ * Translates the entries that writes leave in the oplog of a real replica set
+ */
+public class OplogReplicaSetTest {
+
+	@ClassRule
+	public static final EmbeddedMongo embeddedMongo = new EmbeddedMongo();
+
+	private MongoTemplate mongoTemplate;
+	private MongoCurationLinkRepository mongoCurationLinkRepository;
+	private OplogEntryTranslator translator;
+
+	@Before
+	public void setup() {
+		embeddedMongo.clear();
+		mongoTemplate = embeddedMongo.getMongoTemplate();
+		mongoCurationLinkRepository = new MongoRepositoryFactory(mongoTemplate)
+				.getRepository(MongoCurationLinkRepository.class, new MongoCurationLinkRepositoryImpl(mongoTemplate));
+		translator = new OplogEntryTranslator(mongoCurationLinkRepository);
+	}
+
+	@Test
+	public void sample_write_is_resolved() {
+		BsonTimestamp position = getPosition();
+		mongoTemplate.save(MongoSample.build("sample", "SAMEA1", "self.test", Instant.now(), Instant.now(),
+				Collections.emptySet(), null, null, null, null, null, null, null));
+
+		assertEquals(Collections.singletonList("SAMEA1"), getAccessions(position));
+	}
+
+	@Test
+	public void curation_link_insert_and_delete_are_resolved() {
+		Curation curation = Curation.build(Attribute.build("a", "b"), Attribute.build("a", "c"));
+		MongoCurationLink link = MongoCurationLink.build("SAMEA2", curation, "self.test", Instant.now());
+
+		BsonTimestamp position = getPosition();
+		mongoCurationLinkRepository.insertAllIfAbsent(Collections.singletonList(link));
+		assertEquals(Collections.singletonList("SAMEA2"), getAccessions(position));
+
+		position = getPosition();
+		assertEquals(1, mongoCurationLinkRepository.deleteAllByHash(Collections.singletonList(link.getHash())));
+		//the tombstone resolves, the removal of the link itself can't be
+		assertEquals(Collections.singletonList("SAMEA2"), getAccessions(position));
+	}
+
+	private MongoCollection<Document> getOplog() {
+		return embeddedMongo.getMongoClient().getDatabase("local").getCollection("oplog.rs");
+	}
+
+	private BsonTimestamp getPosition() {
+		return (BsonTimestamp) getOplog().find().sort(new Document("$natural", -1)).limit(1).first().get("ts");
+	}
+
+	private List<String> getAccessions(BsonTimestamp position) {
+		List<String> accessions = new ArrayList<>();
+		try (MongoCursor<Document> cursor = getOplog().find(Filters.and(Filters.gt("ts", position),
+				Filters.regex("ns", "^" + EmbeddedMongo.DATABASE + "\\.mongo"))).iterator()) {
+			while (cursor.hasNext()) {
+				Optional<String> accession = translator.getAccession(cursor.next());
+				if (accession.isPresent()) {
+					accessions.add(accession.get());
+				}
+			}
+		}
+		return accessions;
+	}
+}
@@ -18,6 +18,8 @@ import uk.ac.ebi.biosamples.BioSamplesProperties;
 import uk.ac.ebi.biosamples.client.service.*;
 import uk.ac.ebi.biosamples.model.Curation;
 import uk.ac.ebi.biosamples.model.CurationLink;
+import uk.ac.ebi.biosamples.model.CurationLinkQuery;
+import uk.ac.ebi.biosamples.model.CurationLinkUndoReport;
 import uk.ac.ebi.biosamples.model.Sample;
 import uk.ac.ebi.biosamples.model.StaticViewWrapper;
 import uk.ac.ebi.biosamples.model.filter.Filter;
@@ -47,6 +49,7 @@ public class BioSamplesClient implements AutoCloseable {
 	private final SampleRetrievalService sampleRetrievalService;
 	private final SamplePageRetrievalService samplePageRetrievalService;
 	private final SampleCursorRetrievalService sampleCursorRetrievalService;
+	private final AccessionCursorRetrievalService accessionCursorRetrievalService;
 	private final SampleSubmissionService sampleSubmissionService;
 	private final CurationRetrievalService curationRetrievalService;
 	private final CurationSubmissionService curationSubmissionService;
@@ -85,10 +88,11 @@ public class BioSamplesClient implements AutoCloseable {
 		sampleRetrievalService = new SampleRetrievalService(restOperations, traverson, threadPoolExecutor);
 		samplePageRetrievalService = new SamplePageRetrievalService(restOperations, traverson, threadPoolExecutor, bioSamplesProperties.getBiosamplesClientPagesize());
 		sampleCursorRetrievalService = new SampleCursorRetrievalService(restOperations, traverson, threadPoolExecutor, bioSamplesProperties.getBiosamplesClientPagesize());
+		accessionCursorRetrievalService = new AccessionCursorRetrievalService(restOperations, traverson, threadPoolExecutor, bioSamplesProperties.getBiosamplesClientPagesize());
 
 		sampleSubmissionService = new SampleSubmissionService(restOperations, traverson, threadPoolExecutor);
 		curationRetrievalService = new CurationRetrievalService(restOperations, traverson, threadPoolExecutor, bioSamplesProperties.getBiosamplesClientPagesize());
-		curationSubmissionService = new CurationSubmissionService(restOperations, traverson, threadPoolExecutor);
+		curationSubmissionService = new CurationSubmissionService(restOperations, traverson, threadPoolExecutor, bioSamplesProperties.getBiosamplesClientPagesize());
 
 		this.sampleValidator = sampleValidator;
 
@@ -179,6 +183,15 @@ public class BioSamplesClient implements AutoCloseable {
 		return sampleRetrievalService.fetchAll(accessions);
 	}
 
+	/**
+	 * Accessions of all the public samples matching the filters, without fetching the samples
+	 * @param filters
+	 * @return the accessions, in accession order
+	 */
+	public Iterable<String> fetchAccessionAll(Collection<Filter> filters) throws RestClientException {
+		return accessionCursorRetrievalService.fetchAll(filters);
+	}
+
 	/**
 	 * Search for samples using pagination. This method should be used for specific pagination needs. When in need for
 	 * all results from a search, prefer the iterator implementation.
@@ -277,10 +290,22 @@ public class BioSamplesClient implements AutoCloseable {
 		return curationSubmissionService.submit(CurationLink.build(accession, curation, domain, null));
 	}
 	
+	public List<Resource<CurationLink>> persistCurationLinks(Collection<CurationLink> curationLinks) {
+		return curationSubmissionService.persistCurationLinks(curationLinks, null);
+	}
+
 	public Iterable<Resource<CurationLink>> fetchCurationLinksOfSample(String accession) {
 		return curationRetrievalService.fetchCurationLinksOfSample(accession);
 	}
 
+	public CurationLinkUndoReport undoCurationLinks(CurationLinkQuery query, boolean dryRun) {
+		return curationSubmissionService.undoCurationLinks(query, dryRun, null);
+	}
+
+	public CurationLinkUndoReport resumeUndoCurationLinks(String id) {
+		return curationSubmissionService.resumeUndoCurationLinks(id, null);
+	}
+
 	public void deleteCurationLink(CurationLink content) {
 		curationSubmissionService.deleteCurationLink(content.getSample(), content.getHash());
 	}
@@ -357,10 +382,22 @@ public class BioSamplesClient implements AutoCloseable {
 		return curationSubmissionService.persistCuration(CurationLink.build(accession, curation, domain, null), jwt);
 	}
 
+	public List<Resource<CurationLink>> persistCurationLinks(Collection<CurationLink> curationLinks, String jwt) {
+		return curationSubmissionService.persistCurationLinks(curationLinks, jwt);
+	}
+
 	public Iterable<Resource<CurationLink>> fetchCurationLinksOfSample(String accession, String jwt) {
 		return curationRetrievalService.fetchCurationLinksOfSample(accession, jwt);
 	}
 
+	public CurationLinkUndoReport undoCurationLinks(CurationLinkQuery query, boolean dryRun, String jwt) {
+		return curationSubmissionService.undoCurationLinks(query, dryRun, jwt);
+	}
+
+	public CurationLinkUndoReport resumeUndoCurationLinks(String id, String jwt) {
+		return curationSubmissionService.resumeUndoCurationLinks(id, jwt);
+	}
+
 	public void deleteCurationLink(CurationLink content, String jwt) {
 		curationSubmissionService.deleteCurationLink(content.getSample(), content.getHash(), jwt);
 	}
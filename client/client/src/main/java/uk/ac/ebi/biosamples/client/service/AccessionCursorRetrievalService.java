@@ -0,0 +1,119 @@
+package uk.ac.ebi.biosamples.client.service;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.client.Traverson;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestOperations;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import uk.ac.ebi.biosamples.model.filter.Filter;
+
+/**
+ * Iterates over the accessions of all public samples matching some filters, without fetching
+ * the samples themselves. The next page is requested while the current one is consumed.
+ */
+public class AccessionCursorRetrievalService {
+
+	private Logger log = LoggerFactory.getLogger(getClass());
+
+	private static final ParameterizedTypeReference<List<String>> parameterizedTypeReferenceListString = new ParameterizedTypeReference<List<String>>(){};
+
+	private final Traverson traverson;
+	private final ExecutorService executor;
+	private final RestOperations restOperations;
+	private final int pageSize;
+
+	public AccessionCursorRetrievalService(RestOperations restOperations, Traverson traverson,
+			ExecutorService executor, int pageSize) {
+		this.restOperations = restOperations;
+		this.traverson = traverson;
+		this.executor = executor;
+		this.pageSize = pageSize;
+	}
+
+	public Iterable<String> fetchAll(Collection<Filter> filters) {
+		return () -> {
+			UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromHttpUrl(traverson.follow("accessions").asLink().getHref());
+			for (Filter filter : filters) {
+				// encoded here so that a + in a filter is not read as a space
+				uriBuilder.queryParam("filter", encode(filter.getSerialization()));
+			}
+			uriBuilder.queryParam("cursor", "*");
+			uriBuilder.queryParam("size", pageSize);
+			return new AccessionIterator(uriBuilder.build(true).toUri());
+		};
+	}
+
+	private static String encode(String queryParameter) {
+		try {
+			return URLEncoder.encode(queryParameter, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private class AccessionIterator implements Iterator<String> {
+
+		private Iterator<String> pageIterator = Collections.emptyIterator();
+		private Future<ResponseEntity<List<String>>> nextPageFuture;
+
+		private AccessionIterator(URI first) {
+			nextPageFuture = executor.submit(() -> fetchPage(first));
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!pageIterator.hasNext() && nextPageFuture != null) {
+				ResponseEntity<List<String>> page;
+				try {
+					page = nextPageFuture.get();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+				nextPageFuture = null;
+				String linkHeader = page.getHeaders().getFirst(HttpHeaders.LINK);
+				if (linkHeader != null) {
+					URI next = URI.create(Link.valueOf(linkHeader).getHref());
+					log.trace("getting next page uri " + next);
+					nextPageFuture = executor.submit(() -> fetchPage(next));
+				}
+				pageIterator = page.getBody().iterator();
+			}
+			return pageIterator.hasNext();
+		}
+
+		@Override
+		public String next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return pageIterator.next();
+		}
+	}
+
+	private ResponseEntity<List<String>> fetchPage(URI uri) {
+		RequestEntity<Void> requestEntity = RequestEntity.get(uri).accept(MediaType.APPLICATION_JSON).build();
+		return restOperations.exchange(requestEntity, parameterizedTypeReferenceListString);
+	}
+}
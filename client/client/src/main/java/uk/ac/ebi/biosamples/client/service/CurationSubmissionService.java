@@ -1,13 +1,19 @@
 package uk.ac.ebi.biosamples.client.service;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
 import org.springframework.hateoas.client.Hop;
 import org.springframework.hateoas.client.Traverson;
 import org.springframework.http.HttpHeaders;
@@ -16,22 +22,34 @@ import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestOperations;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import uk.ac.ebi.biosamples.model.CurationLink;
+import uk.ac.ebi.biosamples.model.CurationLinkQuery;
+import uk.ac.ebi.biosamples.model.CurationLinkUndoReport;
 
 public class CurationSubmissionService {
 
+	private static final long UNDO_POLL_MILLIS = 5000;
+
 	private final Logger log = LoggerFactory.getLogger(getClass());
 
 	private final Traverson traverson;
 	private final ExecutorService executor;
 	private final RestOperations restOperations;
+	private final int batchSize;
 
 	public CurationSubmissionService(RestOperations restOperations, Traverson traverson,
 			ExecutorService executor) {
+		this(restOperations, traverson, executor, 1000);
+	}
+
+	public CurationSubmissionService(RestOperations restOperations, Traverson traverson,
+			ExecutorService executor, int batchSize) {
 		this.restOperations = restOperations;
 		this.traverson = traverson;
 		this.executor = executor;
+		this.batchSize = batchSize;
 	}
 
 	public Resource<CurationLink> submit(CurationLink curationLink) throws RestClientException {
@@ -62,6 +80,124 @@ public class CurationSubmissionService {
 
 	}
 
+	/**
+	 * Submits the curation links in batches to the curation links endpoint, rather than one
+	 * request per link. Returns only the links that were not already stored.
+	 */
+	public List<Resource<CurationLink>> persistCurationLinks(Collection<CurationLink> curationLinks, String jwt) throws RestClientException {
+		URI target = URI.create(traverson.follow("curationLinks").asLink().getHref());
+
+		List<Future<Resources<Resource<CurationLink>>>> futures = new ArrayList<>();
+		List<CurationLink> batch = new ArrayList<>(batchSize);
+		for (CurationLink curationLink : curationLinks) {
+			batch.add(curationLink);
+			if (batch.size() >= batchSize) {
+				futures.add(submitBatch(target, batch, jwt));
+				batch = new ArrayList<>(batchSize);
+			}
+		}
+		if (!batch.isEmpty()) {
+			futures.add(submitBatch(target, batch, jwt));
+		}
+
+		List<Resource<CurationLink>> results = new ArrayList<>();
+		for (Future<Resources<Resource<CurationLink>>> future : futures) {
+			try {
+				results.addAll(future.get().getContent());
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		return results;
+	}
+
+	private Future<Resources<Resource<CurationLink>>> submitBatch(URI target, List<CurationLink> batch, String jwt) {
+		return executor.submit(() -> {
+			log.trace("POSTing to " + target + " " + batch.size() + " curation links");
+
+			RequestEntity.BodyBuilder bodyBuilder = RequestEntity.post(target)
+					.contentType(MediaType.APPLICATION_JSON)
+					.accept(MediaTypes.HAL_JSON);
+			if (jwt != null) {
+				bodyBuilder.header(HttpHeaders.AUTHORIZATION, "Bearer " + jwt);
+			}
+			RequestEntity<List<CurationLink>> requestEntity = bodyBuilder.body(batch);
+
+			ResponseEntity<Resources<Resource<CurationLink>>> responseEntity = restOperations.exchange(requestEntity,
+					new ParameterizedTypeReference<Resources<Resource<CurationLink>>>() {
+					});
+			return responseEntity.getBody();
+		});
+	}
+
+	/**
+	 * Deletes all the curation links selected by the query on the server, or for a dry run only
+	 * reports what would be deleted. The server does this in the background, this waits until it
+	 * has finished or failed. A failed undo can be carried on with {@link #resumeUndoCurationLinks}.
+	 */
+	public CurationLinkUndoReport undoCurationLinks(CurationLinkQuery query, boolean dryRun, String jwt) throws RestClientException {
+		URI target = undoUri().queryParam("dryrun", dryRun).build().toUri();
+
+		log.trace("POSTing to " + target + " " + query);
+
+		RequestEntity.BodyBuilder bodyBuilder = RequestEntity.post(target)
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON);
+		if (jwt != null) {
+			bodyBuilder.header(HttpHeaders.AUTHORIZATION, "Bearer " + jwt);
+		}
+		RequestEntity<CurationLinkQuery> requestEntity = bodyBuilder.body(query);
+
+		return waitForUndo(restOperations.exchange(requestEntity, CurationLinkUndoReport.class).getBody(), jwt);
+	}
+
+	/**
+	 * Carries on with an undo that failed, or whose server stopped, and waits until it has
+	 * finished or failed again.
+	 */
+	public CurationLinkUndoReport resumeUndoCurationLinks(String id, String jwt) throws RestClientException {
+		URI target = undoUri().pathSegment(id, "resume").build().toUri();
+
+		log.trace("POSTing to " + target);
+
+		RequestEntity.BodyBuilder bodyBuilder = RequestEntity.post(target)
+				.accept(MediaType.APPLICATION_JSON);
+		if (jwt != null) {
+			bodyBuilder.header(HttpHeaders.AUTHORIZATION, "Bearer " + jwt);
+		}
+
+		return waitForUndo(restOperations.exchange(bodyBuilder.build(), CurationLinkUndoReport.class).getBody(), jwt);
+	}
+
+	private CurationLinkUndoReport waitForUndo(CurationLinkUndoReport report, String jwt) {
+		URI target = undoUri().pathSegment(report.getId()).build().toUri();
+		while (report.getStatus() == CurationLinkUndoReport.Status.RUNNING) {
+			try {
+				Thread.sleep(UNDO_POLL_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+
+			log.trace("GETing " + target);
+
+			RequestEntity.HeadersBuilder<?> headersBuilder = RequestEntity.get(target)
+					.accept(MediaType.APPLICATION_JSON);
+			if (jwt != null) {
+				headersBuilder.header(HttpHeaders.AUTHORIZATION, "Bearer " + jwt);
+			}
+			report = restOperations.exchange(headersBuilder.build(), CurationLinkUndoReport.class).getBody();
+		}
+		return report;
+	}
+
+	private UriComponentsBuilder undoUri() {
+		return UriComponentsBuilder.fromHttpUrl(traverson.follow("curationLinks").asLink().getHref())
+				.pathSegment("undo");
+	}
+
 	public void deleteCurationLink(String sample, String hash) {
 		deleteCurationLink(sample, hash, null);
 	}
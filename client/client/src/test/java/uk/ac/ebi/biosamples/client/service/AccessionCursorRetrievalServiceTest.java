@@ -0,0 +1,115 @@
+package uk.ac.ebi.biosamples.client.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.client.Traverson;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.response.DefaultResponseCreator;
+import org.springframework.web.client.RestTemplate;
+
+import uk.ac.ebi.biosamples.model.filter.Filter;
+import uk.ac.ebi.biosamples.service.FilterBuilder;
+
+public class AccessionCursorRetrievalServiceTest {
+
+	private static final String ACCESSIONS = "http://localhost:8081/biosamples/accessions";
+
+	private final List<Filter> filters = Collections.singletonList(
+			FilterBuilder.create().onAccession("SAMEA[0-9]+").build());
+
+	private ExecutorService executor;
+	private MockRestServiceServer server;
+	private AccessionCursorRetrievalService accessionCursorRetrievalService;
+
+	@Before
+	public void setup() {
+		RestTemplate restTemplate = new RestTemplate();
+		server = MockRestServiceServer.bindTo(restTemplate).build();
+		Traverson traverson = mock(Traverson.class, RETURNS_DEEP_STUBS);
+		when(traverson.follow("accessions").asLink()).thenReturn(new Link(ACCESSIONS));
+		executor = Executors.newSingleThreadExecutor();
+		accessionCursorRetrievalService = new AccessionCursorRetrievalService(restTemplate, traverson, executor, 2);
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void test_pages_are_followed_until_there_is_no_next_link() {
+		//the filter is encoded so the + is not read as a space
+		server.expect(requestTo(ACCESSIONS + "?filter=acc%3ASAMEA%5B0-9%5D%2B&cursor=*&size=2"))
+				.andExpect(method(HttpMethod.GET))
+				.andRespond(page("[\"SAMEA1\",\"SAMEA2\"]", ACCESSIONS + "?filter=acc%3ASAMEA%5B0-9%5D%2B&cursor=AoE2&size=2"));
+		//an empty page that still links on is not the end
+		server.expect(requestTo(ACCESSIONS + "?filter=acc%3ASAMEA%5B0-9%5D%2B&cursor=AoE2&size=2"))
+				.andRespond(page("[]", ACCESSIONS + "?filter=acc%3ASAMEA%5B0-9%5D%2B&cursor=AoE3&size=2"));
+		server.expect(requestTo(ACCESSIONS + "?filter=acc%3ASAMEA%5B0-9%5D%2B&cursor=AoE3&size=2"))
+				.andRespond(page("[\"SAMEA3\"]", null));
+
+		List<String> accessions = new ArrayList<>();
+		for (String accession : accessionCursorRetrievalService.fetchAll(filters)) {
+			accessions.add(accession);
+		}
+
+		assertEquals(Arrays.asList("SAMEA1", "SAMEA2", "SAMEA3"), accessions);
+		server.verify();
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void test_no_accessions() {
+		server.expect(requestTo(ACCESSIONS + "?cursor=*&size=2")).andRespond(page("[]", null));
+
+		Iterator<String> iterator = accessionCursorRetrievalService.fetchAll(Collections.emptyList()).iterator();
+
+		assertFalse(iterator.hasNext());
+		server.verify();
+		iterator.next();
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void test_failed_page_is_thrown() {
+		server.expect(requestTo(ACCESSIONS + "?cursor=*&size=2"))
+				.andRespond(page("[\"SAMEA1\"]", ACCESSIONS + "?cursor=AoE2&size=2"));
+		server.expect(requestTo(ACCESSIONS + "?cursor=AoE2&size=2")).andRespond(withServerError());
+
+		Iterator<String> iterator = accessionCursorRetrievalService.fetchAll(Collections.emptyList()).iterator();
+
+		assertEquals("SAMEA1", iterator.next());
+		//rather than ending the accessions early
+		iterator.hasNext();
+	}
+
+	private static DefaultResponseCreator page(String accessions, String next) {
+		HttpHeaders headers = new HttpHeaders();
+		if (next != null) {
+			headers.add(HttpHeaders.LINK, new Link(next, Link.REL_NEXT).toString());
+		}
+		return withSuccess(accessions, MediaType.APPLICATION_JSON).headers(headers);
+	}
+}
@@ -24,6 +24,7 @@ import uk.ac.ebi.biosamples.client.BioSamplesClient;
 import uk.ac.ebi.biosamples.model.Attribute;
 import uk.ac.ebi.biosamples.model.Relationship;
 import uk.ac.ebi.biosamples.model.Sample;
+import uk.ac.ebi.biosamples.utils.LatencyRecorder;
 
 import java.net.URI;
 import java.time.Instant;
@@ -39,6 +40,8 @@ public class BigIntegration extends AbstractIntegration {
 
     //must be over 1000
     private final int firstInteger = 10000000;
+    //how many of them are resubmitted one at a time to measure the latency of each
+    private final int noLatencySamples = 500;
     private final int noSamples = 5000;
 
     private static final int timeout = 100000;
@@ -94,6 +97,20 @@ public class BigIntegration extends AbstractIntegration {
         if (msPerSample > 100) {
             throw new RuntimeException("Took more than 100ms per sample to submit (" + msPerSample + "ms each)");
         }
+
+        //the batch above is submitted concurrently, so resubmit some one at a time to see
+        //the latency of a single update without queueing, so outliers show up in the percentiles
+        LatencyRecorder latencies = new LatencyRecorder();
+        for (Sample sample : samples.subList(0, Math.min(noLatencySamples, samples.size()))) {
+            long sampleStartTime = System.nanoTime();
+            client.persistSampleResource(sample);
+            latencies.record(System.nanoTime() - sampleStartTime);
+        }
+        log.info("Resubmitted " + latencies.getCount() + " samples one at a time (" + latencies.summary() + ")");
+        double p95 = latencies.getPercentileMs(95);
+        if (p95 > 100) {
+            throw new RuntimeException("Took more than 100ms to resubmit 95% of samples (p95 " + p95 + "ms)");
+        }
     }
 
     @Override
@@ -0,0 +1,61 @@
+package uk.ac.ebi.biosamples.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of individual requests so that a run can be summarised
+ * by percentiles rather than just an average, which hides slow outliers.
+ */
+public class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count = 0;
+    private boolean sorted = true;
+
+    public synchronized void record(long nanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        sorted = false;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency in milliseconds at that percentile, using the nearest-rank method
+     */
+    public synchronized double getPercentileMs(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(latencies, 0, count);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * count);
+        rank = Math.max(1, Math.min(count, rank));
+        return latencies[rank - 1] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public synchronized double getMeanMs() {
+        if (count == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += latencies[i];
+        }
+        return total / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public String summary() {
+        return String.format("n=%d mean=%.1fms p50=%.1fms p90=%.1fms p95=%.1fms p99=%.1fms max=%.1fms",
+                getCount(), getMeanMs(), getPercentileMs(50), getPercentileMs(90), getPercentileMs(95),
+                getPercentileMs(99), getPercentileMs(100));
+    }
+}
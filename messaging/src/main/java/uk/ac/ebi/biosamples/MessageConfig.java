@@ -7,8 +7,8 @@ import org.springframework.amqp.core.ExchangeBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -59,11 +59,12 @@ public class MessageConfig {
 		return BindingBuilder.bind(getQueueToBeIndexedSolr()).to(getExchangeForIndexingSolr()).with(Messaging.queueToBeIndexedSolr).noargs();
 	}
 	
-	//enable messaging in json	
+	//enable messaging in json, or in the compact encoding once all consumers can read it
+	//either is read whatever is written
 	//note that this class is not the same as the http MessageConverter class	
 	@Bean
-	public MessageConverter getJackson2MessageConverter() {
-		return new Jackson2JsonMessageConverter();
+	public MessageConverter getMessageContentConverter(@Value("${biosamples.messaging.compact:false}") boolean compact) {
+		return new MessageContentConverter(compact);
 	}
 
 }
@@ -0,0 +1,122 @@
+package uk.ac.ebi.biosamples;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Converts {@link MessageContent} to and from messages in either the original json, or a
+ * compact encoding that leaves out the type headers and gzips bodies larger than a kilobyte.
+ * Smaller bodies are the same json, as they don't shrink enough to be worth compressing.
+ *
+ * Messages are always read according to their content type, so consumers can read both while
+ * producers are switched over. The compact content type carries a version, and a message with
+ * a version newer than this consumer understands fails to convert, so it is dead-lettered and
+ * retried rather than misread.
+ */
+public class MessageContentConverter implements MessageConverter {
+
+	public static final String CONTENT_TYPE = "application/vnd.biosamples.message+json";
+	public static final int VERSION = 1;
+	public static final String VERSION_PARAMETER = "version";
+	public static final String GZIP = "gzip";
+
+	private static final int COMPRESS_MIN = 1024;
+
+	private static final MimeType MIME_TYPE = MimeType.valueOf(CONTENT_TYPE);
+
+	private final Jackson2JsonMessageConverter jsonMessageConverter = new Jackson2JsonMessageConverter();
+	private final ObjectWriter objectWriter;
+	private final ObjectReader objectReader;
+	private final boolean compact;
+
+	/**
+	 * @param compact write the compact encoding, only once all consumers can read it
+	 */
+	public MessageContentConverter(boolean compact) {
+		ObjectMapper objectMapper = new ObjectMapper();
+		//a newer producer of the same version may add fields
+		objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		objectMapper.configure(SerializationFeature.INDENT_OUTPUT, false);
+		this.objectWriter = objectMapper.writerFor(MessageContent.class);
+		this.objectReader = objectMapper.readerFor(MessageContent.class);
+		this.compact = compact;
+	}
+
+	@Override
+	public Message toMessage(Object object, MessageProperties messageProperties) throws MessageConversionException {
+		if (!compact || !(object instanceof MessageContent)) {
+			return jsonMessageConverter.toMessage(object, messageProperties);
+		}
+		byte[] body;
+		try {
+			body = objectWriter.writeValueAsBytes(object);
+			if (body.length > COMPRESS_MIN) {
+				body = gzip(body);
+				messageProperties.setContentEncoding(GZIP);
+			}
+		} catch (IOException e) {
+			throw new MessageConversionException("Failed to convert " + object, e);
+		}
+		messageProperties.setContentType(CONTENT_TYPE + ";" + VERSION_PARAMETER + "=" + VERSION);
+		messageProperties.setContentLength(body.length);
+		return new Message(body, messageProperties);
+	}
+
+	@Override
+	public Object fromMessage(Message message) throws MessageConversionException {
+		MessageProperties messageProperties = message.getMessageProperties();
+		MimeType mimeType = getMimeType(messageProperties);
+		if (mimeType == null || !MIME_TYPE.includes(mimeType)) {
+			return jsonMessageConverter.fromMessage(message);
+		}
+
+		String version = mimeType.getParameter(VERSION_PARAMETER);
+		if (version == null || !version.equals(String.valueOf(VERSION))) {
+			throw new MessageConversionException("Unsupported message version " + version + ", expected " + VERSION);
+		}
+		try (InputStream inputStream = GZIP.equals(messageProperties.getContentEncoding())
+				? new GZIPInputStream(new ByteArrayInputStream(message.getBody()))
+				: new ByteArrayInputStream(message.getBody())) {
+			return objectReader.readValue(inputStream);
+		} catch (IOException e) {
+			throw new MessageConversionException("Failed to convert message", e);
+		}
+	}
+
+	private static MimeType getMimeType(MessageProperties messageProperties) {
+		if (messageProperties == null || messageProperties.getContentType() == null) {
+			return null;
+		}
+		try {
+			return MimeType.valueOf(messageProperties.getContentType());
+		} catch (InvalidMimeTypeException e) {
+			return null;
+		}
+	}
+
+	private static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(body.length / 4);
+		try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+			gzipOutputStream.write(body);
+		}
+		return byteArrayOutputStream.toByteArray();
+	}
+}
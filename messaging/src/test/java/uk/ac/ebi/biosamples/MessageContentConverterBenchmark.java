@@ -0,0 +1,154 @@
+package uk.ac.ebi.biosamples;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.ExternalReference;
+import uk.ac.ebi.biosamples.model.Relationship;
+import uk.ac.ebi.biosamples.model.Sample;
+
+/**
+ * Compares the size of indexing messages, and how many can be written and read per second, in
+ * json and in the compact encoding. Not run as part of the build, run it with the test
+ * classpath, optionally giving the numbers of related samples to use.
+ *
+ * The related samples are generated from a fixed seed, but differ from each other as samples
+ * from different submissions do, in their attributes, values, lengths and references. Near
+ * identical samples compress far better than real ones, so would overstate the saving.
+ */
+public class MessageContentConverterBenchmark {
+
+	private static final int ITERATIONS = 200;
+
+	private static final String[] ORGANISMS = {"Homo sapiens", "Mus musculus", "Danio rerio", "Arabidopsis thaliana",
+			"Bos taurus", "Escherichia coli", "soil metagenome", "Plasmodium falciparum", "Zea mays", "Gallus gallus"};
+	private static final String[] TYPES = {"sex", "age", "organism part", "cell type", "disease state", "strain",
+			"genotype", "developmental stage", "collection date", "geographic location", "latitude and longitude",
+			"host", "isolation source", "env_biome", "treatment", "time point", "individual", "ethnicity", "tissue",
+			"sample source name", "culture condition", "biomaterial provider", "cultivar", "breed", "depth"};
+	private static final String[] WORDS = {"primary", "tumour", "normal", "adjacent", "biopsy", "peripheral",
+			"blood", "mononuclear", "cells", "treated", "control", "replicate", "day", "week", "infected", "wild",
+			"type", "knockout", "heterozygous", "homozygous", "field", "site", "north", "sediment", "surface",
+			"culture", "passage", "frozen", "fresh", "lysate", "extract", "library", "pool", "batch", "plate"};
+
+	public static void main(String[] args) {
+		int[] relatedCounts = {0, 10, 100, 1000};
+		if (args.length > 0) {
+			relatedCounts = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				relatedCounts[i] = Integer.parseInt(args[i]);
+			}
+		}
+		String[] names = {"json", "compact"};
+		MessageConverter[] converters = {
+				new MessageContentConverter(false),
+				new MessageContentConverter(true)};
+
+		System.out.println("related\tencoding\tbytes\twrites/s\treads/s");
+		for (int relatedCount : relatedCounts) {
+			MessageContent messageContent = messageContent(relatedCount, new Random(relatedCount));
+			for (int c = 0; c < converters.length; c++) {
+				MessageConverter converter = converters[c];
+				//warm up
+				Message message = null;
+				for (int i = 0; i < ITERATIONS; i++) {
+					message = converter.toMessage(messageContent, new MessageProperties());
+					converter.fromMessage(message);
+				}
+
+				long start = System.nanoTime();
+				for (int i = 0; i < ITERATIONS; i++) {
+					converter.toMessage(messageContent, new MessageProperties());
+				}
+				long writes = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				for (int i = 0; i < ITERATIONS; i++) {
+					converter.fromMessage(message);
+				}
+				long reads = System.nanoTime() - start;
+
+				System.out.println(String.format("%d\t%s\t%d\t%.0f\t%.0f", relatedCount, names[c], message.getBody().length,
+						ITERATIONS * 1000000000.0 / writes, ITERATIONS * 1000000000.0 / reads));
+			}
+		}
+	}
+
+	/**
+	 * A message for a sample that the given number of varied samples are derived from
+	 */
+	private static MessageContent messageContent(int relatedCount, Random random) {
+		String accession = accession(random);
+		List<Sample> related = new ArrayList<>(relatedCount);
+		for (int i = 0; i < relatedCount; i++) {
+			String relatedAccession = accession(random);
+			related.add(sample(random, relatedAccession)
+					.addRelationship(Relationship.build(relatedAccession, "derived from", accession)).build());
+		}
+		Sample sample = new Sample.Builder(words(random, 2), accession)
+				.withDomain("self.BiosampleIntegrationTest")
+				.withRelease(Instant.parse("2018-01-01T00:00:00Z")).withUpdate(Instant.parse("2018-06-01T00:00:00Z"))
+				.addAttribute(Attribute.build("organism", ORGANISMS[0])).build();
+		return MessageContent.build(sample, null, related, false);
+	}
+
+	private static Sample.Builder sample(Random random, String accession) {
+		Instant release = Instant.parse("2010-01-01T00:00:00Z").plusSeconds(random.nextInt(300000000));
+		Sample.Builder builder = new Sample.Builder(words(random, 1 + random.nextInt(4)) + " " + random.nextInt(100000),
+				accession)
+				.withDomain("self." + WORDS[random.nextInt(WORDS.length)] + random.nextInt(1000))
+				.withRelease(release).withUpdate(release.plusSeconds(random.nextInt(30000000)));
+
+		String organism = ORGANISMS[random.nextInt(ORGANISMS.length)];
+		builder.addAttribute(Attribute.build("organism", organism,
+				"http://purl.obolibrary.org/obo/NCBITaxon_" + (1000 + random.nextInt(1000000)), null));
+		List<String> types = new ArrayList<>();
+		Collections.addAll(types, TYPES);
+		Collections.shuffle(types, random);
+		int attributeCount = 3 + random.nextInt(15);
+		for (int i = 0; i < attributeCount; i++) {
+			String type = types.get(i);
+			if ("age".equals(type) || "depth".equals(type)) {
+				builder.addAttribute(Attribute.build(type, Integer.toString(random.nextInt(100)), new ArrayList<>(),
+						random.nextBoolean() ? "year" : "metre"));
+			} else if (random.nextInt(3) == 0) {
+				builder.addAttribute(Attribute.build(type, words(random, 1 + random.nextInt(3)),
+						"http://purl.obolibrary.org/obo/UBERON_" + String.format("%07d", random.nextInt(10000000)), null));
+			} else {
+				builder.addAttribute(Attribute.build(type, words(random, 1 + random.nextInt(8))));
+			}
+		}
+		if (random.nextBoolean()) {
+			builder.addAttribute(Attribute.build("description", words(random, 5 + random.nextInt(40))));
+		}
+		builder.addExternalReference(ExternalReference.build("https://www.ebi.ac.uk/ena/data/view/ERS" + random.nextInt(10000000)));
+		return builder;
+	}
+
+	private static String accession(Random random) {
+		String[] prefixes = {"SAMEA", "SAMN", "SAMD"};
+		return prefixes[random.nextInt(prefixes.length)] + (100000 + random.nextInt(10000000));
+	}
+
+	private static String words(Random random, int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(" ");
+			}
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+			if (random.nextInt(4) == 0) {
+				sb.append(random.nextInt(1000));
+			}
+		}
+		return sb.toString();
+	}
+}
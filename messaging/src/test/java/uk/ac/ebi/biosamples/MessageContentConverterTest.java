@@ -0,0 +1,102 @@
+package uk.ac.ebi.biosamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.ExternalReference;
+import uk.ac.ebi.biosamples.model.Relationship;
+import uk.ac.ebi.biosamples.model.Sample;
+
+public class MessageContentConverterTest {
+
+	@Test
+	public void compact_small_round_trip() {
+		MessageContent messageContent = messageContent(0);
+		Message message = new MessageContentConverter(true).toMessage(messageContent, new MessageProperties());
+
+		assertEquals("application/vnd.biosamples.message+json;version=1", message.getMessageProperties().getContentType());
+		//too small to be worth compressing
+		assertNull(message.getMessageProperties().getContentEncoding());
+		assertContent(messageContent, new MessageContentConverter(false).fromMessage(message));
+	}
+
+	@Test
+	public void compact_round_trip() {
+		MessageContent messageContent = messageContent(100);
+		Message json = new MessageContentConverter(false).toMessage(messageContent, new MessageProperties());
+		Message message = new MessageContentConverter(true).toMessage(messageContent, new MessageProperties());
+
+		assertEquals(MessageContentConverter.GZIP, message.getMessageProperties().getContentEncoding());
+		assertTrue(message.getBody().length < json.getBody().length);
+		assertContent(messageContent, new MessageContentConverter(false).fromMessage(message));
+	}
+
+	@Test
+	public void reads_json_from_older_producers() {
+		MessageContent messageContent = messageContent(2);
+		Message message = new Jackson2JsonMessageConverter().toMessage(messageContent, new MessageProperties());
+
+		assertContent(messageContent, new MessageContentConverter(true).fromMessage(message));
+	}
+
+	@Test
+	public void writes_json_until_compact() {
+		Message message = new MessageContentConverter(false).toMessage(messageContent(2), new MessageProperties());
+
+		assertEquals(MessageProperties.CONTENT_TYPE_JSON, message.getMessageProperties().getContentType());
+	}
+
+	@Test(expected = MessageConversionException.class)
+	public void rejects_newer_versions() {
+		Message message = new MessageContentConverter(true).toMessage(messageContent(0), new MessageProperties());
+		message.getMessageProperties().setContentType(MessageContentConverter.CONTENT_TYPE + ";version=2");
+
+		new MessageContentConverter(true).fromMessage(message);
+	}
+
+	private static void assertContent(MessageContent expected, Object actual) {
+		MessageContent messageContent = (MessageContent) actual;
+		assertEquals(expected.getSample(), messageContent.getSample());
+		assertEquals(expected.getRelated(), messageContent.getRelated());
+		assertEquals(expected.delete, messageContent.delete);
+	}
+
+	/**
+	 * A message for a sample that the given number of other samples are derived from
+	 */
+	static MessageContent messageContent(int relatedCount) {
+		List<Sample> related = new ArrayList<>(relatedCount);
+		for (int i = 1; i <= relatedCount; i++) {
+			related.add(sample(i).addRelationship(Relationship.build(accession(i), "derived from", accession(0))).build());
+		}
+		return MessageContent.build(sample(0).build(), null, related, false);
+	}
+
+	private static Sample.Builder sample(int i) {
+		return new Sample.Builder("sample " + i, accession(i))
+				.withDomain("self.BiosampleIntegrationTest")
+				.withRelease("2018-01-01T00:00:00Z").withUpdate("2018-06-01T00:00:00Z")
+				.addAttribute(Attribute.build("organism", "Homo sapiens", "http://purl.obolibrary.org/obo/NCBITaxon_9606", null))
+				.addAttribute(Attribute.build("sex", "female", "http://purl.obolibrary.org/obo/PATO_0000383", null))
+				.addAttribute(Attribute.build("age", Integer.toString(i % 100), new ArrayList<>(), "year"))
+				.addAttribute(Attribute.build("organism part", "liver"))
+				.addAttribute(Attribute.build("INSDC status", "public"))
+				.addAttribute(Attribute.build("submitter id", "submitter-" + i))
+				.addExternalReference(ExternalReference.build("https://www.ebi.ac.uk/ena/data/view/ERS" + i));
+	}
+
+	private static String accession(int i) {
+		return "SAMEA" + (1000000 + i);
+	}
+}
@@ -8,7 +8,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -229,17 +228,10 @@ public class Attribute implements Comparable<Attribute> {
     	if (unit != null) unit = unit.trim();
     	//create output
 		Attribute attr = new Attribute();
-		attr.type = type;
+		attr.type = ModelInterner.intern(type);
 		attr.value = value;
-		attr.iri = new TreeSet<>();
-		if (iri != null) {
-			for (String iriOne : iri) {
-				if (iriOne != null) {
-					attr.iri.add(iriOne);
-				}
-			}
-		}
-		attr.unit = unit;
+		attr.iri = ModelInterner.intern(iri);
+		attr.unit = ModelInterner.intern(unit);
 		return attr;
 	}
 
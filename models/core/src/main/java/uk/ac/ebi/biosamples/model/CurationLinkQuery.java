@@ -0,0 +1,183 @@
+package uk.ac.ebi.biosamples.model;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import uk.ac.ebi.biosamples.service.CustomInstantDeserializer;
+import uk.ac.ebi.biosamples.service.CustomInstantSerializer;
+
+/**
+ * Selects the curation links of a domain, optionally only those created in a time window and
+ * those whose curation's first pre attribute matches the given regular expressions.
+ *
+ * The regular expressions must match the whole of the attribute type or value, and a value
+ * matching attributePreValueExcluded is never selected. As in the per sample undo this replaced,
+ * only the first pre attribute, in the order curations sort them, is checked, and links must be
+ * created after createdFrom.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CurationLinkQuery {
+
+	private final String domain;
+	private final Instant createdFrom;
+	private final Instant createdUntil;
+	private final String attributePreType;
+	private final String attributePreValue;
+	private final String attributePreValueExcluded;
+
+	private final Pattern attributePreTypePattern;
+	private final Pattern attributePreValuePattern;
+	private final Pattern attributePreValueExcludedPattern;
+
+	private CurationLinkQuery(String domain, Instant createdFrom, Instant createdUntil,
+			String attributePreType, String attributePreValue, String attributePreValueExcluded) {
+		this.domain = domain;
+		this.createdFrom = createdFrom;
+		this.createdUntil = createdUntil;
+		this.attributePreType = attributePreType;
+		this.attributePreValue = attributePreValue;
+		this.attributePreValueExcluded = attributePreValueExcluded;
+		this.attributePreTypePattern = compile(attributePreType);
+		this.attributePreValuePattern = compile(attributePreValue);
+		this.attributePreValueExcludedPattern = compile(attributePreValueExcluded);
+	}
+
+	private static Pattern compile(String regex) {
+		return regex == null ? null : Pattern.compile(regex);
+	}
+
+	public String getDomain() {
+		return domain;
+	}
+
+	/**
+	 * Exclusive, or null for no lower limit
+	 */
+	@JsonSerialize(using = CustomInstantSerializer.class)
+	public Instant getCreatedFrom() {
+		return createdFrom;
+	}
+
+	/**
+	 * Exclusive, or null for no upper limit
+	 */
+	@JsonSerialize(using = CustomInstantSerializer.class)
+	public Instant getCreatedUntil() {
+		return createdUntil;
+	}
+
+	public String getAttributePreType() {
+		return attributePreType;
+	}
+
+	public String getAttributePreValue() {
+		return attributePreValue;
+	}
+
+	public String getAttributePreValueExcluded() {
+		return attributePreValueExcluded;
+	}
+
+	/**
+	 * Whether the curation link is selected by this query, including its domain and creation time
+	 */
+	public boolean matches(CurationLink curationLink) {
+		if (!domain.equals(curationLink.getDomain())) {
+			return false;
+		}
+		Instant created = curationLink.getCreated();
+		if (createdFrom != null && (created == null || !created.isAfter(createdFrom))) {
+			return false;
+		}
+		if (createdUntil != null && (created == null || !created.isBefore(createdUntil))) {
+			return false;
+		}
+		return matches(curationLink.getCuration());
+	}
+
+	/**
+	 * Whether the first pre attribute of the curation is selected by this query, or any curation
+	 * if this query has no attribute expressions
+	 */
+	public boolean matches(Curation curation) {
+		if (attributePreTypePattern == null && attributePreValuePattern == null && attributePreValueExcludedPattern == null) {
+			return true;
+		}
+		if (curation.getAttributesPre().isEmpty()) {
+			return false;
+		}
+		Attribute attribute = curation.getAttributesPre().first();
+		if (attributePreTypePattern != null && !attributePreTypePattern.matcher(attribute.getType()).matches()) {
+			return false;
+		}
+		if (attributePreValuePattern != null && !attributePreValuePattern.matcher(attribute.getValue()).matches()) {
+			return false;
+		}
+		if (attributePreValueExcludedPattern != null && attributePreValueExcludedPattern.matcher(attribute.getValue()).matches()) {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) return true;
+		if (!(o instanceof CurationLinkQuery)) {
+			return false;
+		}
+		CurationLinkQuery other = (CurationLinkQuery) o;
+		return Objects.equals(this.domain, other.domain)
+				&& Objects.equals(this.createdFrom, other.createdFrom)
+				&& Objects.equals(this.createdUntil, other.createdUntil)
+				&& Objects.equals(this.attributePreType, other.attributePreType)
+				&& Objects.equals(this.attributePreValue, other.attributePreValue)
+				&& Objects.equals(this.attributePreValueExcluded, other.attributePreValueExcluded);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(domain, createdFrom, createdUntil, attributePreType, attributePreValue, attributePreValueExcluded);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("CurationLinkQuery(");
+		sb.append(domain);
+		sb.append(",");
+		sb.append(createdFrom);
+		sb.append(",");
+		sb.append(createdUntil);
+		sb.append(",");
+		sb.append(attributePreType);
+		sb.append(",");
+		sb.append(attributePreValue);
+		sb.append(",");
+		sb.append(attributePreValueExcluded);
+		sb.append(")");
+		return sb.toString();
+	}
+
+	/**
+	 * @throws java.util.regex.PatternSyntaxException if one of the regular expressions is not valid
+	 */
+	@JsonCreator
+	public static CurationLinkQuery build(@JsonProperty("domain") String domain,
+			@JsonProperty("createdFrom") @JsonDeserialize(using = CustomInstantDeserializer.class) Instant createdFrom,
+			@JsonProperty("createdUntil") @JsonDeserialize(using = CustomInstantDeserializer.class) Instant createdUntil,
+			@JsonProperty("attributePreType") String attributePreType,
+			@JsonProperty("attributePreValue") String attributePreValue,
+			@JsonProperty("attributePreValueExcluded") String attributePreValueExcluded) {
+		if (domain == null || domain.trim().length() == 0) {
+			throw new IllegalArgumentException("domain must be provided");
+		}
+		return new CurationLinkQuery(domain, createdFrom, createdUntil, attributePreType, attributePreValue, attributePreValueExcluded);
+	}
+}
@@ -0,0 +1,149 @@
+package uk.ac.ebi.biosamples.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * What undoing the curation links selected by a {@link CurationLinkQuery} has done so far, or
+ * would do for a dry run. Undoing runs in the background on the server, and the report is
+ * fetched again by its id until it is no longer running. Only the first few matching curation
+ * links are listed.
+ */
+public class CurationLinkUndoReport {
+
+	public enum Status {
+		RUNNING, FINISHED, FAILED
+	}
+
+	private final String id;
+	private final Status status;
+	private final CurationLinkQuery query;
+	private final boolean dryRun;
+	private final long matched;
+	private final long deleted;
+	private final long samples;
+	private final List<CurationLink> examples;
+
+	private CurationLinkUndoReport(String id, Status status, CurationLinkQuery query, boolean dryRun, long matched,
+			long deleted, long samples, List<CurationLink> examples) {
+		this.id = id;
+		this.status = status;
+		this.query = query;
+		this.dryRun = dryRun;
+		this.matched = matched;
+		this.deleted = deleted;
+		this.samples = samples;
+		this.examples = examples;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * A failed undo stops where it failed, and can be resumed from there
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	public CurationLinkQuery getQuery() {
+		return query;
+	}
+
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	/**
+	 * Number of curation links selected by the query
+	 */
+	public long getMatched() {
+		return matched;
+	}
+
+	/**
+	 * Number of curation links deleted, always zero for a dry run
+	 */
+	public long getDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * Number of samples with a selected curation link, each of which is reindexed once its
+	 * selected links in a batch are deleted. A sample whose links were split by resuming a failed
+	 * undo is counted once for each run.
+	 */
+	public long getSamples() {
+		return samples;
+	}
+
+	public List<CurationLink> getExamples() {
+		return examples;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) return true;
+		if (!(o instanceof CurationLinkUndoReport)) {
+			return false;
+		}
+		CurationLinkUndoReport other = (CurationLinkUndoReport) o;
+		return Objects.equals(this.id, other.id)
+				&& this.status == other.status
+				&& Objects.equals(this.query, other.query)
+				&& this.dryRun == other.dryRun
+				&& this.matched == other.matched
+				&& this.deleted == other.deleted
+				&& this.samples == other.samples
+				&& Objects.equals(this.examples, other.examples);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(id, status, query, dryRun, matched, deleted, samples, examples);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("CurationLinkUndoReport(");
+		sb.append(id);
+		sb.append(",");
+		sb.append(status);
+		sb.append(",");
+		sb.append(query);
+		sb.append(",");
+		sb.append(dryRun);
+		sb.append(",");
+		sb.append(matched);
+		sb.append(",");
+		sb.append(deleted);
+		sb.append(",");
+		sb.append(samples);
+		sb.append(")");
+		return sb.toString();
+	}
+
+	@JsonCreator
+	public static CurationLinkUndoReport build(@JsonProperty("id") String id,
+			@JsonProperty("status") Status status,
+			@JsonProperty("query") CurationLinkQuery query,
+			@JsonProperty("dryRun") boolean dryRun,
+			@JsonProperty("matched") long matched,
+			@JsonProperty("deleted") long deleted,
+			@JsonProperty("samples") long samples,
+			@JsonProperty("examples") List<CurationLink> examples) {
+		if (examples == null) {
+			examples = Collections.emptyList();
+		} else {
+			examples = Collections.unmodifiableList(new ArrayList<>(examples));
+		}
+		return new CurationLinkUndoReport(id, status, query, dryRun, matched, deleted, samples, examples);
+	}
+}
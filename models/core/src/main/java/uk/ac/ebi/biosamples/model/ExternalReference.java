@@ -115,6 +115,7 @@ public class ExternalReference implements Comparable<ExternalReference> {
                 .putUnencodedChars(Objects.nonNull(uriComponents.getFragment()) ? uriComponents.getFragment() : "");
 
         if (duo != null) {
+            duo = ModelInterner.intern(duo);
             for (String s : duo) {
                 hasher.putUnencodedChars(s);
             }
@@ -0,0 +1,71 @@
+package uk.ac.ebi.biosamples.model;
+
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Shares the instances of the strings and string sets that are repeated across many samples,
+ * such as attribute types, units, ontology term iris and relationship types.
+ *
+ * This is used when attributes, external references and relationships are built, so applies to
+ * samples read from json and from mongo. It uses weak references, so values no longer used by
+ * any sample can still be garbage collected.
+ *
+ * It is on by default and can be turned off with the system property biosamples.model.intern=false
+ * in which case the model builds its own mutable sets as before.
+ */
+public final class ModelInterner {
+
+	public static final String ENABLED_PROPERTY = "biosamples.model.intern";
+
+	private static final Interner<String> strings = Interners.newWeakInterner();
+	private static final Interner<SortedSet<String>> sets = Interners.newWeakInterner();
+
+	private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+
+	private ModelInterner() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		ModelInterner.enabled = enabled;
+	}
+
+	public static String intern(String value) {
+		if (!enabled || value == null) {
+			return value;
+		}
+		return strings.intern(value);
+	}
+
+	/**
+	 * Sorted set of the non-null values. When interning, this is a shared immutable set
+	 * of interned strings.
+	 */
+	public static SortedSet<String> intern(Collection<String> values) {
+		if (!enabled) {
+			SortedSet<String> set = new TreeSet<>();
+			for (String value : values) {
+				if (value != null) {
+					set.add(value);
+				}
+			}
+			return set;
+		}
+		ImmutableSortedSet.Builder<String> builder = ImmutableSortedSet.naturalOrder();
+		for (String value : values) {
+			if (value != null) {
+				builder.add(strings.intern(value));
+			}
+		}
+		return sets.intern(builder.build());
+	}
+}
@@ -93,7 +93,7 @@ public class Relationship implements Comparable<Relationship> {
     		@JsonProperty("target") String target) {
     	if (type == null || type.trim().length() == 0) throw new IllegalArgumentException("type cannot be empty");
     	if (target == null || target.trim().length() == 0) throw new IllegalArgumentException("target cannot be empty");
-		return new Relationship(type, target, source);
+		return new Relationship(ModelInterner.intern(type), target, source);
     }
 
     public static class Builder {
@@ -1,9 +1,9 @@
 package uk.ac.ebi.biosamples.service;
 
 import java.io.IOException;
-import java.util.SortedMap;
+import java.util.Objects;
 import java.util.SortedSet;
-import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,42 +51,52 @@ public class CharacteristicSerializer extends StdSerializer<SortedSet> {
 	public void serialize(SortedSet attributesRaw, JsonGenerator gen, SerializerProvider arg2)
 			throws IOException, JsonProcessingException {
 
-		
 		SortedSet<Attribute> attributes = (SortedSet<Attribute>)attributesRaw;
-		
+		if (attributes != null && attributes.comparator() != null) {
+			//needs to be in natural order so each type is contiguous
+			attributes = new TreeSet<>(attributes);
+		}
+
 		gen.writeStartObject();
-		SortedMap<String, SortedMap<String,Attribute>> attributeMap = new TreeMap<>();
 		if (attributes != null && attributes.size() > 0) {
+			//attributes are sorted by type then value, so write each one directly
+			//holding back the previous one in case the next has the same type and value
+			//in which case only the last of them is written
+			Attribute previous = null;
 			for (Attribute attribute : attributes) {
-				if (!attributeMap.containsKey(attribute.getType())) {
-					attributeMap.put(attribute.getType(), new TreeMap<>());
+				if (previous == null) {
+					gen.writeArrayFieldStart(attribute.getType());
+				} else if (!Objects.equals(previous.getType(), attribute.getType())) {
+					writeValue(previous, gen);
+					gen.writeEndArray();
+					gen.writeArrayFieldStart(attribute.getType());
+				} else if (!Objects.equals(previous.getValue(), attribute.getValue())) {
+					writeValue(previous, gen);
 				}
-				attributeMap.get(attribute.getType()).put(attribute.getValue(), Attribute.build(attribute.getType(), attribute.getValue(), attribute.getIri(), attribute.getUnit()));			
+				previous = attribute;
 			}
-
-	        for (String type : attributeMap.keySet()) {
-	        	gen.writeArrayFieldStart(type);	        	
-	        	
-	            for (String value : attributeMap.get(type).keySet()) {
-	            	gen.writeStartObject();
-	                gen.writeStringField("text", value);
-	            	if (attributeMap.get(type).get(value).getIri() != null && attributeMap.get(type).get(value).getIri().size() > 0) {
-		                gen.writeArrayFieldStart("ontologyTerms");
-		                for (String iri : attributeMap.get(type).get(value).getIri()) {
-		                	gen.writeString(iri);
-		                }
-		                gen.writeEndArray();
-	            	}
-	            	if (attributeMap.get(type).get(value).getUnit() != null) {
-	            		gen.writeStringField("unit", attributeMap.get(type).get(value).getUnit());		
-	            	}
-	            	gen.writeEndObject();
-	            }
-	            
-	            gen.writeEndArray();
-	        }
+			writeValue(previous, gen);
+			gen.writeEndArray();
 		}
 
-        gen.writeEndObject();
+		gen.writeEndObject();
+	}
+
+	private void writeValue(Attribute attribute, JsonGenerator gen) throws IOException {
+		gen.writeStartObject();
+		gen.writeStringField("text", attribute.getValue());
+		if (attribute.getIri() != null && attribute.getIri().size() > 0) {
+			gen.writeArrayFieldStart("ontologyTerms");
+			for (String iri : attribute.getIri()) {
+				if (iri != null) {
+					gen.writeString(iri);
+				}
+			}
+			gen.writeEndArray();
+		}
+		if (attribute.getUnit() != null) {
+			gen.writeStringField("unit", attribute.getUnit().trim());
+		}
+		gen.writeEndObject();
 	}
 }
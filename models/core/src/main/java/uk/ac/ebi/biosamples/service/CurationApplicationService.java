@@ -1,5 +1,6 @@
 package uk.ac.ebi.biosamples.service;
 
+import com.google.common.collect.Iterables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -8,8 +9,15 @@ import uk.ac.ebi.biosamples.model.Curation;
 import uk.ac.ebi.biosamples.model.ExternalReference;
 import uk.ac.ebi.biosamples.model.Sample;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -56,29 +64,165 @@ public class CurationApplicationService {
 				sample.getOrganizations(), sample.getContacts(), sample.getPublications(), sample.getSubmittedVia());
 	}
 	
+	/**
+	 * Applies as many of the curations as possible to the sample, removing those that were applied
+	 * from the collection so only the curations that could not be applied remain in it.
+	 */
 	public Sample applyAllCurationToSample(Sample sample, Collection<Curation> curations) {
+		CuratedSample curatedSample = applyCurations(sample, curations);
+		if (curatedSample.getApplied().size() > 0) {
+			Set<Curation> applied = Collections.newSetFromMap(new IdentityHashMap<>());
+			applied.addAll(curatedSample.getApplied());
+			curations.removeIf(applied::contains);
+		}
+		return curatedSample.getSample();
+	}
+
+	/**
+	 * Applies as many of the curations as possible to the sample. A curation can be applied once
+	 * the sample has all of its pre attributes and external references and none of its post ones.
+	 *
+	 * Curations are tried in the order given and, when any apply, the others are tried again as
+	 * if by repeated passes over them, so the result is the same as trying each in turn until no
+	 * more apply. However a curation is only tried again once a curation it depends on has been
+	 * applied, i.e. one that added or removed something in its pre or post, so each curation is
+	 * applied once and the sample is built once at the end.
+	 */
+	public CuratedSample applyCurations(Sample sample, Collection<Curation> curations) {
+		List<Curation> ordered = new ArrayList<>(curations);
+		int count = ordered.size();
+
+		//the curations to try again when each attribute or external reference is added or removed
+		Map<Object, List<Integer>> dependents = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			Curation curation = ordered.get(i);
+			for (Object item : Iterables.concat(curation.getAttributesPre(), curation.getAttributesPost(),
+					curation.getExternalReferencesPre(), curation.getExternalReferencesPost())) {
+				dependents.computeIfAbsent(item, k -> new ArrayList<>()).add(i);
+			}
+		}
+
+		//when each curation is next to be tried, as pass * count + position
+		long[] scheduled = new long[count];
+		NavigableSet<Long> queue = new TreeSet<>();
+		for (int i = 0; i < count; i++) {
+			scheduled[i] = i;
+			queue.add((long) i);
+		}
 
-		boolean curationApplied = true;
-		while (curationApplied && curations.size() > 0) {
-			Iterator<Curation> it = curations.iterator();
-			curationApplied = false;
-			while (it.hasNext()) {
-				Curation curation = it.next();
-				try {
-					sample = applyCurationToSample(sample, curation);
-					it.remove();
-					curationApplied = true;
-				} catch (IllegalArgumentException e) {
-					//do nothing, will try again next loop
+		SortedSet<Attribute> attributes = new TreeSet<>(sample.getAttributes());
+		SortedSet<ExternalReference> externalReferences = new TreeSet<>(sample.getExternalReferences());
+		boolean[] applied = new boolean[count];
+		List<Curation> appliedCurations = new ArrayList<>();
+		while (!queue.isEmpty()) {
+			long next = queue.pollFirst();
+			int i = (int) (next % count);
+			long pass = next / count;
+			scheduled[i] = -1;
+
+			Curation curation = ordered.get(i);
+			if (!isApplicable(curation, attributes, externalReferences)) {
+				//it will be tried again if anything it depends on changes
+				continue;
+			}
+			log.trace("Applying curation {} to sample {}", curation, sample.getAccession());
+			attributes.removeAll(curation.getAttributesPre());
+			externalReferences.removeAll(curation.getExternalReferencesPre());
+			attributes.addAll(curation.getAttributesPost());
+			externalReferences.addAll(curation.getExternalReferencesPost());
+			applied[i] = true;
+			appliedCurations.add(curation);
+
+			for (Object item : Iterables.concat(curation.getAttributesPre(), curation.getAttributesPost(),
+					curation.getExternalReferencesPre(), curation.getExternalReferencesPost())) {
+				for (int dependent : dependents.get(item)) {
+					if (applied[dependent]) {
+						continue;
+					}
+					//later curations are tried again in this pass, earlier ones in the next pass
+					long when = (dependent > i ? pass : pass + 1) * count + dependent;
+					if (scheduled[dependent] < 0 || when < scheduled[dependent]) {
+						if (scheduled[dependent] >= 0) {
+							queue.remove(scheduled[dependent]);
+						}
+						scheduled[dependent] = when;
+						queue.add(when);
+					}
 				}
 			}
 		}
-		if (!curationApplied) {
-			//we stopped because we didn't apply any curation
-			//therefore we have some curations that can't be applied
-			//this is a warning
+
+		List<Curation> unapplied = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			if (!applied[i]) {
+				unapplied.add(ordered.get(i));
+			}
+		}
+		if (unapplied.size() > 0) {
 			log.warn("Unapplied curation on "+sample.getAccession());
 		}
-		return sample;
+
+		if (appliedCurations.size() > 0) {
+			sample = Sample.build(sample.getName(), sample.getAccession(), sample.getDomain(),
+					sample.getRelease(), sample.getUpdate(), attributes, sample.getData(), sample.getRelationships(), externalReferences,
+					sample.getOrganizations(), sample.getContacts(), sample.getPublications(), sample.getSubmittedVia());
+		}
+		return new CuratedSample(sample, appliedCurations, unapplied);
+	}
+
+	/**
+	 * Whether the curation would apply to the attributes and external references, the same as
+	 * {@link #applyCurationToSample(Sample, Curation)} but without changing them.
+	 */
+	private boolean isApplicable(Curation curation, Set<Attribute> attributes, Set<ExternalReference> externalReferences) {
+		return attributes.containsAll(curation.getAttributesPre())
+				&& externalReferences.containsAll(curation.getExternalReferencesPre())
+				&& isAbsent(curation.getAttributesPost(), attributes, curation.getAttributesPre())
+				&& isAbsent(curation.getExternalReferencesPost(), externalReferences, curation.getExternalReferencesPre());
+	}
+
+	/**
+	 * Whether none of the items are in the set once the removed ones are taken out of it
+	 */
+	private <T> boolean isAbsent(Collection<T> items, Set<T> set, Set<T> removed) {
+		for (T item : items) {
+			if (set.contains(item) && !removed.contains(item)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A sample with curations applied to it, and the curations that could not be applied.
+	 */
+	public static class CuratedSample {
+		private final Sample sample;
+		private final List<Curation> applied;
+		private final List<Curation> unapplied;
+
+		private CuratedSample(Sample sample, List<Curation> applied, List<Curation> unapplied) {
+			this.sample = sample;
+			this.applied = Collections.unmodifiableList(applied);
+			this.unapplied = Collections.unmodifiableList(unapplied);
+		}
+
+		public Sample getSample() {
+			return sample;
+		}
+
+		/**
+		 * The curations that were applied, in the order they were applied
+		 */
+		public List<Curation> getApplied() {
+			return applied;
+		}
+
+		/**
+		 * The curations that could not be applied, in the order they were given
+		 */
+		public List<Curation> getUnapplied() {
+			return unapplied;
+		}
 	}
 }
@@ -0,0 +1,321 @@
+package uk.ac.ebi.biosamples.service;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.google.common.base.Strings;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Contact;
+import uk.ac.ebi.biosamples.model.ExternalReference;
+import uk.ac.ebi.biosamples.model.Organization;
+import uk.ac.ebi.biosamples.model.Publication;
+import uk.ac.ebi.biosamples.model.Relationship;
+import uk.ac.ebi.biosamples.model.Sample;
+
+/**
+ * Writes samples as legacy BioSamples XML directly to a stream, without building
+ * an intermediate document.
+ *
+ * The output is the same as writing the document from {@link SampleToXmlConverter}
+ * with a dom4j XMLWriter using the compact format, so values are trimmed and runs
+ * of whitespace within them collapsed to a single space.
+ *
+ */
+@Service
+public class SampleToXmlStreamWriter {
+
+	private static final String XMLNS = "http://www.ebi.ac.uk/biosamples/SampleGroupExport/1.0";
+	private static final String XSI = "http://www.w3.org/2001/XMLSchema-instance";
+	private static final String SCHEMA_LOCATION = "http://www.ebi.ac.uk/biosamples/SampleGroupExport/1.0 http://www.ebi.ac.uk/biosamples/assets/xsd/v1.0/BioSDSchema.xsd";
+
+	private final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+	private final ExternalReferenceService externalReferenceService;
+
+	public SampleToXmlStreamWriter(ExternalReferenceService externalReferenceService) {
+		this.externalReferenceService = externalReferenceService;
+	}
+
+	/**
+	 * Writes the sample as a complete UTF-8 XML document. The stream is flushed but not closed.
+	 */
+	public void write(Sample sample, OutputStream outputStream) throws XMLStreamException {
+		XMLStreamWriter xmlStreamWriter = xmlOutputFactory.createXMLStreamWriter(outputStream, "UTF-8");
+		xmlStreamWriter.writeStartDocument("UTF-8", "1.0");
+		xmlStreamWriter.writeCharacters("\n");
+		writeElement(sample, xmlStreamWriter);
+		xmlStreamWriter.writeEndDocument();
+		xmlStreamWriter.flush();
+		//don't close the writer, underlying outputstream will be closed elsewhere
+	}
+
+	/**
+	 * Creates a writer that can be passed to {@link #writeElement(Sample, XMLStreamWriter)} repeatedly
+	 * to write many samples into an enclosing document.
+	 */
+	public XMLStreamWriter createXMLStreamWriter(Writer writer) throws XMLStreamException {
+		return xmlOutputFactory.createXMLStreamWriter(writer);
+	}
+
+	/**
+	 * Writes the sample as an element, without any XML declaration.
+	 */
+	public void writeElement(Sample sample, XMLStreamWriter xmlStreamWriter) throws XMLStreamException {
+		if (sample.getAccession().startsWith("SAMEG")) {
+			//its a group
+			writeBioSampleGroup(sample, xmlStreamWriter);
+		} else {
+			writeBioSample(sample, xmlStreamWriter);
+		}
+	}
+
+	private void writeBioSample(Sample source, XMLStreamWriter xml) throws XMLStreamException {
+		xml.writeStartElement("BioSample");
+		writeRootNamespaces(xml);
+		xml.writeAttribute("id", source.getAccession());
+		xml.writeAttribute("submissionUpdateDate", DateTimeFormatter.ISO_INSTANT.format(source.getUpdate()).replace("Z", "+00:00"));
+		xml.writeAttribute("submissionReleaseDate", DateTimeFormatter.ISO_INSTANT.format(source.getRelease()).replace("Z", "+00:00"));
+
+		writeName(source, "Sample Name", xml);
+
+		PropertyValues properties = new PropertyValues();
+		properties.addCharacteristics(source);
+		//relationships other than derived from
+		for (Relationship relationship : source.getRelationships()) {
+			if (!"derived from".equals(relationship.getType().toLowerCase())
+					&& source.getAccession().equals(relationship.getSource())) {
+				properties.add(relationship.getType(), relationship.getTarget(), null, null);
+			}
+		}
+		properties.write(xml);
+
+		//derivedFrom element
+		for (Relationship relationship : source.getRelationships()) {
+			if ("derived from".equals(relationship.getType().toLowerCase())
+					&& source.getAccession().equals(relationship.getSource())) {
+				writeTextElement("derivedFrom", relationship.getTarget(), xml);
+			}
+		}
+
+		writeDatabases(source, xml);
+
+		xml.writeEndElement();
+	}
+
+	private void writeBioSampleGroup(Sample source, XMLStreamWriter xml) throws XMLStreamException {
+		xml.writeStartElement("BioSampleGroup");
+		writeRootNamespaces(xml);
+		xml.writeAttribute("id", source.getAccession());
+
+		writeName(source, "Group Name", xml);
+
+		PropertyValues properties = new PropertyValues();
+		//release and update date
+		properties.add("Submission Release Date", DateTimeFormatter.ISO_INSTANT.format(source.getRelease()).replace("Z", "+00:00"), null, null);
+		properties.add("Submission Update Date", DateTimeFormatter.ISO_INSTANT.format(source.getUpdate()).replace("Z", "+00:00"), null, null);
+		properties.addCharacteristics(source);
+		properties.write(xml);
+
+		for (Contact contact : source.getContacts()) {
+			if (hasContent(contact.getFirstName(), contact.getLastName(), contact.getMidInitials(),
+					contact.getRole(), contact.getEmail())) {
+				xml.writeStartElement("Person");
+				writeOptionalTextElement("FirstName", contact.getFirstName(), xml);
+				writeOptionalTextElement("LastName", contact.getLastName(), xml);
+				writeOptionalTextElement("MidInitials", contact.getMidInitials(), xml);
+				writeOptionalTextElement("Role", contact.getRole(), xml);
+				writeOptionalTextElement("Email", contact.getEmail(), xml);
+				xml.writeEndElement();
+			}
+		}
+
+		for (Organization organization : source.getOrganizations()) {
+			if (hasContent(organization.getName(), organization.getAddress(), organization.getUrl(),
+					organization.getRole(), organization.getEmail())) {
+				xml.writeStartElement("Organization");
+				writeOptionalTextElement("Name", organization.getName(), xml);
+				writeOptionalTextElement("Address", organization.getAddress(), xml);
+				writeOptionalTextElement("URI", organization.getUrl(), xml);
+				writeOptionalTextElement("Role", organization.getRole(), xml);
+				writeOptionalTextElement("E-mail", organization.getEmail(), xml);
+				xml.writeEndElement();
+			}
+		}
+
+		for (Publication publication : source.getPublications()) {
+			if (hasContent(publication.getDoi(), publication.getPubMedId())) {
+				xml.writeStartElement("Publication");
+				writeOptionalTextElement("DOI", publication.getDoi(), xml);
+				writeOptionalTextElement("PubMedID", publication.getPubMedId(), xml);
+				xml.writeEndElement();
+			}
+		}
+
+		writeDatabases(source, xml);
+
+		xml.writeEndElement();
+	}
+
+	private void writeRootNamespaces(XMLStreamWriter xml) throws XMLStreamException {
+		xml.writeDefaultNamespace(XMLNS);
+		xml.writeNamespace("xsi", XSI);
+		xml.writeAttribute("xsi", XSI, "schemaLocation", SCHEMA_LOCATION);
+	}
+
+	private void writeName(Sample source, String fieldname, XMLStreamWriter xml) throws XMLStreamException {
+		xml.writeStartElement("Property");
+		writePropertyAttributes(fieldname, xml);
+		xml.writeStartElement("QualifiedValue");
+		writeTextElement("Value", source.getName(), xml);
+		xml.writeEndElement();
+		xml.writeEndElement();
+	}
+
+	private void writePropertyAttributes(String attributeType, XMLStreamWriter xml) throws XMLStreamException {
+		xml.writeAttribute("class", attributeType);
+		xml.writeAttribute("characteristic", "false");
+		xml.writeAttribute("comment", "false");
+		xml.writeAttribute("type", "STRING");
+	}
+
+	private void writeDatabases(Sample source, XMLStreamWriter xml) throws XMLStreamException {
+		for (ExternalReference externalReference : source.getExternalReferences()) {
+			xml.writeStartElement("Database");
+			writeTextElement("Name", externalReferenceService.getNickname(externalReference), xml);
+			writeTextElement("URI", externalReference.getUrl(), xml);
+			//use the last segment of the URI as the ID
+			//not perfect, but good enough?
+			List<String> pathSegments = UriComponentsBuilder.fromUriString(externalReference.getUrl()).build().getPathSegments();
+			if (pathSegments.size() > 0) {
+				writeTextElement("ID", pathSegments.get(pathSegments.size()-1), xml);
+			}
+			xml.writeEndElement();
+		}
+	}
+
+	private boolean hasContent(String... values) {
+		for (String value : values) {
+			if (!Strings.isNullOrEmpty(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void writeOptionalTextElement(String name, String text, XMLStreamWriter xml) throws XMLStreamException {
+		if (!Strings.isNullOrEmpty(text)) {
+			writeTextElement(name, text, xml);
+		}
+	}
+
+	private void writeTextElement(String name, String text, XMLStreamWriter xml) throws XMLStreamException {
+		xml.writeStartElement(name);
+		writeText(text, xml);
+		xml.writeEndElement();
+	}
+
+	/**
+	 * Writes text the same way as a compact dom4j XMLWriter; trimmed with internal whitespace
+	 * collapsed, and control characters written as character references.
+	 */
+	private void writeText(String text, XMLStreamWriter xml) throws XMLStreamException {
+		StringBuilder sb = new StringBuilder();
+		//dom4j escapes control characters before collapsing whitespace, so form feeds are not treated as whitespace
+		StringTokenizer tokenizer = new StringTokenizer(text, " \t\n\r");
+		while (tokenizer.hasMoreTokens()) {
+			if (sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append(tokenizer.nextToken());
+		}
+		int start = 0;
+		for (int i = 0; i < sb.length(); i++) {
+			char c = sb.charAt(i);
+			if (c < 32) {
+				xml.writeCharacters(sb.substring(start, i));
+				xml.writeEntityRef("#" + (int) c);
+				start = i + 1;
+			}
+		}
+		xml.writeCharacters(sb.substring(start));
+	}
+
+	/**
+	 * Values of properties grouped and sorted by property type, with the
+	 * ontology term and unit of each value.
+	 */
+	private class PropertyValues {
+		private final SortedMap<String, SortedSet<String>> attrTypeValue = new TreeMap<>();
+		private final SortedMap<String, SortedMap<String, String>> attrIri = new TreeMap<>();
+		private final SortedMap<String, SortedMap<String, String>> attrUnit = new TreeMap<>();
+
+		private void addCharacteristics(Sample source) {
+			for (Attribute attribute : source.getCharacteristics()) {
+				String attributeType = attribute.getType();
+				if ("description".equals(attributeType)) {
+					attributeType = "Sample Description";
+				}
+				String iri = null;
+				if (attribute.getIri() != null && attribute.getIri().size() > 0) {
+					iri = attribute.getIri().first().toString();
+				}
+				String unit = null;
+				if (attribute.getUnit() != null && attribute.getUnit().trim().length() > 0) {
+					unit = attribute.getUnit();
+				}
+				add(attributeType, attribute.getValue(), iri, unit);
+			}
+		}
+
+		private void add(String type, String value, String iri, String unit) {
+			if (!attrTypeValue.containsKey(type)) {
+				attrTypeValue.put(type, new TreeSet<>());
+				attrIri.put(type, new TreeMap<>());
+				attrUnit.put(type, new TreeMap<>());
+			}
+			attrTypeValue.get(type).add(value);
+			if (iri != null) {
+				attrIri.get(type).put(value, iri);
+			}
+			if (unit != null) {
+				attrUnit.get(type).put(value, unit);
+			}
+		}
+
+		private void write(XMLStreamWriter xml) throws XMLStreamException {
+			for (String attributeType : attrTypeValue.keySet()) {
+				xml.writeStartElement("Property");
+				writePropertyAttributes(attributeType, xml);
+				for (String attributeValue : attrTypeValue.get(attributeType)) {
+					xml.writeStartElement("QualifiedValue");
+					writeTextElement("Value", attributeValue, xml);
+					if (attrIri.get(attributeType).containsKey(attributeValue)) {
+						xml.writeStartElement("TermSourceREF");
+						xml.writeEmptyElement("Name");
+						writeTextElement("TermSourceID", attrIri.get(attributeType).get(attributeValue), xml);
+						xml.writeEndElement();
+					}
+					if (attrUnit.get(attributeType).containsKey(attributeValue)) {
+						writeTextElement("Unit", attrUnit.get(attributeType).get(attributeValue), xml);
+					}
+					xml.writeEndElement();
+				}
+				xml.writeEndElement();
+			}
+		}
+	}
+}
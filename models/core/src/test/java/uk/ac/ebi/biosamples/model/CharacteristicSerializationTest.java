@@ -0,0 +1,170 @@
+package uk.ac.ebi.biosamples.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.google.common.io.CharStreams;
+
+import uk.ac.ebi.biosamples.service.CharacteristicSerializer;
+
+public class CharacteristicSerializationTest {
+
+	private Logger log = LoggerFactory.getLogger(this.getClass());
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+	private final CharacteristicSerializer serializer = new CharacteristicSerializer();
+	private final MapCharacteristicSerializer mapSerializer = new MapCharacteristicSerializer();
+
+	@Test
+	public void testSameAsMapSerializer() throws Exception {
+		for (SortedSet<Attribute> attributes : Arrays.asList(
+				new TreeSet<Attribute>(),
+				getAttributes(),
+				getDuplicateAttributes())) {
+			assertThat(write(serializer, attributes)).isEqualTo(write(mapSerializer, attributes));
+		}
+	}
+
+	@Test
+	public void testNull() throws Exception {
+		assertThat(write(serializer, null)).isEqualTo("{}");
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper();
+		Sample sample = new Sample.Builder("test", "SAMEA1")
+				.withAttributes(getAttributes())
+				.build();
+		String json = objectMapper.writeValueAsString(sample);
+		Sample read = objectMapper.readValue(json, Sample.class);
+		assertThat(read.getAttributes()).isEqualTo(sample.getAttributes());
+		assertThat(objectMapper.writeValueAsString(read)).isEqualTo(json);
+	}
+
+	@Test
+	public void testAllocation() throws Exception {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+		SortedSet<Attribute> attributes = getAttributes();
+		int iterations = 10000;
+		//warm up both before measuring
+		allocated(threadMXBean, mapSerializer, attributes, iterations);
+		allocated(threadMXBean, serializer, attributes, iterations);
+
+		long mapBytes = allocated(threadMXBean, mapSerializer, attributes, iterations) / iterations;
+		long streamBytes = allocated(threadMXBean, serializer, attributes, iterations) / iterations;
+		log.info("Bytes allocated per sample: map " + mapBytes + ", streaming " + streamBytes);
+		assertThat(streamBytes).isLessThan(mapBytes);
+	}
+
+	private long allocated(com.sun.management.ThreadMXBean threadMXBean, StdSerializer<SortedSet> serializer,
+			SortedSet<Attribute> attributes, int iterations) throws IOException {
+		//share one generator so only the serializer's own allocations are counted
+		JsonGenerator gen = jsonFactory.createGenerator(CharStreams.nullWriter());
+		long threadId = Thread.currentThread().getId();
+		long start = threadMXBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < iterations; i++) {
+			serializer.serialize(attributes, gen, null);
+		}
+		gen.flush();
+		return threadMXBean.getThreadAllocatedBytes(threadId) - start;
+	}
+
+	private String write(StdSerializer<SortedSet> serializer, SortedSet<Attribute> attributes) throws IOException {
+		StringWriter writer = new StringWriter();
+		JsonGenerator gen = jsonFactory.createGenerator(writer);
+		serializer.serialize(attributes, gen, null);
+		gen.flush();
+		return writer.toString();
+	}
+
+	private SortedSet<Attribute> getAttributes() {
+		SortedSet<Attribute> attributes = new TreeSet<>();
+		attributes.add(Attribute.build("organism", "Homo sapiens", "http://purl.obolibrary.org/obo/NCBITaxon_9606", null));
+		attributes.add(Attribute.build("age", "3", Collections.emptyList(), "year"));
+		attributes.add(Attribute.build("organism part", "lung"));
+		attributes.add(Attribute.build("organism part", "heart"));
+		attributes.add(Attribute.build("sex", "female", Arrays.asList("http://purl.obolibrary.org/obo/PATO_0000383", "http://www.ebi.ac.uk/efo/EFO_0001265"), null));
+		attributes.add(Attribute.build("description", "a \"quoted\"\n description, with unicode ü中", Collections.emptyList(), null));
+		attributes.add(Attribute.build("weight", "10", Collections.emptyList(), ""));
+		return attributes;
+	}
+
+	private SortedSet<Attribute> getDuplicateAttributes() {
+		//same type and value but different ontology terms and units
+		SortedSet<Attribute> attributes = getAttributes();
+		attributes.add(Attribute.build("organism", "Homo sapiens", Collections.emptyList(), null));
+		attributes.add(Attribute.build("organism", "Homo sapiens", "http://purl.obolibrary.org/obo/NCBITaxon_9605", null));
+		attributes.add(Attribute.build("age", "3", Collections.emptyList(), "month"));
+		attributes.add(Attribute.build("age", "3", "http://purl.obolibrary.org/obo/UO_0000036", "year"));
+		attributes.add(Attribute.build("age", "4", Collections.emptyList(), null));
+		return attributes;
+	}
+
+	/**
+	 * The previous implementation, which grouped attributes into maps before writing them.
+	 */
+	private static class MapCharacteristicSerializer extends StdSerializer<SortedSet> {
+
+		public MapCharacteristicSerializer() {
+			super(SortedSet.class);
+		}
+
+		@Override
+		public void serialize(SortedSet attributesRaw, JsonGenerator gen, com.fasterxml.jackson.databind.SerializerProvider arg2)
+				throws IOException {
+			SortedSet<Attribute> attributes = (SortedSet<Attribute>)attributesRaw;
+			gen.writeStartObject();
+			SortedMap<String, SortedMap<String,Attribute>> attributeMap = new TreeMap<>();
+			if (attributes != null && attributes.size() > 0) {
+				for (Attribute attribute : attributes) {
+					if (!attributeMap.containsKey(attribute.getType())) {
+						attributeMap.put(attribute.getType(), new TreeMap<>());
+					}
+					attributeMap.get(attribute.getType()).put(attribute.getValue(), Attribute.build(attribute.getType(), attribute.getValue(), attribute.getIri(), attribute.getUnit()));
+				}
+				for (String type : attributeMap.keySet()) {
+					gen.writeArrayFieldStart(type);
+					for (String value : attributeMap.get(type).keySet()) {
+						gen.writeStartObject();
+						gen.writeStringField("text", value);
+						if (attributeMap.get(type).get(value).getIri() != null && attributeMap.get(type).get(value).getIri().size() > 0) {
+							gen.writeArrayFieldStart("ontologyTerms");
+							for (String iri : attributeMap.get(type).get(value).getIri()) {
+								gen.writeString(iri);
+							}
+							gen.writeEndArray();
+						}
+						if (attributeMap.get(type).get(value).getUnit() != null) {
+							gen.writeStringField("unit", attributeMap.get(type).get(value).getUnit());
+						}
+						gen.writeEndObject();
+					}
+					gen.writeEndArray();
+				}
+			}
+			gen.writeEndObject();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package uk.ac.ebi.biosamples.model;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.Assert.*;
+
+public class CurationLinkQueryTest {
+
+	private final Instant from = Instant.parse("2018-10-23T00:00:00Z");
+	private final Instant until = Instant.parse("2018-11-01T00:00:00Z");
+
+	private static CurationLink link(String value, String domain, Instant created) {
+		Curation curation = Curation.build(Collections.singleton(Attribute.build("sex", value)), Collections.emptyList());
+		return CurationLink.build("SAMEA1", curation, domain, created);
+	}
+
+	@Test
+	public void test_domain_and_window() {
+		CurationLinkQuery query = CurationLinkQuery.build("self.BiosampleCuration", from, until, null, null, null);
+
+		assertTrue(query.matches(link("n/a", "self.BiosampleCuration", from.plusSeconds(1))));
+		assertFalse(query.matches(link("n/a", "self.other", from.plusSeconds(1))));
+		assertFalse(query.matches(link("n/a", "self.BiosampleCuration", from)));
+		assertFalse(query.matches(link("n/a", "self.BiosampleCuration", until)));
+		assertFalse(query.matches(link("n/a", "self.BiosampleCuration", null)));
+	}
+
+	@Test
+	public void test_attribute_expressions() {
+		CurationLinkQuery query = CurationLinkQuery.build("self.BiosampleCuration", null, null,
+				"sex", "(?i).*(unknown|n/a).*", "(?i)\\s*(unknown|n/a)\\s*");
+
+		assertTrue(query.matches(link("Unknown sex", "self.BiosampleCuration", from)));
+		assertFalse(query.matches(link("unknown", "self.BiosampleCuration", from)));
+		assertFalse(query.matches(link("male", "self.BiosampleCuration", from)));
+	}
+
+	@Test
+	public void test_only_first_pre_attribute() {
+		CurationLinkQuery query = CurationLinkQuery.build("self.BiosampleCuration", null, null,
+				null, "(?i).*n/a.*", null);
+		Curation first = Curation.build(Arrays.asList(Attribute.build("age", "n/a"), Attribute.build("sex", "male")),
+				Collections.emptyList());
+		Curation second = Curation.build(Arrays.asList(Attribute.build("age", "10"), Attribute.build("sex", "n/a")),
+				Collections.emptyList());
+
+		assertTrue(query.matches(first));
+		assertFalse(query.matches(second));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_domain_required() {
+		CurationLinkQuery.build(null, from, until, null, null, null);
+	}
+
+	@Test
+	public void test_json_round_trip() throws IOException {
+		ObjectMapper objectMapper = new ObjectMapper();
+		CurationLinkQuery query = CurationLinkQuery.build("self.BiosampleCuration", from, null, null, "(?i).*n/a.*", null);
+
+		String json = objectMapper.writeValueAsString(query);
+		assertFalse(json.contains("createdUntil"));
+		assertEquals(query, objectMapper.readValue(json, CurationLinkQuery.class));
+
+		CurationLinkUndoReport report = CurationLinkUndoReport.build("1", CurationLinkUndoReport.Status.RUNNING, query, true, 2, 0, 1,
+				Collections.singletonList(link("n/a", "self.BiosampleCuration", from)));
+		assertEquals(report, objectMapper.readValue(objectMapper.writeValueAsString(report), CurationLinkUndoReport.class));
+	}
+}
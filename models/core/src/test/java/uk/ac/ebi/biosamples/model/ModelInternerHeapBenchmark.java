@@ -0,0 +1,93 @@
+package uk.ac.ebi.biosamples.model;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the heap used by a synthetic corpus of samples read from json with and without
+ * {@link ModelInterner}. Not run as part of the build, run it with the number of samples
+ * and enough heap for the corpus, e.g.
+ *
+ * java -Xmx8g -cp ... uk.ac.ebi.biosamples.model.ModelInternerHeapBenchmark 1000000
+ *
+ * Each sample is parsed from its own json, so as in the pipelines none of its strings are
+ * shared with other samples unless they are interned.
+ */
+public class ModelInternerHeapBenchmark {
+
+	private static final String[][] ORGANISMS = {
+			{"Homo sapiens", "http://purl.obolibrary.org/obo/NCBITaxon_9606"},
+			{"Mus musculus", "http://purl.obolibrary.org/obo/NCBITaxon_10090"},
+			{"Bos taurus", "http://purl.obolibrary.org/obo/NCBITaxon_9913"},
+			{"Gallus gallus", "http://purl.obolibrary.org/obo/NCBITaxon_9031"},
+			{"Escherichia coli", "http://purl.obolibrary.org/obo/NCBITaxon_562"},
+			{"soil metagenome", "http://purl.obolibrary.org/obo/NCBITaxon_410658"}};
+	private static final String[][] SEXES = {
+			{"male", "http://purl.obolibrary.org/obo/PATO_0000384"},
+			{"female", "http://purl.obolibrary.org/obo/PATO_0000383"}};
+	private static final String[] TISSUES = {"blood", "liver", "lung", "heart", "skin", "muscle", "brain"};
+	private static final String[] COUNTRIES = {"United Kingdom", "China", "USA", "Germany", "Brazil", "Kenya"};
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Random random = new Random(42);
+
+	public static void main(String[] args) throws IOException {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		ModelInternerHeapBenchmark benchmark = new ModelInternerHeapBenchmark();
+
+		ModelInterner.setEnabled(false);
+		long plain = benchmark.measure(count);
+		ModelInterner.setEnabled(true);
+		long interned = benchmark.measure(count);
+
+		System.out.println(String.format("%d samples: %,d bytes without interning, %,d bytes with interning (%.1f%% saved, %d bytes per sample)",
+				count, plain, interned, 100.0 * (plain - interned) / plain, (plain - interned) / count));
+	}
+
+	private long measure(int count) throws IOException {
+		random.setSeed(42);
+		long before = usedHeap();
+		List<Sample> samples = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			samples.add(objectMapper.readValue(json(i), Sample.class));
+		}
+		long after = usedHeap();
+		if (samples.size() != count) {
+			throw new IllegalStateException();
+		}
+		return after - before;
+	}
+
+	private String json(int i) throws IOException {
+		String[] organism = ORGANISMS[random.nextInt(ORGANISMS.length)];
+		String[] sex = SEXES[random.nextInt(SEXES.length)];
+		String accession = "SAMEA" + (1000000 + i);
+		Sample.Builder builder = new Sample.Builder("sample " + i, accession)
+				.withDomain("self.BiosampleIntegrationTest")
+				.withRelease("2018-01-01T00:00:00Z").withUpdate("2018-06-01T00:00:00Z")
+				.addAttribute(Attribute.build("organism", organism[0], organism[1], null))
+				.addAttribute(Attribute.build("sex", sex[0], sex[1], null))
+				.addAttribute(Attribute.build("age", Integer.toString(random.nextInt(100)), new ArrayList<>(), "year"))
+				.addAttribute(Attribute.build("organism part", TISSUES[random.nextInt(TISSUES.length)]))
+				.addAttribute(Attribute.build("geographic location (country and/or sea)", COUNTRIES[random.nextInt(COUNTRIES.length)]))
+				.addAttribute(Attribute.build("INSDC status", "public"))
+				.addAttribute(Attribute.build("submitter id", "submitter-" + i))
+				.addExternalReference(ExternalReference.build("https://www.ebi.ac.uk/ena/data/view/ERS" + i));
+		if (i > 0 && random.nextInt(4) == 0) {
+			builder.addRelationship(Relationship.build(accession, "derived from", "SAMEA" + (1000000 + i - 1)));
+		}
+		return objectMapper.writeValueAsString(builder.build());
+	}
+
+	private static long usedHeap() {
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+}
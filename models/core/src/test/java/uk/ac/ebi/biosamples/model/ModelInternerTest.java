@@ -0,0 +1,60 @@
+package uk.ac.ebi.biosamples.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class ModelInternerTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@After
+	public void tearDown() {
+		ModelInterner.setEnabled(true);
+	}
+
+	@Test
+	public void test_deserialized_attributes_share_strings_and_iri_sets() throws IOException {
+		String json = "{\"type\":\"organism\",\"value\":\"Homo sapiens\",\"iri\":[\"http://purl.obolibrary.org/obo/NCBITaxon_9606\"],\"unit\":\"year\"}";
+		Attribute one = objectMapper.readValue(json, Attribute.class);
+		Attribute two = objectMapper.readValue(json, Attribute.class);
+
+		assertEquals(one, two);
+		assertSame(one.getType(), two.getType());
+		assertSame(one.getUnit(), two.getUnit());
+		assertSame(one.getIri(), two.getIri());
+		assertSame(Attribute.build("sex", "male").getIri(), Attribute.build("age", "3").getIri());
+	}
+
+	@Test
+	public void test_interned_attributes_equal_and_compare_as_before() {
+		Attribute interned = Attribute.build("sex", "female", Arrays.asList("http://www.ebi.ac.uk/efo/EFO_0001265", null, "http://purl.obolibrary.org/obo/PATO_0000383"), null);
+		ModelInterner.setEnabled(false);
+		Attribute plain = Attribute.build("sex", "female", Arrays.asList("http://www.ebi.ac.uk/efo/EFO_0001265", null, "http://purl.obolibrary.org/obo/PATO_0000383"), null);
+
+		assertTrue(plain.getIri() instanceof TreeSet);
+		assertEquals(plain, interned);
+		assertEquals(plain.hashCode(), interned.hashCode());
+		assertEquals(0, plain.compareTo(interned));
+		assertEquals(0, interned.compareTo(plain));
+		assertEquals("http://purl.obolibrary.org/obo/PATO_0000383", interned.getIri().first());
+	}
+
+	@Test
+	public void test_relationship_and_external_reference_share_values() {
+		Relationship one = Relationship.build("SAMEA1", new String("derived from"), "SAMEA2");
+		Relationship two = Relationship.build("SAMEA3", new String("derived from"), "SAMEA4");
+		assertSame(one.getType(), two.getType());
+
+		ExternalReference first = ExternalReference.build("https://www.ebi.ac.uk/ena/data/view/SAMEA1", new TreeSet<>(Arrays.asList("DUO:0000005")));
+		ExternalReference second = ExternalReference.build("https://www.ebi.ac.uk/ena/data/view/SAMEA2", new TreeSet<>(Arrays.asList("DUO:0000005")));
+		assertSame(first.getDuo(), second.getDuo());
+		assertEquals(first, ExternalReference.build("https://www.ebi.ac.uk/ena/data/view/SAMEA1", new TreeSet<>(Arrays.asList("DUO:0000005"))));
+	}
+}
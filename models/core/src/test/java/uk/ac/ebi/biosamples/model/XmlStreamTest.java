@@ -0,0 +1,131 @@
+package uk.ac.ebi.biosamples.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import javax.xml.stream.XMLStreamWriter;
+
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import uk.ac.ebi.biosamples.service.ExternalReferenceService;
+import uk.ac.ebi.biosamples.service.SampleToXmlConverter;
+import uk.ac.ebi.biosamples.service.SampleToXmlStreamWriter;
+
+@RunWith(SpringRunner.class)
+@JsonTest
+public class XmlStreamTest {
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final ExternalReferenceService externalReferenceService = new ExternalReferenceService();
+	private final SampleToXmlConverter sampleToXmlConverter = new SampleToXmlConverter(externalReferenceService);
+	private final SampleToXmlStreamWriter sampleToXmlStreamWriter = new SampleToXmlStreamWriter(externalReferenceService);
+
+	@Test
+	public void testSample() throws Exception {
+		assertMatchesGolden(objectMapper.readValue(this.getClass().getResource("/TEST1.json"), Sample.class), "/xml/TEST1.golden.xml");
+	}
+
+	@Test
+	public void testMinimalSample() throws Exception {
+		assertMatchesGolden(objectMapper.readValue(this.getClass().getResource("/TEST2.json"), Sample.class), "/xml/TEST2.golden.xml");
+	}
+
+	@Test
+	public void testEscapedSample() throws Exception {
+		assertMatchesGolden(getEscapedSample(), "/xml/SAMEA1.golden.xml");
+	}
+
+	@Test
+	public void testGroup() throws Exception {
+		assertMatchesGolden(getGroup(), "/xml/SAMEG1.golden.xml");
+	}
+
+	@Test
+	public void testMultipleElements() throws Exception {
+		Sample[] samples = new Sample[] {getEscapedSample(), getGroup()};
+
+		StringWriter expected = new StringWriter();
+		XMLWriter xmlWriter = new XMLWriter(expected, OutputFormat.createCompactFormat());
+		for (Sample sample : samples) {
+			xmlWriter.write(sampleToXmlConverter.convert(sample).getRootElement());
+		}
+		xmlWriter.flush();
+
+		StringWriter actual = new StringWriter();
+		XMLStreamWriter xmlStreamWriter = sampleToXmlStreamWriter.createXMLStreamWriter(actual);
+		for (Sample sample : samples) {
+			sampleToXmlStreamWriter.writeElement(sample, xmlStreamWriter);
+		}
+		xmlStreamWriter.flush();
+
+		assertThat(actual.toString()).isEqualTo(expected.toString());
+	}
+
+	private void assertMatchesGolden(Sample sample, String golden) throws Exception {
+		ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+		sampleToXmlStreamWriter.write(sample, streamed);
+
+		//check against the document based converter too, so the golden files can't drift from it
+		ByteArrayOutputStream converted = new ByteArrayOutputStream();
+		XMLWriter xmlWriter = new XMLWriter(converted, OutputFormat.createCompactFormat());
+		xmlWriter.write(sampleToXmlConverter.convert(sample));
+		xmlWriter.flush();
+
+		byte[] expected;
+		try (InputStream inputStream = this.getClass().getResourceAsStream(golden)) {
+			expected = StreamUtils.copyToByteArray(inputStream);
+		}
+
+		assertThat(new String(streamed.toByteArray(), StandardCharsets.UTF_8))
+			.isEqualTo(new String(expected, StandardCharsets.UTF_8));
+		assertThat(streamed.toByteArray()).isEqualTo(expected);
+		assertThat(converted.toByteArray()).isEqualTo(expected);
+	}
+
+	private Sample getEscapedSample() {
+		return new Sample.Builder("  a <sample> &\t\"named\"\n  'oddly' ", "SAMEA1")
+			.withRelease(Instant.parse("2016-04-01T11:36:57.00Z"))
+			.withUpdate(Instant.parse("2016-05-05T11:36:57.00Z"))
+			.addAttribute(Attribute.build("description", "über  café é中文 😀", (String) null, null))
+			.addAttribute(Attribute.build("age", "10", (String) null, "years"))
+			.addAttribute(Attribute.build("age", "2", (String) null, " "))
+			.addAttribute(Attribute.build("weird", "a\u000cb\u0001c ]]> end", "http://example.com/term?a=1&b=2", null))
+			.addAttribute(Attribute.build("organism", "Homo sapiens", "http://purl.obolibrary.org/obo/NCBITaxon_9606", null))
+			.addRelationship(Relationship.build("SAMEA1", "derived from", "SAMEA2"))
+			.addRelationship(Relationship.build("SAMEA1", "same as", "SAMEA3"))
+			.addRelationship(Relationship.build("SAMEA4", "child of", "SAMEA1"))
+			.addExternalReference(ExternalReference.build("http://www.ebi.ac.uk/ena/data/view/ERS01"))
+			.addExternalReference(ExternalReference.build("http://example.com/"))
+			.build();
+	}
+
+	private Sample getGroup() {
+		return new Sample.Builder("Group & name", "SAMEG1")
+			.withRelease(Instant.parse("2016-04-01T11:36:57.00Z"))
+			.withUpdate(Instant.parse("2016-05-05T11:36:57.00Z"))
+			.addAttribute(Attribute.build("description", "A group", (String) null, null))
+			.addContact(new Contact.Builder().firstName("Jo").lastName("Bloggs").email("jo@example.com").build())
+			.addContact(new Contact.Builder().url("http://example.com").build())
+			.addOrganization(new Organization.Builder().name("EBI").address("Hinxton <UK>").role("submitter").build())
+			.addPublication(new Publication.Builder().doi("10.1000/xyz").build())
+			.addPublication(new Publication.Builder().pubmed_id("12345").build())
+			.addExternalReference(ExternalReference.build("http://www.ebi.ac.uk/arrayexpress/experiments/E-MTAB-1"))
+			.build();
+	}
+}
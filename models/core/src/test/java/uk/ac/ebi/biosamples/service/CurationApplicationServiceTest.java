@@ -0,0 +1,153 @@
+package uk.ac.ebi.biosamples.service;
+
+import org.junit.Test;
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Curation;
+import uk.ac.ebi.biosamples.model.ExternalReference;
+import uk.ac.ebi.biosamples.model.Sample;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CurationApplicationServiceTest {
+
+	private final CurationApplicationService curationApplicationService = new CurationApplicationService();
+
+	static Sample sample(Attribute... attributes) {
+		Sample.Builder builder = new Sample.Builder("test", "SAMEA1234").withDomain("self.test")
+				.withRelease(Instant.parse("2018-01-01T00:00:00Z")).withUpdate(Instant.parse("2018-01-01T00:00:00Z"));
+		for (Attribute attribute : attributes) {
+			builder.addAttribute(attribute);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Curations that change the organism from value 0 to value 1, value 1 to value 2 and so on, in reverse
+	 * order so that only one applies on each pass over them
+	 */
+	static List<Curation> chain(int length) {
+		List<Curation> curations = new ArrayList<>();
+		for (int i = length - 1; i >= 0; i--) {
+			curations.add(Curation.build(Attribute.build("organism", "value " + i), Attribute.build("organism", "value " + (i + 1))));
+		}
+		return curations;
+	}
+
+	/**
+	 * Applies curations by trying each in turn until none of the remaining ones apply, to compare against
+	 */
+	static Sample applyByRepeatedPasses(CurationApplicationService curationApplicationService, Sample sample, Collection<Curation> curations) {
+		boolean curationApplied = true;
+		while (curationApplied && curations.size() > 0) {
+			Iterator<Curation> it = curations.iterator();
+			curationApplied = false;
+			while (it.hasNext()) {
+				Curation curation = it.next();
+				try {
+					sample = curationApplicationService.applyCurationToSample(sample, curation);
+					it.remove();
+					curationApplied = true;
+				} catch (IllegalArgumentException e) {
+					//do nothing, will try again next loop
+				}
+			}
+		}
+		return sample;
+	}
+
+	@Test
+	public void test_chain_is_applied_in_dependency_order() {
+		List<Curation> curations = chain(50);
+		CurationApplicationService.CuratedSample curatedSample = curationApplicationService.applyCurations(
+				sample(Attribute.build("organism", "value 0")), curations);
+
+		assertEquals(Collections.singleton(Attribute.build("organism", "value 50")), curatedSample.getSample().getAttributes());
+		assertEquals(50, curatedSample.getApplied().size());
+		assertEquals(curations.get(49), curatedSample.getApplied().get(0));
+		assertTrue(curatedSample.getUnapplied().isEmpty());
+	}
+
+	@Test
+	public void test_unapplicable_curations_are_reported() {
+		Curation missing = Curation.build(Attribute.build("sex", "M"), Attribute.build("sex", "male"));
+		Curation applies = Curation.build(Attribute.build("organism", "value 0"), Attribute.build("organism", "Homo sapiens"));
+		Curation present = Curation.build(Collections.emptyList(), Collections.singleton(Attribute.build("organism", "Homo sapiens")));
+		List<Curation> curations = new ArrayList<>();
+		curations.add(missing);
+		curations.add(applies);
+		curations.add(present);
+
+		Sample sample = curationApplicationService.applyAllCurationToSample(sample(Attribute.build("organism", "value 0")), curations);
+
+		assertEquals(Collections.singleton(Attribute.build("organism", "Homo sapiens")), sample.getAttributes());
+		//the earlier curation already added what the later one adds
+		assertEquals(2, curations.size());
+		assertTrue(curations.contains(missing));
+		assertTrue(curations.contains(present));
+	}
+
+	@Test
+	public void test_external_references_are_curated() {
+		ExternalReference http = ExternalReference.build("http://www.ebi.ac.uk/ena/data/view/ERS1");
+		ExternalReference https = ExternalReference.build("https://www.ebi.ac.uk/ena/data/view/ERS1");
+		Sample sample = new Sample.Builder("test", "SAMEA1234").withDomain("self.test")
+				.withRelease("2018-01-01T00:00:00Z").withUpdate("2018-01-01T00:00:00Z")
+				.addExternalReference(http).build();
+
+		CurationApplicationService.CuratedSample curatedSample = curationApplicationService.applyCurations(sample,
+				Collections.singletonList(Curation.build(null, null, Collections.singleton(http), Collections.singleton(https))));
+
+		assertEquals(Collections.singleton(https), curatedSample.getSample().getExternalReferences());
+	}
+
+	@Test
+	public void test_same_result_as_repeated_passes() {
+		Random random = new Random(42);
+		for (int run = 0; run < 500; run++) {
+			List<Attribute> pool = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				pool.add(Attribute.build("type " + random.nextInt(3), "value " + i));
+			}
+			List<Attribute> initial = new ArrayList<>();
+			for (Attribute attribute : pool) {
+				if (random.nextBoolean()) {
+					initial.add(attribute);
+				}
+			}
+			Sample sample = sample(initial.toArray(new Attribute[0]));
+
+			//curations that conflict with each other, so the order they are tried in matters
+			List<Curation> curations = new ArrayList<>();
+			for (int i = random.nextInt(12); i > 0; i--) {
+				List<Attribute> pre = new ArrayList<>();
+				List<Attribute> post = new ArrayList<>();
+				for (Attribute attribute : pool) {
+					int choice = random.nextInt(5);
+					if (choice == 0) {
+						pre.add(attribute);
+					} else if (choice == 1) {
+						post.add(attribute);
+					}
+				}
+				if (pre.size() + post.size() > 0) {
+					curations.add(Curation.build(pre, post));
+				}
+			}
+
+			List<Curation> expectedRemaining = new ArrayList<>(curations);
+			Sample expected = applyByRepeatedPasses(curationApplicationService, sample, expectedRemaining);
+			CurationApplicationService.CuratedSample actual = curationApplicationService.applyCurations(sample, curations);
+
+			assertEquals(expected, actual.getSample());
+			assertEquals(expectedRemaining, actual.getUnapplied());
+		}
+	}
+}
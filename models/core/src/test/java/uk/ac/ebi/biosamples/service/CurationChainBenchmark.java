@@ -0,0 +1,56 @@
+package uk.ac.ebi.biosamples.service;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Curation;
+import uk.ac.ebi.biosamples.model.Sample;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares applying chains of dependent curations with {@link CurationApplicationService} against
+ * trying each remaining curation in turn until none apply. Not run as part of the build, run it
+ * with the test classpath, optionally giving the chain lengths to use.
+ *
+ * The curations in each chain are in reverse order, so trying each in turn applies one per pass.
+ */
+public class CurationChainBenchmark {
+
+	private static final int ITERATIONS = 20;
+
+	public static void main(String[] args) {
+		int[] lengths = {1, 10, 50, 100, 250, 500};
+		if (args.length > 0) {
+			lengths = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				lengths[i] = Integer.parseInt(args[i]);
+			}
+		}
+		CurationApplicationService curationApplicationService = new CurationApplicationService();
+		Sample sample = CurationApplicationServiceTest.sample(Attribute.build("organism", "value 0"));
+
+		System.out.println("length\trepeated passes (ms)\tdependency order (ms)");
+		for (int length : lengths) {
+			List<Curation> chain = CurationApplicationServiceTest.chain(length);
+			//warm up and check both give the same sample
+			Sample expected = CurationApplicationServiceTest.applyByRepeatedPasses(curationApplicationService, sample, new ArrayList<>(chain));
+			if (!expected.equals(curationApplicationService.applyCurations(sample, chain).getSample())) {
+				throw new IllegalStateException("Different samples for chain of " + length);
+			}
+
+			long start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				CurationApplicationServiceTest.applyByRepeatedPasses(curationApplicationService, sample, new ArrayList<>(chain));
+			}
+			long passes = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				curationApplicationService.applyCurations(sample, chain);
+			}
+			long ordered = System.nanoTime() - start;
+
+			System.out.println(String.format("%d\t%.3f\t%.3f", length, passes / ITERATIONS / 1000000.0, ordered / ITERATIONS / 1000000.0));
+		}
+	}
+}
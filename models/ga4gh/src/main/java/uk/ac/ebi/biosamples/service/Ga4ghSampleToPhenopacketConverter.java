@@ -1,5 +1,7 @@
 package uk.ac.ebi.biosamples.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.util.JsonFormat;
@@ -14,6 +16,7 @@ import org.springframework.stereotype.Service;
 import uk.ac.ebi.biosamples.model.Sample;
 import uk.ac.ebi.biosamples.model.ga4gh.*;
 
+import java.time.Instant;
 import java.util.*;
 
 /**
@@ -26,9 +29,10 @@ import java.util.*;
 public class Ga4ghSampleToPhenopacketConverter implements Converter<Ga4ghSample, Phenopacket> {
     private static final Logger LOG = LoggerFactory.getLogger(Ga4ghSampleToPhenopacketConverter.class);
 
-    private SampleToGa4ghSampleConverter mapper;
-    private OLSDataRetriever olsApiretreiver;
+    private final SampleToGa4ghSampleConverter mapper;
+    private final OLSDataRetriever olsApiretreiver;
     private final ImmutableList<String> stopList = ImmutableList.of("treatment", "isolate");
+    private final Cache<PhenopacketKey, String> phenopacketCache = CacheBuilder.newBuilder().maximumSize(1000).build();
 
     @Autowired
     public Ga4ghSampleToPhenopacketConverter(SampleToGa4ghSampleConverter mapper,
@@ -61,8 +65,14 @@ public class Ga4ghSampleToPhenopacketConverter implements Converter<Ga4ghSample,
      * @return phenopacket encoded in json string
      */
     public String getJsonFormattedPhenopacketFromSample(Sample sample) {
-        Ga4ghSample ga4ghSample = mapper.convert(sample);
-        return getJsonFormattedPhenopacket(ga4ghSample);
+        PhenopacketKey key = new PhenopacketKey(sample);
+        String phenopacket = phenopacketCache.getIfPresent(key);
+        if (phenopacket == null) {
+            Ga4ghSample ga4ghSample = mapper.convert(sample);
+            phenopacket = getJsonFormattedPhenopacket(ga4ghSample);
+            phenopacketCache.put(key, phenopacket);
+        }
+        return phenopacket;
     }
 
     @Override
@@ -180,14 +190,14 @@ public class Ga4ghSampleToPhenopacketConverter implements Converter<Ga4ghSample,
         for (Ga4ghBiocharacteristics biocharacteristic : biocharacteristics) {
             if (!stopList.contains(biocharacteristic.getDescription())) {
                 for (Ga4ghOntologyTerm term : biocharacteristic.getOntology_terms()) {
-                    String id = term.getTerm_id().split(":")[0]; //term id presented by ontologyID:termId
-                    if (!uniqueIds.contains(id)) {
-                        builder.addResources(mapResource(id));
-                        uniqueIds.add(id);
-                    }
+                    uniqueIds.add(term.getTerm_id().split(":")[0]); //term id presented by ontologyID:termId
                 }
             }
         }
+        //look up all the ontologies together so they can be fetched in parallel
+        for (OLSDataRetriever.OntologyResource resource : olsApiretreiver.getResources(uniqueIds).values()) {
+            builder.addResources(mapResource(resource));
+        }
         return builder.build();
     }
 
@@ -238,19 +248,18 @@ public class Ga4ghSampleToPhenopacketConverter implements Converter<Ga4ghSample,
 
 
     /**
-     * Build a @link{Resource} object querying the OLS api to expand an ontology iri
+     * Build a @link{Resource} object from an ontology expanded by the OLS api
      *
-     * @param id the iri of the ontology
-     * @return the expanded ontology Resource
+     * @param resource the expanded ontology
+     * @return the ontology Resource
      */
-    private Resource mapResource(String id) {
+    private Resource mapResource(OLSDataRetriever.OntologyResource resource) {
         Resource.Builder resourceBuilder = Resource.newBuilder();
-        olsApiretreiver.readResourceInfoFromUrl(id);
-        resourceBuilder.setId(olsApiretreiver.getResourceId());
-        resourceBuilder.setName(olsApiretreiver.getResourceName());
-        resourceBuilder.setUrl(olsApiretreiver.getResourceUrl());
-        resourceBuilder.setNamespacePrefix(olsApiretreiver.getResourcePrefix());
-        resourceBuilder.setVersion(olsApiretreiver.getResourceVersion());
+        resourceBuilder.setId(resource.getId());
+        resourceBuilder.setName(resource.getName());
+        resourceBuilder.setUrl(resource.getUrl());
+        resourceBuilder.setNamespacePrefix(resource.getPrefix());
+        resourceBuilder.setVersion(resource.getVersion());
         return resourceBuilder.build();
     }
 
@@ -264,5 +273,38 @@ public class Ga4ghSampleToPhenopacketConverter implements Converter<Ga4ghSample,
                 description.contains("Disease"));
     }
 
-}
 
+    /**
+     * Sample equality ignores the update date, but the update date is mapped into the
+     * phenopacket, so it is part of the key along with the accession. The rest of the sample
+     * is included too, so a re-curated sample, which keeps its update date, is a different key.
+     */
+    private static class PhenopacketKey {
+        private final String accession;
+        private final Instant update;
+        private final Sample sample;
+
+        private PhenopacketKey(Sample sample) {
+            this.accession = sample.getAccession();
+            this.update = sample.getUpdate();
+            this.sample = sample;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof PhenopacketKey)) {
+                return false;
+            }
+            PhenopacketKey other = (PhenopacketKey) o;
+            return Objects.equals(this.accession, other.accession)
+                    && Objects.equals(this.update, other.update)
+                    && Objects.equals(this.sample, other.sample);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accession, update);
+        }
+    }
+}
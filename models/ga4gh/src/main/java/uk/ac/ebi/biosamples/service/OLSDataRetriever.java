@@ -2,119 +2,244 @@ package uk.ac.ebi.biosamples.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 /**
  * OLSDAtaRetriever is api class for working with EBI OLS. It fetchs specific (see methods of class) metadata for phenopackets.
  *
+ * Lookups are cached, and this class holds no per-request state so a single instance can be shared between threads.
+ *
  * @author Dilshat Salikhov
  */
 @Service
 public class OLSDataRetriever {
-    private JsonNode node;
+    private static final String DEFAULT_OLS = "https://www.ebi.ac.uk/ols";
 
+    private static final Logger LOG = LoggerFactory.getLogger(OLSDataRetriever.class);
+    private final ObjectMapper mapper = new ObjectMapper();
     private final Map<String, String> ontologyPrefixMapping = new HashMap<>();
+    private final String olsApi;
+    private final LoadingCache<String, OntologyTerm> termCache;
+    private final LoadingCache<String, OntologyResource> resourceCache;
+    private final ExecutorService executorService;
+
+    /**
+     * For use outside of spring, against the production OLS
+     */
+    public OLSDataRetriever() {
+        this(DEFAULT_OLS, 10000, 8);
+    }
+
+    @Autowired
+    public OLSDataRetriever(BioSamplesProperties bioSamplesProperties) {
+        this(bioSamplesProperties.getGa4ghOls(), bioSamplesProperties.getOlsCacheMaxSize(),
+                bioSamplesProperties.getOlsThreadCount());
+    }
 
-    public OLSDataRetriever()
-    {
+    public OLSDataRetriever(String ols, int cacheSize, int threadCount) {
         ontologyPrefixMapping.put("orphanet", "ordo");
+        this.olsApi = ols.replaceAll("/+$", "") + "/api";
+        this.termCache = CacheBuilder.newBuilder().maximumSize(cacheSize)
+                .build(CacheLoader.from(this::readOntologyTerm));
+        this.resourceCache = CacheBuilder.newBuilder().maximumSize(cacheSize)
+                .build(CacheLoader.from(this::readResource));
+        this.executorService = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "ols-retriever");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
+
     /**
-     * Read json from OLS by iri provided in GA4GH sample
+     * Get the ontology term for an iri provided in GA4GH sample
      * @param iri
      */
-    public void readOntologyJsonFromUrl(String iri) {
-        String linkToTerm = null;
-        try {
-            //TODO move to application properties
-            linkToTerm = "https://www.ebi.ac.uk/ols/api/terms?iri=" + URLEncoder.encode(iri, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
-        }
-        readJson(linkToTerm);
+    public OntologyTerm getOntologyTerm(String iri) {
+        return get(termCache, iri);
+    }
+
+    /**
+     * Get ontology terms for several iris, looking up any that are not cached in parallel
+     * @param iris
+     * @return the terms by iri, leaving out any iri that could not be looked up so that it
+     * does not stop the others being resolved
+     */
+    public Map<String, OntologyTerm> getOntologyTerms(Collection<String> iris) {
+        Map<String, OntologyTerm> terms = getAll(iris, iri -> {
+            try {
+                return getOntologyTerm(iri);
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to look up ontology term " + iri, e);
+                return null;
+            }
+        });
+        terms.values().removeIf(Objects::isNull);
+        return terms;
     }
 
     /**
-     * Read json from OLS by ontology id, for example 'efo'
+     * Get resource information by ontology id, for example 'efo'
      * @param id
      */
-    public void readResourceInfoFromUrl(String id) {
+    public OntologyResource getResource(String id) {
+        return get(resourceCache, id.toLowerCase());
+    }
+
+    /**
+     * Get resource information for several ontology ids, looking up any that are not cached in parallel
+     * @param ids
+     * @return the resources by id as given
+     */
+    public Map<String, OntologyResource> getResources(Collection<String> ids) {
+        return getAll(ids, this::getResource);
+    }
+
+    private <T> T get(LoadingCache<String, T> cache, String key) {
+        try {
+            return cache.getUnchecked(key);
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private <T> Map<String, T> getAll(Collection<String> keys, Function<String, T> lookup) {
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (String key : keys) {
+            futures.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> lookup.apply(k), executorService));
+        }
+        Map<String, T> results = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, CompletableFuture<T>> entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
 
+    private OntologyTerm readOntologyTerm(String iri) {
+        JsonNode node = readJson(olsApi + "/terms?iri=" + encode(iri));
+        JsonNode term = node.get("_embedded").get("terms").get(0);
+        return new OntologyTerm(term.get("obo_id").asText(), term.get("label").asText());
+    }
+
+    private OntologyResource readResource(String id) {
         // Necessary for ontologies like orphanet, where the prefix is not orphanet but ordo
-        if (this.ontologyPrefixMapping.containsKey(id.toLowerCase())) {
-            id = ontologyPrefixMapping.get(id.toLowerCase());
+        if (this.ontologyPrefixMapping.containsKey(id)) {
+            id = ontologyPrefixMapping.get(id);
         }
+        JsonNode node = readJson(olsApi + "/ontologies/" + encode(id));
+        JsonNode config = node.get("config");
+        return new OntologyResource(node.get("ontologyId").asText(),
+                config.get("title").asText(),
+                config.get("preferredPrefix").asText(),
+                config.get("fileLocation").asText(),
+                config.get("version").asText());
+    }
 
-        String linkToResourceInfo = null;
-        //TODO move to application properties
+    private String encode(String value) {
         try {
-            linkToResourceInfo = "https://www.ebi.ac.uk/ols/api/ontologies/" + URLEncoder.encode(id.toLowerCase(), "UTF-8");
+            return URLEncoder.encode(value, "UTF-8");
         } catch (UnsupportedEncodingException e) {
-            e.printStackTrace();
+            throw new RuntimeException(e);
         }
-        readJson(linkToResourceInfo);
     }
 
     /**
-     * Fetchs json from given url and store it as Json tree in node attribute
+     * Fetchs json from given url as a Json tree
      * @param link link to OLS element
      */
-    private void readJson(String link) {
-        URL urlToTerm;
-        try {
-            urlToTerm = new URL(link);
-        } catch (MalformedURLException e) {
-            throw new RuntimeException(e);
-        }
-        ObjectMapper mapper = new ObjectMapper();
+    private JsonNode readJson(String link) {
         try {
-            this.node = mapper.readTree(urlToTerm);
+            return mapper.readTree(new URL(link));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    public String getOntologyTermId() {
-        JsonNode terms = node.get("_embedded").get("terms");
-        terms = terms.get(0);
-        return terms.get("obo_id").asText();
+    @PreDestroy
+    public void close() {
+        executorService.shutdownNow();
     }
 
-    public String getOntologyTermLabel() {
-        JsonNode terms = node.get("_embedded").get("terms");
-        terms = terms.get(0);
-        return terms.get("label").asText();
-    }
+    public static class OntologyTerm {
+        private final String id;
+        private final String label;
 
-    public String getResourceId() {
-        return node.get("ontologyId").asText();
-    }
+        public OntologyTerm(String id, String label) {
+            this.id = id;
+            this.label = label;
+        }
 
-    public String getResourceName() {
-        JsonNode config = node.get("config");
-        return config.get("title").asText();
-    }
+        public String getId() {
+            return id;
+        }
 
-    public String getResourcePrefix() {
-        JsonNode config = node.get("config");
-        return config.get("preferredPrefix").asText();
+        public String getLabel() {
+            return label;
+        }
     }
 
-    public String getResourceUrl() {
-        JsonNode config = node.get("config");
-        return config.get("fileLocation").asText();
-    }
+    public static class OntologyResource {
+        private final String id;
+        private final String name;
+        private final String prefix;
+        private final String url;
+        private final String version;
+
+        public OntologyResource(String id, String name, String prefix, String url, String version) {
+            this.id = id;
+            this.name = name;
+            this.prefix = prefix;
+            this.url = url;
+            this.version = version;
+        }
 
-    public String getResourceVersion() {
-        JsonNode config = node.get("config");
-        return config.get("version").asText();
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getVersion() {
+            return version;
+        }
     }
 }
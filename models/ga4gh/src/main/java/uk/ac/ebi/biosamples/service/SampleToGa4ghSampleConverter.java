@@ -21,17 +21,15 @@ import java.util.*;
 @Service
 public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSample> {
 
-    private Ga4ghSample baseBioSample;
-    private GeoLocationDataHelper locationHelper;
-    private Ga4ghSample ga4ghSample;
+    private final Ga4ghSample baseBioSample;
+    private final GeoLocationDataHelper locationHelper;
+    private final OLSDataRetriever olsRetriever;
 
     @Autowired
-    OLSDataRetriever olsRetriever;
-
-    @Autowired
-    public SampleToGa4ghSampleConverter(Ga4ghSample ga4ghSample, GeoLocationDataHelper helper) {
+    public SampleToGa4ghSampleConverter(Ga4ghSample ga4ghSample, GeoLocationDataHelper helper, OLSDataRetriever olsRetriever) {
         this.baseBioSample = ga4ghSample;
         this.locationHelper = helper;
+        this.olsRetriever = olsRetriever;
     }
 
     /**
@@ -42,13 +40,13 @@ public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSamp
      */
     @Override
     public Ga4ghSample convert(Sample rawSample) {
-        ga4ghSample = baseBioSample.clone();
+        Ga4ghSample ga4ghSample = baseBioSample.clone();
         ga4ghSample.setId(rawSample.getAccession());
         ga4ghSample.setName(rawSample.getName());
         //TODO  dataset_id mapping
-        mapCharacteristics(rawSample);
-        mapRelationsihps(rawSample);
-        mapRemainingData(rawSample);
+        mapCharacteristics(ga4ghSample, rawSample);
+        mapRelationsihps(ga4ghSample, rawSample);
+        mapRemainingData(ga4ghSample, rawSample);
         return ga4ghSample;
     }
 
@@ -58,15 +56,16 @@ public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSamp
      *
      * @param rawSample sample retrieved from Biosamples
      */
-    private void mapCharacteristics(Sample rawSample) {
+    private void mapCharacteristics(Ga4ghSample ga4ghSample, Sample rawSample) {
         SortedSet<Attribute> characteristics = rawSample.getCharacteristics();
         SortedSet<Attribute> locationInfo = new TreeSet<>();
+        List<Attribute> ages = new ArrayList<>();
         List<Attribute> attributes = new ArrayList<>();
         List<Attribute> bioCharacteristics = new ArrayList<>();
         for (Attribute attribute : characteristics) {
             String type = attribute.getType();
             if (type.equals("age")||type.equals("age_years")||type.equals("age(years)")){
-                mapAge(attribute);
+                ages.add(attribute);
             } else if (locationHelper.isGeoLocationData(type)) {
                 locationInfo.add(attribute);
             } else if (type.equals("individual")) {
@@ -84,11 +83,28 @@ public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSamp
             }
 
         }
+
+        //resolve all the ontology terms needed together, so they can be looked up in parallel
+        Set<String> iris = new HashSet<>();
+        for (Attribute age : ages) {
+            SortedSet<String> iri = age.getIri();
+            if (iri != null && iri.size() > 0) {
+                iris.add(iri.first());
+            }
+        }
+        for (Attribute bioCharacteristic : bioCharacteristics) {
+            iris.addAll(bioCharacteristic.getIri());
+        }
+        Map<String, OLSDataRetriever.OntologyTerm> ontologyTerms = olsRetriever.getOntologyTerms(iris);
+
+        for (Attribute age : ages) {
+            mapAge(ga4ghSample, age, ontologyTerms);
+        }
         if (!locationInfo.isEmpty()) {
-            mapLocation(locationInfo);
+            mapLocation(ga4ghSample, locationInfo);
         }
-        mapAttributes(attributes);
-        mapBioCharacteristics(bioCharacteristics);
+        mapAttributes(ga4ghSample, attributes);
+        mapBioCharacteristics(ga4ghSample, bioCharacteristics, ontologyTerms);
     }
 
     /**
@@ -97,7 +113,7 @@ public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSamp
      * @param attributes geolocation data from biosample
      * @see Ga4ghGeoLocation
      */
-    private void mapLocation(SortedSet<Attribute> attributes) {
+    private void mapLocation(Ga4ghSample ga4ghSample, SortedSet<Attribute> attributes) {
         Ga4ghGeoLocation geoLocation = new Ga4ghGeoLocation();
         for (Attribute attribute : attributes) {
             switch (attribute.getType()) {
@@ -137,7 +153,7 @@ public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSamp
      * @see Relationship
      * @see Ga4ghExternalIdentifier
      */
-    private void mapRelationsihps(Sample rawSample) {
+    private void mapRelationsihps(Ga4ghSample ga4ghSample, Sample rawSample) {
         SortedSet<Ga4ghExternalIdentifier> externalIdentifiers = new TreeSet<>();
         for (Relationship relationship : rawSample.getRelationships()) {
             Ga4ghExternalIdentifier identifier = new Ga4ghExternalIdentifier();
@@ -159,18 +175,15 @@ public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSamp
      * @param attribute attribute with age info from Biosamples
      * @see Ga4ghAge
      */
-    private void mapAge(Attribute attribute) {
+    private void mapAge(Ga4ghSample ga4ghSample, Attribute attribute, Map<String, OLSDataRetriever.OntologyTerm> ontologyTerms) {
         Ga4ghAge age = new Ga4ghAge();
         age.setAge(attribute.getValue());
-        try {
-            SortedSet<String> iri = attribute.getIri();
-            if (iri == null || iri.size() == 0) {
-                age.setAge_class(null);
-            } else {
-                age.setAge_class(getSingleOntologyTerm(iri.first()));
-            }
-        } catch (NullPointerException e) {
+        SortedSet<String> iri = attribute.getIri();
+        //an iri that could not be looked up was left out of the terms, and has no age class
+        if (iri == null || iri.size() == 0 || !ontologyTerms.containsKey(iri.first())) {
             age.setAge_class(null);
+        } else {
+            age.setAge_class(getSingleOntologyTerm(iri.first(), ontologyTerms));
         }
         ga4ghSample.setIndividual_age_at_collection(age);
     }
@@ -181,7 +194,7 @@ public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSamp
      * @param characteristics characteristics that provides nonbiological data (without Ontology term)
      * @see Ga4ghAttributes
      */
-    private void mapAttributes(List<Attribute> characteristics) {
+    private void mapAttributes(Ga4ghSample ga4ghSample, List<Attribute> characteristics) {
         characteristics.stream().forEach(attribute -> {
             List<AttributeValue> values = new ArrayList<>();
             AttributeValue value = new AttributeValue(attribute.getValue());
@@ -197,14 +210,15 @@ public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSamp
      * @param characteristics characteristics that provides biological data (with Ontology term)
      * @see Ga4ghAttributes
      */
-    private void mapBioCharacteristics(List<Attribute> characteristics) {
+    private void mapBioCharacteristics(Ga4ghSample ga4ghSample, List<Attribute> characteristics,
+                                       Map<String, OLSDataRetriever.OntologyTerm> ontologyTerms) {
         SortedSet<Ga4ghBiocharacteristics> biocharacteristics = new TreeSet<>();
 
         characteristics.forEach(attribute -> {
             Ga4ghBiocharacteristics biocharacteristic = new Ga4ghBiocharacteristics();
             biocharacteristic.setDescription(attribute.getType());
             biocharacteristic.setScope(attribute.getUnit());
-            biocharacteristic.setOntology_terms(getOntologyTerms(attribute.getIri()));
+            biocharacteristic.setOntology_terms(getOntologyTerms(attribute.getIri(), ontologyTerms));
             biocharacteristics.add(biocharacteristic);
         });
         ga4ghSample.setBio_characteristic(biocharacteristics);
@@ -217,7 +231,7 @@ public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSamp
      *
      * @param rawSample sample retreived from Biosamples
      */
-    private void mapRemainingData(Sample rawSample) {
+    private void mapRemainingData(Ga4ghSample ga4ghSample, Sample rawSample) {
         ga4ghSample.addSingleAttributeValue("released", rawSample.getRelease().toString());
         ga4ghSample.addSingleAttributeValue("updated", rawSample.getUpdate().toString());
         ga4ghSample.addSingleAttributeValue("domain", rawSample.getDomain());
@@ -236,19 +250,22 @@ public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSamp
     }
 
     /**
-     * Retrieves ontology term by link from OLS lookup service
+     * Builds ontology term from the term retrieved from OLS lookup service
      *
      * @param link iri of term
+     * @param ontologyTerms terms already retrieved by iri
      * @return retreived term
      * @see OLSDataRetriever
      */
-    private Ga4ghOntologyTerm getSingleOntologyTerm(String link) {
-        OLSDataRetriever retriever = new OLSDataRetriever();
+    private Ga4ghOntologyTerm getSingleOntologyTerm(String link, Map<String, OLSDataRetriever.OntologyTerm> ontologyTerms) {
+        OLSDataRetriever.OntologyTerm olsTerm = ontologyTerms.get(link);
+        if (olsTerm == null) {
+            olsTerm = olsRetriever.getOntologyTerm(link);
+        }
         Ga4ghOntologyTerm term = new Ga4ghOntologyTerm();
         term.setUrl(link);
-        retriever.readOntologyJsonFromUrl(link);
-        term.setTerm_id(retriever.getOntologyTermId());
-        term.setTerm_label(retriever.getOntologyTermLabel());
+        term.setTerm_id(olsTerm.getId());
+        term.setTerm_label(olsTerm.getLabel());
         return term;
     }
 
@@ -256,13 +273,14 @@ public class SampleToGa4ghSampleConverter implements Converter<Sample, Ga4ghSamp
      * Retrieves ontology terms by set of links
      *
      * @param iris set of iris to ontology terms
+     * @param ontologyTerms terms already retrieved by iri
      * @return set of Ontology terms
      * @see Ga4ghOntologyTerm
      */
-    private SortedSet<Ga4ghOntologyTerm> getOntologyTerms(SortedSet<String> iris) {
+    private SortedSet<Ga4ghOntologyTerm> getOntologyTerms(SortedSet<String> iris, Map<String, OLSDataRetriever.OntologyTerm> ontologyTerms) {
         SortedSet<Ga4ghOntologyTerm> terms = new TreeSet<>();
         for (String link : iris) {
-            Ga4ghOntologyTerm term = getSingleOntologyTerm(link);
+            Ga4ghOntologyTerm term = getSingleOntologyTerm(link, ontologyTerms);
             terms.add(term);
         }
         return terms;
@@ -38,8 +38,9 @@ public class Ga4ghSampleToPhenopacketExporterTest {
     public String absolutePath;
 
     public Ga4ghSampleToPhenopacketExporterTest() {
-        SampleToGa4ghSampleConverter = new SampleToGa4ghSampleConverter(new Ga4ghSample(new Ga4ghAttributes()), new GeoLocationDataHelper());
-        biosampleToPhenopacketExporter = new Ga4ghSampleToPhenopacketConverter(SampleToGa4ghSampleConverter, new OLSDataRetriever());
+        OLSDataRetriever olsDataRetriever = new OLSDataRetriever();
+        SampleToGa4ghSampleConverter = new SampleToGa4ghSampleConverter(new Ga4ghSample(new Ga4ghAttributes()), new GeoLocationDataHelper(), olsDataRetriever);
+        biosampleToPhenopacketExporter = new Ga4ghSampleToPhenopacketConverter(SampleToGa4ghSampleConverter, olsDataRetriever);
     }
 
 
@@ -4,25 +4,37 @@ import org.junit.Ignore;
 import org.junit.Test;
 import uk.ac.ebi.biosamples.service.OLSDataRetriever;
 
+import java.util.Arrays;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class OLSDataRetrieverTest {
     @Test
     public void id_retrieving_test() {
         OLSDataRetriever retriever = new OLSDataRetriever();
-        retriever.readOntologyJsonFromUrl("http://purl.obolibrary.org/obo/NCBITaxon_9606");
         String expected_id = "NCBITaxon:9606";
-        String actual_id = retriever.getOntologyTermId();
+        String actual_id = retriever.getOntologyTerm("http://purl.obolibrary.org/obo/NCBITaxon_9606").getId();
         assertEquals(actual_id, expected_id);
     }
 
     @Test
     public void label_retreiving_test() {
         OLSDataRetriever retriever = new OLSDataRetriever();
-        retriever.readOntologyJsonFromUrl("http://purl.obolibrary.org/obo/NCBITaxon_9606");
         String expected_label = "Homo sapiens";
-        String actual_label = retriever.getOntologyTermLabel();
+        String actual_label = retriever.getOntologyTerm("http://purl.obolibrary.org/obo/NCBITaxon_9606").getLabel();
         assertEquals(actual_label, expected_label);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void unresolvable_iris_are_left_out() {
+        //nothing listens here, so every lookup fails
+        OLSDataRetriever retriever = new OLSDataRetriever("http://localhost:1/ols", 10, 2);
+        try {
+            assertTrue(retriever.getOntologyTerms(Arrays.asList("http://purl.obolibrary.org/obo/NCBITaxon_9606",
+                    "http://purl.obolibrary.org/obo/UBERON_0000113")).isEmpty());
+        } finally {
+            retriever.close();
+        }
+    }
+}
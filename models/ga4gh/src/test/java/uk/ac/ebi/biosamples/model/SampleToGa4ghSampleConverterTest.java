@@ -0,0 +1,45 @@
+package uk.ac.ebi.biosamples.model;
+
+import org.junit.Test;
+import uk.ac.ebi.biosamples.model.ga4gh.Ga4ghAttributes;
+import uk.ac.ebi.biosamples.model.ga4gh.Ga4ghBiocharacteristics;
+import uk.ac.ebi.biosamples.model.ga4gh.Ga4ghSample;
+import uk.ac.ebi.biosamples.service.GeoLocationDataHelper;
+import uk.ac.ebi.biosamples.service.OLSDataRetriever;
+import uk.ac.ebi.biosamples.service.SampleToGa4ghSampleConverter;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SampleToGa4ghSampleConverterTest {
+
+    private static final String ORGANISM_IRI = "http://purl.obolibrary.org/obo/NCBITaxon_9606";
+    private static final String AGE_IRI = "http://purl.obolibrary.org/obo/UO_0000036";
+
+    @Test
+    public void unresolvable_age_iri_has_no_age_class() {
+        OLSDataRetriever retriever = mock(OLSDataRetriever.class);
+        //the age iri could not be looked up, so is left out
+        when(retriever.getOntologyTerms(anyCollection())).thenReturn(
+                Collections.singletonMap(ORGANISM_IRI, new OLSDataRetriever.OntologyTerm("NCBITaxon:9606", "Homo sapiens")));
+        SampleToGa4ghSampleConverter converter = new SampleToGa4ghSampleConverter(
+                new Ga4ghSample(new Ga4ghAttributes()), new GeoLocationDataHelper(), retriever);
+
+        Sample sample = new Sample.Builder("sample", "SAMEA1")
+                .withRelease("2018-01-01T00:00:00Z").withUpdate("2018-06-01T00:00:00Z")
+                .addAttribute(Attribute.build("organism", "Homo sapiens", ORGANISM_IRI, null))
+                .addAttribute(Attribute.build("age", "30", AGE_IRI, "year"))
+                .build();
+        Ga4ghSample ga4ghSample = converter.convert(sample);
+
+        assertEquals("30", ga4ghSample.getIndividual_age_at_collection().getAge());
+        assertNull(ga4ghSample.getIndividual_age_at_collection().getAge_class());
+        Ga4ghBiocharacteristics organism = ga4ghSample.getBio_characteristic().first();
+        assertEquals("Homo sapiens", organism.getOntology_terms().first().getTerm_label());
+    }
+}
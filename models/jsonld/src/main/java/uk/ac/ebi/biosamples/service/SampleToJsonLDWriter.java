@@ -0,0 +1,147 @@
+package uk.ac.ebi.biosamples.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import uk.ac.ebi.biosamples.model.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the ld+json DataRecord for a sample directly from the sample, without creating
+ * the intermediate {@link JsonLDDataRecord} model objects.
+ *
+ * The output is the same as serializing the result of {@link SampleToJsonLDSampleRecordConverter}
+ * with the sample url set, as JsonLDService does.
+ */
+public class SampleToJsonLDWriter {
+
+    private static final ZoneId UTC = ZoneId.of("UTC");
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+    private static final String[] SAMPLE_TYPE = {"Sample", "OBI:0000747"};
+    private static final Pattern URL_PATTERN = Pattern.compile("^https?://.*");
+
+    //these are fixed, so take them from the model once to be sure they match it
+    private static final BioSchemasContext CONTEXT = new BioSchemasContext();
+    private static final Map<?, ?> DATASET_PART_OF = new JsonLDDataRecord().getDatasetPartOf();
+
+    public void write(Sample sample, String sampleUrl, JsonGenerator gen) throws IOException {
+        String identifier = "biosample:" + sample.getAccession();
+
+        gen.writeStartObject();
+
+        gen.writeFieldName("@context");
+        gen.writeStartArray();
+        gen.writeString(CONTEXT.getSchemaOrgContext().toString());
+        if (!CONTEXT.getOtherContexts().isEmpty()) {
+            gen.writeStartObject();
+            for (Map.Entry<String, URI> entry : CONTEXT.getOtherContexts().entrySet()) {
+                gen.writeStringField(entry.getKey(), entry.getValue().toString());
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+
+        gen.writeStringField("@type", "DataRecord");
+        gen.writeStringField("@id", identifier);
+        gen.writeStringField("identifier", identifier);
+        //TODO Check if we actually want to use release date as date created
+        gen.writeStringField("dateCreated", DATE_TIME_FORMATTER.format(sample.getRelease().atZone(UTC)));
+        gen.writeStringField("dateModified", DATE_TIME_FORMATTER.format(sample.getUpdate().atZone(UTC)));
+
+        gen.writeFieldName("mainEntity");
+        writeMainEntity(sample, sampleUrl, identifier, gen);
+
+        gen.writeObjectFieldStart("isPartOf");
+        for (Map.Entry<?, ?> entry : DATASET_PART_OF.entrySet()) {
+            gen.writeStringField(entry.getKey().toString(), entry.getValue().toString());
+        }
+        gen.writeEndObject();
+
+        gen.writeEndObject();
+    }
+
+    private void writeMainEntity(Sample sample, String sampleUrl, String identifier, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        if (sampleUrl != null) {
+            gen.writeStringField("@id", sampleUrl);
+        }
+        gen.writeArrayFieldStart("@type");
+        for (String type : SAMPLE_TYPE) {
+            gen.writeString(type);
+        }
+        gen.writeEndArray();
+        gen.writeArrayFieldStart("identifier");
+        gen.writeString(identifier);
+        gen.writeEndArray();
+        if (sample.getName() != null) {
+            gen.writeStringField("name", sample.getName());
+        }
+
+        //the first description attribute is used as the description instead of a property
+        Attribute description = null;
+        for (Attribute attribute : sample.getAttributes()) {
+            if (attribute.getType().equalsIgnoreCase("description")) {
+                description = attribute;
+                break;
+            }
+        }
+        if (description != null) {
+            gen.writeStringField("description", description.getValue());
+        }
+        if (sampleUrl != null) {
+            gen.writeStringField("url", sampleUrl);
+        }
+
+        if (!sample.getExternalReferences().isEmpty()) {
+            gen.writeArrayFieldStart("subjectOf");
+            for (ExternalReference externalReference : sample.getExternalReferences()) {
+                gen.writeString(externalReference.getUrl());
+            }
+            gen.writeEndArray();
+        }
+
+        if (!sample.getAttributes().isEmpty()) {
+            gen.writeArrayFieldStart("additionalProperty");
+            for (Attribute attribute : sample.getAttributes()) {
+                if (attribute != description) {
+                    writePropertyValue(attribute, gen);
+                }
+            }
+            gen.writeEndArray();
+        }
+
+        //TODO change identifiers
+        gen.writeStringField("sameAs", "http://identifiers.org/biosample/" + sample.getAccession());
+        gen.writeEndObject();
+    }
+
+    private void writePropertyValue(Attribute attribute, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("@type", "PropertyValue");
+        gen.writeStringField("name", attribute.getType());
+        gen.writeStringField("value", attribute.getValue());
+        if (attribute.getIri().size() > 0) {
+            gen.writeArrayFieldStart("valueReference");
+            for (String iri : attribute.getIri()) {
+                // Assuming that if the iri is not starting with a http[s] is
+                // probably a CURIE
+                gen.writeStartObject();
+                boolean isUrl = URL_PATTERN.matcher(iri).matches();
+                if (isUrl) {
+                    gen.writeStringField("@id", iri);
+                }
+                gen.writeStringField("@type", "DefinedTerm");
+                if (!isUrl) {
+                    gen.writeStringField("termCode", iri);
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+}
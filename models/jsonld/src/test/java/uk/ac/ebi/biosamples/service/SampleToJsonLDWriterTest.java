@@ -0,0 +1,80 @@
+package uk.ac.ebi.biosamples.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.ExternalReference;
+import uk.ac.ebi.biosamples.model.JsonLDDataRecord;
+import uk.ac.ebi.biosamples.model.JsonLDSample;
+import uk.ac.ebi.biosamples.model.Sample;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class SampleToJsonLDWriterTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SampleToJsonLDSampleRecordConverter converter = new SampleToJsonLDSampleRecordConverter();
+    private final SampleToJsonLDWriter writer = new SampleToJsonLDWriter();
+
+    @Test
+    public void testSameAsConverter() throws IOException {
+        for (Sample sample : Arrays.asList(getSample(), getMinimalSample(), getDescriptionOnlySample())) {
+            for (String url : Arrays.asList("http://localhost/biosamples/samples/" + sample.getAccession(), null)) {
+                Assert.assertEquals(mapper.writeValueAsString(convert(sample, url)), write(sample, url, false));
+                Assert.assertEquals(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(convert(sample, url)),
+                        write(sample, url, true));
+            }
+        }
+    }
+
+    private JsonLDDataRecord convert(Sample sample, String url) {
+        JsonLDDataRecord record = converter.convert(sample);
+        JsonLDSample jsonLDSample = record.getMainEntity();
+        jsonLDSample.setUrl(url);
+        jsonLDSample.setId(url);
+        return record;
+    }
+
+    private String write(Sample sample, String url, boolean pretty) throws IOException {
+        StringWriter stringWriter = new StringWriter();
+        JsonGenerator gen = mapper.getFactory().createGenerator(stringWriter);
+        if (pretty) {
+            gen.setPrettyPrinter(new DefaultPrettyPrinter());
+        }
+        writer.write(sample, url, gen);
+        gen.flush();
+        return stringWriter.toString();
+    }
+
+    private Sample getSample() {
+        return new Sample.Builder("Fake \"name\" ü", "SAMEA1")
+                .withRelease(Instant.parse("2016-04-01T11:36:57.00Z"))
+                .withUpdate(Instant.parse("2016-05-05T11:36:57.12Z"))
+                .addAttribute(Attribute.build("Organism", "Homo Sapiens", "http://purl.obolibrary.org/obo/NCBITaxon_9606", null))
+                .addAttribute(Attribute.build("Description", "first description", Collections.emptyList(), null))
+                .addAttribute(Attribute.build("description", "second description", Collections.emptyList(), null))
+                .addAttribute(Attribute.build("age", "3", Collections.emptyList(), "year"))
+                .addAttribute(Attribute.build("sex", "female", Arrays.asList("PATO:0000383", "http://www.ebi.ac.uk/efo/EFO_0001265"), null))
+                .addAttribute(Attribute.build("strain", "B6", (String) null, null))
+                .addExternalReference(ExternalReference.build("http://www.ebi.ac.uk/ena/data/view/ERS01"))
+                .addExternalReference(ExternalReference.build("http://example.com/"))
+                .build();
+    }
+
+    private Sample getMinimalSample() {
+        return new Sample.Builder("minimal", "SAMEA2").build();
+    }
+
+    private Sample getDescriptionOnlySample() {
+        return new Sample.Builder("only a description", "SAMEA3")
+                .addAttribute(Attribute.build("description", "a description", Collections.emptyList(), null))
+                .build();
+    }
+}
@@ -4,6 +4,7 @@ import java.time.Instant;
 import java.util.Objects;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -19,6 +20,7 @@ import uk.ac.ebi.biosamples.service.CustomInstantDeserializer;
 import uk.ac.ebi.biosamples.service.CustomInstantSerializer;
 
 @Document
+@CompoundIndex(name = "domain_created", def = "{'domain': 1, 'created': 1}", background = true)
 public class MongoCurationLink implements Comparable<MongoCurationLink>{
 
 	@Id
@@ -0,0 +1,48 @@
+package uk.ac.ebi.biosamples.mongo.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Records that a curation link was deleted, and from which sample. The removal itself only
+ * leaves the hash of the link, so without this whatever watches for changes, such as the
+ * change feed or the curated view, could not tell which sample to update.
+ *
+ * Tombstones are removed by mongo once they are older than {@link #RETENTION_SECONDS}.
+ */
+@Document
+public class MongoCurationLinkTombstone {
+
+	public static final int RETENTION_SECONDS = 30 * 24 * 60 * 60;
+
+	@Id
+	private final String hash;
+	private final String sample;
+	@Indexed(background = true, expireAfterSeconds = RETENTION_SECONDS)
+	private final Instant deleted;
+
+	private MongoCurationLinkTombstone(String hash, String sample, Instant deleted) {
+		this.hash = hash;
+		this.sample = sample;
+		this.deleted = deleted;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	public String getSample() {
+		return sample;
+	}
+
+	public Instant getDeleted() {
+		return deleted;
+	}
+
+	public static MongoCurationLinkTombstone build(String hash, String sample, Instant deleted) {
+		return new MongoCurationLinkTombstone(hash, sample, deleted);
+	}
+}
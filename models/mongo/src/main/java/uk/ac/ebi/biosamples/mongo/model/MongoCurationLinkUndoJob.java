@@ -0,0 +1,152 @@
+package uk.ac.ebi.biosamples.mongo.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import uk.ac.ebi.biosamples.model.CurationLinkQuery;
+import uk.ac.ebi.biosamples.model.CurationLinkUndoReport.Status;
+
+/**
+ * The progress of undoing the curation links selected by a query, so that it can be followed
+ * from any server and resumed if the server running it stops.
+ *
+ * The query is stored as its fields, the regular expressions are compiled again when it is
+ * resumed. The updated time is written as each batch is done, so a running job that has not
+ * been updated for a while was left by a server that stopped.
+ *
+ * The samples are reindexed once all their selected links are deleted, so the samples whose
+ * links were deleted are kept with the job until then, to still be reindexed if it is resumed.
+ */
+@Document
+public class MongoCurationLinkUndoJob {
+
+	@Id
+	private final String id;
+	private final Status status;
+
+	private final String domain;
+	private final Instant createdFrom;
+	private final Instant createdUntil;
+	private final String attributePreType;
+	private final String attributePreValue;
+	private final String attributePreValueExcluded;
+	private final boolean dryRun;
+
+	private final long matched;
+	private final long deleted;
+	private final long samples;
+	private final List<MongoCurationLink> examples;
+	private final List<String> reindex;
+
+	private final Instant started;
+	private final Instant updated;
+
+	private MongoCurationLinkUndoJob(String id, Status status, String domain, Instant createdFrom, Instant createdUntil,
+			String attributePreType, String attributePreValue, String attributePreValueExcluded, boolean dryRun,
+			long matched, long deleted, long samples, List<MongoCurationLink> examples, List<String> reindex,
+			Instant started, Instant updated) {
+		this.id = id;
+		this.status = status;
+		this.domain = domain;
+		this.createdFrom = createdFrom;
+		this.createdUntil = createdUntil;
+		this.attributePreType = attributePreType;
+		this.attributePreValue = attributePreValue;
+		this.attributePreValueExcluded = attributePreValueExcluded;
+		this.dryRun = dryRun;
+		this.matched = matched;
+		this.deleted = deleted;
+		this.samples = samples;
+		this.examples = examples;
+		this.reindex = reindex;
+		this.started = started;
+		this.updated = updated;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public CurationLinkQuery getQuery() {
+		return CurationLinkQuery.build(domain, createdFrom, createdUntil, attributePreType, attributePreValue,
+				attributePreValueExcluded);
+	}
+
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	public long getMatched() {
+		return matched;
+	}
+
+	public long getDeleted() {
+		return deleted;
+	}
+
+	public long getSamples() {
+		return samples;
+	}
+
+	public List<MongoCurationLink> getExamples() {
+		return examples;
+	}
+
+	/**
+	 * Accessions of the samples whose links were deleted, but that have not been reindexed yet
+	 */
+	public List<String> getReindex() {
+		//jobs stored before this was added don't have it
+		return reindex == null ? Collections.emptyList() : reindex;
+	}
+
+	public Instant getStarted() {
+		return started;
+	}
+
+	public Instant getUpdated() {
+		return updated;
+	}
+
+	/**
+	 * The same job with the given status and progress
+	 */
+	public MongoCurationLinkUndoJob update(Status status, long matched, long deleted, long samples,
+			List<MongoCurationLink> examples, Collection<String> reindex, Instant updated) {
+		return new MongoCurationLinkUndoJob(id, status, domain, createdFrom, createdUntil, attributePreType,
+				attributePreValue, attributePreValueExcluded, dryRun, matched, deleted, samples, examples,
+				new ArrayList<>(reindex), started, updated);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("MongoCurationLinkUndoJob(");
+		sb.append(id);
+		sb.append(",");
+		sb.append(status);
+		sb.append(",");
+		sb.append(getQuery());
+		sb.append(",");
+		sb.append(dryRun);
+		sb.append(")");
+		return sb.toString();
+	}
+
+	public static MongoCurationLinkUndoJob build(String id, CurationLinkQuery query, boolean dryRun, Instant started) {
+		return new MongoCurationLinkUndoJob(id, Status.RUNNING, query.getDomain(), query.getCreatedFrom(),
+				query.getCreatedUntil(), query.getAttributePreType(), query.getAttributePreValue(),
+				query.getAttributePreValueExcluded(), dryRun, 0, 0, 0, Collections.emptyList(), Collections.emptyList(),
+				started, started);
+	}
+}
@@ -0,0 +1,87 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.BulkWriteUpsert;
+import com.mongodb.DBObject;
+
+/**
+ * Inserts documents that are not already stored, as upserts that only set fields when inserting. 
+ * Documents that are already stored are left as they are without having to read them first, 
+ * and the result of the write says which documents were new.
+ */
+class InsertIfAbsent {
+
+	private static final int DUPLICATE_KEY = 11000;
+
+	private InsertIfAbsent() {
+	}
+
+	/**
+	 * @return the documents that were inserted, in the order given
+	 */
+	static <T> List<T> insertAll(MongoOperations mongoOperations, Class<T> type, Collection<T> documents) {
+		//a document given more than once can only be inserted once
+		Map<Object, T> documentsById = new LinkedHashMap<>();
+		BulkOperations bulkOperations = mongoOperations.bulkOps(BulkMode.UNORDERED, type);
+		for (T document : documents) {
+			DBObject dbObject = new BasicDBObject();
+			mongoOperations.getConverter().write(document, dbObject);
+			Object id = dbObject.get("_id");
+			if (documentsById.putIfAbsent(id, document) != null) {
+				continue;
+			}
+			Update update = new Update();
+			for (String key : dbObject.keySet()) {
+				if (!key.equals("_id")) {
+					update.setOnInsert(key, dbObject.get(key));
+				}
+			}
+			bulkOperations.upsert(new Query(Criteria.where("_id").is(id)), update);
+		}
+		if (documentsById.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		BulkWriteResult result;
+		try {
+			result = bulkOperations.execute();
+		} catch (BulkOperationException e) {
+			//another thread can insert the same document between the upsert finding no match and inserting it
+			for (BulkWriteError error : e.getErrors()) {
+				if (error.getCode() != DUPLICATE_KEY) {
+					throw e;
+				}
+			}
+			result = e.getResult();
+		}
+
+		List<T> unique = new ArrayList<>(documentsById.values());
+		List<Integer> indexes = new ArrayList<>();
+		for (BulkWriteUpsert upsert : result.getUpserts()) {
+			indexes.add(upsert.getIndex());
+		}
+		Collections.sort(indexes);
+		List<T> inserted = new ArrayList<>(indexes.size());
+		for (int index : indexes) {
+			inserted.add(unique.get(index));
+		}
+		return inserted;
+	}
+}
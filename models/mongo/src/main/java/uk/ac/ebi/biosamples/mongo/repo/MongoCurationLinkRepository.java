@@ -6,7 +6,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
 
-public interface MongoCurationLinkRepository extends MongoRepository<MongoCurationLink, String> {
+public interface MongoCurationLinkRepository extends MongoRepository<MongoCurationLink, String>, MongoCurationLinkRepositoryCustom {
 	
 	Page<MongoCurationLink> findBySample(String sample, Pageable page);
 	Page<MongoCurationLink> findByCurationHash(String hash, Pageable page);
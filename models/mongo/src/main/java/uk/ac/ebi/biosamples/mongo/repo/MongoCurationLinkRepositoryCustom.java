@@ -0,0 +1,20 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+
+public interface MongoCurationLinkRepositoryCustom {
+
+	//inserts the curation links that aren't already stored, without changing those that are
+	public List<MongoCurationLink> insertAllIfAbsent(Collection<MongoCurationLink> curationLinks);
+
+	//streams the curation links of a domain created after createdFrom and before createdUntil, where each limit can be null
+	public Stream<MongoCurationLink> streamByDomainAndCreated(String domain, Instant createdFrom, Instant createdUntil);
+
+	//deletes the curation links with the given hashes in one request, leaving a tombstone for each
+	public long deleteAllByHash(Collection<String> hashes);
+}
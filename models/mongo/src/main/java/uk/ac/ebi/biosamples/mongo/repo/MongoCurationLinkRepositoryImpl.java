@@ -0,0 +1,89 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLinkTombstone;
+
+public class MongoCurationLinkRepositoryImpl implements MongoCurationLinkRepositoryCustom {
+
+	private final MongoOperations mongoOperations;
+
+	public MongoCurationLinkRepositoryImpl(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	/**
+	 * @return the curation links that were inserted, so only those samples need to be reindexed
+	 */
+	@Override
+	public List<MongoCurationLink> insertAllIfAbsent(Collection<MongoCurationLink> curationLinks) {
+		return InsertIfAbsent.insertAll(mongoOperations, MongoCurationLink.class, curationLinks);
+	}
+
+	/**
+	 * The stream holds a cursor open, so must be closed
+	 */
+	@Override
+	public Stream<MongoCurationLink> streamByDomainAndCreated(String domain, Instant createdFrom, Instant createdUntil) {
+		Criteria criteria = Criteria.where("domain").is(domain);
+		if (createdFrom != null || createdUntil != null) {
+			Criteria created = criteria.and("created");
+			if (createdFrom != null) {
+				created.gt(Date.from(createdFrom));
+			}
+			if (createdUntil != null) {
+				created.lt(Date.from(createdUntil));
+			}
+		}
+		CloseableIterator<MongoCurationLink> iterator = mongoOperations.stream(new Query(criteria), MongoCurationLink.class);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+				.onClose(iterator::close);
+	}
+
+	/**
+	 * Records a tombstone for each link before removing it, so that watchers can tell which
+	 * samples lost a curation. If the removal fails the tombstones only cause an extra update.
+	 */
+	@Override
+	public long deleteAllByHash(Collection<String> hashes) {
+		if (hashes.isEmpty()) {
+			return 0;
+		}
+		Query query = new Query(Criteria.where("hash").in(hashes));
+		query.fields().include("sample");
+		Instant deleted = Instant.now();
+		List<MongoCurationLinkTombstone> tombstones = new ArrayList<>(hashes.size());
+		for (MongoCurationLink mongoCurationLink : mongoOperations.find(query, MongoCurationLink.class)) {
+			tombstones.add(MongoCurationLinkTombstone.build(mongoCurationLink.getHash(), mongoCurationLink.getSample(), deleted));
+		}
+		if (tombstones.isEmpty()) {
+			return 0;
+		}
+		//a link deleted again after being restored gets a new tombstone
+		BulkOperations bulkOperations = mongoOperations.bulkOps(BulkMode.UNORDERED, MongoCurationLinkTombstone.class);
+		for (MongoCurationLinkTombstone tombstone : tombstones) {
+			bulkOperations.upsert(new Query(Criteria.where("_id").is(tombstone.getHash())),
+					new Update().set("sample", tombstone.getSample()).set("deleted", Date.from(deleted)));
+		}
+		bulkOperations.execute();
+
+		return mongoOperations.remove(new Query(Criteria.where("hash").in(hashes)), MongoCurationLink.class).getN();
+	}
+}
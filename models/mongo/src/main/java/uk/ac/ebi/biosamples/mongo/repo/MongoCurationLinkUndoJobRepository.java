@@ -0,0 +1,9 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLinkUndoJob;
+
+public interface MongoCurationLinkUndoJobRepository extends MongoRepository<MongoCurationLinkUndoJob, String>, MongoCurationLinkUndoJobRepositoryCustom {
+
+}
@@ -0,0 +1,11 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import java.time.Instant;
+
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLinkUndoJob;
+
+public interface MongoCurationLinkUndoJobRepositoryCustom {
+
+	//marks the job as running again if it failed, or was last updated before the given time
+	public MongoCurationLinkUndoJob claimForResume(String id, Instant staleBefore);
+}
@@ -0,0 +1,37 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import java.time.Instant;
+import java.util.Date;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import uk.ac.ebi.biosamples.model.CurationLinkUndoReport.Status;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLinkUndoJob;
+
+public class MongoCurationLinkUndoJobRepositoryImpl implements MongoCurationLinkUndoJobRepositoryCustom {
+
+	private final MongoOperations mongoOperations;
+
+	public MongoCurationLinkUndoJobRepositoryImpl(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	/**
+	 * Checks and changes the job in one write, so only one server can resume it
+	 * 
+	 * @return the job as it now is, or null if it can't be resumed
+	 */
+	@Override
+	public MongoCurationLinkUndoJob claimForResume(String id, Instant staleBefore) {
+		Query query = new Query(Criteria.where("_id").is(id).orOperator(
+				Criteria.where("status").is(Status.FAILED.name()),
+				Criteria.where("status").is(Status.RUNNING.name()).and("updated").lt(Date.from(staleBefore))));
+		Update update = new Update().set("status", Status.RUNNING.name()).set("updated", Date.from(Instant.now()));
+		return mongoOperations.findAndModify(query, update, new FindAndModifyOptions().returnNew(true),
+				MongoCurationLinkUndoJob.class);
+	}
+}
@@ -4,5 +4,5 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import uk.ac.ebi.biosamples.mongo.model.MongoCuration;
 
-public interface MongoCurationRepository extends MongoRepository<MongoCuration, String> {
+public interface MongoCurationRepository extends MongoRepository<MongoCuration, String>, MongoCurationRepositoryCustom {
 }
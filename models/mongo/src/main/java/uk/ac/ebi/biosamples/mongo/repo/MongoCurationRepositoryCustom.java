@@ -0,0 +1,12 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import java.util.Collection;
+import java.util.List;
+
+import uk.ac.ebi.biosamples.mongo.model.MongoCuration;
+
+public interface MongoCurationRepositoryCustom {
+
+	//inserts the curations that aren't already stored, without changing those that are
+	public List<MongoCuration> insertAllIfAbsent(Collection<MongoCuration> curations);
+}
@@ -0,0 +1,25 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import uk.ac.ebi.biosamples.mongo.model.MongoCuration;
+
+public class MongoCurationRepositoryImpl implements MongoCurationRepositoryCustom {
+
+	private final MongoOperations mongoOperations;
+
+	public MongoCurationRepositoryImpl(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	/**
+	 * @return the curations that were inserted
+	 */
+	@Override
+	public List<MongoCuration> insertAllIfAbsent(Collection<MongoCuration> curations) {
+		return InsertIfAbsent.insertAll(mongoOperations, MongoCuration.class, curations);
+	}
+}
@@ -1,5 +1,7 @@
 package uk.ac.ebi.biosamples.mongo.repo;
 
+import java.util.Collection;
+
 import uk.ac.ebi.biosamples.model.StaticViewWrapper;
 import uk.ac.ebi.biosamples.mongo.model.MongoSample;
 
@@ -10,4 +12,9 @@ public interface MongoSampleRepositoryCustom {
 	//to provide static view of samples
 	public void insertSampleToCollection(MongoSample sample, StaticViewWrapper.StaticView collectionName);
 	public MongoSample findSampleFromCollection(String accession, StaticViewWrapper.StaticView collectionName);
+	//writes samples to a static view in one request, skipping those already stored unchanged, returns the number written
+	public int upsertAllToCollection(Collection<MongoSample> samples, StaticViewWrapper.StaticView collectionName);
+
+	//saves the sample and returns only the relationships it had before, in one request, or null if it is new
+	public MongoSample saveReturningOldRelationships(MongoSample sample);
 }
\ No newline at end of file
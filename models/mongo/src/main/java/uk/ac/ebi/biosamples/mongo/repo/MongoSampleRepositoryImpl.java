@@ -1,11 +1,30 @@
 package uk.ac.ebi.biosamples.mongo.repo;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bson.BasicBSONEncoder;
 import org.springframework.data.mongodb.core.MongoOperations;
+
+import com.google.common.hash.Hashing;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+
 import uk.ac.ebi.biosamples.model.StaticViewWrapper;
 import uk.ac.ebi.biosamples.mongo.model.MongoSample;
 
 public class MongoSampleRepositoryImpl implements MongoSampleRepositoryCustom {
 
+	/**
+	 * Field of static view documents holding a digest of the rest of the document, so that
+	 * a sample can be compared with the stored copy without reading all of it
+	 */
+	static final String DIGEST = "digest";
 
 	private final MongoOperations mongoOperations;
 
@@ -26,11 +45,69 @@ public class MongoSampleRepositoryImpl implements MongoSampleRepositoryCustom {
 
 	@Override
 	public void insertSampleToCollection(MongoSample sample, StaticViewWrapper.StaticView collectionName) {
-		mongoOperations.save(sample, collectionName.getCollectionName());
+		mongoOperations.getCollection(collectionName.getCollectionName()).save(toDigestedDBObject(sample));
 	}
 
 	@Override
 	public MongoSample findSampleFromCollection(String accession, StaticViewWrapper.StaticView collectionName) {
 		return mongoOperations.findById(accession, MongoSample.class, collectionName.getCollectionName());
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Only the digests of the stored documents are read, and only the documents whose digest
+	 * differs are replaced, as unordered upserts in a single bulk write.
+	 */
+	@Override
+	public int upsertAllToCollection(Collection<MongoSample> samples, StaticViewWrapper.StaticView collectionName) {
+		Map<Object, DBObject> dbObjects = new LinkedHashMap<>();
+		for (MongoSample sample : samples) {
+			DBObject dbObject = toDigestedDBObject(sample);
+			dbObjects.put(dbObject.get("_id"), dbObject);
+		}
+		if (dbObjects.isEmpty()) {
+			return 0;
+		}
+
+		DBCollection collection = mongoOperations.getCollection(collectionName.getCollectionName());
+		DBObject query = new BasicDBObject("_id", new BasicDBObject("$in", new ArrayList<>(dbObjects.keySet())));
+		try (DBCursor cursor = collection.find(query, new BasicDBObject(DIGEST, 1))) {
+			for (DBObject stored : cursor) {
+				DBObject dbObject = dbObjects.get(stored.get("_id"));
+				if (dbObject != null && dbObject.get(DIGEST).equals(stored.get(DIGEST))) {
+					dbObjects.remove(stored.get("_id"));
+				}
+			}
+		}
+		if (dbObjects.isEmpty()) {
+			return 0;
+		}
+
+		BulkWriteOperation bulkWriteOperation = collection.initializeUnorderedBulkOperation();
+		for (Map.Entry<Object, DBObject> entry : dbObjects.entrySet()) {
+			bulkWriteOperation.find(new BasicDBObject("_id", entry.getKey())).upsert().replaceOne(entry.getValue());
+		}
+		bulkWriteOperation.execute();
+		return dbObjects.size();
+	}
+
+	/**
+	 * Replaces the stored sample with a find and modify, so the relationships it replaces are
+	 * read in the same request rather than one before the save
+	 */
+	@Override
+	public MongoSample saveReturningOldRelationships(MongoSample sample) {
+		DBObject dbObject = new BasicDBObject();
+		mongoOperations.getConverter().write(sample, dbObject);
+		DBCollection collection = mongoOperations.getCollection(mongoOperations.getCollectionName(MongoSample.class));
+		DBObject old = collection.findAndModify(new BasicDBObject("_id", dbObject.get("_id")),
+				new BasicDBObject("relationships", 1), null, false, dbObject, false, true);
+		return old == null ? null : mongoOperations.getConverter().read(MongoSample.class, old);
+	}
+
+	private DBObject toDigestedDBObject(MongoSample sample) {
+		DBObject dbObject = new BasicDBObject();
+		mongoOperations.getConverter().write(sample, dbObject);
+		dbObject.put(DIGEST, Hashing.sha256().hashBytes(new BasicBSONEncoder().encode(dbObject)).toString());
+		return dbObject;
+	}
+}
@@ -26,15 +26,21 @@ public class MongoInverseRelationshipService {
 			return mongoSample;
 		}
 		
+		mongoSample.getRelationships().addAll(getInverseRelationships(accession));
+		return mongoSample;
+	}
+
+	public List<MongoRelationship> getInverseRelationships(String accession) {
+		List<MongoRelationship> inverseRelationships = new ArrayList<>();
 		Query query = new BasicQuery("{'relationships.target':'"+accession+"'}","{'relationships.$':1}");
 		for (MongoSample other : mongoTemplate.find(query, MongoSample.class)) {
 			for (MongoRelationship relationship : other.getRelationships()) {
 				if (relationship.getTarget().equals(accession)) {
-					mongoSample.getRelationships().add(relationship);
+					inverseRelationships.add(relationship);
 				}
 			}
 		}
-		return mongoSample;
+		return inverseRelationships;
 	}
 
 	public List<String> getInverseRelationshipsTargets(String accession) {
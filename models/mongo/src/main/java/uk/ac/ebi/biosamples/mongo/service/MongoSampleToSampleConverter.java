@@ -5,13 +5,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.model.Attribute;
 import uk.ac.ebi.biosamples.model.ExternalReference;
+import uk.ac.ebi.biosamples.model.ModelInterner;
 import uk.ac.ebi.biosamples.model.Relationship;
 import uk.ac.ebi.biosamples.model.Sample;
 import uk.ac.ebi.biosamples.mongo.model.MongoExternalReference;
 import uk.ac.ebi.biosamples.mongo.model.MongoRelationship;
 import uk.ac.ebi.biosamples.mongo.model.MongoSample;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -33,6 +37,15 @@ public class MongoSampleToSampleConverter implements Converter<MongoSample, Samp
             externalReferences.add(mongoExternalReferenceToExternalReferenceConverter.convert(mongoExternalReference));
         }
 
+        //spring-data creates the attributes without using Attribute.build, so build them again to share their values
+        Collection<Attribute> attributes = sample.getAttributes();
+        if (ModelInterner.isEnabled() && attributes != null) {
+            attributes = new ArrayList<>(sample.getAttributes().size());
+            for (Attribute attribute : sample.getAttributes()) {
+                attributes.add(Attribute.build(attribute.getType(), attribute.getValue(), attribute.getIri(), attribute.getUnit()));
+            }
+        }
+
         SortedSet<Relationship> relationships = new TreeSet<>();
         for (MongoRelationship mongoRelationship : sample.getRelationships()) {
             relationships.add(mongoRelationshipToRelationshipConverter.convert(mongoRelationship));
@@ -46,7 +59,7 @@ public class MongoSampleToSampleConverter implements Converter<MongoSample, Samp
 
         return new Sample.Builder(sample.getName(), sample.getAccession()).withDomain(sample.getDomain())
                 .withRelease(sample.getRelease()).withUpdate(sample.getUpdate())
-                .withAttributes(sample.getAttributes()).withRelationships(relationships)
+                .withAttributes(attributes).withRelationships(relationships)
                 .withData(sample.getData())
                 .withExternalReferences(externalReferences).withOrganizations(sample.getOrganizations())
                 .withContacts(sample.getContacts()).withPublications(sample.getPublications())
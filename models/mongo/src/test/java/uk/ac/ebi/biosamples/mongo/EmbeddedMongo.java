@@ -0,0 +1,91 @@
+package uk.ac.ebi.biosamples.mongo;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.bson.Document;
+import org.junit.Assume;
+import org.junit.rules.ExternalResource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.MongoClient;
+
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.IMongodConfig;
+import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.Storage;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+
+/**
+ * Starts a real mongod for the tests of a class, e.g. as a ClassRule. It runs as a single member
+ * replica set, as in production, so that the oplog exists.
+ * 
+ * The mongod binary is downloaded on first use, where that is not possible the tests are
+ * skipped rather than failed.
+ */
+public class EmbeddedMongo extends ExternalResource {
+
+	public static final String DATABASE = "biosamples";
+	private static final String REPLICA_SET = "rs0";
+
+	private MongodExecutable mongodExecutable;
+	private MongoClient mongoClient;
+
+	@Override
+	protected void before() throws Throwable {
+		int port = 0;
+		try {
+			port = Network.getFreeServerPort();
+			IMongodConfig mongodConfig = new MongodConfigBuilder()
+					.version(Version.Main.V3_2)
+					.net(new Net(port, Network.localhostIsIPv6()))
+					.replication(new Storage(null, REPLICA_SET, 16))
+					.build();
+			mongodExecutable = MongodStarter.getDefaultInstance().prepare(mongodConfig);
+			mongodExecutable.start();
+		} catch (IOException | RuntimeException e) {
+			Assume.assumeNoException("Unable to start mongod", e);
+		}
+		mongoClient = new MongoClient("localhost", port);
+
+		//a replica set only accepts writes once it is initiated and has elected a primary
+		mongoClient.getDatabase("admin").runCommand(new Document("replSetInitiate",
+				new Document("_id", REPLICA_SET).append("members", Collections.singletonList(
+						new Document("_id", 0).append("host", "localhost:" + port)))));
+		long timeout = System.currentTimeMillis() + 30000;
+		while (!Boolean.TRUE.equals(mongoClient.getDatabase("admin").runCommand(new Document("isMaster", 1)).get("ismaster"))) {
+			if (System.currentTimeMillis() > timeout) {
+				throw new IllegalStateException("Replica set did not elect a primary");
+			}
+			Thread.sleep(100);
+		}
+	}
+
+	@Override
+	protected void after() {
+		if (mongoClient != null) {
+			mongoClient.close();
+		}
+		if (mongodExecutable != null) {
+			mongodExecutable.stop();
+		}
+	}
+
+	public MongoClient getMongoClient() {
+		return mongoClient;
+	}
+
+	public MongoTemplate getMongoTemplate() {
+		return new MongoTemplate(mongoClient, DATABASE);
+	}
+
+	/**
+	 * Removes everything written by a previous test
+	 */
+	public void clear() {
+		mongoClient.dropDatabase(DATABASE);
+	}
+}
@@ -0,0 +1,100 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Curation;
+import uk.ac.ebi.biosamples.mongo.EmbeddedMongo;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+
+/**
+ * Inserts into a real mongod, as what matters is how the upserts are written and what the
+ * server reports back for them
+ */
+public class InsertIfAbsentTest {
+
+	@ClassRule
+	public static final EmbeddedMongo embeddedMongo = new EmbeddedMongo();
+
+	private final Curation curation = Curation.build(Attribute.build("sex", "M"), Attribute.build("sex", "male"));
+	private final Instant created = Instant.parse("2018-01-01T00:00:00Z");
+
+	private MongoTemplate mongoTemplate;
+
+	@Before
+	public void setup() {
+		embeddedMongo.clear();
+		mongoTemplate = embeddedMongo.getMongoTemplate();
+	}
+
+	@Test
+	public void only_absent_documents_are_inserted() {
+		MongoCurationLink existing = MongoCurationLink.build("SAMEA1", curation, "self.first", created);
+		MongoCurationLink added = MongoCurationLink.build("SAMEA2", curation, "self.test", created);
+		assertEquals(Collections.singletonList(existing),
+				InsertIfAbsent.insertAll(mongoTemplate, MongoCurationLink.class, Collections.singletonList(existing)));
+
+		//the same link from another domain has the same hash, so is already stored
+		MongoCurationLink again = MongoCurationLink.build("SAMEA1", curation, "self.second", Instant.now());
+		List<MongoCurationLink> inserted = InsertIfAbsent.insertAll(mongoTemplate, MongoCurationLink.class,
+				Arrays.asList(again, added, added));
+
+		assertEquals(1, inserted.size());
+		assertEquals(added.getHash(), inserted.get(0).getHash());
+		assertEquals(2, mongoTemplate.count(new Query(), MongoCurationLink.class));
+		assertEquals("self.first", mongoTemplate.findById(existing.getHash(), MongoCurationLink.class).getDomain());
+	}
+
+	@Test
+	public void inserted_documents_are_mapped_as_saved() {
+		MongoCurationLink curationLink = MongoCurationLink.build("SAMEA1", curation, "self.test", created);
+		InsertIfAbsent.insertAll(mongoTemplate, MongoCurationLink.class, Collections.singletonList(curationLink));
+
+		//the fields are set on insert from the converted document, so must be stored as save would store them
+		Document document = embeddedMongo.getMongoClient().getDatabase(EmbeddedMongo.DATABASE)
+				.getCollection("mongoCurationLink").find().first();
+		assertEquals(curationLink.getHash(), document.get("_id"));
+		assertEquals(MongoCurationLink.class.getName(), document.get("_class"));
+		assertEquals(Date.from(created), document.get("created"));
+
+		MongoCurationLink stored = mongoTemplate.findById(curationLink.getHash(), MongoCurationLink.class);
+		assertEquals("SAMEA1", stored.getSample());
+		assertEquals("self.test", stored.getDomain());
+		assertEquals(created, stored.getCreated());
+		assertEquals(curation, stored.getCuration());
+	}
+
+	@Test
+	public void duplicate_keys_are_not_reported_as_inserted() {
+		//a duplicate key on another index fails the same way as another thread inserting the same document first
+		mongoTemplate.indexOps(MongoCurationLink.class).ensureIndex(new Index()
+				.on("sample", Direction.ASC).on("domain", Direction.ASC).named("sample_domain_unique").unique());
+		MongoCurationLink first = MongoCurationLink.build("SAMEA1", curation, "self.test", created);
+		MongoCurationLink duplicate = MongoCurationLink.build("SAMEA1",
+				Curation.build(Attribute.build("sex", "F"), Attribute.build("sex", "female")), "self.test", created);
+		MongoCurationLink other = MongoCurationLink.build("SAMEA2", curation, "self.test", created);
+
+		List<MongoCurationLink> inserted = InsertIfAbsent.insertAll(mongoTemplate, MongoCurationLink.class,
+				Arrays.asList(first, duplicate, other));
+
+		assertEquals(2, inserted.size());
+		assertEquals(Arrays.asList(first.getHash(), other.getHash()),
+				Arrays.asList(inserted.get(0).getHash(), inserted.get(1).getHash()));
+		assertEquals(2, mongoTemplate.count(new Query(), MongoCurationLink.class));
+	}
+}
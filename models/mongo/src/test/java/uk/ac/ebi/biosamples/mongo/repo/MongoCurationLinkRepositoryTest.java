@@ -0,0 +1,90 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Curation;
+import uk.ac.ebi.biosamples.mongo.EmbeddedMongo;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLinkTombstone;
+
+/**
+ * Runs the queries used to undo curation links against a real mongod
+ */
+public class MongoCurationLinkRepositoryTest {
+
+	@ClassRule
+	public static final EmbeddedMongo embeddedMongo = new EmbeddedMongo();
+
+	private final Curation curation = Curation.build(Attribute.build("sex", "n/a"), null);
+	private final Instant from = Instant.parse("2018-10-23T00:00:00Z");
+	private final Instant until = Instant.parse("2018-11-01T00:00:00Z");
+
+	private MongoTemplate mongoTemplate;
+	private MongoCurationLinkRepository mongoCurationLinkRepository;
+
+	@Before
+	public void setup() {
+		embeddedMongo.clear();
+		mongoTemplate = embeddedMongo.getMongoTemplate();
+		mongoCurationLinkRepository = new MongoRepositoryFactory(mongoTemplate)
+				.getRepository(MongoCurationLinkRepository.class, new MongoCurationLinkRepositoryImpl(mongoTemplate));
+	}
+
+	private List<String> stream(String domain, Instant createdFrom, Instant createdUntil) {
+		try (Stream<MongoCurationLink> stream = mongoCurationLinkRepository.streamByDomainAndCreated(domain, createdFrom, createdUntil)) {
+			return stream.map(MongoCurationLink::getSample).sorted().collect(Collectors.toList());
+		}
+	}
+
+	@Test
+	public void stream_selects_domain_and_window() {
+		mongoCurationLinkRepository.insertAllIfAbsent(Arrays.asList(
+				MongoCurationLink.build("SAMEA1", curation, "self.BiosampleCuration", from),
+				MongoCurationLink.build("SAMEA2", curation, "self.BiosampleCuration", from.plusSeconds(1)),
+				MongoCurationLink.build("SAMEA3", curation, "self.BiosampleCuration", until.minusSeconds(1)),
+				MongoCurationLink.build("SAMEA4", curation, "self.BiosampleCuration", until),
+				MongoCurationLink.build("SAMEA5", curation, "self.other", from.plusSeconds(1))));
+
+		//both limits are exclusive
+		assertEquals(Arrays.asList("SAMEA2", "SAMEA3"), stream("self.BiosampleCuration", from, until));
+		assertEquals(Arrays.asList("SAMEA2", "SAMEA3", "SAMEA4"), stream("self.BiosampleCuration", from, null));
+		assertEquals(Arrays.asList("SAMEA1", "SAMEA2", "SAMEA3", "SAMEA4"), stream("self.BiosampleCuration", null, null));
+		assertEquals(Collections.singletonList("SAMEA5"), stream("self.other", null, until));
+	}
+
+	@Test
+	public void delete_leaves_tombstones() {
+		MongoCurationLink deleted = MongoCurationLink.build("SAMEA1", curation, "self.BiosampleCuration", from);
+		MongoCurationLink kept = MongoCurationLink.build("SAMEA2", curation, "self.BiosampleCuration", from);
+		mongoCurationLinkRepository.insertAllIfAbsent(Arrays.asList(deleted, kept));
+
+		assertEquals(1, mongoCurationLinkRepository.deleteAllByHash(Arrays.asList(deleted.getHash(), "missing")));
+
+		assertNull(mongoCurationLinkRepository.findOne(deleted.getHash()));
+		assertNotNull(mongoCurationLinkRepository.findOne(kept.getHash()));
+		List<MongoCurationLinkTombstone> tombstones = mongoTemplate.findAll(MongoCurationLinkTombstone.class);
+		assertEquals(1, tombstones.size());
+		assertEquals(deleted.getHash(), tombstones.get(0).getHash());
+		assertEquals("SAMEA1", tombstones.get(0).getSample());
+
+		//deleting again finds nothing, so does nothing
+		assertEquals(0, mongoCurationLinkRepository.deleteAllByHash(Collections.singletonList(deleted.getHash())));
+		assertEquals(1, mongoTemplate.findAll(MongoCurationLinkTombstone.class).size());
+	}
+}
@@ -0,0 +1,72 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.Instant;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Curation;
+import uk.ac.ebi.biosamples.model.CurationLinkQuery;
+import uk.ac.ebi.biosamples.model.CurationLinkUndoReport.Status;
+import uk.ac.ebi.biosamples.mongo.EmbeddedMongo;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLinkUndoJob;
+
+public class MongoCurationLinkUndoJobRepositoryTest {
+
+	@ClassRule
+	public static final EmbeddedMongo embeddedMongo = new EmbeddedMongo();
+
+	private final Instant started = Instant.parse("2018-11-01T00:00:00Z");
+	private final CurationLinkQuery query = CurationLinkQuery.build("self.BiosampleCuration",
+			Instant.parse("2018-10-23T00:00:00Z"), null, "sex", "(?i).*n/a.*", null);
+
+	private MongoCurationLinkUndoJobRepository mongoCurationLinkUndoJobRepository;
+
+	@Before
+	public void setup() {
+		embeddedMongo.clear();
+		MongoTemplate mongoTemplate = embeddedMongo.getMongoTemplate();
+		mongoCurationLinkUndoJobRepository = new MongoRepositoryFactory(mongoTemplate)
+				.getRepository(MongoCurationLinkUndoJobRepository.class, new MongoCurationLinkUndoJobRepositoryImpl(mongoTemplate));
+	}
+
+	@Test
+	public void job_is_stored_with_its_query_and_progress() {
+		MongoCurationLink example = MongoCurationLink.build("SAMEA1", Curation.build(Attribute.build("sex", "n/a"), null),
+				"self.BiosampleCuration", started);
+		mongoCurationLinkUndoJobRepository.save(MongoCurationLinkUndoJob.build("1", query, false, started)
+				.update(Status.FINISHED, 1, 1, 1, Collections.singletonList(example), Collections.emptyList(), started));
+
+		MongoCurationLinkUndoJob job = mongoCurationLinkUndoJobRepository.findOne("1");
+		assertEquals(query, job.getQuery());
+		assertEquals(Status.FINISHED, job.getStatus());
+		assertEquals(1, job.getDeleted());
+		assertEquals(example.getHash(), job.getExamples().get(0).getHash());
+	}
+
+	@Test
+	public void only_failed_or_stopped_jobs_are_claimed() {
+		mongoCurationLinkUndoJobRepository.save(MongoCurationLinkUndoJob.build("running", query, false, started));
+		mongoCurationLinkUndoJobRepository.save(MongoCurationLinkUndoJob.build("failed", query, false, started)
+				.update(Status.FAILED, 0, 0, 0, Collections.emptyList(), Collections.emptyList(), started));
+		mongoCurationLinkUndoJobRepository.save(MongoCurationLinkUndoJob.build("finished", query, false, started)
+				.update(Status.FINISHED, 0, 0, 0, Collections.emptyList(), Collections.emptyList(), started));
+
+		assertNull(mongoCurationLinkUndoJobRepository.claimForResume("running", started));
+		assertEquals(Status.RUNNING, mongoCurationLinkUndoJobRepository.claimForResume("running", started.plusSeconds(1)).getStatus());
+		//claiming marks it as updated, so it can't be claimed twice
+		assertNull(mongoCurationLinkUndoJobRepository.claimForResume("running", started.plusSeconds(1)));
+
+		assertEquals(Status.RUNNING, mongoCurationLinkUndoJobRepository.claimForResume("failed", started).getStatus());
+		assertNull(mongoCurationLinkUndoJobRepository.claimForResume("finished", Instant.now()));
+	}
+}
@@ -0,0 +1,128 @@
+package uk.ac.ebi.biosamples.mongo.repo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import com.mongodb.client.MongoCollection;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.StaticViewWrapper.StaticView;
+import uk.ac.ebi.biosamples.mongo.EmbeddedMongo;
+import uk.ac.ebi.biosamples.mongo.model.MongoRelationship;
+import uk.ac.ebi.biosamples.mongo.model.MongoSample;
+
+/**
+ * Writes static view documents to a real mongod, as they are written as raw documents with a
+ * digest rather than through the mapping of the repository
+ */
+public class MongoSampleRepositoryTest {
+
+	@ClassRule
+	public static final EmbeddedMongo embeddedMongo = new EmbeddedMongo();
+
+	private final Instant update = Instant.parse("2018-01-01T00:00:00Z");
+
+	private MongoSampleRepository mongoSampleRepository;
+
+	@Before
+	public void setup() {
+		embeddedMongo.clear();
+		MongoTemplate mongoTemplate = embeddedMongo.getMongoTemplate();
+		mongoSampleRepository = new MongoRepositoryFactory(mongoTemplate)
+				.getRepository(MongoSampleRepository.class, new MongoSampleRepositoryImpl(mongoTemplate));
+	}
+
+	@Test
+	public void inserted_sample_is_read_back() {
+		MongoSample sample = sample("SAMEA1", "first");
+		mongoSampleRepository.insertSampleToCollection(sample, StaticView.SAMPLES_CURATED);
+
+		Document document = getCollection(StaticView.SAMPLES_CURATED).find().first();
+		assertEquals("SAMEA1", document.get("_id"));
+		assertEquals(MongoSample.class.getName(), document.get("_class"));
+		assertNotNull(document.get(MongoSampleRepositoryImpl.DIGEST));
+
+		MongoSample stored = mongoSampleRepository.findSampleFromCollection("SAMEA1", StaticView.SAMPLES_CURATED);
+		assertEquals(sample, stored);
+		assertEquals(sample.getRelationships(), stored.getRelationships());
+		assertEquals(0, getCollection(StaticView.SAMPLES_DYNAMIC).count());
+	}
+
+	@Test
+	public void only_changed_samples_are_upserted() {
+		//written one at a time and in bulk, the same sample has the same digest
+		mongoSampleRepository.insertSampleToCollection(sample("SAMEA1", "first"), StaticView.SAMPLES_CURATED);
+		assertEquals(0, mongoSampleRepository.upsertAllToCollection(
+				Collections.singletonList(sample("SAMEA1", "first")), StaticView.SAMPLES_CURATED));
+
+		assertEquals(2, mongoSampleRepository.upsertAllToCollection(
+				Arrays.asList(sample("SAMEA1", "changed"), sample("SAMEA2", "second"), sample("SAMEA2", "second")),
+				StaticView.SAMPLES_CURATED));
+		assertEquals("changed", mongoSampleRepository.findSampleFromCollection("SAMEA1", StaticView.SAMPLES_CURATED).getName());
+		assertEquals("second", mongoSampleRepository.findSampleFromCollection("SAMEA2", StaticView.SAMPLES_CURATED).getName());
+		assertEquals(2, getCollection(StaticView.SAMPLES_CURATED).count());
+
+		assertEquals(0, mongoSampleRepository.upsertAllToCollection(
+				Arrays.asList(sample("SAMEA1", "changed"), sample("SAMEA2", "second")), StaticView.SAMPLES_CURATED));
+		assertEquals(0, mongoSampleRepository.upsertAllToCollection(Collections.emptyList(), StaticView.SAMPLES_CURATED));
+	}
+
+	@Test
+	public void digest_covers_the_whole_sample() {
+		mongoSampleRepository.upsertAllToCollection(Collections.singletonList(sample("SAMEA1", "first")),
+				StaticView.SAMPLES_CURATED);
+		MongoSample related = MongoSample.build("first", "SAMEA1", "self.test", update, update,
+				Collections.singleton(Attribute.build("organism", "Homo sapiens")), null,
+				Collections.singleton(MongoRelationship.build("SAMEA1", "derived from", "SAMEA3")),
+				null, null, null, null, null);
+
+		assertEquals(1, mongoSampleRepository.upsertAllToCollection(Collections.singletonList(related),
+				StaticView.SAMPLES_CURATED));
+		assertEquals(related.getRelationships(),
+				mongoSampleRepository.findSampleFromCollection("SAMEA1", StaticView.SAMPLES_CURATED).getRelationships());
+	}
+
+	@Test
+	public void saving_returns_the_old_relationships() {
+		assertNull(mongoSampleRepository.saveReturningOldRelationships(sample("SAMEA1", "first")));
+		assertEquals("first", mongoSampleRepository.findOne("SAMEA1").getName());
+
+		MongoSample changed = MongoSample.build("changed", "SAMEA1", "self.test", update, update,
+				Collections.singleton(Attribute.build("organism", "Homo sapiens")), null,
+				Collections.singleton(MongoRelationship.build("SAMEA1", "derived from", "SAMEA3")),
+				null, null, null, null, null);
+		MongoSample old = mongoSampleRepository.saveReturningOldRelationships(changed);
+		assertEquals(sample("SAMEA1", "first").getRelationships(), old.getRelationships());
+		assertNull(old.getName());
+
+		MongoSample stored = mongoSampleRepository.findOne("SAMEA1");
+		assertEquals(changed, stored);
+		assertEquals(changed.getRelationships(), stored.getRelationships());
+		assertEquals(MongoSample.class.getName(), embeddedMongo.getMongoClient().getDatabase(EmbeddedMongo.DATABASE)
+				.getCollection(embeddedMongo.getMongoTemplate().getCollectionName(MongoSample.class)).find().first().get("_class"));
+	}
+
+	private MongoSample sample(String accession, String name) {
+		return MongoSample.build(name, accession, "self.test", update, update,
+				Collections.singleton(Attribute.build("organism", "Homo sapiens")), null,
+				Collections.singleton(MongoRelationship.build(accession, "derived from", "SAMEA2")),
+				null, null, null, null, null);
+	}
+
+	private MongoCollection<Document> getCollection(StaticView staticView) {
+		return embeddedMongo.getMongoClient().getDatabase(EmbeddedMongo.DATABASE)
+				.getCollection(staticView.getCollectionName());
+	}
+}
@@ -152,4 +152,37 @@ public class SolrSampleService {
         return new Autocomplete(autocompletePrefix, autocompleted);
     }
 
+    /**
+     * Fetch the most frequent autocomplete terms of public samples, to allow
+     * autocomplete to be served without a solr query per request
+     *
+     * @param maxTerms the maximum number of terms to fetch
+     * @return the terms and the number of samples with each, most frequent first
+     */
+    public Map<String, Long> getAutocompleteTerms(int maxTerms) {
+        FacetQuery query = new SimpleFacetQuery();
+        query.addCriteria(new Criteria().expression("*:*"));
+        query.addProjectionOnField(new SimpleField("id"));
+
+        //filter out non-public
+        Optional<FilterQuery> publicSampleFilterQuery = solrFilterService.getPublicFilterQuery(Collections.EMPTY_LIST);
+        publicSampleFilterQuery.ifPresent(query::addFilterQuery);
+
+        query.setPageRequest(new PageRequest(0, 1));
+
+        FacetOptions facetOptions = new FacetOptions();
+        facetOptions.addFacetOnField("autocomplete_ss");
+        facetOptions.setPageable(new PageRequest(0, maxTerms));
+        query.setFacetOptions(facetOptions);
+        query.setTimeAllowed(TIMEALLOWED * 1000);
+
+        FacetPage<?> facetPage = solrSampleRepository.findByFacetQuery(query);
+
+        Map<String, Long> terms = new LinkedHashMap<>();
+        for (FacetFieldEntry facetFieldEntry : facetPage.getFacetResultPage("autocomplete_ss")) {
+            terms.put(facetFieldEntry.getValue(), facetFieldEntry.getValueCount());
+        }
+        return terms;
+    }
+
 }
@@ -1,11 +1,13 @@
 package uk.ac.ebi.biosamples.copydown;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
+import java.util.Set;
 import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
@@ -17,54 +19,113 @@ import org.springframework.stereotype.Component;
 
 import uk.ac.ebi.biosamples.PipelinesProperties;
 import uk.ac.ebi.biosamples.client.BioSamplesClient;
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.CurationLink;
 import uk.ac.ebi.biosamples.model.Sample;
 import uk.ac.ebi.biosamples.model.filter.Filter;
 import uk.ac.ebi.biosamples.utils.AdaptiveThreadPoolExecutor;
 import uk.ac.ebi.biosamples.utils.ArgUtils;
 import uk.ac.ebi.biosamples.utils.ThreadUtils;
 
+/**
+ * Gives samples without an organism the organism of the samples they are derived from, or
+ * "mixed sample" if there is more than one.
+ *
+ * All samples are read once into a {@link DerivedFromGraph}, so ancestors are never fetched
+ * again. Only samples whose organism would change are curated, new curations are submitted
+ * in batches. With --from or --until, only samples updated in that window are curated.
+ */
 @Component
 public class CopydownApplicationRunner implements ApplicationRunner {
 
+	private static final int BATCH_SIZE = 10000;
+
+	private static final Attribute mixedAttribute = Attribute.build("organism", "mixed sample", "http://purl.obolibrary.org/obo/NCBITaxon_1427524", null);
+
 	private Logger log = LoggerFactory.getLogger(getClass());
 
-	private final BioSamplesClient bioSamplesClient;	
+	private final BioSamplesClient bioSamplesClient;
 	private final PipelinesProperties pipelinesProperties;
-	
-	public CopydownApplicationRunner(BioSamplesClient bioSamplesClient, 
+
+	public CopydownApplicationRunner(BioSamplesClient bioSamplesClient,
 			PipelinesProperties pipelinesProperties) {
 		this.bioSamplesClient = bioSamplesClient;
 		this.pipelinesProperties = pipelinesProperties;
 	}
-	
-	
+
+
 	@Override
 	public void run(ApplicationArguments args) throws Exception {
-		
-		Collection<Filter> filters = ArgUtils.getDateFilters(args);
 
-		try (AdaptiveThreadPoolExecutor executorService = AdaptiveThreadPoolExecutor.create(100, 10000, true, 
+		DerivedFromGraph graph = new DerivedFromGraph();
+		long sampleCount = 0;
+		for (Resource<Sample> sampleResource : bioSamplesClient.fetchSampleResourceAll()) {
+			log.trace("Handling "+sampleResource);
+			Sample sample = sampleResource.getContent();
+			if (sample == null) {
+				throw new RuntimeException("Sample should not be null");
+			}
+			graph.add(sample);
+			if (++sampleCount % 100000 == 0) {
+				log.info("Read "+sampleCount+" samples");
+			}
+		}
+		log.info("Read "+sampleCount+" samples, "+graph.getDerivedSamples().size()+" derived from others");
+
+		Iterable<String> accessions = graph.getDerivedSamples();
+		if (args.containsOption("from") || args.containsOption("until")) {
+			Collection<Filter> filters = ArgUtils.getDateFilters(args);
+			accessions = bioSamplesClient.fetchAccessionAll(filters);
+		}
+
+		long curated = 0;
+		long checked = 0;
+		try (AdaptiveThreadPoolExecutor executorService = AdaptiveThreadPoolExecutor.create(100, 10000, true,
 				pipelinesProperties.getThreadCount(), pipelinesProperties.getThreadCountMax())) {
 
 			Map<String, Future<Void>> futures = new HashMap<>();
-			
-			for (Resource<Sample> sampleResource : bioSamplesClient.fetchSampleResourceAll("", filters)) {
-				log.trace("Handling "+sampleResource);
-				Sample sample = sampleResource.getContent();
-				if (sample == null) {
-					throw new RuntimeException("Sample should not be null");
+			List<CurationLink> curationLinks = new ArrayList<>();
+
+			for (String accession : accessions) {
+				if (!graph.isDerived(accession)) {
+					continue;
+				}
+				Set<Attribute> organisms = graph.getInheritedOrganisms(accession);
+				if (organisms.isEmpty()) {
+					log.warn("Unable to find organism for "+accession);
+					continue;
 				}
+				//if there are multiple organisms, use a "mixed sample" taxonomy reference
+				//some users expect one taxonomy reference, no more, no less
+				Attribute organism = organisms.size() > 1 ? mixedAttribute : organisms.iterator().next();
 
-				Callable<Void> task = new SampleCopydownCallable(bioSamplesClient, sample, 
-						pipelinesProperties.getCopydownDomain());
-				
-				futures.put(sample.getAccession(), executorService.submit(task));
+				Set<Attribute> ownOrganisms = graph.getOwnOrganisms(accession);
+				if (ownOrganisms.isEmpty()) {
+					log.debug("Applying curation to "+accession);
+					curationLinks.add(CurationLink.build(accession, SampleCopydownCallable.copydownCuration(organism),
+							pipelinesProperties.getCopydownDomain(), null));
+					curated++;
+					if (curationLinks.size() >= BATCH_SIZE) {
+						persistCurationLinks(curationLinks);
+						curationLinks.clear();
+					}
+				} else if (!ownOrganisms.equals(Collections.singleton(organism))) {
+					//this organism might have been applied by a previous copydown that is now out of date
+					futures.put(accession, executorService.submit(new SampleCopydownCallable(bioSamplesClient,
+							accession, organism, pipelinesProperties.getCopydownDomain())));
+					checked++;
+					ThreadUtils.checkFutures(futures, 100);
+				}
+			}
+			if (!curationLinks.isEmpty()) {
+				persistCurationLinks(curationLinks);
 			}
-			
+
 			log.info("waiting for futures");
 			// wait for anything to finish
 			ThreadUtils.checkFutures(futures, 0);
 		} finally {
+			log.info("Curated "+curated+" samples, checked "+checked+" samples with a different organism");
 			//now print a list of things that failed
 			if (SampleCopydownCallable.failedQueue.size() > 0) {
 				//put the first ones on the queue into a list
@@ -76,9 +137,18 @@ public class CopydownApplicationRunner implements ApplicationRunner {
 				log.info("Failed files ("+SampleCopydownCallable.failedQueue.size()+") "+String.join(" , ", fails));
 			}
 		}
-		
-		
-		//TODO re-check existing curations
+	}
+
+	private void persistCurationLinks(List<CurationLink> curationLinks) {
+		try {
+			bioSamplesClient.persistCurationLinks(curationLinks);
+		} catch (RuntimeException e) {
+			//as with the samples checked one at a time, list the samples of the batch as failed
+			for (CurationLink curationLink : curationLinks) {
+				SampleCopydownCallable.failedQueue.add(curationLink.getSample());
+			}
+			throw e;
+		}
 	}
 
 }
@@ -0,0 +1,193 @@
+package uk.ac.ebi.biosamples.copydown;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Relationship;
+import uk.ac.ebi.biosamples.model.Sample;
+
+/**
+ * The organisms of samples and the samples they are derived from, holding only what copydown
+ * needs so that it fits in memory for all samples. Each distinct set of organisms is stored once.
+ *
+ * The organisms of a sample are its own, or if it has none, those of all the samples it is
+ * derived from, recursively. These are worked out once per sample. Samples that are derived
+ * from each other in a cycle share the organisms of everything the cycle is derived from.
+ *
+ * Not thread safe.
+ */
+public class DerivedFromGraph {
+
+	private static final String[] NO_PARENTS = new String[0];
+
+	private final Map<String, Set<Attribute>> ownOrganisms = new HashMap<>();
+	private final Map<String, String[]> derivedFrom = new HashMap<>();
+	private final Map<Set<Attribute>, Set<Attribute>> organismSets = new HashMap<>();
+
+	private final Map<String, Set<Attribute>> resolved = new HashMap<>();
+
+	//state of the depth first search, only used while resolving
+	private final Map<String, Integer> index = new HashMap<>();
+	private final Map<String, Integer> lowLink = new HashMap<>();
+	private final Map<String, Set<Attribute>> pending = new HashMap<>();
+	private final Deque<String> stack = new ArrayDeque<>();
+	private int nextIndex = 0;
+
+	public void add(Sample sample) {
+		Set<Attribute> organisms = new HashSet<>();
+		for (Attribute attribute : sample.getAttributes()) {
+			if ("organism".equals(attribute.getType().toLowerCase())) {
+				organisms.add(attribute);
+			}
+		}
+		Set<String> parents = new LinkedHashSet<>();
+		for (Relationship relationship : sample.getRelationships()) {
+			if ("derived from".equals(relationship.getType().toLowerCase())
+					&& sample.getAccession().equals(relationship.getSource())) {
+				parents.add(relationship.getTarget());
+			}
+		}
+
+		if (!organisms.isEmpty()) {
+			ownOrganisms.put(sample.getAccession(), canonical(organisms));
+		}
+		if (!parents.isEmpty()) {
+			derivedFrom.put(sample.getAccession(), parents.toArray(new String[parents.size()]));
+		}
+	}
+
+	public Set<String> getDerivedSamples() {
+		return Collections.unmodifiableSet(derivedFrom.keySet());
+	}
+
+	public boolean isDerived(String accession) {
+		return derivedFrom.containsKey(accession);
+	}
+
+	public Set<Attribute> getOwnOrganisms(String accession) {
+		return ownOrganisms.getOrDefault(accession, Collections.emptySet());
+	}
+
+	/**
+	 * The organisms of the sample, its own if it has any
+	 */
+	public Set<Attribute> getOrganisms(String accession) {
+		Set<Attribute> organisms = ownOrganisms.get(accession);
+		if (organisms != null) {
+			return organisms;
+		}
+		if (!resolved.containsKey(accession)) {
+			resolve(accession);
+		}
+		return resolved.get(accession);
+	}
+
+	/**
+	 * The organisms of the samples this sample is derived from, ignoring the sample's own
+	 */
+	public Set<Attribute> getInheritedOrganisms(String accession) {
+		Set<Attribute> organisms = new HashSet<>();
+		for (String parent : derivedFrom.getOrDefault(accession, NO_PARENTS)) {
+			organisms.addAll(getOrganisms(parent));
+		}
+		return organisms;
+	}
+
+	private Set<Attribute> canonical(Set<Attribute> organisms) {
+		Set<Attribute> existing = organismSets.get(organisms);
+		if (existing == null) {
+			existing = Collections.unmodifiableSet(organisms);
+			organismSets.put(existing, existing);
+		}
+		return existing;
+	}
+
+	/**
+	 * Tarjan's strongly connected components over the samples without organisms of their own,
+	 * so each sample is visited once and cycles end rather than recursing forever. The depth
+	 * first search keeps its own stack of calls, as chains of derived samples can be deeper than
+	 * the thread's stack.
+	 */
+	private void resolve(String accession) {
+		Deque<Call> calls = new ArrayDeque<>();
+		calls.push(visit(accession));
+		while (!calls.isEmpty()) {
+			Call call = calls.peek();
+			if (call.nextParent < call.parents.length) {
+				String parent = call.parents[call.nextParent++];
+				if (ownOrganisms.containsKey(parent)) {
+					call.organisms.addAll(ownOrganisms.get(parent));
+				} else if (resolved.containsKey(parent)) {
+					call.organisms.addAll(resolved.get(parent));
+				} else if (!index.containsKey(parent)) {
+					calls.push(visit(parent));
+				} else {
+					//parent is further up this path, so part of a cycle
+					lowLink.put(call.accession, Math.min(lowLink.get(call.accession), index.get(parent)));
+				}
+			} else {
+				calls.pop();
+				finish(call);
+				Call caller = calls.peek();
+				if (caller != null) {
+					if (resolved.containsKey(call.accession)) {
+						caller.organisms.addAll(resolved.get(call.accession));
+					} else {
+						lowLink.put(caller.accession, Math.min(lowLink.get(caller.accession), lowLink.get(call.accession)));
+					}
+				}
+			}
+		}
+	}
+
+	private Call visit(String accession) {
+		index.put(accession, nextIndex);
+		lowLink.put(accession, nextIndex);
+		nextIndex++;
+		stack.push(accession);
+		return new Call(accession, derivedFrom.getOrDefault(accession, NO_PARENTS));
+	}
+
+	private void finish(Call call) {
+		pending.put(call.accession, call.organisms);
+		if (lowLink.get(call.accession).equals(index.get(call.accession))) {
+			//this is the first sample of its cycle, all of which get the same organisms
+			Set<String> component = new HashSet<>();
+			Set<Attribute> componentOrganisms = new HashSet<>();
+			String member;
+			do {
+				member = stack.pop();
+				component.add(member);
+				componentOrganisms.addAll(pending.remove(member));
+				index.remove(member);
+				lowLink.remove(member);
+			} while (!member.equals(call.accession));
+			Set<Attribute> canonicalOrganisms = canonical(componentOrganisms);
+			for (String componentMember : component) {
+				resolved.put(componentMember, canonicalOrganisms);
+			}
+		}
+	}
+
+	/**
+	 * A sample being visited, and how far through its parents the search is
+	 */
+	private static class Call {
+		private final String accession;
+		private final String[] parents;
+		private final Set<Attribute> organisms = new HashSet<>();
+		private int nextParent = 0;
+
+		private Call(String accession, String[] parents) {
+			this.accession = accession;
+			this.parents = parents;
+		}
+	}
+}
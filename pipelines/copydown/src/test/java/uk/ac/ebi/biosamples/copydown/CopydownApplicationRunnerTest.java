@@ -0,0 +1,75 @@
+package uk.ac.ebi.biosamples.copydown;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.hateoas.Resource;
+import org.springframework.web.client.RestClientException;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import uk.ac.ebi.biosamples.PipelinesProperties;
+import uk.ac.ebi.biosamples.client.BioSamplesClient;
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.CurationLink;
+import uk.ac.ebi.biosamples.model.Relationship;
+import uk.ac.ebi.biosamples.model.Sample;
+
+public class CopydownApplicationRunnerTest {
+
+	@After
+	public void teardown() {
+		SampleCopydownCallable.failedQueue.clear();
+		((Logger) LoggerFactory.getLogger(CopydownApplicationRunner.class)).detachAndStopAllAppenders();
+	}
+
+	@Test
+	public void test_failed_batch_is_listed() throws Exception {
+		BioSamplesClient bioSamplesClient = mock(BioSamplesClient.class);
+		when(bioSamplesClient.fetchSampleResourceAll()).thenReturn(Arrays.asList(
+				new Resource<>(new Sample.Builder("parent", "SAMEA1")
+						.addAttribute(Attribute.build("organism", "Homo sapiens")).build()),
+				new Resource<>(new Sample.Builder("child", "SAMEA2")
+						.addRelationship(Relationship.build("SAMEA2", "derived from", "SAMEA1")).build()),
+				new Resource<>(new Sample.Builder("grandchild", "SAMEA3")
+						.addRelationship(Relationship.build("SAMEA3", "derived from", "SAMEA2")).build())));
+		when(bioSamplesClient.persistCurationLinks(anyCollectionOf(CurationLink.class)))
+				.thenThrow(new RestClientException("unavailable"));
+		PipelinesProperties pipelinesProperties = mock(PipelinesProperties.class);
+		when(pipelinesProperties.getThreadCount()).thenReturn(1);
+		when(pipelinesProperties.getThreadCountMax()).thenReturn(1);
+		when(pipelinesProperties.getCopydownDomain()).thenReturn("self.BiosampleCopydown");
+
+		ListAppender<ILoggingEvent> appender = new ListAppender<>();
+		appender.start();
+		((Logger) LoggerFactory.getLogger(CopydownApplicationRunner.class)).addAppender(appender);
+		try {
+			new CopydownApplicationRunner(bioSamplesClient, pipelinesProperties)
+					.run(new DefaultApplicationArguments(new String[0]));
+			fail("Expected the failure to be thrown");
+		} catch (RestClientException e) {
+			//the run stops as when a sample fails to be checked
+		}
+
+		//the failed samples are taken off the queue to be logged
+		List<String> messages = new ArrayList<>();
+		for (ILoggingEvent event : appender.list) {
+			messages.add(event.getFormattedMessage());
+		}
+		//the derived samples are in no particular order
+		assertTrue(messages.toString(), messages.contains("Failed files (0) SAMEA2 , SAMEA3")
+				|| messages.contains("Failed files (0) SAMEA3 , SAMEA2"));
+	}
+}
@@ -0,0 +1,148 @@
+package uk.ac.ebi.biosamples.copydown;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Relationship;
+import uk.ac.ebi.biosamples.model.Sample;
+
+public class DerivedFromGraphTest {
+
+	private final Attribute human = Attribute.build("organism", "Homo sapiens");
+	private final Attribute mouse = Attribute.build("Organism", "Mus musculus");
+
+	private final DerivedFromGraph graph = new DerivedFromGraph();
+
+	@Test
+	public void test_chain() {
+		graph.add(sample("SAMEA1", human));
+		graph.add(sample("SAMEA2", null, "SAMEA1"));
+		graph.add(sample("SAMEA3", null, "SAMEA2"));
+
+		assertEquals(Collections.singleton(human), graph.getOrganisms("SAMEA3"));
+		assertEquals(Collections.singleton(human), graph.getInheritedOrganisms("SAMEA3"));
+		assertTrue(graph.getOwnOrganisms("SAMEA3").isEmpty());
+		assertEquals(new HashSet<>(Arrays.asList("SAMEA2", "SAMEA3")), graph.getDerivedSamples());
+		assertFalse(graph.isDerived("SAMEA1"));
+	}
+
+	@Test
+	public void test_own_organism_is_kept() {
+		graph.add(sample("SAMEA1", human));
+		graph.add(sample("SAMEA2", mouse, "SAMEA1"));
+		graph.add(sample("SAMEA3", null, "SAMEA2"));
+
+		assertEquals(Collections.singleton(mouse), graph.getOrganisms("SAMEA2"));
+		assertEquals(Collections.singleton(human), graph.getInheritedOrganisms("SAMEA2"));
+		assertEquals(Collections.singleton(mouse), graph.getOrganisms("SAMEA3"));
+	}
+
+	@Test
+	public void test_mixed_organisms() {
+		graph.add(sample("SAMEA1", human));
+		graph.add(sample("SAMEA2", mouse));
+		graph.add(sample("SAMEA3", null, "SAMEA1", "SAMEA2"));
+		graph.add(sample("SAMEA4", null, "SAMEA3"));
+
+		assertEquals(new HashSet<>(Arrays.asList(human, mouse)), graph.getOrganisms("SAMEA3"));
+		assertEquals(new HashSet<>(Arrays.asList(human, mouse)), graph.getOrganisms("SAMEA4"));
+		//each distinct set of organisms is only held once
+		assertSame(graph.getOrganisms("SAMEA3"), graph.getOrganisms("SAMEA4"));
+	}
+
+	@Test
+	public void test_diamond() {
+		graph.add(sample("SAMEA1", human));
+		graph.add(sample("SAMEA2", null, "SAMEA1"));
+		graph.add(sample("SAMEA3", null, "SAMEA1"));
+		graph.add(sample("SAMEA4", null, "SAMEA2", "SAMEA3"));
+
+		assertEquals(Collections.singleton(human), graph.getOrganisms("SAMEA4"));
+		assertEquals(Collections.singleton(human), graph.getOrganisms("SAMEA2"));
+		assertEquals(Collections.singleton(human), graph.getOrganisms("SAMEA3"));
+	}
+
+	@Test
+	public void test_cycle() {
+		graph.add(sample("SAMEA1", human));
+		graph.add(sample("SAMEA2", null, "SAMEA3"));
+		graph.add(sample("SAMEA3", null, "SAMEA4"));
+		graph.add(sample("SAMEA4", null, "SAMEA2", "SAMEA1"));
+		graph.add(sample("SAMEA5", null, "SAMEA3"));
+
+		//every sample of the cycle shares what the cycle is derived from, whichever is asked first
+		assertEquals(Collections.singleton(human), graph.getOrganisms("SAMEA5"));
+		assertEquals(Collections.singleton(human), graph.getOrganisms("SAMEA2"));
+		assertEquals(Collections.singleton(human), graph.getOrganisms("SAMEA3"));
+		assertEquals(Collections.singleton(human), graph.getOrganisms("SAMEA4"));
+	}
+
+	@Test
+	public void test_cycle_without_organisms() {
+		graph.add(sample("SAMEA1", null, "SAMEA2"));
+		graph.add(sample("SAMEA2", null, "SAMEA1"));
+		graph.add(sample("SAMEA3", null, "SAMEA3"));
+
+		assertTrue(graph.getOrganisms("SAMEA1").isEmpty());
+		assertTrue(graph.getOrganisms("SAMEA2").isEmpty());
+		assertTrue(graph.getOrganisms("SAMEA3").isEmpty());
+	}
+
+	@Test
+	public void test_cycles_derived_from_cycles() {
+		graph.add(sample("SAMEA1", human));
+		graph.add(sample("SAMEA2", mouse));
+		//SAMEA3 and SAMEA4 are one cycle, derived from SAMEA5 and SAMEA6 which are another
+		graph.add(sample("SAMEA3", null, "SAMEA4", "SAMEA5"));
+		graph.add(sample("SAMEA4", null, "SAMEA3", "SAMEA1"));
+		graph.add(sample("SAMEA5", null, "SAMEA6"));
+		graph.add(sample("SAMEA6", null, "SAMEA5", "SAMEA2"));
+
+		assertEquals(new HashSet<>(Arrays.asList(human, mouse)), graph.getOrganisms("SAMEA3"));
+		assertEquals(new HashSet<>(Arrays.asList(human, mouse)), graph.getOrganisms("SAMEA4"));
+		assertEquals(Collections.singleton(mouse), graph.getOrganisms("SAMEA5"));
+		assertEquals(Collections.singleton(mouse), graph.getOrganisms("SAMEA6"));
+	}
+
+	@Test
+	public void test_missing_parent() {
+		graph.add(sample("SAMEA1", null, "SAMEA999"));
+
+		assertTrue(graph.getOrganisms("SAMEA1").isEmpty());
+	}
+
+	@Test
+	public void test_deep_chain() {
+		//deeper than a recursive search could go on the default stack
+		int depth = 200000;
+		graph.add(sample("SAMEA0", human));
+		for (int i = 1; i <= depth; i++) {
+			graph.add(sample("SAMEA" + i, null, "SAMEA" + (i - 1)));
+		}
+
+		assertEquals(Collections.singleton(human), graph.getOrganisms("SAMEA" + depth));
+		assertEquals(Collections.singleton(human), graph.getOrganisms("SAMEA1"));
+	}
+
+	private static Sample sample(String accession, Attribute organism, String... derivedFrom) {
+		Sample.Builder builder = new Sample.Builder("test", accession);
+		if (organism != null) {
+			builder.addAttribute(organism);
+		}
+		for (String parent : derivedFrom) {
+			builder.addRelationship(Relationship.build(accession, "derived from", parent));
+		}
+		//relationships to this sample are held by it too, and are not followed
+		builder.addRelationship(Relationship.build("SAMEA999999", "derived from", accession));
+		return builder.build();
+	}
+}
@@ -23,7 +23,6 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
-import java.util.stream.Collectors;
 
 @Component
 public class CuramiApplicationRunner implements ApplicationRunner {
@@ -31,18 +30,19 @@ public class CuramiApplicationRunner implements ApplicationRunner {
 
     private final BioSamplesClient bioSamplesClient;
     private final PipelinesProperties pipelinesProperties;
-    private final Map<String, String> curationRules;
     private final MongoCurationRuleRepository repository;
+    private final CurationRuleService curationRuleService;
 
     private final CurationCountCallback curationCountCallback;
 
     public CuramiApplicationRunner(BioSamplesClient bioSamplesClient,
                                    PipelinesProperties pipelinesProperties,
-                                   MongoCurationRuleRepository repository) {
+                                   MongoCurationRuleRepository repository,
+                                   CurationRuleService curationRuleService) {
         this.bioSamplesClient = bioSamplesClient;
         this.pipelinesProperties = pipelinesProperties;
         this.repository = repository;
-        this.curationRules = new HashMap<>();
+        this.curationRuleService = curationRuleService;
         this.curationCountCallback = new CurationCountCallback();
     }
 
@@ -54,8 +54,8 @@ public class CuramiApplicationRunner implements ApplicationRunner {
         long sampleCount = 0;
 
         loadCurationRulesFromFileToDb(getFileNameFromArgs(args));
-        curationRules.putAll(loadCurationRulesToMemory());
-        LOG.info("Found {} curation rules", curationRules.size());
+        curationRuleService.start();
+        LOG.info("Found {} curation rules", curationRuleService.getCurationRuleIndex().size());
 
         try (AdaptiveThreadPoolExecutor executorService = AdaptiveThreadPoolExecutor.create(100, 10000, true,
                 pipelinesProperties.getThreadCount(), pipelinesProperties.getThreadCountMax())) {
@@ -67,7 +67,7 @@ public class CuramiApplicationRunner implements ApplicationRunner {
                 Objects.requireNonNull(sample);
 
                 Callable<Integer> task = new SampleCuramiCallable(
-                        bioSamplesClient, sample, pipelinesProperties.getCurationDomain(), curationRules);
+                        bioSamplesClient, sample, pipelinesProperties.getCurationDomain(), curationRuleService);
                 futures.put(sample.getAccession(), executorService.submit(task));
 
                 if (++sampleCount % 5000 == 0) {
@@ -89,12 +89,6 @@ public class CuramiApplicationRunner implements ApplicationRunner {
         }
     }
 
-    private Map<String, String> loadCurationRulesToMemory() {
-        List<MongoCurationRule> mongoCurationRules = repository.findAll();
-        return mongoCurationRules.stream()
-                .collect(Collectors.toMap(MongoCurationRule::getAttributePre, MongoCurationRule::getAttributePost));
-    }
-
     private void loadCurationRulesFromFileToDb(String filePath) {
         Reader reader;
         //read it from given filepath, else read it from classpath
@@ -0,0 +1,85 @@
+package uk.ac.ebi.biosamples.curation;
+
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationRule;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Curation rules compiled into hash maps, so that the rule for an attribute type can be
+ * found in constant time however many rules there are.
+ *
+ * Types are matched exactly. Optionally, types without an exact match are then matched
+ * ignoring case, surrounding whitespace and differences between spaces, underscores and
+ * hyphens. That curates types that no rule names, so it is off unless asked for.
+ */
+public class CurationRuleIndex {
+
+    private final Map<String, String> exactRules;
+    private final Map<String, String> normalisedRules;
+
+    private CurationRuleIndex(Map<String, String> exactRules, Map<String, String> normalisedRules) {
+        this.exactRules = exactRules;
+        this.normalisedRules = normalisedRules;
+    }
+
+    public static CurationRuleIndex build(Collection<MongoCurationRule> rules) {
+        return build(rules, false);
+    }
+
+    /**
+     * @param normalise also match types that differ from a rule only in case, whitespace,
+     *                  underscores and hyphens
+     */
+    public static CurationRuleIndex build(Collection<MongoCurationRule> rules, boolean normalise) {
+        Map<String, String> exactRules = new HashMap<>();
+        Map<String, String> normalisedRules = new HashMap<>();
+        for (MongoCurationRule rule : rules) {
+            exactRules.put(rule.getAttributePre(), rule.getAttributePost());
+            if (normalise) {
+                normalisedRules.putIfAbsent(normalise(rule.getAttributePre()), rule.getAttributePost());
+            }
+        }
+        return new CurationRuleIndex(Collections.unmodifiableMap(exactRules), Collections.unmodifiableMap(normalisedRules));
+    }
+
+    /**
+     * Returns the attribute type the given type should be curated to, if there is a rule
+     * for it that would change it.
+     */
+    public Optional<String> getAttributePost(String attributeType) {
+        String attributePost = exactRules.get(attributeType);
+        if (attributePost == null && !normalisedRules.isEmpty()) {
+            attributePost = normalisedRules.get(normalise(attributeType));
+        }
+        if (attributePost == null || attributePost.equals(attributeType)) {
+            return Optional.empty();
+        }
+        return Optional.of(attributePost);
+    }
+
+    public int size() {
+        return exactRules.size();
+    }
+
+    static String normalise(String attributeType) {
+        StringBuilder sb = new StringBuilder(attributeType.length());
+        boolean space = false;
+        for (int i = 0; i < attributeType.length(); i++) {
+            char c = attributeType.charAt(i);
+            if (Character.isWhitespace(c) || c == '_' || c == '-') {
+                space = sb.length() > 0;
+            } else {
+                if (space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package uk.ac.ebi.biosamples.curation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.PipelinesProperties;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationRule;
+import uk.ac.ebi.biosamples.mongo.repo.MongoCurationRuleRepository;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the curation rules compiled into a {@link CurationRuleIndex}, which is rebuilt in
+ * the background whenever the rules in mongo change, so that a long running pipeline
+ * picks up new rules for the samples it has still to process.
+ */
+@Service
+public class CurationRuleService {
+    private static final Logger LOG = LoggerFactory.getLogger(CurationRuleService.class);
+
+    private final MongoCurationRuleRepository repository;
+    private final int refresh;
+    private final boolean normalise;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    private volatile Map<String, String> loadedRules = null;
+    private volatile CurationRuleIndex curationRuleIndex = null;
+
+    public CurationRuleService(MongoCurationRuleRepository repository, PipelinesProperties pipelinesProperties) {
+        this.repository = repository;
+        this.refresh = pipelinesProperties.getCuramiRulesRefresh();
+        this.normalise = pipelinesProperties.getCuramiRulesNormalise();
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "curation-rules-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the rules, then keeps checking them for changes in the background.
+     */
+    public void start() {
+        refresh();
+        if (refresh > 0) {
+            scheduledExecutorService.scheduleWithFixedDelay(this::refreshQuietly, refresh, refresh, TimeUnit.SECONDS);
+        }
+    }
+
+    public CurationRuleIndex getCurationRuleIndex() {
+        if (curationRuleIndex == null) {
+            throw new IllegalStateException("Curation rules have not been loaded");
+        }
+        return curationRuleIndex;
+    }
+
+    /**
+     * Reads the rules from mongo and compiles them if they have changed since they were
+     * last read.
+     *
+     * @return true if the rules were compiled again
+     */
+    public synchronized boolean refresh() {
+        List<MongoCurationRule> mongoCurationRules = repository.findAll();
+        Map<String, String> rules = new HashMap<>();
+        for (MongoCurationRule mongoCurationRule : mongoCurationRules) {
+            rules.put(mongoCurationRule.getAttributePre(), mongoCurationRule.getAttributePost());
+        }
+        if (rules.equals(loadedRules)) {
+            return false;
+        }
+        long startTime = System.nanoTime();
+        curationRuleIndex = CurationRuleIndex.build(mongoCurationRules, normalise);
+        loadedRules = rules;
+        LOG.info("Compiled {} curation rules in {}ms", curationRuleIndex.size(), (System.nanoTime() - startTime) / 1000000);
+        return true;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            //keep using the previous rules until the next refresh
+            LOG.warn("Unable to refresh curation rules", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduledExecutorService.shutdownNow();
+    }
+}
@@ -9,7 +9,7 @@ import uk.ac.ebi.biosamples.model.Sample;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 import java.util.SortedSet;
 import java.util.concurrent.Callable;
 
@@ -19,14 +19,14 @@ public class SampleCuramiCallable implements Callable<Integer> {
     private final Sample sample;
     private final BioSamplesClient bioSamplesClient;
     private final String domain;
-    private final Map<String, String> curationRules;
+    private final CurationRuleService curationRuleService;
 
     public SampleCuramiCallable(BioSamplesClient bioSamplesClient, Sample sample, String domain,
-                                Map<String, String> curationRules) {
+                                CurationRuleService curationRuleService) {
         this.bioSamplesClient = bioSamplesClient;
         this.sample = sample;
         this.domain = domain;
-        this.curationRules = curationRules;
+        this.curationRuleService = curationRuleService;
     }
 
     @Override
@@ -39,14 +39,16 @@ public class SampleCuramiCallable implements Callable<Integer> {
     }
 
     private List<Curation> getRuleBasedCurations(Sample sample) {
+        //use the latest rules, they may have been reloaded since the pipeline started
+        CurationRuleIndex curationRuleIndex = curationRuleService.getCurationRuleIndex();
         SortedSet<Attribute> attributes = sample.getAttributes();
         List<Curation> curations = new ArrayList<>();
         for (Attribute a : attributes) {
-            String processedAttribute = getCleanedAttribute(a.getType());
-            if (curationRules.containsKey(processedAttribute)) {
+            Optional<String> attributePost = curationRuleIndex.getAttributePost(a.getType());
+            if (attributePost.isPresent()) {
                 Curation curation = Curation.build(
                         Attribute.build(a.getType(), a.getValue(), a.getIri(), a.getUnit()),
-                        Attribute.build(curationRules.get(processedAttribute), a.getValue(), a.getIri(), a.getUnit()));
+                        Attribute.build(attributePost.get(), a.getValue(), a.getIri(), a.getUnit()));
                 bioSamplesClient.persistCuration(sample.getAccession(), curation, domain);
                 LOG.info("New curation found {}", curation);
                 curations.add(curation);
@@ -55,19 +57,4 @@ public class SampleCuramiCallable implements Callable<Integer> {
 
         return curations;
     }
-
-    //todo add further processing identified in the analysis
-    private String getCleanedAttribute(String attribute) {
-        /*String cleanedAttribute = attribute.toLowerCase();
-        cleanedAttribute = cleanedAttribute.replaceAll("-", " ");
-
-
-        //camel to snake
-        //whitespace around paranthesis
-        //Fancy characters same as python analysis
-        //
-
-        return cleanedAttribute;*/
-        return attribute; // add all transformation as rules
-    }
 }
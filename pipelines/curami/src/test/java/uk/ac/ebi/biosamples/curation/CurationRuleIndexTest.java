@@ -0,0 +1,142 @@
+package uk.ac.ebi.biosamples.curation;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.biosamples.PipelinesProperties;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationRule;
+import uk.ac.ebi.biosamples.mongo.repo.MongoCurationRuleRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CurationRuleIndexTest {
+    private static final Logger LOG = LoggerFactory.getLogger(CurationRuleIndexTest.class);
+
+    @Test
+    public void testMatching() {
+        CurationRuleIndex index = CurationRuleIndex.build(Arrays.asList(
+                MongoCurationRule.build("enviromental conditions", "environmental conditions"),
+                MongoCurationRule.build("Sex", "sex"),
+                MongoCurationRule.build("sex", "gender")));
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.getAttributePost("enviromental conditions")).isEqualTo(Optional.of("environmental conditions"));
+        assertThat(index.getAttributePost("Sex")).isEqualTo(Optional.of("sex"));
+        assertThat(index.getAttributePost("sex")).isEqualTo(Optional.of("gender"));
+        //types that no rule names are left alone
+        assertThat(index.getAttributePost(" Enviromental_Conditions")).isEqualTo(Optional.empty());
+        assertThat(index.getAttributePost("enviromental-conditions")).isEqualTo(Optional.empty());
+        assertThat(index.getAttributePost("SEX")).isEqualTo(Optional.empty());
+        //rules that would not change the type are ignored
+        assertThat(index.getAttributePost("environmental conditions")).isEqualTo(Optional.empty());
+        assertThat(index.getAttributePost("organism")).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void testNormalisedMatching() {
+        CurationRuleIndex index = CurationRuleIndex.build(Arrays.asList(
+                MongoCurationRule.build("enviromental conditions", "environmental conditions"),
+                MongoCurationRule.build("Sex", "sex"),
+                MongoCurationRule.build("sex", "gender")), true);
+
+        assertThat(index.getAttributePost(" Enviromental_Conditions")).isEqualTo(Optional.of("environmental conditions"));
+        assertThat(index.getAttributePost("enviromental-conditions")).isEqualTo(Optional.of("environmental conditions"));
+        //exact matches are used before normalised ones
+        assertThat(index.getAttributePost("Sex")).isEqualTo(Optional.of("sex"));
+        assertThat(index.getAttributePost("sex")).isEqualTo(Optional.of("gender"));
+    }
+
+    @Test
+    public void testRefresh() {
+        MongoCurationRuleRepository repository = mock(MongoCurationRuleRepository.class);
+        PipelinesProperties pipelinesProperties = mock(PipelinesProperties.class);
+        when(pipelinesProperties.getCuramiRulesRefresh()).thenReturn(0);
+        when(repository.findAll()).thenReturn(Collections.singletonList(MongoCurationRule.build("sampling site", "sampling location")));
+
+        CurationRuleService curationRuleService = new CurationRuleService(repository, pipelinesProperties);
+        curationRuleService.start();
+        CurationRuleIndex index = curationRuleService.getCurationRuleIndex();
+        assertThat(index.getAttributePost("sampling site")).isEqualTo(Optional.of("sampling location"));
+
+        //unchanged rules are not compiled again
+        when(repository.findAll()).thenReturn(Collections.singletonList(MongoCurationRule.build("sampling site", "sampling location")));
+        assertThat(curationRuleService.refresh()).isFalse();
+        assertThat(curationRuleService.getCurationRuleIndex()).isSameAs(index);
+
+        when(repository.findAll()).thenReturn(Arrays.asList(
+                MongoCurationRule.build("sampling site", "geographic location"),
+                MongoCurationRule.build("collection date", "collection_date")));
+        assertThat(curationRuleService.refresh()).isTrue();
+        assertThat(curationRuleService.getCurationRuleIndex().getAttributePost("sampling site")).isEqualTo(Optional.of("geographic location"));
+        assertThat(curationRuleService.getCurationRuleIndex().getAttributePost("collection date")).isEqualTo(Optional.of("collection_date"));
+        assertThat(curationRuleService.getCurationRuleIndex().getAttributePost("Collection Date")).isEqualTo(Optional.empty());
+        curationRuleService.close();
+    }
+
+    @Test
+    public void testBenchmark() {
+        Random random = new Random(42);
+        List<MongoCurationRule> rules = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            rules.add(MongoCurationRule.build("misspelt attribute " + i, "attribute " + i));
+        }
+        //a mix of types that are and are not in the rules, in various forms
+        List<String> attributeTypes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int n = random.nextInt(20000);
+            switch (random.nextInt(3)) {
+                case 0:
+                    attributeTypes.add("misspelt attribute " + n);
+                    break;
+                case 1:
+                    attributeTypes.add("Misspelt_Attribute_" + n);
+                    break;
+                default:
+                    attributeTypes.add("attribute " + n);
+            }
+        }
+
+        long startTime = System.nanoTime();
+        CurationRuleIndex index = CurationRuleIndex.build(rules, true);
+        long compileTime = System.nanoTime() - startTime;
+
+        //check every rule in turn, as the rules would have to be without an index
+        List<Optional<String>> expected = new ArrayList<>();
+        startTime = System.nanoTime();
+        for (String attributeType : attributeTypes) {
+            String normalised = CurationRuleIndex.normalise(attributeType);
+            Optional<String> match = Optional.empty();
+            for (MongoCurationRule rule : rules) {
+                if (CurationRuleIndex.normalise(rule.getAttributePre()).equals(normalised)) {
+                    match = Optional.of(rule.getAttributePost());
+                    break;
+                }
+            }
+            expected.add(match);
+        }
+        long scanTime = System.nanoTime() - startTime;
+
+        List<Optional<String>> actual = new ArrayList<>();
+        startTime = System.nanoTime();
+        for (String attributeType : attributeTypes) {
+            actual.add(index.getAttributePost(attributeType));
+        }
+        long indexTime = System.nanoTime() - startTime;
+
+        LOG.info("{} rules compiled in {}ms, {} attributes matched in {}ms by scanning and {}ms with the index",
+                rules.size(), compileTime / 1000000, attributeTypes.size(), scanTime / 1000000, indexTime / 1000000);
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual).contains(Optional.empty());
+        assertThat(actual.stream().filter(Optional::isPresent).count()).isGreaterThan(0);
+        assertThat(indexTime).isLessThan(scanTime);
+    }
+}
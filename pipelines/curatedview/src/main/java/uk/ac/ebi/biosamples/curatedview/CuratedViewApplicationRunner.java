@@ -4,86 +4,251 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
-import org.springframework.hateoas.Resource;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.biosamples.PipelinesProperties;
-import uk.ac.ebi.biosamples.client.BioSamplesClient;
-import uk.ac.ebi.biosamples.model.Sample;
 import uk.ac.ebi.biosamples.model.StaticViewWrapper;
-import uk.ac.ebi.biosamples.model.filter.Filter;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLinkTombstone;
+import uk.ac.ebi.biosamples.mongo.model.MongoRelationship;
+import uk.ac.ebi.biosamples.mongo.model.MongoSample;
 import uk.ac.ebi.biosamples.mongo.repo.MongoSampleRepository;
 import uk.ac.ebi.biosamples.mongo.service.SampleToMongoSampleConverter;
+import uk.ac.ebi.biosamples.service.SampleReadService;
 import uk.ac.ebi.biosamples.utils.AdaptiveThreadPoolExecutor;
-import uk.ac.ebi.biosamples.utils.ArgUtils;
 import uk.ac.ebi.biosamples.utils.ThreadUtils;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.Callable;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Keeps the curated view of samples up to date with the samples and their curation links.
+ *
+ * Only samples updated or curated since the high-water mark of the last run are rebuilt, along
+ * with the samples they have relationships to, as those show them as inverse relationships. The
+ * relationships are those of the sample now and of its curated copy, so that a removed
+ * relationship is also removed from its target. Deleted curation links are found from their
+ * {@link MongoCurationLinkTombstone tombstones}. Rebuilt samples are compared with the stored copy
+ * by digest, and only those that differ are written, in unordered bulk upserts.
+ *
+ * With --full, when there is no mark yet, or when the mark is older than tombstones are kept,
+ * every sample is checked for drift.
+ */
 @Component
 public class CuratedViewApplicationRunner implements ApplicationRunner {
     private static final Logger LOG = LoggerFactory.getLogger(CuratedViewApplicationRunner.class);
 
-    private final BioSamplesClient bioSamplesClient;
+    private static final int BATCH_SIZE = 1000;
+
+    //changes are looked for a little before the mark, so that writes with a slightly
+    //earlier time that were not yet visible when the mark was taken are not missed
+    private static final Duration OVERLAP = Duration.ofMinutes(10);
+
     private final PipelinesProperties pipelinesProperties;
+    private final MongoOperations mongoOperations;
     private final MongoSampleRepository repository;
+    private final SampleReadService sampleReadService;
     private final SampleToMongoSampleConverter sampleToMongoSampleConverter;
+    private final CuratedViewMarkStore curatedViewMarkStore;
 
-    public CuratedViewApplicationRunner(BioSamplesClient bioSamplesClient,
-                                        PipelinesProperties pipelinesProperties,
+    public CuratedViewApplicationRunner(PipelinesProperties pipelinesProperties,
+                                        MongoOperations mongoOperations,
                                         MongoSampleRepository repository,
-                                        SampleToMongoSampleConverter sampleToMongoSampleConverter) {
-        this.bioSamplesClient = bioSamplesClient;
+                                        SampleReadService sampleReadService,
+                                        SampleToMongoSampleConverter sampleToMongoSampleConverter,
+                                        CuratedViewMarkStore curatedViewMarkStore) {
         this.pipelinesProperties = pipelinesProperties;
+        this.mongoOperations = mongoOperations;
         this.repository = repository;
+        this.sampleReadService = sampleReadService;
         this.sampleToMongoSampleConverter = sampleToMongoSampleConverter;
+        this.curatedViewMarkStore = curatedViewMarkStore;
     }
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
-        Collection<Filter> filters = ArgUtils.getDateFilters(args);
         Instant startTime = Instant.now();
         LOG.info("Pipeline started at {}", startTime);
+        Instant mark = args.containsOption("full") ? null : curatedViewMarkStore.load();
+        if (mark != null && mark.minus(OVERLAP).isBefore(
+                startTime.minusSeconds(MongoCurationLinkTombstone.RETENTION_SECONDS))) {
+            LOG.info("High-water mark {} is older than deleted curation links are kept", mark);
+            mark = null;
+        }
         long sampleCount = 0;
+        AtomicLong writtenCount = new AtomicLong();
 
         try (AdaptiveThreadPoolExecutor executorService = AdaptiveThreadPoolExecutor.create(100, 10000, true,
                 pipelinesProperties.getThreadCount(), pipelinesProperties.getThreadCountMax())) {
 
-            Map<String, Future<Void>> futures = new HashMap<>();
-            for (Resource<Sample> sampleResource : bioSamplesClient.fetchSampleResourceAll("", filters, null, StaticViewWrapper.StaticView.SAMPLES_DYNAMIC)) {
-                LOG.trace("Handling {}", sampleResource);
-                Sample sample = sampleResource.getContent();
-                Objects.requireNonNull(sample);
-
-                Callable<Void> task = new CuratedViewCallable(sample, repository, sampleToMongoSampleConverter);
-                futures.put(sample.getAccession(), executorService.submit(task));
+            Map<Long, Future<Integer>> futures = new HashMap<>();
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            Instant newMark;
+            Stream<String> accessions;
+            if (mark == null) {
+                LOG.info("Checking all samples");
+                accessions = streamAllAccessions();
+                newMark = startTime;
+            } else {
+                LOG.info("Checking samples changed since {}", mark);
+                Set<String> changed = new LinkedHashSet<>();
+                Instant latest = findChanged(mark.minus(OVERLAP), changed);
+                accessions = changed.stream();
+                //a change time later than the start of the run can't be trusted to have been seen
+                newMark = latest == null ? mark : (latest.isAfter(startTime) ? startTime : latest);
+            }
 
-                if (++sampleCount % 5000 == 0) {
-                    LOG.info("Scheduled {} samples for processing", sampleCount);
+            try (Stream<String> stream = accessions) {
+                for (Iterator<String> it = stream.iterator(); it.hasNext(); ) {
+                    batch.add(it.next());
+                    if (batch.size() >= BATCH_SIZE) {
+                        futures.put(sampleCount, executorService.submit(new CuratedViewCallable(batch,
+                                sampleReadService, repository, sampleToMongoSampleConverter)));
+                        batch = new ArrayList<>(BATCH_SIZE);
+                        ThreadUtils.checkAndCallbackFutures(futures, 100, (Integer written) -> writtenCount.addAndGet(written));
+                    }
+                    if (++sampleCount % 50000 == 0) {
+                        LOG.info("Scheduled {} samples for processing", sampleCount);
+                    }
                 }
             }
+            if (!batch.isEmpty()) {
+                futures.put(sampleCount, executorService.submit(new CuratedViewCallable(batch,
+                        sampleReadService, repository, sampleToMongoSampleConverter)));
+            }
 
             LOG.info("Waiting for all scheduled tasks to finish");
-            ThreadUtils.checkFutures(futures, 0);
+            ThreadUtils.checkAndCallbackFutures(futures, 0, (Integer written) -> writtenCount.addAndGet(written));
+
+            curatedViewMarkStore.save(newMark);
+            LOG.info("High-water mark is now {}", newMark);
         } catch (Exception e) {
             LOG.error("Pipeline failed to finish successfully", e);
             throw e;
         } finally {
-            logPipelineStat(startTime, sampleCount);
+            logPipelineStat(startTime, sampleCount, writtenCount.get());
+        }
+    }
+
+    /**
+     * Adds the samples updated, curated or with a curation link deleted since the given time to
+     * the set, and the samples they have or had relationships to.
+     *
+     * @return the latest update, curation or deletion time seen, or null if there were none
+     */
+    private Instant findChanged(Instant since, Set<String> changed) {
+        Instant latest = null;
+
+        List<String> updated = new ArrayList<>(BATCH_SIZE);
+        Query sampleQuery = new Query(Criteria.where("update").gte(Date.from(since)));
+        sampleQuery.fields().include("update").include("relationships");
+        try (CloseableIterator<MongoSample> it = mongoOperations.stream(sampleQuery, MongoSample.class)) {
+            while (it.hasNext()) {
+                MongoSample mongoSample = it.next();
+                changed.add(mongoSample.getAccession());
+                addRelationshipTargets(mongoSample, changed);
+                latest = later(latest, mongoSample.getUpdate());
+                updated.add(mongoSample.getAccession());
+                if (updated.size() >= BATCH_SIZE) {
+                    addCuratedRelationshipTargets(updated, changed);
+                    updated = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+        }
+        addCuratedRelationshipTargets(updated, changed);
+
+        Query curationLinkQuery = new Query(Criteria.where("created").gte(Date.from(since)));
+        curationLinkQuery.fields().include("sample").include("created");
+        try (CloseableIterator<MongoCurationLink> it = mongoOperations.stream(curationLinkQuery, MongoCurationLink.class)) {
+            while (it.hasNext()) {
+                MongoCurationLink mongoCurationLink = it.next();
+                changed.add(mongoCurationLink.getSample());
+                latest = later(latest, mongoCurationLink.getCreated());
+            }
+        }
+
+        Query tombstoneQuery = new Query(Criteria.where("deleted").gte(Date.from(since)));
+        tombstoneQuery.fields().include("sample").include("deleted");
+        try (CloseableIterator<MongoCurationLinkTombstone> it = mongoOperations.stream(tombstoneQuery, MongoCurationLinkTombstone.class)) {
+            while (it.hasNext()) {
+                MongoCurationLinkTombstone tombstone = it.next();
+                changed.add(tombstone.getSample());
+                latest = later(latest, tombstone.getDeleted());
+            }
         }
+
+        return latest;
     }
 
-    private void logPipelineStat(Instant startTime, long sampleCount) {
+    /**
+     * Adds the targets of the relationships in the curated copies of the samples, which are the
+     * relationships they had when last written, to the set
+     */
+    private void addCuratedRelationshipTargets(List<String> accessions, Set<String> changed) {
+        if (accessions.isEmpty()) {
+            return;
+        }
+        Query curatedQuery = new Query(Criteria.where("_id").in(accessions));
+        curatedQuery.fields().include("relationships");
+        try (CloseableIterator<MongoSample> it = mongoOperations.stream(curatedQuery, MongoSample.class,
+                StaticViewWrapper.StaticView.SAMPLES_CURATED.getCollectionName())) {
+            while (it.hasNext()) {
+                addRelationshipTargets(it.next(), changed);
+            }
+        }
+    }
+
+    private static void addRelationshipTargets(MongoSample mongoSample, Set<String> changed) {
+        if (mongoSample.getRelationships() != null) {
+            for (MongoRelationship relationship : mongoSample.getRelationships()) {
+                if (mongoSample.getAccession().equals(relationship.getSource())) {
+                    changed.add(relationship.getTarget());
+                }
+            }
+        }
+    }
+
+    private static Instant later(Instant a, Instant b) {
+        if (a == null || (b != null && b.isAfter(a))) {
+            return b;
+        }
+        return a;
+    }
+
+    private void logPipelineStat(Instant startTime, long sampleCount, long writtenCount) {
         Instant endTime = Instant.now();
         LOG.info("Total samples processed {}", sampleCount);
+        LOG.info("Total samples written {}", writtenCount);
         LOG.info("Pipeline finished at {}", endTime);
         LOG.info("Pipeline total running time {} seconds", Duration.between(startTime, endTime).getSeconds());
     }
 
+    /**
+     * The stream holds a cursor open, so must be closed
+     */
+    private Stream<String> streamAllAccessions() {
+        Query query = new Query();
+        query.fields().include("_id");
+        CloseableIterator<MongoSample> it = mongoOperations.stream(query, MongoSample.class);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.NONNULL), false)
+                .map(MongoSample::getAccession)
+                .onClose(it::close);
+    }
 }
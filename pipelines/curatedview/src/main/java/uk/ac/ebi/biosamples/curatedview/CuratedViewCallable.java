@@ -5,29 +5,45 @@ import uk.ac.ebi.biosamples.model.StaticViewWrapper;
 import uk.ac.ebi.biosamples.mongo.model.MongoSample;
 import uk.ac.ebi.biosamples.mongo.repo.MongoSampleRepository;
 import uk.ac.ebi.biosamples.mongo.service.SampleToMongoSampleConverter;
+import uk.ac.ebi.biosamples.service.SampleReadService;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 
-public class CuratedViewCallable implements Callable<Void> {
-    private final Sample sample;
+/**
+ * Rebuilds the curated copies of a batch of samples and writes those that differ from the stored
+ * copy in one bulk write, returning how many were written.
+ */
+public class CuratedViewCallable implements Callable<Integer> {
+    private final List<String> accessions;
+    private final SampleReadService sampleReadService;
     private final MongoSampleRepository mongoSampleRepository;
     private final SampleToMongoSampleConverter sampleToMongoSampleConverter;
 
-    CuratedViewCallable(Sample sample, MongoSampleRepository mongoSampleRepository,
-                               SampleToMongoSampleConverter sampleToMongoSampleConverter) {
-        this.sample = sample;
+    CuratedViewCallable(List<String> accessions, SampleReadService sampleReadService,
+                        MongoSampleRepository mongoSampleRepository,
+                        SampleToMongoSampleConverter sampleToMongoSampleConverter) {
+        this.accessions = accessions;
+        this.sampleReadService = sampleReadService;
         this.mongoSampleRepository = mongoSampleRepository;
         this.sampleToMongoSampleConverter = sampleToMongoSampleConverter;
     }
 
     @Override
-    public Void call() {
-        persistSamplesToStaticViewCollection();
-        return null;
+    public Integer call() {
+        return persistSamplesToStaticViewCollection();
     }
 
-    private void persistSamplesToStaticViewCollection() {
-        MongoSample mongoSample = sampleToMongoSampleConverter.convert(sample);
-        mongoSampleRepository.insertSampleToCollection(mongoSample, StaticViewWrapper.StaticView.SAMPLES_CURATED);
+    private int persistSamplesToStaticViewCollection() {
+        List<MongoSample> mongoSamples = new ArrayList<>(accessions.size());
+        for (String accession : accessions) {
+            Optional<Sample> sample = sampleReadService.fetch(accession, Optional.empty());
+            if (sample.isPresent()) {
+                mongoSamples.add(sampleToMongoSampleConverter.convert(sample.get()));
+            }
+        }
+        return mongoSampleRepository.upsertAllToCollection(mongoSamples, StaticViewWrapper.StaticView.SAMPLES_CURATED);
     }
 }
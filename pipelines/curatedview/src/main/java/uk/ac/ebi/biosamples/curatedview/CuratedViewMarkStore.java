@@ -0,0 +1,46 @@
+package uk.ac.ebi.biosamples.curatedview;
+
+import java.time.Instant;
+import java.util.Date;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * Persists the high-water mark of the curated view, the latest sample update or curation link
+ * creation that has been applied to it, so the next run only looks at what changed after it.
+ */
+@Service
+public class CuratedViewMarkStore {
+
+    private static final String COLLECTION = "mongoCuratedViewMark";
+    private static final String MARK_ID = "curated";
+    private static final String MARK = "mark";
+
+    private final MongoOperations mongoOperations;
+
+    public CuratedViewMarkStore(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    public Instant load() {
+        DBObject mark = getCollection().findOne(new BasicDBObject("_id", MARK_ID));
+        if (mark == null) {
+            return null;
+        }
+        return ((Date) mark.get(MARK)).toInstant();
+    }
+
+    public void save(Instant mark) {
+        getCollection().update(new BasicDBObject("_id", MARK_ID),
+                new BasicDBObject("$set", new BasicDBObject(MARK, Date.from(mark))), true, false);
+    }
+
+    private DBCollection getCollection() {
+        return mongoOperations.getCollection(COLLECTION);
+    }
+}
@@ -0,0 +1,197 @@
+package uk.ac.ebi.biosamples.curatedview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mongodb.client.MongoCollection;
+
+import uk.ac.ebi.biosamples.PipelinesProperties;
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Curation;
+import uk.ac.ebi.biosamples.model.Sample;
+import uk.ac.ebi.biosamples.model.StaticViewWrapper.StaticView;
+import uk.ac.ebi.biosamples.mongo.EmbeddedMongo;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLinkTombstone;
+import uk.ac.ebi.biosamples.mongo.model.MongoRelationship;
+import uk.ac.ebi.biosamples.mongo.model.MongoSample;
+import uk.ac.ebi.biosamples.mongo.repo.MongoSampleRepository;
+import uk.ac.ebi.biosamples.mongo.repo.MongoSampleRepositoryImpl;
+import uk.ac.ebi.biosamples.mongo.service.ExternalReferenceToMongoExternalReferenceConverter;
+import uk.ac.ebi.biosamples.mongo.service.RelationshipToMongoRelationshipConverter;
+import uk.ac.ebi.biosamples.mongo.service.SampleToMongoSampleConverter;
+import uk.ac.ebi.biosamples.service.SampleReadService;
+
+/**
+ * Runs the curated view against a real mongod, as which samples are rebuilt depends on the
+ * queries for what changed since the mark
+ */
+public class CuratedViewApplicationRunnerTest {
+
+	@ClassRule
+	public static final EmbeddedMongo embeddedMongo = new EmbeddedMongo();
+
+	//mongo stores times to the millisecond
+	private final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+	private final Instant old = now.minus(Duration.ofHours(3));
+	private final Instant mark = now.minus(Duration.ofHours(2));
+	private final Instant changed = now.minus(Duration.ofHours(1));
+
+	private final Set<String> fetched = Collections.synchronizedSet(new HashSet<>());
+
+	private MongoTemplate mongoTemplate;
+	private MongoSampleRepository mongoSampleRepository;
+	private CuratedViewMarkStore curatedViewMarkStore;
+	private CuratedViewApplicationRunner curatedViewApplicationRunner;
+
+	@Before
+	public void setup() {
+		embeddedMongo.clear();
+		fetched.clear();
+		mongoTemplate = embeddedMongo.getMongoTemplate();
+		mongoSampleRepository = new MongoRepositoryFactory(mongoTemplate)
+				.getRepository(MongoSampleRepository.class, new MongoSampleRepositoryImpl(mongoTemplate));
+		curatedViewMarkStore = new CuratedViewMarkStore(mongoTemplate);
+
+		PipelinesProperties pipelinesProperties = mock(PipelinesProperties.class);
+		when(pipelinesProperties.getThreadCount()).thenReturn(1);
+		when(pipelinesProperties.getThreadCountMax()).thenReturn(1);
+		SampleReadService sampleReadService = mock(SampleReadService.class);
+		when(sampleReadService.fetch(anyString(), any(Optional.class))).thenAnswer(invocation -> {
+			String accession = (String) invocation.getArguments()[0];
+			fetched.add(accession);
+			return Optional.of(new Sample.Builder("curated", accession).withDomain("self.test")
+					.withUpdate(old).withRelease(old).build());
+		});
+		SampleToMongoSampleConverter sampleToMongoSampleConverter = new SampleToMongoSampleConverter();
+		ReflectionTestUtils.setField(sampleToMongoSampleConverter, "externalReferenceToMongoExternalReferenceConverter",
+				new ExternalReferenceToMongoExternalReferenceConverter());
+		ReflectionTestUtils.setField(sampleToMongoSampleConverter, "relationshipToMongoRelationshipConverter",
+				new RelationshipToMongoRelationshipConverter());
+
+		curatedViewApplicationRunner = new CuratedViewApplicationRunner(pipelinesProperties, mongoTemplate,
+				mongoSampleRepository, sampleReadService, sampleToMongoSampleConverter, curatedViewMarkStore);
+	}
+
+	@Test
+	public void test_mark_round_trip() {
+		assertNull(curatedViewMarkStore.load());
+		curatedViewMarkStore.save(mark);
+		assertEquals(mark, curatedViewMarkStore.load());
+		curatedViewMarkStore.save(changed);
+		assertEquals(changed, curatedViewMarkStore.load());
+	}
+
+	@Test
+	public void test_without_mark_all_samples_are_written_once() throws Exception {
+		mongoTemplate.save(sample("SAMEA1", old));
+		mongoTemplate.save(sample("SAMEA2", old));
+
+		run();
+
+		assertEquals(new HashSet<>(Arrays.asList("SAMEA1", "SAMEA2")), fetched);
+		assertEquals("curated", mongoSampleRepository.findSampleFromCollection("SAMEA1", StaticView.SAMPLES_CURATED).getName());
+		assertTrue(!curatedViewMarkStore.load().isBefore(now));
+
+		//only samples whose rebuilt digest differs from the stored one are written again
+		getCuratedCollection().updateOne(new Document("_id", "SAMEA1"), new Document("$set", new Document("name", "unchanged")));
+		getCuratedCollection().updateOne(new Document("_id", "SAMEA2"), new Document("$set", new Document("digest", "changed")));
+		fetched.clear();
+		run("--full");
+
+		assertEquals(new HashSet<>(Arrays.asList("SAMEA1", "SAMEA2")), fetched);
+		assertEquals("unchanged", mongoSampleRepository.findSampleFromCollection("SAMEA1", StaticView.SAMPLES_CURATED).getName());
+		assertEquals("curated", mongoSampleRepository.findSampleFromCollection("SAMEA2", StaticView.SAMPLES_CURATED).getName());
+	}
+
+	@Test
+	public void test_changes_since_mark() throws Exception {
+		mongoTemplate.save(sample("SAMEA1", old));
+		//updated, and no longer related to SAMEA6 as its curated copy still is
+		mongoTemplate.save(sample("SAMEA2", changed, "SAMEA3"));
+		mongoSampleRepository.insertSampleToCollection(sample("SAMEA2", old, "SAMEA6"), StaticView.SAMPLES_CURATED);
+		//curated
+		mongoTemplate.save(sample("SAMEA4", old));
+		mongoTemplate.save(MongoCurationLink.build("SAMEA4", curation(), "self.test", changed));
+		mongoTemplate.save(MongoCurationLink.build("SAMEA1", curation(), "self.test", old));
+		//had a curation link deleted
+		mongoTemplate.save(sample("SAMEA5", old));
+		mongoTemplate.save(MongoCurationLinkTombstone.build("hash5", "SAMEA5", changed));
+		mongoTemplate.save(MongoCurationLinkTombstone.build("hash1", "SAMEA1", old));
+		curatedViewMarkStore.save(mark);
+
+		run();
+
+		assertEquals(new HashSet<>(Arrays.asList("SAMEA2", "SAMEA3", "SAMEA4", "SAMEA5", "SAMEA6")), fetched);
+		assertEquals(changed, curatedViewMarkStore.load());
+	}
+
+	@Test
+	public void test_latest_deletion_moves_the_mark() throws Exception {
+		mongoTemplate.save(sample("SAMEA1", old));
+		mongoTemplate.save(MongoCurationLinkTombstone.build("hash1", "SAMEA1", changed));
+		curatedViewMarkStore.save(mark);
+
+		run();
+
+		assertEquals(Collections.singleton("SAMEA1"), fetched);
+		assertEquals(changed, curatedViewMarkStore.load());
+	}
+
+	@Test
+	public void test_mark_older_than_tombstones_checks_all_samples() throws Exception {
+		mongoTemplate.save(sample("SAMEA1", old));
+		mongoTemplate.save(sample("SAMEA2", old));
+		curatedViewMarkStore.save(now.minusSeconds(MongoCurationLinkTombstone.RETENTION_SECONDS));
+
+		run();
+
+		assertEquals(new HashSet<>(Arrays.asList("SAMEA1", "SAMEA2")), fetched);
+		assertTrue(!curatedViewMarkStore.load().isBefore(now));
+	}
+
+	private void run(String... args) throws Exception {
+		curatedViewApplicationRunner.run(new DefaultApplicationArguments(args));
+	}
+
+	private MongoCollection<Document> getCuratedCollection() {
+		return embeddedMongo.getMongoClient().getDatabase(EmbeddedMongo.DATABASE)
+				.getCollection(StaticView.SAMPLES_CURATED.getCollectionName());
+	}
+
+	private static Curation curation() {
+		return Curation.build(Attribute.build("sex", "M"), Attribute.build("sex", "male"));
+	}
+
+	private static MongoSample sample(String accession, Instant update, String... derivedFrom) {
+		Set<MongoRelationship> relationships = new HashSet<>();
+		for (String target : derivedFrom) {
+			relationships.add(MongoRelationship.build(accession, "derived from", target));
+		}
+		return MongoSample.build("primary", accession, "self.test", update, update, null, null, relationships,
+				null, null, null, null, null);
+	}
+}
@@ -4,52 +4,96 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
-import org.springframework.hateoas.Resource;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.biosamples.client.BioSamplesClient;
-import uk.ac.ebi.biosamples.model.Sample;
-import uk.ac.ebi.biosamples.utils.AdaptiveThreadPoolExecutor;
+import uk.ac.ebi.biosamples.model.CurationLink;
+import uk.ac.ebi.biosamples.model.CurationLinkQuery;
+import uk.ac.ebi.biosamples.model.CurationLinkUndoReport;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
+/**
+ * Undoes the curations that removed attributes whose value contained, but was not, one of the
+ * non applicable synonyms. The curation links are selected and deleted by the server, after a
+ * dry run to report how many there are. An undo that failed is carried on with --resume=id
+ */
 @Component
 public class CurtaionUndoApplicationRunner implements ApplicationRunner {
 
     private Logger log = LoggerFactory.getLogger(getClass());
 
+    public static final String[] NON_APPLICABLE_SYNONYMS = {"n/a", "na", "n.a", "none",
+            "unknown", "--", ".", "null", "missing", "[not reported]",
+            "[not requested]", "not applicable", "not_applicable", "not collected", "not specified", "not known", "not reported"};
+
     private final BioSamplesClient bioSamplesClient;
 
     public CurtaionUndoApplicationRunner(BioSamplesClient bioSamplesClient) {
         this.bioSamplesClient = bioSamplesClient;
     }
 
+    /**
+     * Selects values that contain one of the synonyms, ignoring case
+     */
+    public static String wouldHaveBeenRemoved() {
+        return "(?is).*(" + synonyms() + ").*";
+    }
+
+    /**
+     * Selects values that are one of the synonyms, ignoring case and surrounding whitespace
+     */
+    public static String shouldHaveBeenRemoved() {
+        return "(?is)\\s*(" + synonyms() + ")\\s*";
+    }
+
+    private static String synonyms() {
+        return Arrays.stream(NON_APPLICABLE_SYNONYMS).map(Pattern::quote).collect(Collectors.joining("|"));
+    }
+
     @Override
     public void run(ApplicationArguments args) throws Exception {
-        try (AdaptiveThreadPoolExecutor executorService = AdaptiveThreadPoolExecutor.create(100, 10000, true, Runtime.getRuntime().availableProcessors(),
-                Runtime.getRuntime().availableProcessors() * 2)) {
-            Map<String, Future<Void>> futures = new HashMap<>();
-            long samplesQueued = 0;
-            long startTime = System.currentTimeMillis();
-            try {
-                for (Resource<Sample> sampleResource : bioSamplesClient.fetchSampleResourceAll("", Collections.emptyList())) {
-                    String accession = sampleResource.getContent().getAccession();
-                    samplesQueued++;
-                    boolean canary = (samplesQueued % 1000 == 0);
-                    Callable<Void> task = new CurationUndoCallable(bioSamplesClient, accession, canary);
-                    futures.put(accession, executorService.submit(task));
-                    if (canary) {
-                        long endTime = System.currentTimeMillis();
-                        long duration = (endTime - startTime);
-                        log.info("PROCESSED: samples:" + samplesQueued + " rate: " + samplesQueued / ((duration / 1000) + 1) + " samples per second");
-                    }
-                }
-            } catch (IllegalStateException e) {
-                log.error("Error", e);
-            }
+        if (args.getOptionValues("resume") != null) {
+            logUndone(bioSamplesClient.resumeUndoCurationLinks(args.getOptionValues("resume").iterator().next()));
+            return;
+        }
+
+        String domain = "self.BiosampleCuration";
+        if (args.getOptionValues("domain") != null) {
+            domain = args.getOptionValues("domain").iterator().next();
+        }
+        LocalDate fromDate = LocalDate.parse("2018-10-23");
+        if (args.getOptionValues("from") != null) {
+            fromDate = LocalDate.parse(args.getOptionValues("from").iterator().next());
+        }
+        Instant from = fromDate.atStartOfDay().toInstant(ZoneOffset.UTC);
+
+        CurationLinkQuery query = CurationLinkQuery.build(domain, from, null, null,
+                wouldHaveBeenRemoved(), shouldHaveBeenRemoved());
+
+        CurationLinkUndoReport report = bioSamplesClient.undoCurationLinks(query, true);
+        if (report.getStatus() == CurationLinkUndoReport.Status.FAILED) {
+            throw new IllegalStateException("Dry run " + report.getId() + " failed");
+        }
+        log.info("Would delete " + report.getMatched() + " curation links of " + report.getSamples() + " samples");
+        for (CurationLink curationLink : report.getExamples()) {
+            log.info("Sample: " + curationLink.getSample() + "\t" + curationLink.getCuration());
+        }
+
+        if (args.getOptionValues("dryrun") != null) {
+            return;
+        }
+        logUndone(bioSamplesClient.undoCurationLinks(query, false));
+    }
+
+    private void logUndone(CurationLinkUndoReport report) {
+        log.info("Deleted " + report.getDeleted() + " curation links of " + report.getSamples() + " samples");
+        if (report.getStatus() == CurationLinkUndoReport.Status.FAILED) {
+            throw new IllegalStateException("Undo " + report.getId() + " failed, carry on with --resume=" + report.getId());
         }
     }
 }
@@ -6,11 +6,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
-import uk.ac.ebi.biosamples.utils.XmlPathBuilder;
 
 import java.io.StringReader;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import static uk.ac.ebi.biosamples.ena.EnaXmlUtil.pretty;
 
@@ -27,7 +29,9 @@ public class EnaXmlEnhancer {
 
     public String applyRules(String inputXml, EnaDatabaseSample enaDatabaseSample, Rule... rules) {
         Element element = getSampleElement(inputXml);
-        Element modifiedElement = applyRules(element.createCopy(), enaDatabaseSample, rules);
+        //the parsed document is not used again, so move its root rather than copying it
+        element.detach();
+        Element modifiedElement = applyRules(element, enaDatabaseSample, rules);
         Document document = DocumentHelper.createDocument();
         document.setRootElement(modifiedElement);
         return pretty(document);
@@ -61,8 +65,9 @@ public class EnaXmlEnhancer {
     }
 
     private Element applyRules(Element sampleElement, EnaDatabaseSample enaDatabaseSample, Rule... rules) {
+        SampleElements sampleElements = SampleElements.of(sampleElement);
         for (Rule rule : rules) {
-            sampleElement = rule.apply(sampleElement, enaDatabaseSample);
+            rule.apply(sampleElements, enaDatabaseSample);
         }
         return sampleElement;
     }
@@ -75,8 +80,110 @@ public class EnaXmlEnhancer {
         return applyRules(element, enaDatabaseSample, AliasRule.INSTANCE, NamespaceRule.INSTANCE, BrokerRule.INSTANCE, LinkRemovalRule.INSTANCE, CenterNameRule.INSTANCE, DatesRule.INSTANCE, BioSamplesIdRule.INSTANCE);
     }
 
+    /**
+     * A change to the sample XML. Rules read and change the sample through the {@link SampleElements}
+     * found for it, so applying several rules to the same sample only walks the XML once.
+     */
     public interface Rule {
-        Element apply(Element sampleXml, EnaDatabaseSample enaDatabaseSample);
+        default Element apply(Element sampleXml, EnaDatabaseSample enaDatabaseSample) {
+            apply(SampleElements.of(sampleXml), enaDatabaseSample);
+            return sampleXml;
+        }
+
+        void apply(SampleElements sampleElements, EnaDatabaseSample enaDatabaseSample);
+    }
+
+    /**
+     * The elements of the first SAMPLE in the XML that the rules look at, found in a single pass over
+     * the XML. Rules that add or remove any of these elements update them for the rules after them.
+     */
+    public static class SampleElements {
+        private Element sample;
+        private Element identifiers;
+        private Element submitterId;
+        private boolean bioSamplesExternalId;
+        private Element title;
+        private Element sampleName;
+        private Element taxonId;
+        private Element scientificName;
+        private Element commonName;
+        private Element sampleLinks;
+        private List<Element> urlSampleLinks = new ArrayList<>();
+        private Element sampleAttributes;
+
+        private SampleElements() {
+        }
+
+        @SuppressWarnings("unchecked")
+        public static SampleElements of(Element sampleXml) {
+            SampleElements sampleElements = new SampleElements();
+            sampleElements.sample = sampleXml.element("SAMPLE");
+            if (sampleElements.sample == null) {
+                return sampleElements;
+            }
+            for (Iterator<Element> i = sampleElements.sample.elementIterator(); i.hasNext(); ) {
+                Element child = i.next();
+                String name = child.getName();
+                if (name.equals("IDENTIFIERS") && sampleElements.identifiers == null) {
+                    sampleElements.identifiers = child;
+                    sampleElements.addIdentifiers(child);
+                } else if (name.equals("TITLE") && sampleElements.title == null) {
+                    sampleElements.title = child;
+                } else if (name.equals("SAMPLE_NAME") && sampleElements.sampleName == null) {
+                    sampleElements.sampleName = child;
+                    sampleElements.addSampleName(child);
+                } else if (name.equals("SAMPLE_LINKS") && sampleElements.sampleLinks == null) {
+                    sampleElements.sampleLinks = child;
+                    sampleElements.addSampleLinks(child);
+                } else if (name.equals("SAMPLE_ATTRIBUTES") && sampleElements.sampleAttributes == null) {
+                    sampleElements.sampleAttributes = child;
+                }
+            }
+            return sampleElements;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void addIdentifiers(Element identifiers) {
+            for (Iterator<Element> i = identifiers.elementIterator(); i.hasNext(); ) {
+                Element child = i.next();
+                if (child.getName().equals("SUBMITTER_ID") && submitterId == null) {
+                    submitterId = child;
+                } else if (child.getName().equals("EXTERNAL_ID") && "BioSample".equals(child.attributeValue("namespace"))) {
+                    bioSamplesExternalId = true;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void addSampleName(Element sampleName) {
+            for (Iterator<Element> i = sampleName.elementIterator(); i.hasNext(); ) {
+                Element child = i.next();
+                if (child.getName().equals("TAXON_ID") && taxonId == null) {
+                    taxonId = child;
+                } else if (child.getName().equals("SCIENTIFIC_NAME") && scientificName == null) {
+                    scientificName = child;
+                } else if (child.getName().equals("COMMON_NAME") && commonName == null) {
+                    commonName = child;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void addSampleLinks(Element sampleLinks) {
+            for (Iterator<Element> i = sampleLinks.elementIterator("SAMPLE_LINK"); i.hasNext(); ) {
+                Element sampleLink = i.next();
+                if (sampleLink.element("URL_LINK") != null) {
+                    urlSampleLinks.add(sampleLink);
+                }
+            }
+        }
+
+        private Element getSample() {
+            if (sample == null) {
+                throw new IllegalArgumentException("Path path SAMPLE does not exist");
+            }
+            return sample;
+        }
     }
 
     public enum AliasRule implements Rule {
@@ -84,15 +191,11 @@ public class EnaXmlEnhancer {
         INSTANCE;
 
         @Override
-        public Element apply(Element sampleXml, EnaDatabaseSample enaDatabaseSample) {
-            if (!XmlPathBuilder.of(sampleXml).path("SAMPLE").attributeExists("alias")) {
-                XmlPathBuilder xmlPathBuilder = XmlPathBuilder.of(sampleXml).path("SAMPLE", "IDENTIFIERS", "SUBMITTER_ID");
-                if (xmlPathBuilder.exists()) {
-                    Node node = sampleXml.selectSingleNode("SAMPLE/IDENTIFIERS/SUBMITTER_ID");
-                    node.detach();
-                }
+        public void apply(SampleElements sampleElements, EnaDatabaseSample enaDatabaseSample) {
+            if (sampleElements.getSample().attribute("alias") == null && sampleElements.submitterId != null) {
+                sampleElements.submitterId.detach();
+                sampleElements.submitterId = sampleElements.identifiers.element("SUBMITTER_ID");
             }
-            return sampleXml;
         }
 
     }
@@ -102,21 +205,15 @@ public class EnaXmlEnhancer {
         INSTANCE;
 
         @Override
-        public Element apply(Element sampleXml, EnaDatabaseSample enaDatabaseSample) {
-            if (!XmlPathBuilder.of(sampleXml).path("SAMPLE").attributeExists("center_name")) {
-                return sampleXml;
+        public void apply(SampleElements sampleElements, EnaDatabaseSample enaDatabaseSample) {
+            String centerName = sampleElements.getSample().attributeValue("center_name");
+            if (centerName == null || sampleElements.submitterId == null) {
+                return;
             }
-            XmlPathBuilder xmlPathBuilder = XmlPathBuilder.of(sampleXml).path("SAMPLE", "IDENTIFIERS", "SUBMITTER_ID");
-            if (xmlPathBuilder.exists()) {
-                if (xmlPathBuilder.attributeExists("namespace") && !xmlPathBuilder.attribute("namespace").isEmpty()) {
-                    return sampleXml;
-                } else {
-                    String centerName = XmlPathBuilder.of(sampleXml).path("SAMPLE").attribute("center_name");
-                    xmlPathBuilder.element().addAttribute("namespace", centerName);
-                    return sampleXml;
-                }
+            String namespace = sampleElements.submitterId.attributeValue("namespace");
+            if (namespace == null || namespace.isEmpty()) {
+                sampleElements.submitterId.addAttribute("namespace", centerName);
             }
-            return sampleXml;
         }
     }
 
@@ -125,26 +222,20 @@ public class EnaXmlEnhancer {
         INSTANCE;
 
         @Override
-        public Element apply(Element sampleXml, EnaDatabaseSample enaDatabaseSample) {
-            XmlPathBuilder xmlPathBuilder = XmlPathBuilder.of(sampleXml).path("SAMPLE");
-            if (xmlPathBuilder.attributeExists("accession")) {
-                String accession = xmlPathBuilder.attribute("accession");
+        public void apply(SampleElements sampleElements, EnaDatabaseSample enaDatabaseSample) {
+            Element sample = sampleElements.getSample();
+            String accession = sample.attributeValue("accession");
+            if (accession != null) {
                 if (accession.startsWith("ERS")) {
                     if (enaDatabaseSample.brokerName != null) {
-                        xmlPathBuilder.element().addAttribute("broker_name", enaDatabaseSample.brokerName);
+                        sample.addAttribute("broker_name", enaDatabaseSample.brokerName);
                     }
-                    return sampleXml;
-                }
-                if (accession.startsWith("SRS")) {
-                    xmlPathBuilder.element().addAttribute("broker_name", "NCBI");
-                    return sampleXml;
-                }
-                if (accession.startsWith("DRS")) {
-                    xmlPathBuilder.element().addAttribute("broker_name", "DDBJ");
-                    return sampleXml;
+                } else if (accession.startsWith("SRS")) {
+                    sample.addAttribute("broker_name", "NCBI");
+                } else if (accession.startsWith("DRS")) {
+                    sample.addAttribute("broker_name", "DDBJ");
                 }
             }
-            return sampleXml;
         }
     }
 
@@ -153,16 +244,11 @@ public class EnaXmlEnhancer {
         INSTANCE;
 
         @Override
-        public Element apply(Element sampleXml, EnaDatabaseSample enaDatabaseSample) {
-            XmlPathBuilder xmlPathBuilder = XmlPathBuilder.of(sampleXml).path("SAMPLE", "SAMPLE_LINKS");
-            if (xmlPathBuilder.exists()) {
-                for (Element sampleLinkElement : xmlPathBuilder.elements("SAMPLE_LINK")) {
-                    if (sampleLinkElement.element("URL_LINK") != null) {
-                        sampleLinkElement.detach();
-                    }
-                }
+        public void apply(SampleElements sampleElements, EnaDatabaseSample enaDatabaseSample) {
+            for (Element sampleLinkElement : sampleElements.urlSampleLinks) {
+                sampleLinkElement.detach();
             }
-            return sampleXml;
+            sampleElements.urlSampleLinks.clear();
         }
     }
 
@@ -171,16 +257,15 @@ public class EnaXmlEnhancer {
         INSTANCE;
 
         @Override
-        public Element apply(Element sampleXml, EnaDatabaseSample enaDatabaseSample) {
+        public void apply(SampleElements sampleElements, EnaDatabaseSample enaDatabaseSample) {
             if (enaDatabaseSample.centreName != null) {
-                XmlPathBuilder xmlPathBuilder = XmlPathBuilder.of(sampleXml).path("SAMPLE");
-                if (xmlPathBuilder.attributeExists("center_name")) {
-                    xmlPathBuilder.element().setAttributeValue("center_alias", xmlPathBuilder.attribute("center_name"));
-                    xmlPathBuilder.element().setAttributeValue("center_name", enaDatabaseSample.centreName);
+                Element sample = sampleElements.getSample();
+                String centerName = sample.attributeValue("center_name");
+                if (centerName != null) {
+                    sample.setAttributeValue("center_alias", centerName);
+                    sample.setAttributeValue("center_name", enaDatabaseSample.centreName);
                 }
-
             }
-            return sampleXml;
         }
     }
 
@@ -189,16 +274,14 @@ public class EnaXmlEnhancer {
         INSTANCE;
 
         @Override
-        public Element apply(Element sampleXml, EnaDatabaseSample enaDatabaseSample) {
+        public void apply(SampleElements sampleElements, EnaDatabaseSample enaDatabaseSample) {
             if (enaDatabaseSample.firstPublic == null || enaDatabaseSample.lastUpdated == null) {
-                return sampleXml;
+                return;
             }
-            XmlPathBuilder xmlPathBuilder = XmlPathBuilder.of(sampleXml).path("SAMPLE", "SAMPLE_ATTRIBUTES");
-            if (xmlPathBuilder.exists()) {
-                xmlPathBuilder.element().add(createSampleAttribute("ENA-FIRST-PUBLIC", enaDatabaseSample.firstPublic));
-                xmlPathBuilder.element().add(createSampleAttribute("ENA-LAST-UPDATE", enaDatabaseSample.lastUpdated));
+            if (sampleElements.sampleAttributes != null) {
+                sampleElements.sampleAttributes.add(createSampleAttribute("ENA-FIRST-PUBLIC", enaDatabaseSample.firstPublic));
+                sampleElements.sampleAttributes.add(createSampleAttribute("ENA-LAST-UPDATE", enaDatabaseSample.lastUpdated));
             }
-            return sampleXml;
         }
     }
 
@@ -207,23 +290,14 @@ public class EnaXmlEnhancer {
         INSTANCE;
 
         @Override
-        public Element apply(Element sampleXml, EnaDatabaseSample enaDatabaseSample) {
+        public void apply(SampleElements sampleElements, EnaDatabaseSample enaDatabaseSample) {
             if (enaDatabaseSample.bioSamplesId == null) {
-                return sampleXml;
+                return;
             }
-            XmlPathBuilder xmlPathBuilder = XmlPathBuilder.of(sampleXml).path("SAMPLE", "IDENTIFIERS");
-            if (xmlPathBuilder.exists()) {
-                boolean bioSamplesExternalIdExists = false;
-                for (Element element : xmlPathBuilder.elements("EXTERNAL_ID")) {
-                    if (element.attribute("namespace").getText().equals("BioSample")) {
-                        bioSamplesExternalIdExists = true;
-                    }
-                }
-                if (!bioSamplesExternalIdExists) {
-                    xmlPathBuilder.element().add(createExternalRef("BioSample", enaDatabaseSample.bioSamplesId));
-                }
+            if (sampleElements.identifiers != null && !sampleElements.bioSamplesExternalId) {
+                sampleElements.identifiers.add(createExternalRef("BioSample", enaDatabaseSample.bioSamplesId));
+                sampleElements.bioSamplesExternalId = true;
             }
-            return sampleXml;
         }
     }
 
@@ -232,12 +306,11 @@ public class EnaXmlEnhancer {
         INSTANCE;
 
         @Override
-        public Element apply(Element sampleXml, EnaDatabaseSample enaDatabaseSample) {
+        public void apply(SampleElements sampleElements, EnaDatabaseSample enaDatabaseSample) {
             if (enaDatabaseSample.bioSamplesId == null) {
-                return sampleXml;
+                return;
             }
-            XmlPathBuilder xmlPathBuilder = XmlPathBuilder.of(sampleXml).path("SAMPLE", "TITLE");
-            if (!xmlPathBuilder.exists()) {
+            if (sampleElements.title == null) {
                 String newTitle = null;
                 if (enaDatabaseSample.fixed.equals("Y")) {
                     if (enaDatabaseSample.fixedScientificName != null) {
@@ -247,13 +320,12 @@ public class EnaXmlEnhancer {
                     newTitle = enaDatabaseSample.scientificName;
                 }
                 if (newTitle != null) {
-                    xmlPathBuilder = XmlPathBuilder.of(sampleXml).path("SAMPLE");
                     Element titleElement = DocumentHelper.createElement("TITLE");
                     titleElement.setText(newTitle);
-                    xmlPathBuilder.element().add(titleElement);
+                    sampleElements.getSample().add(titleElement);
+                    sampleElements.title = titleElement;
                 }
             }
-            return sampleXml;
         }
     }
 
@@ -262,35 +334,30 @@ public class EnaXmlEnhancer {
         INSTANCE;
 
         @Override
-        public Element apply(Element sampleXml, EnaDatabaseSample enaDatabaseSample) {
+        public void apply(SampleElements sampleElements, EnaDatabaseSample enaDatabaseSample) {
             if (enaDatabaseSample.fixed.equals("Y")) {
-                XmlPathBuilder parentXmlPathBuilderName = XmlPathBuilder.of(sampleXml).path("SAMPLE", "SAMPLE_NAME");
-                if (!parentXmlPathBuilderName.exists()) {
-                    XmlPathBuilder.of(sampleXml).path("SAMPLE").element().addElement("SAMPLE_NAME");
+                if (sampleElements.sampleName == null) {
+                    sampleElements.sampleName = sampleElements.getSample().addElement("SAMPLE_NAME");
                 }
-                XmlPathBuilder taxIdXmlPathBuilderTaxonId = XmlPathBuilder.of(sampleXml).path("SAMPLE", "SAMPLE_NAME", "TAXON_ID");
                 String taxId = enaDatabaseSample.fixedTaxId == null ? "" : enaDatabaseSample.fixedTaxId;
-                if (taxIdXmlPathBuilderTaxonId.exists()) {
-                    taxIdXmlPathBuilderTaxonId.element().setText(taxId);
+                if (sampleElements.taxonId != null) {
+                    sampleElements.taxonId.setText(taxId);
                 } else {
-                    parentXmlPathBuilderName.element().addElement("TAXON_ID", taxId);
+                    sampleElements.taxonId = sampleElements.sampleName.addElement("TAXON_ID", taxId);
                 }
-                XmlPathBuilder taxIdXmlPathBuilderScientificName = XmlPathBuilder.of(sampleXml).path("SAMPLE", "SAMPLE_NAME", "SCIENTIFIC_NAME");
                 String scientificName = enaDatabaseSample.fixedScientificName == null ? "" : enaDatabaseSample.fixedScientificName;
-                if (taxIdXmlPathBuilderScientificName.exists()) {
-                    taxIdXmlPathBuilderScientificName.element().setText(scientificName);
+                if (sampleElements.scientificName != null) {
+                    sampleElements.scientificName.setText(scientificName);
                 } else {
-                    parentXmlPathBuilderName.element().addElement("SCIENTIFIC_NAME", scientificName);
+                    sampleElements.scientificName = sampleElements.sampleName.addElement("SCIENTIFIC_NAME", scientificName);
                 }
-                XmlPathBuilder taxIdXmlPathBuilderCommonName = XmlPathBuilder.of(sampleXml).path("SAMPLE", "SAMPLE_NAME", "COMMON_NAME");
                 String commonName = enaDatabaseSample.fixedCommonName == null ? "" : enaDatabaseSample.fixedCommonName;
-                if (taxIdXmlPathBuilderCommonName.exists()) {
-                    taxIdXmlPathBuilderCommonName.element().setText(commonName);
+                if (sampleElements.commonName != null) {
+                    sampleElements.commonName.setText(commonName);
                 } else {
-                    parentXmlPathBuilderName.element().addElement("COMMON_NAME", commonName);
+                    sampleElements.commonName = sampleElements.sampleName.addElement("COMMON_NAME", commonName);
                 }
             }
-            return sampleXml;
         }
     }
 
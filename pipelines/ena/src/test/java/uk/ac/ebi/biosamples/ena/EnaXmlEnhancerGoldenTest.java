@@ -0,0 +1,138 @@
+package uk.ac.ebi.biosamples.ena;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.SAXReader;
+import org.junit.Test;
+import uk.ac.ebi.biosamples.ena.EnaXmlEnhancer.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.ebi.biosamples.ena.EnaXmlUtil.pretty;
+
+/**
+ * Checks the output of the rules over a corpus of ERAPRO sample XML against golden files,
+ * so that changes to how the rules are applied can be shown not to change what they produce.
+ *
+ * Each fixture in src/test/resources/enhancer has a golden file for each of the variants below,
+ * named after the fixture and the variant, e.g. SRS000121.fixed.golden.xml.
+ */
+public class EnaXmlEnhancerGoldenTest {
+
+    static final Rule[] ALL_RULES = {AliasRule.INSTANCE, NamespaceRule.INSTANCE, BrokerRule.INSTANCE,
+            LinkRemovalRule.INSTANCE, CenterNameRule.INSTANCE, DatesRule.INSTANCE, BioSamplesIdRule.INSTANCE,
+            TitleRule.INSTANCE, TaxonRule.INSTANCE};
+
+    private final EnaXmlEnhancer enaXmlEnhancer = new EnaXmlEnhancer(null);
+
+    /**
+     * The database values each fixture is enhanced with, by variant name. The "pipeline" variant
+     * uses the rules the pipeline applies, the others use all of the rules.
+     */
+    static Map<String, EnaDatabaseSample> variants() {
+        Map<String, EnaDatabaseSample> variants = new LinkedHashMap<>();
+
+        EnaDatabaseSample pipeline = new EnaDatabaseSample();
+        pipeline.lastUpdated = "2015-06-23";
+        pipeline.firstPublic = "2010-02-26";
+        pipeline.bioSamplesId = "SAMN00001603";
+        pipeline.centreName = "1000G";
+        pipeline.fixed = "N";
+        pipeline.taxId = "9606";
+        pipeline.scientificName = "Homo sapiens";
+        variants.put("pipeline", pipeline);
+
+        EnaDatabaseSample unfixed = new EnaDatabaseSample();
+        unfixed.lastUpdated = "2018-03-09";
+        unfixed.firstPublic = "2010-02-26";
+        unfixed.brokerName = "broker";
+        unfixed.bioSamplesId = "SAMEA749880";
+        unfixed.centreName = "Wellcome Sanger Institute";
+        unfixed.fixed = "N";
+        unfixed.taxId = "580240";
+        unfixed.scientificName = "Saccharomyces cerevisiae W303";
+        variants.put("unfixed", unfixed);
+
+        EnaDatabaseSample fixed = new EnaDatabaseSample();
+        fixed.bioSamplesId = "SAMN02356578";
+        fixed.fixed = "Y";
+        fixed.taxId = "1400346";
+        fixed.scientificName = "Acinetobacter lwoffii NIPH 512";
+        fixed.fixedTaxId = "981327";
+        fixed.fixedCommonName = "Acinetobacter lwoffii";
+        fixed.fixedScientificName = "Acinetobacter lwoffii NCTC 5866 = CIP 64.10 = NIPH 512";
+        variants.put("fixed", fixed);
+
+        return variants;
+    }
+
+    static String apply(EnaXmlEnhancer enaXmlEnhancer, String variant, String xml, EnaDatabaseSample enaDatabaseSample) {
+        if (variant.equals("pipeline")) {
+            return enaXmlEnhancer.applyAllRules(xml, enaDatabaseSample);
+        } else {
+            return enaXmlEnhancer.applyRules(xml, enaDatabaseSample, ALL_RULES);
+        }
+    }
+
+    static List<Path> fixtures(Path directory) throws IOException {
+        List<Path> fixtures = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*.xml")) {
+            for (Path path : paths) {
+                if (!path.getFileName().toString().endsWith(".golden.xml")) {
+                    fixtures.add(path);
+                }
+            }
+        }
+        fixtures.sort(null);
+        return fixtures;
+    }
+
+    static Path golden(Path fixture, String variant) {
+        String name = fixture.getFileName().toString();
+        return fixture.resolveSibling(name.substring(0, name.length() - ".xml".length()) + "." + variant + ".golden.xml");
+    }
+
+    @Test
+    public void test_rules_match_golden_files() throws IOException, URISyntaxException {
+        List<Path> fixtures = fixtures(Paths.get(getClass().getResource("/enhancer").toURI()));
+        assertFalse(fixtures.isEmpty());
+        for (Path fixture : fixtures) {
+            String xml = new String(Files.readAllBytes(fixture), StandardCharsets.UTF_8);
+            for (Map.Entry<String, EnaDatabaseSample> variant : variants().entrySet()) {
+                Path golden = golden(fixture, variant.getKey());
+                assertTrue("Missing golden file " + golden, Files.exists(golden));
+                String expected = new String(Files.readAllBytes(golden), StandardCharsets.UTF_8);
+                assertEquals(golden.toString(), expected, apply(enaXmlEnhancer, variant.getKey(), xml, variant.getValue()));
+            }
+        }
+    }
+
+    @Test
+    public void test_element_rules_match_golden_files() throws IOException, URISyntaxException, DocumentException {
+        EnaDatabaseSample enaDatabaseSample = variants().get("pipeline");
+        for (Path fixture : fixtures(Paths.get(getClass().getResource("/enhancer").toURI()))) {
+            String xml = new String(Files.readAllBytes(fixture), StandardCharsets.UTF_8);
+            Element element = new SAXReader().read(new StringReader(xml)).getRootElement();
+            Document document = DocumentHelper.createDocument();
+            document.setRootElement(enaXmlEnhancer.applyAllRules(element.createCopy(), enaDatabaseSample));
+            String expected = new String(Files.readAllBytes(golden(fixture, "pipeline")), StandardCharsets.UTF_8);
+            assertEquals(fixture.toString(), expected, pretty(document));
+        }
+    }
+}
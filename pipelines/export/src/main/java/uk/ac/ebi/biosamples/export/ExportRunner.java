@@ -1,8 +1,29 @@
 package uk.ac.ebi.biosamples.export;
 
-import java.io.FileOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import org.slf4j.Logger;
@@ -11,18 +32,39 @@ import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.hateoas.Resource;
 import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import uk.ac.ebi.biosamples.PipelinesProperties;
 import uk.ac.ebi.biosamples.client.BioSamplesClient;
 import uk.ac.ebi.biosamples.model.Sample;
 
+/**
+ * Exports all public samples as one gzipped file per {@link ExportShard}, with one sample per
+ * line, fetching several shards at once. A manifest in the same directory lists the shards
+ * that are complete, so that with --resume an interrupted export only fetches the rest.
+ *
+ * Usage: [--chunks=directory] [--resume] [--gzip] [file]
+ *
+ * If a file is given, the shards are then joined into it as a single JSON array, as the export
+ * used to be, gzipped if --gzip is given. The shards default to the directory file.chunks.
+ */
 @Component
 public class ExportRunner implements ApplicationRunner {
 
+	private static final String MANIFEST = "manifest.json";
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
 	private final Logger log = LoggerFactory.getLogger(getClass());
-	private final BioSamplesClient bioSamplesClient;	
+	private final BioSamplesClient bioSamplesClient;
 	private final ObjectMapper objectMapper;
-	
-	public ExportRunner(BioSamplesClient bioSamplesClient, ObjectMapper objectMapper) {
+	private final PipelinesProperties pipelinesProperties;
+
+	public ExportRunner(BioSamplesClient bioSamplesClient, ObjectMapper objectMapper, PipelinesProperties pipelinesProperties) {
 		//ensure the client is public
 		if (bioSamplesClient.getPublicClient().isPresent()) {
 			this.bioSamplesClient = bioSamplesClient.getPublicClient().get();
@@ -30,42 +72,156 @@ public class ExportRunner implements ApplicationRunner {
 			this.bioSamplesClient = bioSamplesClient;
 		}
 		this.objectMapper = objectMapper;
+		this.pipelinesProperties = pipelinesProperties;
 	}
-	
+
 
 	@Override
 	public void run(ApplicationArguments args) throws Exception {
-		String jsonSampleFilename = args.getNonOptionArgs().get(0);
-		long oldTime = System.nanoTime();	
-		int sampleCount = 0;
+		Path jsonSampleFile = args.getNonOptionArgs().isEmpty() ? null : Paths.get(args.getNonOptionArgs().get(0)).toAbsolutePath();
+		Path chunkDirectory;
+		if (args.getOptionValues("chunks") != null) {
+			chunkDirectory = Paths.get(args.getOptionValues("chunks").get(0)).toAbsolutePath();
+		} else if (jsonSampleFile != null) {
+			chunkDirectory = Paths.get(jsonSampleFile + ".chunks");
+		} else {
+			throw new IllegalArgumentException("Either a file or --chunks must be given");
+		}
+		Files.createDirectories(chunkDirectory);
+
+		long oldTime = System.nanoTime();
+		List<ExportShard> shards = exportShards(chunkDirectory, args.containsOption("resume"));
+		long sampleCount = 0;
+		for (ExportShard shard : shards) {
+			sampleCount += shard.getSamples();
+		}
+		long elapsed = System.nanoTime()-oldTime;
+		log.info("Exported "+sampleCount+" samples in "+(elapsed/1000000000l)+"s");
+
+		if (jsonSampleFile != null) {
+			concatenate(shards, chunkDirectory, jsonSampleFile, args.containsOption("gzip"));
+			log.info("Wrote "+sampleCount+" samples to "+jsonSampleFile);
+		}
+	}
+
+	private List<ExportShard> exportShards(Path chunkDirectory, boolean resume) throws IOException, InterruptedException {
+		Map<String, ExportShard> completed = new LinkedHashMap<>();
+		Path manifest = chunkDirectory.resolve(MANIFEST);
+		if (resume && Files.exists(manifest)) {
+			for (ExportShard shard : readManifest(manifest)) {
+				if (Files.exists(chunkDirectory.resolve(shard.getFileName()))) {
+					completed.put(shard.getName(), shard);
+				}
+			}
+			log.info("Resuming export with "+completed.size()+" shards already complete");
+		} else {
+			Files.deleteIfExists(manifest);
+		}
+
+		Map<String, Future<ExportShard>> futures = new LinkedHashMap<>();
+		ExecutorService executor = Executors.newFixedThreadPool(pipelinesProperties.getThreadCountMax());
+		try {
+			for (ExportShard shard : ExportShard.all()) {
+				if (!completed.containsKey(shard.getName())) {
+					futures.put(shard.getName(), executor.submit(() -> {
+						ExportShard exported = exportShard(shard, chunkDirectory);
+						synchronized (completed) {
+							completed.put(exported.getName(), exported);
+							writeManifest(manifest, completed.values());
+						}
+						log.info("Exported "+exported.getSamples()+" samples of shard "+exported.getName()
+								+", "+completed.size()+" shards complete");
+						return exported;
+					}));
+				}
+			}
+			for (Map.Entry<String, Future<ExportShard>> future : futures.entrySet()) {
+				try {
+					future.getValue().get();
+				} catch (ExecutionException e) {
+					throw new RuntimeException("Export of shard "+future.getKey()+" failed, rerun with --resume to continue", e.getCause());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		//return the shards in their order, not the order they completed
+		List<ExportShard> shards = new ArrayList<>();
+		for (ExportShard shard : ExportShard.all()) {
+			shards.add(completed.get(shard.getName()));
+		}
+		return shards;
+	}
+
+	private ExportShard exportShard(ExportShard shard, Path chunkDirectory) throws IOException {
+		ObjectWriter sampleWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+		Path chunk = chunkDirectory.resolve(shard.getFileName());
+		Path temp = chunkDirectory.resolve(shard.getFileName() + ".tmp");
+		long sampleCount = 0;
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+			for (Resource<Sample> sampleResource : bioSamplesClient.fetchSampleResourceAll(Collections.singletonList(shard.getFilter()))) {
+				log.trace("Handling "+sampleResource);
+				Sample sample = sampleResource.getContent();
+				if (sample == null) {
+					throw new RuntimeException("Sample should not be null");
+				}
+				writer.write(sampleWriter.writeValueAsString(sample));
+				writer.write("\n");
+				sampleCount += 1;
+			}
+		}
+		Files.move(temp, chunk, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return shard.complete(sampleCount, Instant.now());
+	}
+
+	private List<ExportShard> readManifest(Path manifest) throws IOException {
+		try (Reader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+			return objectMapper.readValue(reader, new TypeReference<List<ExportShard>>(){});
+		}
+	}
+
+	private void writeManifest(Path manifest, Iterable<ExportShard> shards) throws IOException {
+		Path temp = manifest.resolveSibling(MANIFEST + ".tmp");
+		try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			objectMapper.writerWithDefaultPrettyPrinter().writeValue(writer, shards);
+		}
+		Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Joins the shards into a single JSON array of samples, replacing the file only once it is complete
+	 */
+	private void concatenate(List<ExportShard> shards, Path chunkDirectory, Path jsonSampleFile, boolean gzip) throws IOException {
+		Path temp = jsonSampleFile.resolveSibling(jsonSampleFile.getFileName() + ".tmp");
 		try {
-			boolean first = true;
-			try (
-				Writer jsonSampleWriter = args.getOptionValues("gzip") == null 
-					? new OutputStreamWriter(new FileOutputStream(jsonSampleFilename), "UTF-8")
-					: new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(jsonSampleFilename)), "UTF-8");	
-			) {
+			try (OutputStream out = gzip
+					? new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)
+					: Files.newOutputStream(temp);
+				Writer jsonSampleWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+				boolean first = true;
 				jsonSampleWriter.write("[\n");
-				for (Resource<Sample> sampleResource : bioSamplesClient.fetchSampleResourceAll()) {
-					log.trace("Handling "+sampleResource);
-					Sample sample = sampleResource.getContent();
-					if (sample == null) {
-						throw new RuntimeException("Sample should not be null");
-					}
-					if (!first) {
-						jsonSampleWriter.write(",\n");
+				for (ExportShard shard : shards) {
+					try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+							new GZIPInputStream(Files.newInputStream(chunkDirectory.resolve(shard.getFileName())), BUFFER_SIZE),
+							StandardCharsets.UTF_8), BUFFER_SIZE)) {
+						String line;
+						while ((line = reader.readLine()) != null) {
+							if (!first) {
+								jsonSampleWriter.write(",\n");
+							}
+							jsonSampleWriter.write(line);
+							first = false;
+						}
 					}
-					jsonSampleWriter.write(objectMapper.writeValueAsString(sample));
-					first = false;
-					sampleCount += 1;
 				}
 				jsonSampleWriter.write("\n]");
-			} finally {
 			}
-		} finally {			
+			Files.move(temp, jsonSampleFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
 		}
-		long elapsed = System.nanoTime()-oldTime;
-		log.info("Exported "+sampleCount+" samples in "+(elapsed/1000000000l)+"s");
 	}
-	
+
 }
@@ -0,0 +1,95 @@
+package uk.ac.ebi.biosamples.export;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import uk.ac.ebi.biosamples.model.filter.Filter;
+import uk.ac.ebi.biosamples.service.CustomInstantDeserializer;
+import uk.ac.ebi.biosamples.service.CustomInstantSerializer;
+import uk.ac.ebi.biosamples.utils.AccessionPartitions;
+
+/**
+ * One part of the export, the samples whose accession has a given prefix and ends in a given
+ * digit, or the samples in none of those, as split by {@link AccessionPartitions}.
+ *
+ * Once exported, the samples and the time are recorded in the manifest.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExportShard {
+
+	private final String name;
+	private final String accession;
+	private final Long samples;
+	private final Instant completed;
+
+	private ExportShard(String name, String accession, Long samples, Instant completed) {
+		this.name = name;
+		this.accession = accession;
+		this.samples = samples;
+		this.completed = completed;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Regular expression the accessions of this shard match
+	 */
+	public String getAccession() {
+		return accession;
+	}
+
+	public Long getSamples() {
+		return samples;
+	}
+
+	@JsonSerialize(using = CustomInstantSerializer.class)
+	public Instant getCompleted() {
+		return completed;
+	}
+
+	@JsonIgnore
+	public String getFileName() {
+		return name + ".jsonl.gz";
+	}
+
+	@JsonIgnore
+	public Filter getFilter() {
+		return AccessionPartitions.getFilter(accession);
+	}
+
+	public ExportShard complete(long samples, Instant completed) {
+		return new ExportShard(name, accession, samples, completed);
+	}
+
+	@JsonCreator
+	public static ExportShard build(@JsonProperty("name") String name,
+			@JsonProperty("accession") String accession,
+			@JsonProperty("samples") Long samples,
+			@JsonProperty("completed") @JsonDeserialize(using = CustomInstantDeserializer.class) Instant completed) {
+		return new ExportShard(name, accession, samples, completed);
+	}
+
+	/**
+	 * All the shards, in the order they are written to the single file export
+	 */
+	public static List<ExportShard> all() {
+		List<ExportShard> shards = new ArrayList<>();
+		for (String prefix : AccessionPartitions.PREFIXES) {
+			for (int digit = 0; digit < 10; digit++) {
+				shards.add(build(prefix + "-" + digit, AccessionPartitions.getPattern(prefix, digit), null, null));
+			}
+		}
+		shards.add(build(AccessionPartitions.OTHER, AccessionPartitions.getPattern(AccessionPartitions.OTHER), null, null));
+		return shards;
+	}
+}
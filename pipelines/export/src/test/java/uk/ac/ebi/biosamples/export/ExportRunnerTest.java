@@ -0,0 +1,140 @@
+package uk.ac.ebi.biosamples.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.hateoas.Resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import uk.ac.ebi.biosamples.PipelinesProperties;
+import uk.ac.ebi.biosamples.client.BioSamplesClient;
+import uk.ac.ebi.biosamples.model.Sample;
+import uk.ac.ebi.biosamples.model.filter.Filter;
+
+public class ExportRunnerTest {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private BioSamplesClient bioSamplesClient;
+	private ExportRunner exportRunner;
+	private Path chunks;
+	private Path file;
+
+	@Before
+	public void setup() throws Exception {
+		bioSamplesClient = mock(BioSamplesClient.class);
+		when(bioSamplesClient.getPublicClient()).thenReturn(Optional.empty());
+		when(bioSamplesClient.fetchSampleResourceAll(anyCollectionOf(Filter.class)))
+				.thenReturn(Collections.emptyList());
+		PipelinesProperties pipelinesProperties = mock(PipelinesProperties.class);
+		when(pipelinesProperties.getThreadCountMax()).thenReturn(4);
+		exportRunner = new ExportRunner(bioSamplesClient, objectMapper, pipelinesProperties);
+		chunks = temporaryFolder.newFolder("chunks").toPath();
+		file = temporaryFolder.getRoot().toPath().resolve("samples.json");
+	}
+
+	@Test
+	public void test_resume_skips_completed_shards() throws Exception {
+		ExportShard done = shard("SAMEA-1");
+		ExportShard lost = shard("SAMEA-2");
+		ExportShard redo = shard("SAMEA-3");
+		writeChunk(done, sample("SAMEA1"), sample("SAMEA11"));
+		//listed in the manifest, but its file has gone so it is exported again
+		writeManifest(done.complete(2, Instant.now()), lost.complete(1, Instant.now()));
+		when(bioSamplesClient.fetchSampleResourceAll(Collections.singletonList(lost.getFilter())))
+				.thenReturn(Collections.singletonList(new Resource<>(sample("SAMEA2"))));
+		when(bioSamplesClient.fetchSampleResourceAll(Collections.singletonList(redo.getFilter())))
+				.thenReturn(Collections.singletonList(new Resource<>(sample("SAMEA3"))));
+
+		exportRunner.run(new DefaultApplicationArguments(new String[]{"--chunks=" + chunks, "--resume", file.toString()}));
+
+		verify(bioSamplesClient, never()).fetchSampleResourceAll(Collections.singletonList(done.getFilter()));
+		verify(bioSamplesClient).fetchSampleResourceAll(Collections.singletonList(lost.getFilter()));
+		verify(bioSamplesClient, times(ExportShard.all().size() - 1))
+				.fetchSampleResourceAll(anyCollectionOf(Filter.class));
+		assertEquals(Arrays.asList("SAMEA1", "SAMEA11", "SAMEA2", "SAMEA3"), accessions(file));
+
+		JsonNode manifest = objectMapper.readTree(chunks.resolve("manifest.json").toFile());
+		assertEquals(ExportShard.all().size(), manifest.size());
+	}
+
+	@Test
+	public void test_without_resume_all_shards_are_exported() throws Exception {
+		ExportShard done = shard("SAMEA-1");
+		writeChunk(done, sample("SAMEA1"));
+		writeManifest(done.complete(1, Instant.now()));
+
+		exportRunner.run(new DefaultApplicationArguments(new String[]{"--chunks=" + chunks, file.toString()}));
+
+		verify(bioSamplesClient).fetchSampleResourceAll(Collections.singletonList(done.getFilter()));
+		verify(bioSamplesClient, times(ExportShard.all().size()))
+				.fetchSampleResourceAll(anyCollectionOf(Filter.class));
+		assertTrue(accessions(file).isEmpty());
+	}
+
+	private static ExportShard shard(String name) {
+		for (ExportShard shard : ExportShard.all()) {
+			if (shard.getName().equals(name)) {
+				return shard;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	private static Sample sample(String accession) {
+		return new Sample.Builder("test", accession).withDomain("self.test").build();
+	}
+
+	private void writeChunk(ExportShard shard, Sample... samples) throws Exception {
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new GZIPOutputStream(Files.newOutputStream(chunks.resolve(shard.getFileName()))), StandardCharsets.UTF_8))) {
+			for (Sample sample : samples) {
+				writer.write(objectMapper.writeValueAsString(sample));
+				writer.write("\n");
+			}
+		}
+	}
+
+	private void writeManifest(ExportShard... shards) throws Exception {
+		objectMapper.writeValue(chunks.resolve("manifest.json").toFile(), Arrays.asList(shards));
+	}
+
+	private List<String> accessions(Path file) throws Exception {
+		List<String> accessions = new ArrayList<>();
+		for (JsonNode sample : objectMapper.readTree(file.toFile())) {
+			accessions.add(sample.get("accession").asText());
+		}
+		return accessions;
+	}
+}
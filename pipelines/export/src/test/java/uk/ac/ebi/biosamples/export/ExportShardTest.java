@@ -0,0 +1,87 @@
+package uk.ac.ebi.biosamples.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import uk.ac.ebi.biosamples.utils.AccessionPartitions;
+
+public class ExportShardTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void test_completed_shard_round_trip() throws Exception {
+		ExportShard shard = ExportShard.build("SAMEA-3", "SAMEA[0-9]*3", null, null)
+				.complete(42, Instant.parse("2018-01-02T03:04:05.678Z"));
+
+		String json = objectMapper.writeValueAsString(shard);
+		JsonNode node = objectMapper.readTree(json);
+		//only what is needed to resume is in the manifest
+		assertEquals(4, node.size());
+		assertEquals("2018-01-02T03:04:05.678Z", node.get("completed").asText());
+
+		ExportShard read = objectMapper.readValue(json, ExportShard.class);
+		assertEquals("SAMEA-3", read.getName());
+		assertEquals("SAMEA[0-9]*3", read.getAccession());
+		assertEquals(Long.valueOf(42), read.getSamples());
+		assertEquals(Instant.parse("2018-01-02T03:04:05.678Z"), read.getCompleted());
+		assertEquals("SAMEA-3.jsonl.gz", read.getFileName());
+	}
+
+	@Test
+	public void test_incomplete_shard_round_trip() throws Exception {
+		ExportShard shard = ExportShard.build("other", AccessionPartitions.getPattern(AccessionPartitions.OTHER), null, null);
+
+		String json = objectMapper.writeValueAsString(shard);
+		assertFalse(objectMapper.readTree(json).has("samples"));
+		assertFalse(objectMapper.readTree(json).has("completed"));
+
+		ExportShard read = objectMapper.readValue(json, ExportShard.class);
+		assertEquals(shard.getAccession(), read.getAccession());
+		assertNull(read.getSamples());
+		assertNull(read.getCompleted());
+	}
+
+	@Test
+	public void test_all_shards() {
+		List<ExportShard> shards = ExportShard.all();
+
+		assertEquals(AccessionPartitions.PREFIXES.size() * 10 + 1, shards.size());
+		Set<String> names = new HashSet<>();
+		for (ExportShard shard : shards) {
+			names.add(shard.getName());
+		}
+		assertEquals(shards.size(), names.size());
+		//the catch-all is last, so samples with the usual prefixes keep their place in the single file
+		assertEquals(AccessionPartitions.OTHER, shards.get(shards.size() - 1).getName());
+		assertEquals("~((SAMD|SAME|SAMEA|SAMEG|SAMN)[0-9]+)", shards.get(shards.size() - 1).getAccession());
+	}
+
+	@Test
+	public void test_prefix_shards_split_the_prefix() {
+		//the shard patterns are solr regular expressions, which are whole-term matches like java's
+		int matched = 0;
+		for (ExportShard shard : ExportShard.all()) {
+			if (!shard.getName().equals(AccessionPartitions.OTHER)) {
+				if ("SAMEA123".matches(shard.getAccession())) {
+					assertEquals("SAMEA-3", shard.getName());
+					matched++;
+				}
+				assertFalse("SAMEA".matches(shard.getAccession()));
+				assertFalse("SAMEA12x".matches(shard.getAccession()));
+			}
+		}
+		assertEquals(1, matched);
+	}
+}
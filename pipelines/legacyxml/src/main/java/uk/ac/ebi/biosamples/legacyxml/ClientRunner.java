@@ -4,9 +4,8 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 
-import org.dom4j.Document;
-import org.dom4j.io.OutputFormat;
-import org.dom4j.io.XMLWriter;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.hateoas.Resource;
@@ -17,20 +16,18 @@ import com.fasterxml.jackson.databind.ObjectWriter;
 
 import uk.ac.ebi.biosamples.client.BioSamplesClient;
 import uk.ac.ebi.biosamples.model.Sample;
-import uk.ac.ebi.biosamples.service.SampleToXmlConverter;
+import uk.ac.ebi.biosamples.service.SampleToXmlStreamWriter;
 
 @Component
 public class ClientRunner implements ApplicationRunner {
-	
-	private final OutputFormat format = OutputFormat.createCompactFormat();
 
 	private final BioSamplesClient client;
-	private final SampleToXmlConverter sampleToXmlConverter;
+	private final SampleToXmlStreamWriter sampleToXmlStreamWriter;
 	private final ObjectMapper objectMapper;
 	
-	public ClientRunner(BioSamplesClient client, SampleToXmlConverter sampleToXmlConverter, ObjectMapper objectMapper) {
+	public ClientRunner(BioSamplesClient client, SampleToXmlStreamWriter sampleToXmlStreamWriter, ObjectMapper objectMapper) {
 		this.client = client;
-		this.sampleToXmlConverter = sampleToXmlConverter;
+		this.sampleToXmlStreamWriter = sampleToXmlStreamWriter;
 		this.objectMapper = objectMapper;
 	}
 	
@@ -44,21 +41,21 @@ public class ClientRunner implements ApplicationRunner {
 		String outputJsonFilename = args.getNonOptionArgs().get(2);
 
 
-		XMLWriter xmlWriter = null;
+		XMLStreamWriter xmlWriter = null;
 		try (BufferedWriter fileXmlWriter = new BufferedWriter(new FileWriter(new File(outputXmlFilename)));
 				BufferedWriter fileJsonWriter = new BufferedWriter(new FileWriter(new File(outputJsonFilename)));) {
 			
 			fileXmlWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
 			fileXmlWriter.write("<BioSamples>\n");
-			xmlWriter = new XMLWriter(fileXmlWriter, format);
+			xmlWriter = sampleToXmlStreamWriter.createXMLStreamWriter(fileXmlWriter);
 			
 			fileJsonWriter.write("[\n");
 			ObjectWriter objectWriter = objectMapper.writer();
 			boolean first = true;
 			
 			for (Resource<Sample> resource : client.fetchSampleResourceAll()) {
-				Document doc = sampleToXmlConverter.convert(resource.getContent());
-				xmlWriter.write(doc.getRootElement());
+				//each sample is written as it is fetched, without holding a document for it
+				sampleToXmlStreamWriter.writeElement(resource.getContent(), xmlWriter);
 				
 				if (!first) {
 					fileJsonWriter.write(",\n");
@@ -68,6 +65,7 @@ public class ClientRunner implements ApplicationRunner {
 				fileJsonWriter.write(objectWriter.writeValueAsString(resource.getContent()));
 			}
 			
+			xmlWriter.flush();
 			fileXmlWriter.write("</BioSamples>\n");
 			fileJsonWriter.write("\n]\n");
 		} 
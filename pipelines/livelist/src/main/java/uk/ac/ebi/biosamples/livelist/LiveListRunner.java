@@ -4,22 +4,47 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
-import org.springframework.hateoas.Resource;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.biosamples.client.BioSamplesClient;
-import uk.ac.ebi.biosamples.model.Sample;
+import uk.ac.ebi.biosamples.model.filter.Filter;
+import uk.ac.ebi.biosamples.utils.AccessionPartitions;
 
-import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPOutputStream;
 
+/**
+ * Writes the accessions of all public samples, one per line.
+ *
+ * Only the accessions are fetched, one stream per {@link AccessionPartitions accession partition}
+ * in parallel, each into its own part file. The parts are then joined in partition order into a
+ * temporary file next to the live list, which replaces the previous live list in one rename once
+ * it is complete.
+ */
 @Component
 public class LiveListRunner implements ApplicationRunner {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LiveListRunner.class);
 
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
     private final BioSamplesClient bioSamplesClient;
 
     public LiveListRunner(BioSamplesClient bioSamplesClient) {
@@ -37,34 +62,71 @@ public class LiveListRunner implements ApplicationRunner {
         if (args.getNonOptionArgs().size() > 0) {
             liveListFilename = args.getNonOptionArgs().get(0);
         }
+        boolean gzip = args.getOptionValues("gzip") != null;
+        Path liveList = Paths.get(liveListFilename).toAbsolutePath();
+
         long startTime = System.nanoTime();
-        int sampleCount = 0;
+        long sampleCount = 0;
+        LOGGER.info("Starting live list export");
+
+        Map<String, Path> parts = new LinkedHashMap<>();
+        List<String> partitions = AccessionPartitions.all();
+        ExecutorService executor = Executors.newFixedThreadPool(partitions.size());
         try {
-            try (
-                    Writer liveListWriter = args.getOptionValues("gzip") == null
-                            ? new OutputStreamWriter(new FileOutputStream(liveListFilename), "UTF-8")
-                            : new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(liveListFilename)), "UTF-8");
-            ) {
-                LOGGER.info("Starting live list export");
-                for (Resource<Sample> sampleResource : bioSamplesClient.fetchSampleResourceAll()) {
-                    LOGGER.trace("Handling " + sampleResource);
-                    Sample sample = sampleResource.getContent();
-                    if (Instant.now().isAfter(sample.getRelease())) {
-                        liveListWriter.write(LiveListUtils.createLiveListString(sample));
-                        liveListWriter.write("\n");
-                        liveListWriter.flush();
-                        sampleCount++;
-                    }
-                    if (sampleCount % 10000 == 0) {
-                        LOGGER.info("Running live list export: exported " + sampleCount + " exported samples in " + ((System.nanoTime() - startTime) / 1000000000l) + "s");
+            Map<String, Future<Long>> futures = new LinkedHashMap<>();
+            for (String partition : partitions) {
+                Path part = Files.createTempFile(liveList.getParent(), liveList.getFileName() + "." + partition + ".", ".part");
+                parts.put(partition, part);
+                futures.put(partition, executor.submit(() -> writePart(partition, part)));
+            }
+            for (Map.Entry<String, Future<Long>> future : futures.entrySet()) {
+                try {
+                    long partCount = future.getValue().get();
+                    LOGGER.info("Exported " + partCount + " " + future.getKey() + " samples");
+                    sampleCount += partCount;
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Live list export of " + future.getKey() + " failed", e.getCause());
+                }
+            }
+
+            Path temp = Files.createTempFile(liveList.getParent(), liveList.getFileName() + ".", ".tmp");
+            try {
+                try (OutputStream out = gzip
+                        ? new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)
+                        : new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)) {
+                    for (Path part : parts.values()) {
+                        Files.copy(part, out);
                     }
                 }
+                Files.move(temp, liveList, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
             } finally {
+                Files.deleteIfExists(temp);
             }
         } finally {
+            executor.shutdownNow();
+            for (Path part : parts.values()) {
+                Files.deleteIfExists(part);
+            }
         }
         long elapsed = System.nanoTime() - startTime;
         LOGGER.info("Completed live list export:  " + sampleCount + " samples exported in " + (elapsed / 1000000000l) + "s");
     }
 
+    private long writePart(String partition, Path part) throws IOException {
+        Filter partitionFilter = AccessionPartitions.getFilter(AccessionPartitions.getPattern(partition));
+        long startTime = System.nanoTime();
+        long count = 0;
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(part), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            for (String accession : bioSamplesClient.fetchAccessionAll(Collections.singletonList(partitionFilter))) {
+                writer.write(LiveListUtils.createLiveListString(accession));
+                writer.write("\n");
+                if (++count % 100000 == 0) {
+                    LOGGER.info("Running live list export: exported " + count + " " + partition + " samples in " + ((System.nanoTime() - startTime) / 1000000000l) + "s");
+                }
+            }
+        }
+        return count;
+    }
+
 }
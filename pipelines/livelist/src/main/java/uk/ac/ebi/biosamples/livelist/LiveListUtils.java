@@ -5,6 +5,10 @@ import uk.ac.ebi.biosamples.model.Sample;
 public class LiveListUtils {
 
     public static String createLiveListString(Sample sample) {
-        return sample.getAccession();
+        return createLiveListString(sample.getAccession());
+    }
+
+    public static String createLiveListString(String accession) {
+        return accession;
     }
 }
@@ -67,7 +67,9 @@ public class Application {
 				PoolingHttpClientConnectionManager poolingHttpClientConnectionManager = new PoolingHttpClientConnectionManager();
 				poolingHttpClientConnectionManager.setMaxTotal(piplinesProperties.getConnectionCountMax());
 				poolingHttpClientConnectionManager.setDefaultMaxPerRoute(piplinesProperties.getConnectionCountDefault());
-				poolingHttpClientConnectionManager.setMaxPerRoute(new HttpRoute(HttpHost.create(piplinesProperties.getZooma())), piplinesProperties.getConnectionCountZooma());
+				//allow enough connections to zooma for the concurrent lookups
+				poolingHttpClientConnectionManager.setMaxPerRoute(new HttpRoute(HttpHost.create(piplinesProperties.getZooma())),
+						Math.max(piplinesProperties.getConnectionCountZooma(), piplinesProperties.getZoomaConcurrency()));
 				poolingHttpClientConnectionManager.setMaxPerRoute(new HttpRoute(HttpHost.create(bioSamplesProperties.getOls())), piplinesProperties.getConnectionCountOls());
 				
 				
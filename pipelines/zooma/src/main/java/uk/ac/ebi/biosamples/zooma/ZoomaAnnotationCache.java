@@ -0,0 +1,117 @@
+package uk.ac.ebi.biosamples.zooma;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the result of zooma lookups, including those that did not map to anything,
+ * keyed on the normalised type and value of the attribute.
+ *
+ * If a file is given, previous results are read from it and new results are appended to
+ * it as they are found, so that they are kept between runs of the pipeline. Each line is
+ * the tab separated key type, value and iri, with an empty iri if there was no mapping.
+ */
+public class ZoomaAnnotationCache implements Closeable {
+
+	private Logger log = LoggerFactory.getLogger(getClass());
+
+	private static final String UNMAPPED = "";
+
+	private final Map<String, String> annotations = new ConcurrentHashMap<>();
+	private final BufferedWriter writer;
+
+	public ZoomaAnnotationCache() {
+		this.writer = null;
+	}
+
+	public ZoomaAnnotationCache(Path file) throws IOException {
+		if (Files.exists(file)) {
+			try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] parts = line.split("\t", -1);
+					if (parts.length != 3) {
+						log.warn("Skipping malformed zooma cache line "+line);
+						continue;
+					}
+					annotations.put(parts[0]+"\t"+parts[1], parts[2]);
+				}
+			}
+			log.info("Read "+annotations.size()+" zooma annotations from "+file);
+		} else if (file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+		this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Zooma matches ignoring case and spacing, so lookups that only differ in those
+	 * will have the same result.
+	 */
+	public static String getKey(String type, String value) {
+		return normalise(type)+"\t"+normalise(value);
+	}
+
+	private static String normalise(String text) {
+		return text.trim().replaceAll("\\s+", " ").toLowerCase();
+	}
+
+	public boolean contains(String key) {
+		return annotations.containsKey(key);
+	}
+
+	/**
+	 * Returns the iri the key was mapped to, or empty if it was not mapped. Check the key
+	 * is present with {@link #contains(String)} first.
+	 */
+	public Optional<String> get(String key) {
+		String iri = annotations.get(key);
+		if (iri == null || iri.equals(UNMAPPED)) {
+			return Optional.empty();
+		}
+		return Optional.of(iri);
+	}
+
+	public void put(String key, Optional<String> iri) {
+		String value = iri.orElse(UNMAPPED);
+		if (annotations.putIfAbsent(key, value) == null && writer != null) {
+			synchronized (writer) {
+				try {
+					writer.write(key+"\t"+value);
+					writer.newLine();
+					//flush each one, so that a failed run keeps what it has found
+					writer.flush();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+	}
+
+	public int size() {
+		return annotations.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (writer != null) {
+			synchronized (writer) {
+				writer.close();
+			}
+		}
+	}
+}
@@ -50,6 +50,8 @@ public class ZoomaApplicationRunner implements ApplicationRunner {
 		
 		Collection<Filter> filters = ArgUtils.getDateFilters(args);
 
+		//one pass over the samples, each distinct attribute is looked up in zooma by the first
+		//sample that needs it and the rest wait for that lookup or use the cached result
 		try (AdaptiveThreadPoolExecutor executorService = AdaptiveThreadPoolExecutor.create(100, 10000, true, 
 				pipelinesProperties.getThreadCount(), pipelinesProperties.getThreadCountMax())) {
 
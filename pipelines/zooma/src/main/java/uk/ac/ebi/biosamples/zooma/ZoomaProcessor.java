@@ -1,13 +1,25 @@
 package uk.ac.ebi.biosamples.zooma;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.RequestEntity;
@@ -18,53 +30,166 @@ import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.RateLimiter;
 
 import uk.ac.ebi.biosamples.PipelinesProperties;
+import uk.ac.ebi.biosamples.model.Attribute;
 import uk.ac.ebi.biosamples.utils.ClientUtils;
 
 @Service
 public class ZoomaProcessor {
 
+	//types whose values are identifiers, free text or metadata rather than anything an ontology term describes
+	private static final Set<String> SKIPPED_TYPES = new HashSet<>(Arrays.asList(
+			"synonym", "other", "unknown", "description", "label", "model", "package", "host_subject_id"));
+	private static final Set<String> SKIPPED_TYPES_EXACT = new HashSet<>(Arrays.asList(
+			"INSDC first public", "INSDC last update", "NCBI submission model", "NCBI submission package",
+			"INSDC status", "ENA checklist", "INSDC center name"));
+	//numbers, and SRA/ENA/DDBJ, GEO and BioSample identifiers
+	private static final Pattern SKIPPED_VALUES = Pattern.compile(
+			"^[0-9.-]+$|^[ESD]R[SRX][0-9]+$|^GSM[0-9]+$|^SAM[END]A?G?[0-9]+$");
+
 	private Logger log = LoggerFactory.getLogger(getClass());
 
 	private final RestOperations restOperations;
-	
-	//TODO make this an application.properties value
+
 	private final UriComponents uriBuilder;
-		
-	public ZoomaProcessor(RestTemplateBuilder restTemplateBuilder, PipelinesProperties pipelinesProperties) {
-		this.restOperations = restTemplateBuilder.build();
-		uriBuilder = UriComponentsBuilder.fromUriString(
-				pipelinesProperties.getZooma()+"/v2/api/services/annotate?propertyValue={value}&propertyType={type}&filter=ontologies:[none]").build();
+
+	private final ZoomaAnnotationCache annotationCache;
+	//lookups that are in progress, so that concurrent requests for the same key only query once
+	private final Map<String, CompletableFuture<Optional<String>>> lookups = new ConcurrentHashMap<>();
+	//lookups that failed, which are not tried again until the next run
+	private final Set<String> failed = ConcurrentHashMap.newKeySet();
+	private final Semaphore concurrencyLimit;
+	private final RateLimiter rateLimiter;
+
+	@Autowired
+	public ZoomaProcessor(RestTemplateBuilder restTemplateBuilder, PipelinesProperties pipelinesProperties) throws IOException {
+		this(restTemplateBuilder.build(), pipelinesProperties.getZooma(),
+				pipelinesProperties.getZoomaCache().isEmpty()
+					? new ZoomaAnnotationCache()
+					: new ZoomaAnnotationCache(Paths.get(pipelinesProperties.getZoomaCache())),
+				pipelinesProperties.getZoomaConcurrency(), pipelinesProperties.getZoomaRateLimit());
+	}
+
+	/**
+	 * @param concurrency maximum number of requests to send to zooma at a time
+	 * @param rateLimit maximum number of requests per second to send to zooma, or zero for no limit
+	 */
+	public ZoomaProcessor(RestOperations restOperations, String zooma, ZoomaAnnotationCache annotationCache,
+			int concurrency, double rateLimit) {
+		this.restOperations = restOperations;
+		this.uriBuilder = UriComponentsBuilder.fromUriString(
+				zooma+"/v2/api/services/annotate?propertyValue={value}&propertyType={type}&filter=ontologies:[none]").build();
+		this.annotationCache = annotationCache;
+		this.concurrencyLimit = new Semaphore(concurrency);
+		this.rateLimiter = rateLimit > 0 ? RateLimiter.create(rateLimit) : null;
 	}
-	
-	
-	@Cacheable(value="zooma", sync=true)
+
+	@PreDestroy
+	public void close() throws IOException {
+		annotationCache.close();
+	}
+
+	/**
+	 * Whether an attribute should be looked up in zooma, skipping those that already have
+	 * ontology terms or units, and those that are identifiers or numbers or otherwise
+	 * not going to map to an ontology term.
+	 */
+	public boolean isZoomable(Attribute attribute) {
+		//any iris are curated elsewhere, whether they look sensible or not
+		if (!attribute.getIri().isEmpty() || attribute.getUnit() != null) {
+			return false;
+		}
+		String type = attribute.getType();
+		String value = attribute.getValue();
+		if (SKIPPED_TYPES.contains(type.toLowerCase()) || SKIPPED_TYPES_EXACT.contains(type)) {
+			log.trace("Skipping "+type+" : "+value);
+			return false;
+		}
+		if (SKIPPED_VALUES.matcher(value).matches()) {
+			log.trace("Skipping number or identifier "+value);
+			return false;
+		}
+		return type.length() < 64 && value.length() < 128;
+	}
+
+	/**
+	 * Looks up the iri of a type and value, from the cache if it has been looked up
+	 * before. Concurrent lookups of the same type and value only query zooma once, and
+	 * no more than the configured number of queries are sent to zooma at a time.
+	 */
 	public Optional<String> queryZooma(String type, String value) {
+		String key = ZoomaAnnotationCache.getKey(type, value);
+		if (annotationCache.contains(key)) {
+			return annotationCache.get(key);
+		}
+		if (failed.contains(key)) {
+			return Optional.empty();
+		}
+
+		CompletableFuture<Optional<String>> lookup = new CompletableFuture<>();
+		CompletableFuture<Optional<String>> existing = lookups.putIfAbsent(key, lookup);
+		if (existing != null) {
+			return existing.join();
+		}
+		try {
+			//another thread may have finished looking this up since it was checked
+			if (annotationCache.contains(key)) {
+				Optional<String> iri = annotationCache.get(key);
+				lookup.complete(iri);
+				return iri;
+			}
+			Optional<String> iri = doQueryZooma(type, value);
+			annotationCache.put(key, iri);
+			lookup.complete(iri);
+			return iri;
+		} catch (RuntimeException e) {
+			//don't cache failures, so they can be tried again in a later run
+			failed.add(key);
+			lookup.completeExceptionally(e);
+			throw e;
+		} finally {
+			lookups.remove(key);
+		}
+	}
+
+	private Optional<String> doQueryZooma(String type, String value) {
 		log.trace("Zooma getting : "+type+" : "+value);
 		URI uri = uriBuilder.expand(value, type).encode().toUri();
 		//log.info("Zooma uri : "+url);
-		
+
 		RequestEntity<Void> requestEntity = RequestEntity.get(uri).accept(MediaTypes.HAL_JSON).build();
-		long startTime = System.nanoTime();
-		ResponseEntity<List<JsonNode>> responseEntity = ClientUtils.doRetryQuery(requestEntity, restOperations, 5, 
-				new ParameterizedTypeReference<List<JsonNode>>(){});		
-		long endTime = System.nanoTime();
+		long startTime;
+		long endTime;
+		ResponseEntity<List<JsonNode>> responseEntity;
+		concurrencyLimit.acquireUninterruptibly();
+		try {
+			if (rateLimiter != null) {
+				rateLimiter.acquire();
+			}
+			startTime = System.nanoTime();
+			responseEntity = ClientUtils.doRetryQuery(requestEntity, restOperations, 5,
+					new ParameterizedTypeReference<List<JsonNode>>(){});
+			endTime = System.nanoTime();
+		} finally {
+			concurrencyLimit.release();
+		}
 		log.trace("Got zooma response in "+((endTime-startTime)/1000000)+"ms");
-		
+
 		//if zero or more than one result found, abort
 		if (responseEntity.getBody().size() != 1) {
 			log.info("Zooma failed to map "+value+" ("+type+") in "+((endTime-startTime)/1000000)+"ms");
 			return Optional.empty();
 		}
 		JsonNode n = responseEntity.getBody().get(0);
-		
+
 		//if result is anything other than "high" confidence, abort
 		if (!n.has("confidence") || !n.get("confidence").asText().equals("HIGH")) {
 			log.info("Zooma did not map "+value+" ("+type+") in "+((endTime-startTime)/1000000)+"ms");
 			return Optional.empty();
 		}
-		
+
 		//if result has anything other than 1 semantic tag, abort
 		if (!n.has("semanticTags") || n.get("semanticTags").size() != 1) {
 			log.info("Zooma multi-mapped "+value+" ("+type+") in "+((endTime-startTime)/1000000)+"ms");
@@ -72,8 +197,8 @@ public class ZoomaProcessor {
 		}
 		String iri = n.get("semanticTags").get(0).asText();
 		log.info("Zooma mapped "+value+" ("+type+") to "+iri+" in "+((endTime-startTime)/1000000)+"ms");
-		return Optional.of(iri);		
+		return Optional.of(iri);
 	}
-	
-	
+
+
 }
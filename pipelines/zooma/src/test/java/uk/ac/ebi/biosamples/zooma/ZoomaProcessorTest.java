@@ -0,0 +1,162 @@
+package uk.ac.ebi.biosamples.zooma;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.web.client.RestTemplate;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+
+public class ZoomaProcessorTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private ZoomaStubServer zooma;
+
+	@Before
+	public void setup() throws Exception {
+		zooma = new ZoomaStubServer();
+		zooma.map("Homo sapiens", "http://purl.obolibrary.org/obo/NCBITaxon_9606");
+		zooma.respond("liver", "[{\"confidence\":\"MEDIUM\",\"semanticTags\":[\"http://purl.obolibrary.org/obo/UBERON_0002107\"]}]");
+		zooma.respond("blood", "[{\"confidence\":\"HIGH\",\"semanticTags\":[\"http://purl.obolibrary.org/obo/UBERON_0000178\"]},"
+				+ "{\"confidence\":\"HIGH\",\"semanticTags\":[\"http://www.ebi.ac.uk/efo/EFO_0000296\"]}]");
+	}
+
+	@After
+	public void teardown() {
+		zooma.close();
+	}
+
+	@Test
+	public void testQueryZooma() throws Exception {
+		ZoomaProcessor zoomaProcessor = getZoomaProcessor(new ZoomaAnnotationCache(), 1, 0);
+		assertThat(zoomaProcessor.queryZooma("organism", "Homo sapiens")).isEqualTo(Optional.of("http://purl.obolibrary.org/obo/NCBITaxon_9606"));
+		assertThat(zoomaProcessor.queryZooma("organism part", "liver")).isEqualTo(Optional.empty());
+		assertThat(zoomaProcessor.queryZooma("organism part", "blood")).isEqualTo(Optional.empty());
+		assertThat(zoomaProcessor.queryZooma("organism part", "unknown")).isEqualTo(Optional.empty());
+		assertThat(zooma.getRequests()).isEqualTo(4);
+
+		//repeated lookups, including ones that differ only in case and spacing, come from the cache
+		assertThat(zoomaProcessor.queryZooma("Organism", "homo  sapiens ")).isEqualTo(Optional.of("http://purl.obolibrary.org/obo/NCBITaxon_9606"));
+		assertThat(zoomaProcessor.queryZooma("organism part", "liver")).isEqualTo(Optional.empty());
+		assertThat(zooma.getRequests()).isEqualTo(4);
+	}
+
+	@Test
+	public void testDistinctAttributesQueriedOnce() throws Exception {
+		ZoomaProcessor zoomaProcessor = getZoomaProcessor(new ZoomaAnnotationCache(), 4, 0);
+		List<Attribute> attributes = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			attributes.add(Attribute.build("organism", "Homo sapiens"));
+			attributes.add(Attribute.build("Organism", " homo sapiens"));
+			attributes.add(Attribute.build("organism part", "liver"));
+		}
+		queryConcurrently(zoomaProcessor, attributes);
+		assertThat(zooma.getRequests()).isEqualTo(2);
+
+		for (Attribute attribute : attributes) {
+			zoomaProcessor.queryZooma(attribute.getType(), attribute.getValue());
+		}
+		assertThat(zooma.getRequests()).isEqualTo(2);
+	}
+
+	@Test
+	public void testPersistentCache() throws Exception {
+		Path cacheFile = temporaryFolder.getRoot().toPath().resolve("zooma-cache.tsv");
+		ZoomaProcessor zoomaProcessor = getZoomaProcessor(new ZoomaAnnotationCache(cacheFile), 1, 0);
+		zoomaProcessor.queryZooma("organism", "Homo sapiens");
+		zoomaProcessor.queryZooma("organism part", "liver");
+		zoomaProcessor.close();
+		assertThat(zooma.getRequests()).isEqualTo(2);
+
+		//a later run uses the results of the earlier one, whether they were mapped or not
+		zoomaProcessor = getZoomaProcessor(new ZoomaAnnotationCache(cacheFile), 1, 0);
+		assertThat(zoomaProcessor.queryZooma("organism", "Homo sapiens")).isEqualTo(Optional.of("http://purl.obolibrary.org/obo/NCBITaxon_9606"));
+		assertThat(zoomaProcessor.queryZooma("organism part", "liver")).isEqualTo(Optional.empty());
+		zoomaProcessor.close();
+		assertThat(zooma.getRequests()).isEqualTo(2);
+	}
+
+	@Test
+	public void testConcurrency() throws Exception {
+		zooma.setDelayMillis(50);
+		ZoomaProcessor zoomaProcessor = getZoomaProcessor(new ZoomaAnnotationCache(), 3, 0);
+		List<Attribute> attributes = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			attributes.add(Attribute.build("organism part", "tissue "+i));
+		}
+		queryConcurrently(zoomaProcessor, attributes);
+		assertThat(zooma.getRequests()).isEqualTo(12);
+		assertThat(zooma.getMaxActive()).isBetween(2, 3);
+	}
+
+	@Test
+	public void testRateLimit() throws Exception {
+		ZoomaProcessor zoomaProcessor = getZoomaProcessor(new ZoomaAnnotationCache(), 4, 20);
+		List<Attribute> attributes = new ArrayList<>();
+		for (int i = 0; i < 11; i++) {
+			attributes.add(Attribute.build("organism part", "tissue "+i));
+		}
+		long start = System.nanoTime();
+		queryConcurrently(zoomaProcessor, attributes);
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+		assertThat(zooma.getRequests()).isEqualTo(11);
+		//the first request is immediate, the other ten are 50ms apart
+		assertThat(elapsedMillis).isGreaterThanOrEqualTo(450);
+	}
+
+	@Test
+	public void testIsZoomable() throws Exception {
+		ZoomaProcessor zoomaProcessor = getZoomaProcessor(new ZoomaAnnotationCache(), 1, 0);
+		for (Attribute attribute : Arrays.asList(
+				Attribute.build("organism", "Homo sapiens", "http://purl.obolibrary.org/obo/NCBITaxon_9606", null),
+				Attribute.build("age", "10", (String) null, "year"),
+				Attribute.build("description", "a sample"),
+				Attribute.build("weight", "10.5"),
+				Attribute.build("ENA accession", "ERS000123"),
+				Attribute.build("same as", "SAMEA123456"))) {
+			assertThat(zoomaProcessor.isZoomable(attribute)).as(attribute.toString()).isFalse();
+		}
+		assertThat(zoomaProcessor.isZoomable(Attribute.build("organism", "Homo sapiens"))).isTrue();
+		assertThat(zoomaProcessor.isZoomable(Attribute.build("Description", "a sample"))).isFalse();
+		assertThat(zoomaProcessor.isZoomable(Attribute.build("INSDC status", "public"))).isFalse();
+		assertThat(zoomaProcessor.isZoomable(Attribute.build("geo accession", "GSM1234"))).isFalse();
+		assertThat(zooma.getRequests()).isZero();
+	}
+
+	/**
+	 * Looks up each attribute on its own thread, as samples being curated at the same time would
+	 */
+	private void queryConcurrently(ZoomaProcessor zoomaProcessor, List<Attribute> attributes) throws Exception {
+		ExecutorService executorService = Executors.newFixedThreadPool(attributes.size());
+		try {
+			List<Future<Optional<String>>> futures = new ArrayList<>();
+			for (Attribute attribute : attributes) {
+				futures.add(executorService.submit(() -> zoomaProcessor.queryZooma(attribute.getType(), attribute.getValue())));
+			}
+			for (Future<Optional<String>> future : futures) {
+				future.get();
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private ZoomaProcessor getZoomaProcessor(ZoomaAnnotationCache annotationCache, int concurrency, double rateLimit) {
+		return new ZoomaProcessor(new RestTemplate(), zooma.getUri(), annotationCache, concurrency, rateLimit);
+	}
+}
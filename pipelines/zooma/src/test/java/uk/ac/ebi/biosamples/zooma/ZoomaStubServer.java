@@ -0,0 +1,90 @@
+package uk.ac.ebi.biosamples.zooma;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local http server that answers zooma annotate requests from a map of property values
+ * to responses, and records how many requests it has had and how many were handled at once.
+ */
+public class ZoomaStubServer implements AutoCloseable {
+
+	private final HttpServer server;
+	private final Map<String, String> responses = new ConcurrentHashMap<>();
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicInteger maxActive = new AtomicInteger();
+	private volatile long delayMillis = 0;
+
+	public ZoomaStubServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/v2/api/services/annotate", exchange -> {
+			int current = active.incrementAndGet();
+			maxActive.accumulateAndGet(current, Math::max);
+			requests.incrementAndGet();
+			try {
+				if (delayMillis > 0) {
+					Thread.sleep(delayMillis);
+				}
+				String value = UriUtils.decode(UriComponentsBuilder.fromUri(exchange.getRequestURI()).build()
+						.getQueryParams().getFirst("propertyValue"), "UTF-8");
+				byte[] body = responses.getOrDefault(value, "[]").getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream outputStream = exchange.getResponseBody()) {
+					outputStream.write(body);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				active.decrementAndGet();
+				exchange.close();
+			}
+		});
+		server.start();
+	}
+
+	public String getUri() {
+		return "http://localhost:"+server.getAddress().getPort();
+	}
+
+	/**
+	 * Maps the value to a single high confidence annotation of the iri.
+	 */
+	public void map(String value, String iri) {
+		respond(value, "[{\"confidence\":\"HIGH\",\"semanticTags\":[\""+iri+"\"]}]");
+	}
+
+	public void respond(String value, String json) {
+		responses.put(value, json);
+	}
+
+	public void setDelayMillis(long delayMillis) {
+		this.delayMillis = delayMillis;
+	}
+
+	public int getRequests() {
+		return requests.get();
+	}
+
+	public int getMaxActive() {
+		return maxActive.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+}
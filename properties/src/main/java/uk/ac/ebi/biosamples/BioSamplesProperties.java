@@ -62,6 +62,17 @@ public class BioSamplesProperties {
 	@Value("${biosamples.ols:https://wwwdev.ebi.ac.uk/ols}")
 	private String ols;
 
+	//ols used to describe the ontology terms of phenopackets, which clients see, so production unless set
+	@Value("${biosamples.ga4gh.ols:https://www.ebi.ac.uk/ols}")
+	private String ga4ghOls;
+
+	//number of ontology terms and ontologies looked up from ols held in memory
+	@Value("${biosamples.ols.cache.maxsize:10000}")
+	private int olsCacheMaxSize;
+
+	@Value("${biosamples.ols.threadcount:8}")
+	private int olsThreadCount;
+
 	@Value("${biosamples.webapp.sampletab.uri:http://localhost:8082/biosamples/sampletab}")
 	private URI biosamplesWebappSampletabUri;
 
@@ -81,8 +92,62 @@ public class BioSamplesProperties {
 	@Value("${biosamples.webapp.core.page.cache.maxage:300}")
 	private int webappCorePageCacheMaxAge;
 
+	//in milliseconds, updates to the same related sample within this window are rebuilt once
+	@Value("${biosamples.webapp.core.relationships.window:2000}")
+	private int webappCoreRelationshipsWindow;
+
+	@Value("${biosamples.webapp.core.relationships.threadcount:8}")
+	private int webappCoreRelationshipsThreadCount;
+
+	//max number of related samples rebuilt for a single stored sample
+	@Value("${biosamples.webapp.core.relationships.fanout.max:1000}")
+	private int webappCoreRelationshipsFanoutMax;
+
+	//max number of relationship hops followed when walking derived from graphs
+	@Value("${biosamples.webapp.core.relationships.depth.max:10}")
+	private int webappCoreRelationshipsDepthMax;
+
+	//in milliseconds, how long a search page will wait for its facets before rendering without them
+	@Value("${biosamples.webapp.core.facet.timeout:3000}")
+	private int webappCoreFacetTimeout;
+
+	@Value("${biosamples.webapp.core.facet.threadcount:16}")
+	private int webappCoreFacetThreadCount;
+
+	//facet requests waiting beyond this are rejected and rendered without facets
+	@Value("${biosamples.webapp.core.facet.queue.max:128}")
+	private int webappCoreFacetQueueMax;
+
+	//number of most frequent terms held in memory to serve autocomplete
+	@Value("${biosamples.webapp.core.autocomplete.terms.max:100000}")
+	private int webappCoreAutocompleteTermsMax;
+
+	//in seconds, how often the in-memory autocomplete terms are reloaded from solr
+	@Value("${biosamples.webapp.core.autocomplete.refresh:600}")
+	private int webappCoreAutocompleteRefresh;
+
+	//number of rendered sample ld+json documents held in memory
+	@Value("${biosamples.webapp.core.jsonld.cache.maxsize:10000}")
+	private int webappCoreJsonLDCacheMaxSize;
+
 	@Value("${biosamples.schema.validator.uri:http://localhost:8085/validate}")
 	private URI biosamplesSchemaValidatorServiceUri;
+
+	//send schemas that can't be validated in-process to the external validator at the uri above
+	@Value("${biosamples.schema.validator.fallback:false}")
+	private boolean biosamplesSchemaValidatorFallback;
+
+	//number of compiled json schemas held in memory
+	@Value("${biosamples.schema.validator.cache.maxsize:100}")
+	private int biosamplesSchemaValidatorCacheMaxSize;
+
+	//read samples for the legacy json api through the mongo services in the same process, rather than from the core webapp over http
+	@Value("${biosamples.webapp.legacyjson.inprocess:false}")
+	private boolean webappLegacyJsonInProcess;
+
+	//number of samples whose related accessions for the legacy json api are held in memory
+	@Value("${biosamples.webapp.legacyjson.relations.cache.maxsize:10000}")
+	private int webappLegacyJsonRelationsCacheMaxSize;
 	
 	public URI getBiosamplesClientUri() {
 		return biosamplesClientUri;
@@ -148,6 +213,18 @@ public class BioSamplesProperties {
 		return ols;
 	}
 
+	public String getGa4ghOls() {
+		return ga4ghOls;
+	}
+
+	public int getOlsCacheMaxSize() {
+		return olsCacheMaxSize;
+	}
+
+	public int getOlsThreadCount() {
+		return olsThreadCount;
+	}
+
 	public int getBiosamplesCorePageThreadCount() {
 		return webappCorePageThreadCount;
 	}
@@ -160,6 +237,46 @@ public class BioSamplesProperties {
 		return webappCorePageCacheMaxAge;
 	}
 
+	public int getBiosamplesCoreRelationshipsWindow() {
+		return webappCoreRelationshipsWindow;
+	}
+
+	public int getBiosamplesCoreRelationshipsThreadCount() {
+		return webappCoreRelationshipsThreadCount;
+	}
+
+	public int getBiosamplesCoreRelationshipsFanoutMax() {
+		return webappCoreRelationshipsFanoutMax;
+	}
+
+	public int getBiosamplesCoreRelationshipsDepthMax() {
+		return webappCoreRelationshipsDepthMax;
+	}
+
+	public int getBiosamplesCoreFacetTimeout() {
+		return webappCoreFacetTimeout;
+	}
+
+	public int getBiosamplesCoreFacetThreadCount() {
+		return webappCoreFacetThreadCount;
+	}
+
+	public int getBiosamplesCoreFacetQueueMax() {
+		return webappCoreFacetQueueMax;
+	}
+
+	public int getBiosamplesCoreAutocompleteTermsMax() {
+		return webappCoreAutocompleteTermsMax;
+	}
+
+	public int getBiosamplesCoreAutocompleteRefresh() {
+		return webappCoreAutocompleteRefresh;
+	}
+
+	public int getBiosamplesCoreJsonLDCacheMaxSize() {
+		return webappCoreJsonLDCacheMaxSize;
+	}
+
 	public URI getBiosamplesWebappCoreUri() {
 		return biosamplesWebappCoreUri;
 	}
@@ -175,4 +292,20 @@ public class BioSamplesProperties {
 	public URI getBiosamplesSchemaValidatorServiceUri() {
 		return biosamplesSchemaValidatorServiceUri;
 	}
+
+	public boolean getBiosamplesSchemaValidatorFallback() {
+		return biosamplesSchemaValidatorFallback;
+	}
+
+	public int getBiosamplesSchemaValidatorCacheMaxSize() {
+		return biosamplesSchemaValidatorCacheMaxSize;
+	}
+
+	public boolean getBiosamplesLegacyJsonInProcess() {
+		return webappLegacyJsonInProcess;
+	}
+
+	public int getBiosamplesLegacyJsonRelationsCacheMaxSize() {
+		return webappLegacyJsonRelationsCacheMaxSize;
+	}
 }
@@ -130,14 +130,24 @@ public class CurationReadService {
 			return sample;
 		}
 
-		//Try to apply curations in the order of creation date.
+		return applyCurationLinksToSample(sample, getAllCurationLinksForSample(sample.getAccession(), curationDomains));
+	}
+
+	/**
+	 * Gets all the curation links for a sample in order of creation date, optionally 
+	 * restricted to a set of curation domains.
+	 */
+	public Collection<CurationLink> getAllCurationLinksForSample(String accession, Optional<List<String>> curationDomains) {
 		//Because of the index in creation date mongo returns in that order
 		Set<CurationLink> curationLinks = new LinkedHashSet<>();
+		if (curationDomains.isPresent() && curationDomains.get().isEmpty()) {
+			return curationLinks;
+		}
 		int pageNo = 0;
 		Page<CurationLink> page;
 		do {
 			Pageable pageable = new PageRequest(pageNo, 1000, Sort.Direction.ASC, "created");
-			page = getCurationLinksForSample(sample.getAccession(), pageable);
+			page = getCurationLinksForSample(accession, pageable);
 			for (CurationLink curationLink : page) {
 				if (curationDomains.isPresent()) {
 					//curation domains restricted, curation must be part of that domain
@@ -151,7 +161,14 @@ public class CurationReadService {
 			}
 			pageNo += 1;
 		} while(pageNo < page.getTotalPages());
+		return curationLinks;
+	}
 
+	/**
+	 * Applies curation links that have already been loaded to a sample, trying 
+	 * them in the order given.
+	 */
+	public Sample applyCurationLinksToSample(Sample sample, Collection<CurationLink> curationLinks) {
 		boolean failedCuration = false;
 		for(CurationLink curation : curationLinks) {
 			try {
@@ -4,14 +4,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.model.CurationLink;
 import uk.ac.ebi.biosamples.model.Sample;
 import uk.ac.ebi.biosamples.model.StaticViewWrapper;
+import uk.ac.ebi.biosamples.mongo.model.MongoRelationship;
 import uk.ac.ebi.biosamples.mongo.model.MongoSample;
 import uk.ac.ebi.biosamples.mongo.repo.MongoSampleRepository;
 import uk.ac.ebi.biosamples.mongo.service.MongoInverseRelationshipService;
 import uk.ac.ebi.biosamples.mongo.service.MongoSampleToSampleConverter;
 import uk.ac.ebi.biosamples.utils.AdaptiveThreadPoolExecutor;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Callable;
@@ -127,6 +130,26 @@ public class SampleReadService {
         return executorService.submit(() -> fetch(accession, curationDomains, staticViews));
     }
 
+    public Future<Collection<CurationLink>> fetchCurationLinksAsync(String accession) {
+        return executorService.submit(() -> curationReadService.getAllCurationLinksForSample(accession, Optional.empty()));
+    }
+
+    public Future<List<MongoRelationship>> fetchInverseRelationshipsAsync(String accession) {
+        return executorService.submit(() -> mongoInverseRelationshipService.getInverseRelationships(accession));
+    }
+
+    /**
+     * Builds the same curated sample as fetch does, but from a document that has
+     * just been written plus inverse relationships and curation links that were
+     * loaded separately, so that the sample does not need to be read back.
+     */
+    public Sample buildSample(MongoSample mongoSample, Collection<MongoRelationship> inverseRelationships,
+                              Collection<CurationLink> curationLinks) {
+        mongoSample.getRelationships().addAll(inverseRelationships);
+        Sample sample = mongoSampleToSampleConverter.convert(mongoSample);
+        return curationReadService.applyCurationLinksToSample(sample, curationLinks);
+    }
+
     private static class FetchCallable implements Callable<Optional<Sample>> {
 
         private final SampleReadService sampleReadService;
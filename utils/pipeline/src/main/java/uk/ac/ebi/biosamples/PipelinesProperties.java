@@ -50,7 +50,24 @@ public class PipelinesProperties {
 	
 	@Value("${biosamples.pipelines.zooma.domain:self.BiosampleZooma}")
 	private String zoomaDomain;
+
+	//file that zooma results are kept in between runs, or empty to only keep them in memory
+	@Value("${biosamples.pipelines.zooma.cache:/tmp/biosamples/zooma-cache.tsv}")
+	private String zoomaCache;
+
+	@Value("${biosamples.pipelines.zooma.concurrency:4}")
+	private int zoomaConcurrency;
+
+	@Value("${biosamples.pipelines.zooma.ratelimit:10}")
+	private double zoomaRateLimit;
 	
+	@Value("${biosamples.pipelines.curami.rules.refresh:60}")
+	private int curamiRulesRefresh;
+
+	//also apply rules to types that differ from them only in case, whitespace, underscores and hyphens
+	@Value("${biosamples.pipelines.curami.rules.normalise:false}")
+	private boolean curamiRulesNormalise;
+
 	@Value("${biosamples.pipelines.copydown.domain:self.BiosampleCopydown}")
 	private String copydownDomain;
 	
@@ -75,6 +92,21 @@ public class PipelinesProperties {
 	public String getZoomaDomain() {
 		return zoomaDomain;
 	}
+	public String getZoomaCache() {
+		return zoomaCache;
+	}
+	public int getZoomaConcurrency() {
+		return zoomaConcurrency;
+	}
+	public double getZoomaRateLimit() {
+		return zoomaRateLimit;
+	}
+	public int getCuramiRulesRefresh() {
+		return curamiRulesRefresh;
+	}
+	public boolean getCuramiRulesNormalise() {
+		return curamiRulesNormalise;
+	}
 	public String getCopydownDomain() {
 		return copydownDomain;
 	}
@@ -0,0 +1,73 @@
+package uk.ac.ebi.biosamples.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import uk.ac.ebi.biosamples.model.filter.Filter;
+import uk.ac.ebi.biosamples.service.FilterBuilder;
+
+/**
+ * Splits the samples by accession so that pipelines can fetch them in parallel. There is one
+ * partition per known accession prefix, and a catch-all partition of every accession that
+ * doesn't have one of those prefixes followed by digits, so no sample is left out.
+ *
+ * The patterns are solr regular expressions, which use the lucene syntax where ~ is the
+ * complement of the expression that follows.
+ */
+public class AccessionPartitions {
+
+	public static final List<String> PREFIXES = Collections.unmodifiableList(
+			Arrays.asList("SAMD", "SAME", "SAMEA", "SAMEG", "SAMN"));
+
+	public static final String OTHER = "other";
+
+	private AccessionPartitions() {
+	}
+
+	/**
+	 * Names of all the partitions, the prefixes followed by {@link #OTHER}
+	 */
+	public static List<String> all() {
+		List<String> partitions = new ArrayList<>(PREFIXES);
+		partitions.add(OTHER);
+		return partitions;
+	}
+
+	/**
+	 * Pattern the accessions of the named partition match
+	 */
+	public static String getPattern(String partition) {
+		if (OTHER.equals(partition)) {
+			return "~(" + getPrefixesPattern() + "[0-9]+)";
+		} else if (PREFIXES.contains(partition)) {
+			return partition + "[0-9]+";
+		} else {
+			throw new IllegalArgumentException("Unknown accession partition " + partition);
+		}
+	}
+
+	/**
+	 * Pattern the accessions of a prefix ending in the given digit match. The final digit
+	 * spreads the samples of a prefix evenly, unlike leading digits which depend on how many
+	 * digits the accession has.
+	 */
+	public static String getPattern(String prefix, int lastDigit) {
+		if (!PREFIXES.contains(prefix)) {
+			throw new IllegalArgumentException("Unknown accession prefix " + prefix);
+		}
+		if (lastDigit < 0 || lastDigit > 9) {
+			throw new IllegalArgumentException("Not a digit " + lastDigit);
+		}
+		return prefix + "[0-9]*" + lastDigit;
+	}
+
+	public static Filter getFilter(String pattern) {
+		return FilterBuilder.create().onAccession(pattern).build();
+	}
+
+	private static String getPrefixesPattern() {
+		return "(" + String.join("|", PREFIXES) + ")";
+	}
+}
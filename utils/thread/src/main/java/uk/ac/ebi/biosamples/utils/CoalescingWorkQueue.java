@@ -0,0 +1,114 @@
+package uk.ac.ebi.biosamples.utils;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A work queue that defers each key by a fixed delay and collapses repeated
+ * submissions of the same key within that delay into a single piece of work.
+ * 
+ * A key is removed from the pending set just before its work starts, so a key
+ * submitted while its work is running is processed again afterwards. That way
+ * the last submission is never lost.
+ * 
+ * At most maxQueueSize keys are waiting or being processed at once. Beyond that
+ * submitting a new key blocks the submitter until there is room, which slows the
+ * intake rather than dropping keys. The scheduling thread itself never blocks
+ * or runs work, so delays are kept even when the workers are saturated.
+ *
+ */
+public class CoalescingWorkQueue<K> implements AutoCloseable {
+
+	private Logger log = LoggerFactory.getLogger(this.getClass());
+
+	private final Set<K> pending = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+	private final ExecutorService workers;
+	private final Semaphore capacity;
+	private final long delay;
+	private final Consumer<K> work;
+
+	public CoalescingWorkQueue(long delay, int threadCount, int maxQueueSize, Consumer<K> work) {
+		this.delay = delay;
+		this.work = work;
+		//the capacity bounds the work queue, so it doesn't need to be bounded itself
+		this.workers = Executors.newFixedThreadPool(threadCount);
+		this.capacity = new Semaphore(maxQueueSize);
+	}
+
+	/**
+	 * Blocks while the queue is full.
+	 * 
+	 * @return true if the key was queued, false if it was already pending or the
+	 *         submitting thread was interrupted while waiting
+	 * @throws RejectedExecutionException if the queue has been closed
+	 */
+	public boolean submit(K key) {
+		if (!pending.add(key)) {
+			return false;
+		}
+		try {
+			capacity.acquire();
+		} catch (InterruptedException e) {
+			pending.remove(key);
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		try {
+			scheduler.schedule(() -> start(key), delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			//closed, so the key would otherwise stay pending forever
+			pending.remove(key);
+			capacity.release();
+			throw e;
+		}
+		return true;
+	}
+
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	private void start(K key) {
+		pending.remove(key);
+		try {
+			workers.execute(() -> process(key));
+		} catch (RejectedExecutionException e) {
+			capacity.release();
+			log.error("Unable to process " + key, e);
+		}
+	}
+
+	private void process(K key) {
+		try {
+			work.accept(key);
+		} catch (RuntimeException e) {
+			log.error("Problem processing " + key, e);
+		} finally {
+			capacity.release();
+		}
+	}
+
+	/**
+	 * Stops accepting new keys, runs whatever is already pending and waits up to 
+	 * a minute for it to finish.
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		//delayed tasks still run after shutdown by default
+		scheduler.shutdown();
+		scheduler.awaitTermination(1, TimeUnit.MINUTES);
+		workers.shutdown();
+		workers.awaitTermination(1, TimeUnit.MINUTES);
+	}
+}
@@ -0,0 +1,106 @@
+package uk.ac.ebi.biosamples.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CoalescingWorkQueueTest {
+
+	@Test
+	public void repeated_keys_within_delay_are_processed_once() throws Exception {
+		List<String> processed = new CopyOnWriteArrayList<>();
+		CoalescingWorkQueue<String> queue = new CoalescingWorkQueue<>(200, 2, 10, processed::add);
+		assertTrue(queue.submit("SAMEA1"));
+		assertFalse(queue.submit("SAMEA1"));
+		assertTrue(queue.submit("SAMEA2"));
+		assertFalse(queue.submit("SAMEA1"));
+		queue.close();
+
+		assertEquals(2, processed.size());
+		assertTrue(processed.contains("SAMEA1"));
+		assertTrue(processed.contains("SAMEA2"));
+	}
+
+	@Test
+	public void key_is_processed_again_once_started() throws Exception {
+		List<String> processed = new CopyOnWriteArrayList<>();
+		CoalescingWorkQueue<String> queue = new CoalescingWorkQueue<>(10, 1, 10, processed::add);
+		queue.submit("SAMEA1");
+		while (queue.getPendingCount() > 0) {
+			Thread.sleep(5);
+		}
+		assertTrue(queue.submit("SAMEA1"));
+		queue.close();
+
+		assertEquals(2, processed.size());
+	}
+
+	@Test
+	public void failing_work_does_not_stop_queue() throws Exception {
+		List<String> processed = new CopyOnWriteArrayList<>();
+		CoalescingWorkQueue<String> queue = new CoalescingWorkQueue<>(10, 1, 10, key -> {
+			if (key.equals("bad")) {
+				throw new IllegalStateException("bad key");
+			}
+			processed.add(key);
+		});
+		queue.submit("bad");
+		queue.submit("good");
+		queue.close();
+
+		assertEquals(1, processed.size());
+	}
+
+	@Test
+	public void full_queue_blocks_submitter_without_running_work() throws Exception {
+		List<String> processed = new CopyOnWriteArrayList<>();
+		CountDownLatch release = new CountDownLatch(1);
+		CoalescingWorkQueue<String> queue = new CoalescingWorkQueue<>(10, 1, 1, key -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			processed.add(key + "@" + Thread.currentThread().getName());
+		});
+		queue.submit("SAMEA1");
+
+		CountDownLatch submitted = new CountDownLatch(1);
+		Thread submitter = new Thread(() -> {
+			queue.submit("SAMEA2");
+			submitted.countDown();
+		});
+		submitter.start();
+		assertFalse(submitted.await(100, TimeUnit.MILLISECONDS));
+
+		release.countDown();
+		assertTrue(submitted.await(1, TimeUnit.SECONDS));
+		queue.close();
+
+		assertEquals(2, processed.size());
+		for (String entry : processed) {
+			assertTrue(entry.contains("pool"));
+		}
+	}
+
+	@Test
+	public void submit_after_close_does_not_leave_key_pending() throws Exception {
+		CoalescingWorkQueue<String> queue = new CoalescingWorkQueue<>(10, 1, 10, key -> {});
+		queue.close();
+		try {
+			queue.submit("SAMEA1");
+		} catch (RejectedExecutionException e) {
+			assertEquals(0, queue.getPendingCount());
+			return;
+		}
+		throw new AssertionError("Expected the closed queue to reject the key");
+	}
+}
@@ -4,9 +4,8 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
-import org.dom4j.Document;
-import org.dom4j.io.OutputFormat;
-import org.dom4j.io.XMLWriter;
+import javax.xml.stream.XMLStreamException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpInputMessage;
@@ -20,16 +19,15 @@ import uk.ac.ebi.biosamples.model.Sample;
 
 public class SampleAsXMLHttpMessageConverter extends AbstractHttpMessageConverter<Sample> {
 	
-	private final SampleToXmlConverter sampleToXmlConverter;
-	private final OutputFormat format = OutputFormat.createCompactFormat();
+	private final SampleToXmlStreamWriter sampleToXmlStreamWriter;
 	
 	private final List<MediaType> DEFAULT_SUPPORTED_MEDIA_TYPES = Arrays.asList(MediaType.APPLICATION_XML, MediaType.TEXT_XML);
 
 	private Logger log = LoggerFactory.getLogger(getClass());
 
-	public SampleAsXMLHttpMessageConverter(SampleToXmlConverter sampleToXmlConverter) {
+	public SampleAsXMLHttpMessageConverter(SampleToXmlStreamWriter sampleToXmlStreamWriter) {
 		this.setSupportedMediaTypes(this.DEFAULT_SUPPORTED_MEDIA_TYPES);
-		this.sampleToXmlConverter = sampleToXmlConverter;
+		this.sampleToXmlStreamWriter = sampleToXmlStreamWriter;
 	}
 
 	@Override
@@ -47,11 +45,12 @@ public class SampleAsXMLHttpMessageConverter extends AbstractHttpMessageConverte
 	protected void writeInternal(Sample sample, HttpOutputMessage outputMessage)
 			throws IOException, HttpMessageNotWritableException {
 		log.trace("Writing message");
-		Document doc = sampleToXmlConverter.convert(sample);
-		XMLWriter writer = new XMLWriter(outputMessage.getBody(), format);
-		writer.write(doc);
-		//don't close the writer, underlying outputstream will be closed elsewhere
-		//writer.close();
+		try {
+			//written straight to the response rather than building a document first
+			sampleToXmlStreamWriter.write(sample, outputMessage.getBody());
+		} catch (XMLStreamException e) {
+			throw new HttpMessageNotWritableException("Unable to write xml", e);
+		}
 	}
 
 }
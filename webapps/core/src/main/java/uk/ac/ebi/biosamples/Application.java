@@ -22,7 +22,7 @@ import uk.ac.ebi.biosamples.mongo.service.MongoSampleToSampleConverter;
 import uk.ac.ebi.biosamples.mongo.service.SampleToMongoSampleConverter;
 import uk.ac.ebi.biosamples.service.AmrTableConverter;
 import uk.ac.ebi.biosamples.service.SampleAsXMLHttpMessageConverter;
-import uk.ac.ebi.biosamples.service.SampleToXmlConverter;
+import uk.ac.ebi.biosamples.service.SampleToXmlStreamWriter;
 
 import javax.servlet.Filter;
 import java.util.concurrent.Executor;
@@ -44,8 +44,8 @@ public class Application extends SpringBootServletInitializer {
 	}
 
 	@Bean
-	public HttpMessageConverter<Sample> getXmlSampleHttpMessageConverter(SampleToXmlConverter sampleToXmlConverter) {
-		return new SampleAsXMLHttpMessageConverter(sampleToXmlConverter);
+	public HttpMessageConverter<Sample> getXmlSampleHttpMessageConverter(SampleToXmlStreamWriter sampleToXmlStreamWriter) {
+		return new SampleAsXMLHttpMessageConverter(sampleToXmlStreamWriter);
 	}
 
     @Bean(name = "threadPoolTaskExecutor")
@@ -1,8 +1,14 @@
 package uk.ac.ebi.biosamples.controller;
 
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import uk.ac.ebi.biosamples.service.AccessionsService;
+import uk.ac.ebi.biosamples.service.FilterService;
+import uk.ac.ebi.biosamples.solr.repo.CursorArrayList;
+import uk.ac.ebi.biosamples.utils.LinkUtils;
 
 import java.util.List;
 
@@ -11,9 +17,11 @@ import java.util.List;
 public class AccessionsRestController {
 
     private final AccessionsService accessionsService;
+    private final FilterService filterService;
 
-    public AccessionsRestController(AccessionsService accessionsService) {
+    public AccessionsRestController(AccessionsService accessionsService, FilterService filterService) {
         this.accessionsService = accessionsService;
+        this.filterService = filterService;
     }
 
     @CrossOrigin(methods = RequestMethod.GET)
@@ -25,4 +33,33 @@ public class AccessionsRestController {
         return accessionsService.getAccessions(project, limit);
     }
 
+    /**
+     * Accessions of all the public samples matching the filters, e.g. to produce a list of live
+     * samples. Paged with a solr cursor, starting from cursor=* and following the next link in the
+     * Link header until there is none.
+     */
+    @CrossOrigin(methods = RequestMethod.GET)
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE}, params = "cursor")
+    public ResponseEntity<List<String>> getAccessionsByCursor(
+            @RequestParam(name = "filter", required = false) String[] filter,
+            @RequestParam(name = "cursor") String cursor,
+            @RequestParam(name = "size", required = false, defaultValue = "1000") int size
+    ) {
+        String[] decodedFilter = LinkUtils.decodeTexts(filter);
+        String decodedCursor = LinkUtils.decodeText(cursor);
+
+        CursorArrayList<String> accessions = accessionsService.getAccessions(
+                filterService.getFiltersCollection(decodedFilter), decodedCursor, size);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        //only link to the next page if there is a next cursor to go to
+        if (!LinkUtils.decodeText(accessions.getNextCursorMark()).equals(decodedCursor)
+                && !accessions.getNextCursorMark().equals("*")) {
+            Link next = SamplesRestController.getCursorLink(null, decodedFilter, accessions.getNextCursorMark(), size,
+                    Link.REL_NEXT, this.getClass());
+            response.header(HttpHeaders.LINK, next.toString());
+        }
+        return response.body(accessions);
+    }
+
 }
@@ -6,7 +6,6 @@ import uk.ac.ebi.biosamples.exception.SampleNotAccessibleException;
 import uk.ac.ebi.biosamples.exception.SampleNotFoundException;
 import uk.ac.ebi.biosamples.model.JsonLDDataCatalog;
 import uk.ac.ebi.biosamples.model.JsonLDDataset;
-import uk.ac.ebi.biosamples.model.JsonLDDataRecord;
 import uk.ac.ebi.biosamples.model.Sample;
 import uk.ac.ebi.biosamples.service.BioSamplesAapService;
 import uk.ac.ebi.biosamples.service.JsonLDService;
@@ -44,9 +43,9 @@ public class BioschemasController {
 
     @PreAuthorize("isAuthenticated()")
     @CrossOrigin(methods = RequestMethod.GET)
-    @GetMapping(value="/samples/{accession}", produces = "application/ld+json")
-    public JsonLDDataRecord getJsonLDSample(@PathVariable String accession,
-                                            @RequestParam(name = "curationrepo", required = false) final String curationRepo) {
+    @GetMapping(value="/samples/{accession}", produces = "application/ld+json;charset=UTF-8")
+    public String getJsonLDSample(@PathVariable String accession,
+                                  @RequestParam(name = "curationrepo", required = false) final String curationRepo) {
         Optional<Sample> sample = sampleService.fetch(accession, Optional.empty(), curationRepo);
         if (!sample.isPresent()) {
             throw new SampleNotFoundException();
@@ -59,7 +58,7 @@ public class BioschemasController {
             throw new SampleNotAccessibleException();
         }
 
-        return jsonLDService.sampleToJsonLD(sample.get());
+        return jsonLDService.sampleToJsonLDString(sample.get());
     }
 
 }
@@ -0,0 +1,142 @@
+package uk.ac.ebi.biosamples.controller;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.mvc.ControllerLinkBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import uk.ac.ebi.biosamples.model.CurationLink;
+import uk.ac.ebi.biosamples.model.CurationLinkQuery;
+import uk.ac.ebi.biosamples.model.CurationLinkUndoReport;
+import uk.ac.ebi.biosamples.service.BioSamplesAapService;
+import uk.ac.ebi.biosamples.service.CurationLinkResourceAssembler;
+import uk.ac.ebi.biosamples.service.CurationPersistService;
+
+/**
+ * Curation links across many samples, e.g. to submit those generated by a curation pipeline
+ * in batches rather than one request per link.
+ */
+@RestController
+@RequestMapping("/curationlinks")
+public class CurationLinksRestController {
+
+	private final CurationPersistService curationPersistService;
+	private final CurationLinkResourceAssembler curationLinkResourceAssembler;
+	private final BioSamplesAapService bioSamplesAapService;
+
+	private Logger log = LoggerFactory.getLogger(getClass());
+
+	public CurationLinksRestController(CurationPersistService curationPersistService,
+			CurationLinkResourceAssembler curationLinkResourceAssembler, BioSamplesAapService bioSamplesAapService) {
+		this.curationPersistService = curationPersistService;
+		this.curationLinkResourceAssembler = curationLinkResourceAssembler;
+		this.bioSamplesAapService = bioSamplesAapService;
+	}
+
+	/**
+	 * Stores each of the curation links, in the same way as posting them to their samples one
+	 * at a time. The response only contains the links that were new, links that were already
+	 * stored are left unchanged.
+	 */
+	@PreAuthorize("isAuthenticated()")
+	@PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE}, produces = { MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<Resources<Resource<CurationLink>>> createCurationLinksJson(
+			@RequestBody List<CurationLink> curationLinks) {
+
+		log.info("Received POST for " + curationLinks.size() + " curation links");
+
+		Instant created = Instant.now();
+		List<CurationLink> checkedCurationLinks = new ArrayList<>(curationLinks.size());
+		for (CurationLink curationLink : curationLinks) {
+			if (curationLink.getSample() == null) {
+				throw new CurationLinkSampleMissingException();
+			}
+			curationLink = CurationLink.build(curationLink.getSample(), curationLink.getCuration(), curationLink.getDomain(), created);
+			checkedCurationLinks.add(bioSamplesAapService.handleCurationLinkDomain(curationLink));
+		}
+
+		List<Resource<CurationLink>> resources = new ArrayList<>();
+		for (CurationLink curationLink : curationPersistService.storeAll(checkedCurationLinks)) {
+			resources.add(curationLinkResourceAssembler.toResource(curationLink));
+		}
+
+		return ResponseEntity.ok(new Resources<>(resources,
+				ControllerLinkBuilder.linkTo(CurationLinksRestController.class).withSelfRel()));
+	}
+
+	/**
+	 * Starts deleting the curation links selected by the query and reindexing the affected
+	 * samples, e.g. to revert a curation run. Unless dryrun=false is given, only reports what
+	 * would be deleted. This runs in the background, the report is fetched from the location
+	 * returned until it is no longer running.
+	 */
+	@PreAuthorize("isAuthenticated()")
+	@PostMapping(value = "/undo", consumes = {MediaType.APPLICATION_JSON_VALUE}, produces = {MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<CurationLinkUndoReport> undoCurationLinksJson(@RequestBody CurationLinkQuery query,
+			@RequestParam(name = "dryrun", required = false, defaultValue = "true") boolean dryRun) {
+
+		log.info("Received POST to undo curation links of " + query + " dryrun " + dryRun);
+
+		bioSamplesAapService.checkCurationLinkDomain(query.getDomain());
+
+		CurationLinkUndoReport report = curationPersistService.startUndo(query, dryRun);
+		return ResponseEntity.accepted().location(undoLocation(report)).body(report);
+	}
+
+	@PreAuthorize("isAuthenticated()")
+	@GetMapping(value = "/undo/{id}", produces = {MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<CurationLinkUndoReport> getUndoCurationLinksJson(@PathVariable String id) {
+		CurationLinkUndoReport report = curationPersistService.fetchUndo(id)
+				.orElseThrow(CurationLinkUndoNotFoundException::new);
+		bioSamplesAapService.checkCurationLinkDomain(report.getQuery().getDomain());
+		return ResponseEntity.ok(report);
+	}
+
+	/**
+	 * Carries on with an undo that failed or whose server stopped, from where it was
+	 */
+	@PreAuthorize("isAuthenticated()")
+	@PostMapping(value = "/undo/{id}/resume", produces = {MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<CurationLinkUndoReport> resumeUndoCurationLinksJson(@PathVariable String id) {
+		CurationLinkUndoReport report = curationPersistService.fetchUndo(id)
+				.orElseThrow(CurationLinkUndoNotFoundException::new);
+		bioSamplesAapService.checkCurationLinkDomain(report.getQuery().getDomain());
+
+		log.info("Received POST to resume undo " + id);
+
+		report = curationPersistService.resumeUndo(id).orElseThrow(CurationLinkUndoNotFoundException::new);
+		return ResponseEntity.accepted().location(undoLocation(report)).body(report);
+	}
+
+	private static URI undoLocation(CurationLinkUndoReport report) {
+		return ControllerLinkBuilder.linkTo(ControllerLinkBuilder.methodOn(CurationLinksRestController.class)
+				.getUndoCurationLinksJson(report.getId())).toUri();
+	}
+
+	@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Each curation link must have a sample") // 400
+	public static class CurationLinkSampleMissingException extends RuntimeException {
+	}
+
+	@ResponseStatus(value = HttpStatus.NOT_FOUND, reason = "Unknown undo") // 404
+	public static class CurationLinkUndoNotFoundException extends RuntimeException {
+	}
+}
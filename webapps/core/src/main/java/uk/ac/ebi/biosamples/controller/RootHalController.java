@@ -29,7 +29,9 @@ public class RootHalController {
     	ResourceSupport resource = new ResourceSupport();    	
     	    	
     	resource.add(ControllerLinkBuilder.linkTo(SamplesRestController.class).withRel("samples"));
+    	resource.add(ControllerLinkBuilder.linkTo(AccessionsRestController.class).withRel("accessions"));
     	resource.add(ControllerLinkBuilder.linkTo(CurationRestController.class).withRel("curations"));
+    	resource.add(ControllerLinkBuilder.linkTo(CurationLinksRestController.class).withRel("curationLinks"));
     	resource.add(new Link("https://www.ebi.ac.uk/data-protection/privacy-notice/embl-ebi-public-website", "privacyNotice"));
     	resource.add(new Link("https://www.ebi.ac.uk/about/terms-of-use", "termsOfUse"));
     	
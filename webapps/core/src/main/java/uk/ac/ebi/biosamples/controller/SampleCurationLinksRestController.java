@@ -103,12 +103,17 @@ public class SampleCurationLinksRestController {
 		curationLink = bioSamplesAapService.handleCurationLinkDomain(curationLink);	
     	
 		//now actually persist it
-    	curationLink = curationPersistService.store(curationLink);
+    	boolean created = curationPersistService.store(curationLink);
     	Resource<CurationLink> resource = curationLinkResourceAssembler.toResource(curationLink);
 
 		// create the response object with the appropriate status
-		return ResponseEntity.created(URI.create(resource.getLink("self").getHref()))
-				.body(resource);
+		// a link that was already stored is not created again
+		URI location = URI.create(resource.getLink("self").getHref());
+		if (created) {
+			return ResponseEntity.created(location).body(resource);
+		} else {
+			return ResponseEntity.ok().location(location).body(resource);
+		}
     }
 
 	@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Sample must match URL or be omitted") // 400
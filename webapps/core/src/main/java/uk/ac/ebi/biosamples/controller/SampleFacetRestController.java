@@ -57,7 +57,9 @@ public class SampleFacetRestController {
 //		MultiValueMap<String, String> filters = filterService.getFilters(filter);
         Collection<Filter> filters = filterService.getFiltersCollection(filter);
         Collection<String> domains = Collections.emptyList();
-		List<Facet> sampleFacets = facetService.getFacets(text, filters, domains, 10, 10);
+		long facetDeadline = facetService.getDeadline();
+		List<Facet> sampleFacets = facetService.getFacets(
+				facetService.getFacetsAsync(text, filters, domains, 10, 10), facetDeadline);
 
 //    	PagedResources<StringListFacet> resources = new PagedResources<>(
 //    			sampleFacets,
@@ -26,6 +26,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.net.URI;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 
@@ -122,13 +123,16 @@ public class SampleHtmlController {
         Collection<Filter> filterCollection = filterService.getFiltersCollection(filtersArray);
 		Collection<String> domains = bioSamplesAapService.getDomains();
 
-		Pageable pageable = new PageRequest(page-1, size);
-		Page<Sample> pageSample = samplePageService.getSamplesByText(text, filterCollection, domains, pageable, curationRepo);
-
+		//facets are independent of the page of results, so compute them alongside it
 		//default to getting 10 values from 10 facets
-		List<Facet> sampleFacets = facetService.getFacets(text, filterCollection, domains, 10, 10);
+		long facetDeadline = facetService.getDeadline();
+		Future<List<Facet>> futureFacets = facetService.getFacetsAsync(text, filterCollection, domains, 10, 10);
 
+		Pageable pageable = new PageRequest(page-1, size);
+		Page<Sample> pageSample = samplePageService.getSamplesByText(text, filterCollection, domains, pageable, curationRepo);
 
+		//if the facets are not ready by the deadline, render the page without them
+		List<Facet> sampleFacets = facetService.getFacets(futureFacets, facetDeadline);
 
 		//build URLs for the facets depending on if they are enabled or not
 		UriComponentsBuilder uriBuilder = ServletUriComponentsBuilder.fromRequest(request);
@@ -316,7 +320,7 @@ public class SampleHtmlController {
 		//response.setHeader(HttpHeaders.LAST_MODIFIED, String.valueOf(sample.getUpdate().toEpochSecond(ZoneOffset.UTC)));
 		//response.setHeader(HttpHeaders.ETAG, String.valueOf(sample.hashCode()));
 
-		String jsonLDString = jsonLDService.jsonLDToString(jsonLDService.sampleToJsonLD(sample.get()));
+		String jsonLDString = jsonLDService.sampleToJsonLDHtml(sample.get());
 		model.addAttribute("sample", sample.get());
 		model.addAttribute("jsonLD", jsonLDString);
 		//becuase thymleaf can only work with timezoned temporals, not instant
@@ -9,6 +9,7 @@ import uk.ac.ebi.biosamples.solr.repo.CursorArrayList;
 import uk.ac.ebi.biosamples.solr.service.SolrSampleService;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -32,4 +33,18 @@ public class AccessionsService {
         }
         return accessions;
     }
+
+    /**
+     * Accessions of the public samples matching the filters, one cursor page at a time. Only the
+     * accession is read from solr, so this is much cheaper than paging through the samples.
+     */
+    public CursorArrayList<String> getAccessions(Collection<Filter> filters, String cursorMark, int size) {
+        CursorArrayList<SolrSample> results = solrSampleService.fetchSolrSampleByText(null, filters,
+                Collections.emptyList(), cursorMark, size);
+        CursorArrayList<String> accessions = new CursorArrayList<>(results.size(), results.getNextCursorMark());
+        for (SolrSample solrSample : results) {
+            accessions.add(solrSample.getAccession());
+        }
+        return accessions;
+    }
 }
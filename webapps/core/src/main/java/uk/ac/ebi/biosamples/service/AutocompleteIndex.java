@@ -0,0 +1,100 @@
+package uk.ac.ebi.biosamples.service;
+
+import java.util.*;
+
+/**
+ * Immutable in-memory index of weighted autocomplete terms.
+ *
+ * Terms are held in a sorted array so that all terms with a given prefix are a
+ * contiguous range found by binary search. Suggestions for the shortest prefixes,
+ * which match the largest ranges, are computed up front so they do not need to
+ * scan. Suggestions are ordered the same as a solr facet, by weight and then term.
+ */
+public class AutocompleteIndex {
+
+    private static final int PRECOMPUTED_PREFIX_LENGTH = 2;
+
+    private final String[] terms;
+    private final long[] weights;
+    private final int precomputedSize;
+    private final Map<String, List<String>> precomputed = new HashMap<>();
+
+    public AutocompleteIndex(Map<String, Long> termWeights, int precomputedSize) {
+        this.precomputedSize = precomputedSize;
+        terms = termWeights.keySet().toArray(new String[termWeights.size()]);
+        Arrays.sort(terms);
+        weights = new long[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            weights[i] = termWeights.get(terms[i]);
+        }
+
+        Map<String, List<Integer>> byPrefix = new HashMap<>();
+        for (int i = 0; i < terms.length; i++) {
+            for (int length = 0; length <= Math.min(PRECOMPUTED_PREFIX_LENGTH, terms[i].length()); length++) {
+                byPrefix.computeIfAbsent(terms[i].substring(0, length), k -> new ArrayList<>()).add(i);
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : byPrefix.entrySet()) {
+            List<Integer> indexes = entry.getValue();
+            indexes.sort(this::compareRank);
+            List<String> suggestions = new ArrayList<>(Math.min(precomputedSize, indexes.size()));
+            for (int i = 0; i < indexes.size() && i < precomputedSize; i++) {
+                suggestions.add(terms[indexes.get(i)]);
+            }
+            precomputed.put(entry.getKey(), Collections.unmodifiableList(suggestions));
+        }
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * @param prefix the start of the terms to suggest, or null for any term
+     * @param maxSuggestions the maximum number of terms to return
+     * @return the highest weighted terms starting with the prefix
+     */
+    public List<String> getSuggestions(String prefix, int maxSuggestions) {
+        if (prefix == null) {
+            prefix = "";
+        }
+        if (maxSuggestions <= 0) {
+            return Collections.emptyList();
+        }
+        if (prefix.length() <= PRECOMPUTED_PREFIX_LENGTH && maxSuggestions <= precomputedSize) {
+            List<String> suggestions = precomputed.getOrDefault(prefix, Collections.emptyList());
+            return suggestions.size() <= maxSuggestions ? suggestions : suggestions.subList(0, maxSuggestions);
+        }
+
+        //keep the best suggestions so far with the worst at the head, so it can be replaced
+        PriorityQueue<Integer> best = new PriorityQueue<>(maxSuggestions, (a, b) -> compareRank(b, a));
+        int start = Arrays.binarySearch(terms, prefix);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        for (int i = start; i < terms.length && terms[i].startsWith(prefix); i++) {
+            if (best.size() < maxSuggestions) {
+                best.add(i);
+            } else if (compareRank(i, best.peek()) < 0) {
+                best.poll();
+                best.add(i);
+            }
+        }
+
+        List<Integer> indexes = new ArrayList<>(best);
+        indexes.sort(this::compareRank);
+        List<String> suggestions = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            suggestions.add(terms[index]);
+        }
+        return suggestions;
+    }
+
+    private int compareRank(int a, int b) {
+        int byWeight = Long.compare(weights[b], weights[a]);
+        if (byWeight != 0) {
+            return byWeight;
+        }
+        return Integer.compare(a, b);
+    }
+}
@@ -0,0 +1,83 @@
+package uk.ac.ebi.biosamples.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.model.Autocomplete;
+import uk.ac.ebi.biosamples.model.filter.Filter;
+import uk.ac.ebi.biosamples.solr.service.SolrSampleService;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves unfiltered autocomplete from an in-memory index of the most frequent
+ * terms, which is periodically reloaded from solr in the background.
+ *
+ * Filtered requests, and any requests before the first load has completed,
+ * are passed through to solr. So are requests that the index has too few
+ * suggestions for when it was truncated to the maximum number of terms, as the
+ * less frequent terms left out of it may match.
+ */
+@Service
+public class AutocompleteService {
+
+    //number of suggestions precomputed for short prefixes, larger requests are computed on demand
+    private static final int PRECOMPUTED_SUGGESTIONS = 50;
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    private final SolrSampleService solrSampleService;
+    private final int maxTerms;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    private volatile AutocompleteIndex autocompleteIndex = null;
+
+    public AutocompleteService(SolrSampleService solrSampleService, BioSamplesProperties bioSamplesProperties) {
+        this.solrSampleService = solrSampleService;
+        this.maxTerms = bioSamplesProperties.getBiosamplesCoreAutocompleteTermsMax();
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "autocomplete-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int refresh = bioSamplesProperties.getBiosamplesCoreAutocompleteRefresh();
+        this.scheduledExecutorService.scheduleWithFixedDelay(this::refresh, 0, refresh, TimeUnit.SECONDS);
+    }
+
+    public Autocomplete getAutocomplete(String autocompletePrefix, Collection<Filter> filters, int maxSuggestions) {
+        AutocompleteIndex index = autocompleteIndex;
+        if (index == null || !filters.isEmpty()) {
+            return solrSampleService.getAutocomplete(autocompletePrefix, filters, maxSuggestions);
+        }
+        List<String> suggestions = index.getSuggestions(autocompletePrefix, maxSuggestions);
+        if (suggestions.size() < maxSuggestions && index.size() >= maxTerms) {
+            return solrSampleService.getAutocomplete(autocompletePrefix, filters, maxSuggestions);
+        }
+        return new Autocomplete(autocompletePrefix, suggestions);
+    }
+
+    void refresh() {
+        try {
+            long startTime = System.nanoTime();
+            Map<String, Long> terms = solrSampleService.getAutocompleteTerms(maxTerms);
+            autocompleteIndex = new AutocompleteIndex(terms, PRECOMPUTED_SUGGESTIONS);
+            long endTime = System.nanoTime();
+            log.info("Loaded " + terms.size() + " autocomplete terms in " + ((endTime - startTime) / 1000000) + "ms");
+        } catch (Exception e) {
+            //keep serving the previous index, if any, until the next refresh
+            log.warn("Unable to load autocomplete terms", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduledExecutorService.shutdownNow();
+    }
+}
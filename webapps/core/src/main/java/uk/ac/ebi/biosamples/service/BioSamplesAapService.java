@@ -178,6 +178,24 @@ public class BioSamplesAapService {
 		
 	}
 	
+	/**
+	 * Checks that the current user can change the curation links of the domain, e.g. before
+	 * deleting many of them at once.
+	 * 
+	 * @throws SampleNotAccessibleException
+	 */
+	public void checkCurationLinkDomain(String domain) throws SampleNotAccessibleException {
+		Set<String> usersDomains = getDomains();
+		if (usersDomains.contains(bioSamplesProperties.getBiosamplesAapSuperWrite())) {
+			//if the current user belongs to a super write domain, accessible
+		} else if (usersDomains.contains(domain)) {
+			//if the current user belongs to the domain of the curation links, accessible
+		} else {
+			log.info("User asked to change curations of domain "+domain+" but has access to "+usersDomains);
+			throw new SampleNotAccessibleException();
+		}
+	}
+
 	public boolean isReadSuperUser() {
 		return getDomains().contains(bioSamplesProperties.getBiosamplesAapSuperRead());
 	}
@@ -1,15 +1,39 @@
 package uk.ac.ebi.biosamples.service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import uk.ac.ebi.biosamples.model.CurationLink;
+import uk.ac.ebi.biosamples.model.CurationLinkQuery;
+import uk.ac.ebi.biosamples.model.CurationLinkUndoReport;
+import uk.ac.ebi.biosamples.model.CurationLinkUndoReport.Status;
 import uk.ac.ebi.biosamples.mongo.model.MongoCuration;
 import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLinkUndoJob;
 import uk.ac.ebi.biosamples.mongo.repo.MongoCurationLinkRepository;
+import uk.ac.ebi.biosamples.mongo.repo.MongoCurationLinkUndoJobRepository;
 import uk.ac.ebi.biosamples.mongo.repo.MongoCurationRepository;
 import uk.ac.ebi.biosamples.mongo.service.CurationLinkToMongoCurationLinkConverter;
 import uk.ac.ebi.biosamples.mongo.service.CurationToMongoCurationConverter;
@@ -18,6 +42,12 @@ import uk.ac.ebi.biosamples.mongo.service.MongoCurationLinkToCurationLinkConvert
 @Service
 public class CurationPersistService {
 
+	private static final int DELETE_BATCH_SIZE = 1000;
+	private static final int REPORT_EXAMPLES = 100;
+	//how often a running undo records its progress, and how long without that before it can be resumed
+	private static final Duration UNDO_UPDATE_INTERVAL = Duration.ofSeconds(30);
+	private static final Duration UNDO_STALE = Duration.ofMinutes(10);
+
 	private Logger log = LoggerFactory.getLogger(getClass());
 	
 	//TODO use constructor injection
@@ -34,41 +64,201 @@ public class CurationPersistService {
 	@Autowired
 	private CurationToMongoCurationConverter curationToMongoCurationConverter;
 	
+	@Autowired
+	private MongoCurationLinkUndoJobRepository mongoCurationLinkUndoJobRepository;
+	
 	@Autowired
 	private MessagingService messagingSerivce;
+
+	//undoing is rare, so one at a time is enough
+	private final ExecutorService undoExecutorService = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "curation-link-undo");
+		thread.setDaemon(true);
+		return thread;
+	});
 	
-	public CurationLink store(CurationLink curationLink) {
-		//TODO do this as a trigger on the curation link repo
-		//if it already exists, no need to save
-		if (mongoCurationRepository.findOne(curationLink.getCuration().getHash()) == null) {
-			MongoCuration mongoCuration = curationToMongoCurationConverter.convert(curationLink.getCuration());
-			try {
-				mongoCurationRepository.save(mongoCuration);
-			} catch (DuplicateKeyException e) {
-				//sometimes, if there are multiple threads there may be a collision
-				//check if its a true duplicate and not an accidental hash collision
-				MongoCuration existingMongoCuration = mongoCurationRepository.findOne(mongoCuration.getHash());
-				if (!existingMongoCuration.equals(mongoCuration)) {
-					//if it is a different curation with an hash collision, then throw an exception
-					throw e;
-				}
-			}
-		}
+	/**
+	 * Stores the curation link and its curation if they are not already stored, and reindexes the
+	 * sample if the link was new.
+	 * 
+	 * @return true if the link was new, false if it was already stored
+	 */
+	public boolean store(CurationLink curationLink) {
+		return !storeAll(Collections.singletonList(curationLink)).isEmpty();
+	}
 
-		//if it already exists, no need to save
-		if (mongoCurationLinkRepository.findOne(curationLink.getHash()) == null) {
-			curationLink = mongoCurationLinkToCurationLinkConverter.convert(mongoCurationLinkRepository.save(curationLinkToMongoCurationLinkConverter.convert(curationLink)));
+	/**
+	 * Stores the curation links and their curations that are not already stored, without reading
+	 * them first, and reindexes each sample that has a new link once.
+	 * 
+	 * @return the curation links that were new
+	 */
+	public List<CurationLink> storeAll(Collection<CurationLink> curationLinks) {
+		//many links share a curation, so only store each curation once
+		Map<String, MongoCuration> mongoCurations = new LinkedHashMap<>();
+		List<MongoCurationLink> mongoCurationLinks = new ArrayList<>(curationLinks.size());
+		for (CurationLink curationLink : curationLinks) {
+			mongoCurations.computeIfAbsent(curationLink.getCuration().getHash(),
+					hash -> curationToMongoCurationConverter.convert(curationLink.getCuration()));
+			mongoCurationLinks.add(curationLinkToMongoCurationLinkConverter.convert(curationLink));
 		}
 
-		messagingSerivce.fetchThenSendMessage(curationLink.getSample());
-		return curationLink;
+		//curations must be stored before the links that use them
+		mongoCurationRepository.insertAllIfAbsent(mongoCurations.values());
+		List<MongoCurationLink> inserted = mongoCurationLinkRepository.insertAllIfAbsent(mongoCurationLinks);
+		log.trace("Stored "+inserted.size()+" new of "+curationLinks.size()+" curation links");
+
+		List<CurationLink> stored = new ArrayList<>(inserted.size());
+		Set<String> accessions = new LinkedHashSet<>();
+		for (MongoCurationLink mongoCurationLink : inserted) {
+			stored.add(mongoCurationLinkToCurationLinkConverter.convert(mongoCurationLink));
+			accessions.add(mongoCurationLink.getSample());
+		}
+		for (String accession : accessions) {
+			messagingSerivce.fetchThenSendMessage(accession);
+		}
+		return stored;
 	}
 	
 	public void delete(CurationLink curationLink) {
 		if (curationLink == null) throw new IllegalArgumentException("curationLink must not be null");
 		MongoCurationLink mongoCurationLink = curationLinkToMongoCurationLinkConverter.convert(curationLink);
-		mongoCurationLinkRepository.delete(mongoCurationLink.getHash());
+		//leaves a tombstone, so that the sample is also updated by what watches for changes
+		mongoCurationLinkRepository.deleteAllByHash(Collections.singletonList(mongoCurationLink.getHash()));
 		messagingSerivce.fetchThenSendMessage(curationLink.getSample());
 	}
-	
+
+	/**
+	 * Starts deleting the curation links selected by the query in the background, or for a dry
+	 * run only reporting what would be deleted. The report returned has the id to fetch its
+	 * progress with.
+	 */
+	public CurationLinkUndoReport startUndo(CurationLinkQuery query, boolean dryRun) {
+		MongoCurationLinkUndoJob job = mongoCurationLinkUndoJobRepository.save(
+				MongoCurationLinkUndoJob.build(UUID.randomUUID().toString(), query, dryRun, Instant.now()));
+		log.info("Starting undo "+job);
+		undoExecutorService.submit(() -> runUndo(job));
+		return toReport(job);
+	}
+
+	public Optional<CurationLinkUndoReport> fetchUndo(String id) {
+		return Optional.ofNullable(mongoCurationLinkUndoJobRepository.findOne(id)).map(this::toReport);
+	}
+
+	/**
+	 * Carries on with an undo that failed, or that stopped being updated because the server
+	 * running it stopped. Links deleted before it stopped are no longer selected, so it carries
+	 * on from where it was. An undo that is still running or has finished is left as it is.
+	 */
+	public Optional<CurationLinkUndoReport> resumeUndo(String id) {
+		MongoCurationLinkUndoJob job = mongoCurationLinkUndoJobRepository.claimForResume(id,
+				Instant.now().minus(UNDO_STALE));
+		if (job == null) {
+			return fetchUndo(id);
+		}
+		log.info("Resuming undo "+job);
+		undoExecutorService.submit(() -> runUndo(job));
+		return Optional.of(toReport(job));
+	}
+
+	/**
+	 * Deletes the selected curation links in batches in the calling thread, recording the progress
+	 * after each batch. A sample's links can be in several batches, so the samples are reindexed
+	 * once each when all the batches are deleted.
+	 */
+	public CurationLinkUndoReport runUndo(MongoCurationLinkUndoJob job) {
+		CurationLinkQuery query = job.getQuery();
+		boolean dryRun = job.isDryRun();
+		//a dry run deletes nothing, so has to start again, whereas an undo carries on
+		long matched = dryRun ? 0 : job.getMatched();
+		long deleted = dryRun ? 0 : job.getDeleted();
+		long samples = dryRun ? 0 : job.getSamples();
+		List<MongoCurationLink> examples = new ArrayList<>(dryRun ? Collections.emptyList() : job.getExamples());
+		Set<String> reindex = new LinkedHashSet<>(dryRun ? Collections.emptyList() : job.getReindex());
+		Set<String> accessions = new HashSet<>();
+		List<String> hashes = new ArrayList<>(DELETE_BATCH_SIZE);
+		Set<String> batchAccessions = new LinkedHashSet<>();
+		long nextUpdate = System.nanoTime() + UNDO_UPDATE_INTERVAL.toNanos();
+
+		try {
+			//domain and creation time are selected by the database, the curation is checked here
+			try (Stream<MongoCurationLink> stream = mongoCurationLinkRepository.streamByDomainAndCreated(
+					query.getDomain(), query.getCreatedFrom(), query.getCreatedUntil())) {
+				Iterator<MongoCurationLink> it = stream.iterator();
+				while (it.hasNext()) {
+					MongoCurationLink mongoCurationLink = it.next();
+					if (query.matches(mongoCurationLink.getCuration())) {
+						matched += 1;
+						if (accessions.add(mongoCurationLink.getSample())) {
+							samples += 1;
+						}
+						if (examples.size() < REPORT_EXAMPLES) {
+							examples.add(mongoCurationLink);
+						}
+						if (!dryRun) {
+							hashes.add(mongoCurationLink.getHash());
+							batchAccessions.add(mongoCurationLink.getSample());
+							if (hashes.size() >= DELETE_BATCH_SIZE) {
+								deleted += delete(hashes, batchAccessions, reindex);
+								hashes = new ArrayList<>(DELETE_BATCH_SIZE);
+								batchAccessions = new LinkedHashSet<>();
+								job = mongoCurationLinkUndoJobRepository.save(job.update(Status.RUNNING, matched, deleted,
+										samples, examples, reindex, Instant.now()));
+								nextUpdate = System.nanoTime() + UNDO_UPDATE_INTERVAL.toNanos();
+							}
+						}
+					}
+					//also while scanning past unselected links, so it is not taken to have stopped
+					if (System.nanoTime() > nextUpdate) {
+						job = mongoCurationLinkUndoJobRepository.save(job.update(Status.RUNNING, matched, deleted, samples,
+								examples, reindex, Instant.now()));
+						nextUpdate = System.nanoTime() + UNDO_UPDATE_INTERVAL.toNanos();
+					}
+				}
+			}
+			deleted += delete(hashes, batchAccessions, reindex);
+			//removed as each is sent, so if sending fails a resumed undo only sends the rest
+			for (Iterator<String> it = reindex.iterator(); it.hasNext();) {
+				messagingSerivce.fetchThenSendMessage(it.next());
+				it.remove();
+			}
+			job = mongoCurationLinkUndoJobRepository.save(job.update(Status.FINISHED, matched, deleted, samples,
+					examples, reindex, Instant.now()));
+			log.info("Finished undo "+job+" deleting "+deleted+" of "+matched+" curation links of "+samples+" samples");
+		} catch (RuntimeException e) {
+			log.error("Failed undo "+job, e);
+			//links deleted but not yet counted are no longer selected when resumed, so are not counted then
+			job = mongoCurationLinkUndoJobRepository.save(job.update(Status.FAILED, matched, deleted, samples,
+					examples, reindex, Instant.now()));
+		}
+		return toReport(job);
+	}
+
+	/**
+	 * Deletes the batch, adding its samples to those to reindex first so that they are still
+	 * reindexed if only some of the batch is deleted
+	 */
+	private long delete(List<String> hashes, Set<String> accessions, Set<String> reindex) {
+		if (hashes.isEmpty()) {
+			return 0;
+		}
+		reindex.addAll(accessions);
+		return mongoCurationLinkRepository.deleteAllByHash(hashes);
+	}
+
+	private CurationLinkUndoReport toReport(MongoCurationLinkUndoJob job) {
+		List<CurationLink> examples = new ArrayList<>(job.getExamples().size());
+		for (MongoCurationLink mongoCurationLink : job.getExamples()) {
+			examples.add(mongoCurationLinkToCurationLinkConverter.convert(mongoCurationLink));
+		}
+		return CurationLinkUndoReport.build(job.getId(), job.getStatus(), job.getQuery(), job.isDryRun(),
+				job.getMatched(), job.getDeleted(), job.getSamples(), examples);
+	}
+
+	@PreDestroy
+	public void close() {
+		//a running undo is left to be resumed
+		undoExecutorService.shutdownNow();
+	}
+
 }
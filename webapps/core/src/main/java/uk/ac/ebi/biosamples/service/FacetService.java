@@ -6,12 +6,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
 import uk.ac.ebi.biosamples.model.facet.Facet;
 import uk.ac.ebi.biosamples.model.filter.Filter;
 import uk.ac.ebi.biosamples.solr.service.SolrFacetService;
 
+import javax.annotation.PreDestroy;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.*;
 
 @Service
 public class FacetService {
@@ -19,9 +23,17 @@ public class FacetService {
     private Logger log = LoggerFactory.getLogger(getClass());
 
     private final SolrFacetService solrFacetService;
+    private final ThreadPoolExecutor executorService;
+    private final long timeoutNanos;
 
-    public FacetService(SolrFacetService solrSampleService) {
+    public FacetService(SolrFacetService solrSampleService, BioSamplesProperties bioSamplesProperties) {
         this.solrFacetService = solrSampleService;
+        int threadCount = bioSamplesProperties.getBiosamplesCoreFacetThreadCount();
+        //bounded queue so that a slow solr does not pile up facet requests behind it
+        this.executorService = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(bioSamplesProperties.getBiosamplesCoreFacetQueueMax()));
+        this.executorService.allowCoreThreadTimeOut(true);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(bioSamplesProperties.getBiosamplesCoreFacetTimeout());
     }
 
 
@@ -40,4 +52,53 @@ public class FacetService {
         return facets;
     }
 
+    /**
+     * Starts computing facets in the background so that it can overlap with other work
+     * for the same request, e.g. fetching the page of samples.
+     *
+     * If too many facet requests are already waiting, the returned future is already
+     * completed with no facets.
+     */
+    public Future<List<Facet>> getFacetsAsync(String text, Collection<Filter> filters, Collection<String> domains, int noOfFacets, int noOfFacetValues) {
+        try {
+            return executorService.submit(() -> getFacets(text, filters, domains, noOfFacets, noOfFacetValues));
+        } catch (RejectedExecutionException e) {
+            log.warn("Too many facet requests pending, skipping facets");
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+    }
+
+    /**
+     * @return the deadline, in terms of {@link System#nanoTime()}, for facets of a request starting now
+     */
+    public long getDeadline() {
+        return System.nanoTime() + timeoutNanos;
+    }
+
+    /**
+     * Waits for facets started by {@link #getFacetsAsync} until the given deadline.
+     *
+     * Facets are secondary to the results they describe, so if they are late or fail
+     * they are abandoned and an empty list returned rather than failing the request.
+     */
+    public List<Facet> getFacets(Future<List<Facet>> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Facets did not complete in time, skipping facets");
+        } catch (ExecutionException e) {
+            log.warn("Unable to get facets, skipping facets", e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        return Collections.emptyList();
+    }
+
+    @PreDestroy
+    public void close() {
+        executorService.shutdownNow();
+    }
+
 }
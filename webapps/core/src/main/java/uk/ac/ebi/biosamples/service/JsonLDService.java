@@ -1,33 +1,53 @@
 package uk.ac.ebi.biosamples.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.springframework.stereotype.Service;
 import org.springframework.ui.Model;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
 import uk.ac.ebi.biosamples.controller.SampleHtmlController;
 import uk.ac.ebi.biosamples.controller.SampleRestController;
 import uk.ac.ebi.biosamples.model.*;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
 
 /**
  * This servise is meant for the convertions jobs to/form ld+json
+ *
+ * Rendered sample ld+json is cached by the content of the sample, so a new version of a
+ * sample or a change in its curations is rendered again rather than served from the cache.
  */
 @Service
 public class JsonLDService {
 
     private final ObjectMapper objectMapper;
     private final SampleToJsonLDSampleRecordConverter jsonLDSampleConverter;
+    private final SampleToJsonLDWriter jsonLDSampleWriter;
+    private final Cache<SampleJsonLDKey, String> sampleJsonLDCache;
     private String dataCatalogUrl;
     private String datasetUrl;
 
-    public JsonLDService(ObjectMapper mapper) {
+    public JsonLDService(ObjectMapper mapper, BioSamplesProperties bioSamplesProperties) {
         this.jsonLDSampleConverter = new SampleToJsonLDSampleRecordConverter();
+        this.jsonLDSampleWriter = new SampleToJsonLDWriter();
         this.objectMapper = mapper;
+        this.sampleJsonLDCache = CacheBuilder.newBuilder()
+                .maximumSize(bioSamplesProperties.getBiosamplesCoreJsonLDCacheMaxSize())
+                .build();
         this.dataCatalogUrl = null;
         this.datasetUrl = null;
     }
@@ -45,19 +65,67 @@ public class JsonLDService {
         JsonLDDataRecord jsonLDDataRecord = this.jsonLDSampleConverter.convert(sample);
         JsonLDSample jsonLDSample = jsonLDDataRecord.getMainEntity();
 
-        try {
-            Method method = SampleRestController.class.getMethod("getSampleHal", String.class, String.class, String[].class);
-            String sampleUrl = linkTo(method, sample.getAccession()).toUri().toString();
+        String sampleUrl = getSampleUrl(sample.getAccession());
+        if (sampleUrl != null) {
             jsonLDSample.setUrl(sampleUrl);
             jsonLDSample.setId(sampleUrl);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
         }
 
         jsonLDDataRecord.mainEntity(jsonLDSample);
         return jsonLDDataRecord;
     }
 
+    /**
+     * Produce the ld+json document of a sample, as would be returned by serializing {@link #sampleToJsonLD(Sample)}
+     * @param sample the sample to convert
+     * @return the ld+json document of the sample
+     */
+    public String sampleToJsonLDString(Sample sample) {
+        return getSampleJsonLD(sample, false);
+    }
+
+    /**
+     * Produce the formatted ld+json of a sample to embed in its html page, as would be returned by
+     * {@link #jsonLDToString(BioschemasObject)} of {@link #sampleToJsonLD(Sample)}
+     * @param sample the sample to convert
+     * @return the formatted ld+json of the sample
+     */
+    public String sampleToJsonLDHtml(Sample sample) {
+        return getSampleJsonLD(sample, true);
+    }
+
+    private String getSampleJsonLD(Sample sample, boolean pretty) {
+        //the url depends on the host of the request, so is part of the key
+        String sampleUrl = getSampleUrl(sample.getAccession());
+        SampleJsonLDKey key = new SampleJsonLDKey(sample, sampleUrl, pretty);
+        try {
+            return sampleJsonLDCache.get(key, () -> writeSampleJsonLD(sample, sampleUrl, pretty));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private String writeSampleJsonLD(Sample sample, String sampleUrl, boolean pretty) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator gen = this.objectMapper.getFactory().createGenerator(writer)) {
+            if (pretty) {
+                gen.setPrettyPrinter(new DefaultPrettyPrinter());
+            }
+            this.jsonLDSampleWriter.write(sample, sampleUrl, gen);
+        }
+        return writer.toString();
+    }
+
+    private String getSampleUrl(String accession) {
+        try {
+            Method method = SampleRestController.class.getMethod("getSampleHal", String.class, String.class, String[].class);
+            return linkTo(method, accession).toUri().toString();
+        } catch (NoSuchMethodException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     public JsonLDDataCatalog getBioSamplesDataCatalog() {
 
         initUrls();
@@ -111,4 +179,40 @@ public class JsonLDService {
 
         return datasetUrl;
     }
+
+    /**
+     * A version of a sample rendered for a url. The update date is included because sample
+     * equality does not consider it, but it is part of the ld+json.
+     */
+    private static class SampleJsonLDKey {
+        private final Sample sample;
+        private final Instant update;
+        private final String sampleUrl;
+        private final boolean pretty;
+
+        private SampleJsonLDKey(Sample sample, String sampleUrl, boolean pretty) {
+            this.sample = sample;
+            this.update = sample.getUpdate();
+            this.sampleUrl = sampleUrl;
+            this.pretty = pretty;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof SampleJsonLDKey)) {
+                return false;
+            }
+            SampleJsonLDKey other = (SampleJsonLDKey) o;
+            return this.pretty == other.pretty
+                    && Objects.equals(this.sampleUrl, other.sampleUrl)
+                    && Objects.equals(this.update, other.update)
+                    && Objects.equals(this.sample, other.sample);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sample, update, sampleUrl, pretty);
+        }
+    }
 }
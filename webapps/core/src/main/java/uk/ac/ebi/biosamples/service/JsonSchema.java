@@ -0,0 +1,1067 @@
+package uk.ac.ebi.biosamples.service;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A JSON schema (draft-07) compiled into a tree of checks, so that validating an object
+ * does not need to interpret the schema again. A compiled schema is immutable and can be
+ * used to validate from many threads at once.
+ *
+ * The errors are the same as those of the ajv library used by the external json-schema-validator,
+ * which this replaces: the same messages, data paths and order, reporting all errors rather than
+ * stopping at the first. Formats are checked with ajv's default "fast" patterns.
+ *
+ * Schemas using something that can't be checked here, such as the validator's custom ontology
+ * keywords, remote references or unknown formats, fail to compile with an
+ * {@link UnsupportedSchemaException} so they can be sent to the external validator instead.
+ *
+ * This is not built on a java schema library because clients rely on the messages and their
+ * grouping by data path, which are ajv's. networknt and everit each word, order and locate
+ * errors differently, so either would need a translation layer for every keyword. networknt
+ * also needs a newer jackson than spring boot 1.5 manages, and everit works on org.json
+ * rather than jackson trees. SchemaValidationParityTest holds this to the external
+ * validator's responses.
+ */
+public class JsonSchema {
+
+    private static final Set<String> UNSUPPORTED_KEYWORDS = new HashSet<>(Arrays.asList(
+            "$async", "isChildTermOf", "isValidTerm"));
+
+    private static final Map<String, Pattern> FORMATS = new HashMap<>();
+
+    static {
+        FORMATS.put("date", Pattern.compile("^\\d\\d\\d\\d-[0-1]\\d-[0-3]\\d$"));
+        FORMATS.put("time", Pattern.compile("^(?:[0-2]\\d:[0-5]\\d:[0-5]\\d|23:59:60)(?:\\.\\d+)?(?:z|[+-]\\d\\d(?::?\\d\\d)?)?$",
+                Pattern.CASE_INSENSITIVE));
+        FORMATS.put("date-time", Pattern.compile("^\\d\\d\\d\\d-[0-1]\\d-[0-3]\\d[t\\s](?:[0-2]\\d:[0-5]\\d:[0-5]\\d|23:59:60)(?:\\.\\d+)?(?:z|[+-]\\d\\d(?::?\\d\\d)?)$",
+                Pattern.CASE_INSENSITIVE));
+        FORMATS.put("uri", Pattern.compile("^(?:[a-z][a-z0-9+\\-.]*:)(?:/?/)?[^\\s]*$", Pattern.CASE_INSENSITIVE));
+        FORMATS.put("uri-reference", Pattern.compile("^(?:(?:[a-z][a-z0-9+\\-.]*:)?/?/)?(?:[^\\\\\\s#][^\\s#]*)?(?:#[^\\\\\\s]*)?$",
+                Pattern.CASE_INSENSITIVE));
+        FORMATS.put("url", Pattern.compile("^(?:(?:https?|ftp)://)(?:\\S+(?::\\S*)?@)?(?:(?!10(?:\\.\\d{1,3}){3})(?!127(?:\\.\\d{1,3}){3})(?!169\\.254(?:\\.\\d{1,3}){2})(?!192\\.168(?:\\.\\d{1,3}){2})(?!172\\.(?:1[6-9]|2\\d|3[0-1])(?:\\.\\d{1,3}){2})(?:[1-9]\\d?|1\\d\\d|2[01]\\d|22[0-3])(?:\\.(?:1?\\d{1,2}|2[0-4]\\d|25[0-5])){2}(?:\\.(?:[1-9]\\d?|1\\d\\d|2[0-4]\\d|25[0-4]))|(?:(?:[a-z\\u00a1-\\uffff0-9]+-?)*[a-z\\u00a1-\\uffff0-9]+)(?:\\.(?:[a-z\\u00a1-\\uffff0-9]+-?)*[a-z\\u00a1-\\uffff0-9]+)*(?:\\.(?:[a-z\\u00a1-\\uffff]{2,})))(?::\\d{2,5})?(?:/[^\\s]*)?$",
+                Pattern.CASE_INSENSITIVE));
+        FORMATS.put("email", Pattern.compile("^[a-z0-9.!#$%&'*+/=?^_`{|}~-]+@[a-z0-9](?:[a-z0-9-]{0,61}[a-z0-9])?(?:\\.[a-z0-9](?:[a-z0-9-]{0,61}[a-z0-9])?)*$",
+                Pattern.CASE_INSENSITIVE));
+        FORMATS.put("hostname", Pattern.compile("^(?=.{1,253}\\.?$)[a-z0-9](?:[a-z0-9-]{0,61}[a-z0-9])?(?:\\.[a-z0-9](?:[-0-9a-z]{0,61}[0-9a-z])?)*\\.?$",
+                Pattern.CASE_INSENSITIVE));
+        FORMATS.put("ipv4", Pattern.compile("^(?:(?:25[0-5]|2[0-4]\\d|[01]?\\d\\d?)\\.){3}(?:25[0-5]|2[0-4]\\d|[01]?\\d\\d?)$"));
+        FORMATS.put("uuid", Pattern.compile("^(?:urn:uuid:)?[0-9a-f]{8}-(?:[0-9a-f]{4}-){3}[0-9a-f]{12}$", Pattern.CASE_INSENSITIVE));
+        FORMATS.put("json-pointer", Pattern.compile("^(?:/(?:[^~/]|~0|~1)*)*$"));
+        FORMATS.put("relative-json-pointer", Pattern.compile("^(?:0|[1-9][0-9]*)(?:#|(?:/(?:[^~/]|~0|~1)*)*)$"));
+    }
+
+    //keywords that only apply to one type of data, in the order ajv checks them
+    private static final String[] NUMBER_KEYWORDS = {"maximum", "exclusiveMaximum", "minimum", "exclusiveMinimum", "multipleOf", "format"};
+    private static final String[] STRING_KEYWORDS = {"maxLength", "minLength", "pattern", "format"};
+    private static final String[] ARRAY_KEYWORDS = {"maxItems", "minItems", "items", "additionalItems", "contains", "uniqueItems"};
+    private static final String[] OBJECT_KEYWORDS = {"maxProperties", "minProperties", "required", "dependencies", "propertyNames",
+            "properties", "additionalProperties", "patternProperties"};
+    private static final String[] GENERAL_KEYWORDS = {"$ref", "type", "const", "enum", "not", "anyOf", "oneOf", "allOf",
+            "if", "then", "else", "$comment"};
+
+    private final Check root;
+
+    private JsonSchema(Check root) {
+        this.root = root;
+    }
+
+    /**
+     * @throws UnsupportedSchemaException if the schema uses something that can't be checked here
+     * @throws IllegalArgumentException if the schema is not valid, including if it refers back to
+     * itself without first moving on to a property or item, which could never finish validating
+     */
+    public static JsonSchema compile(JsonNode schema) {
+        Compiler compiler = new Compiler(schema);
+        Check root = compiler.compile(schema);
+        compiler.checkCycles();
+        return new JsonSchema(root);
+    }
+
+    public List<Error> validate(JsonNode data) {
+        List<Error> errors = new ArrayList<>();
+        root.check(data, DataPath.ROOT, errors);
+        return errors;
+    }
+
+    public static class Error {
+        private final String keyword;
+        private final String dataPath;
+        private final String message;
+        private final String missingProperty;
+        private final JsonNode allowedValues;
+
+        private Error(String keyword, String dataPath, String message, String missingProperty, JsonNode allowedValues) {
+            this.keyword = keyword;
+            this.dataPath = dataPath;
+            this.message = message;
+            this.missingProperty = missingProperty;
+            this.allowedValues = allowedValues;
+        }
+
+        public String getKeyword() {
+            return keyword;
+        }
+
+        /**
+         * @return the path to the invalid data in javascript notation, e.g. .attributes['age'][0]
+         */
+        public String getDataPath() {
+            return dataPath;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return the name of the property that is required but missing, if that is the error
+         */
+        public String getMissingProperty() {
+            return missingProperty;
+        }
+
+        /**
+         * @return the values allowed by an enum, if that is the error
+         */
+        public JsonNode getAllowedValues() {
+            return allowedValues;
+        }
+
+        @Override
+        public String toString() {
+            return dataPath + " " + message;
+        }
+    }
+
+    public static class UnsupportedSchemaException extends IllegalArgumentException {
+        public UnsupportedSchemaException(String message) {
+            super(message);
+        }
+    }
+
+    private interface Check {
+        /**
+         * Adds any errors in the data to the list
+         *
+         * @return whether the data is valid
+         */
+        boolean check(JsonNode data, DataPath path, List<Error> errors);
+    }
+
+    /**
+     * The path to some data, built as the data is walked and only written out for an error.
+     */
+    private static class DataPath {
+        private static final DataPath ROOT = new DataPath(null, "");
+        private static final Pattern IDENTIFIER = Pattern.compile("^[a-z$_][a-z$_0-9]*$", Pattern.CASE_INSENSITIVE);
+
+        private final DataPath parent;
+        private final String part;
+
+        private DataPath(DataPath parent, String part) {
+            this.parent = parent;
+            this.part = part;
+        }
+
+        /**
+         * How ajv writes a property named in the schema, as .name if it can
+         */
+        private static String propertyPart(String name) {
+            if (IDENTIFIER.matcher(name).matches()) {
+                return "." + name;
+            }
+            return "['" + name + "']";
+        }
+
+        private DataPath child(String part) {
+            return new DataPath(this, part);
+        }
+
+        /**
+         * A property matched by a pattern or additional properties, which ajv always writes as ['name']
+         */
+        private DataPath key(String name) {
+            return new DataPath(this, "['" + name + "']");
+        }
+
+        private DataPath item(int index) {
+            return new DataPath(this, "[" + index + "]");
+        }
+
+        @Override
+        public String toString() {
+            if (parent == null) {
+                return part;
+            }
+            return parent.toString() + part;
+        }
+    }
+
+    private static Error error(String keyword, DataPath path, String message) {
+        return new Error(keyword, path.toString(), message, null, null);
+    }
+
+    private static class Compiler {
+        private final JsonNode root;
+        private final Map<String, JsonNode> anchors = new HashMap<>();
+        private final String rootId;
+        //compiled targets of references, so recursive schemas and shared definitions are compiled once
+        private final Map<JsonNode, Reference> references = new IdentityHashMap<>();
+        //the references each reference uses on the same data, which must not lead back to itself
+        private final Map<Reference, Set<Reference>> sameDataReferences = new IdentityHashMap<>();
+        //the reference being compiled, until a property or item of the data is moved on to
+        private Reference current;
+
+        private Compiler(JsonNode root) {
+            this.root = root;
+            this.rootId = root.isObject() && root.path("$id").isTextual() ? stripFragment(root.get("$id").asText()) : null;
+            findAnchors(root);
+        }
+
+        private void findAnchors(JsonNode schema) {
+            if (schema.isObject()) {
+                JsonNode id = schema.get("$id");
+                if (id != null && id.isTextual() && id.asText().startsWith("#")) {
+                    anchors.put(id.asText(), schema);
+                }
+            }
+            if (schema.isContainerNode()) {
+                for (JsonNode child : schema) {
+                    findAnchors(child);
+                }
+            }
+        }
+
+        private static String stripFragment(String uri) {
+            int hash = uri.indexOf('#');
+            return hash < 0 ? uri : uri.substring(0, hash);
+        }
+
+        private Check compile(JsonNode schema) {
+            if (schema.isBoolean()) {
+                if (schema.booleanValue()) {
+                    return (data, path, errors) -> true;
+                }
+                return (data, path, errors) -> {
+                    errors.add(error("false schema", path, "boolean schema is false"));
+                    return false;
+                };
+            }
+            if (!schema.isObject()) {
+                throw new IllegalArgumentException("Schema should be an object or a boolean: " + schema);
+            }
+            for (String keyword : UNSUPPORTED_KEYWORDS) {
+                if (schema.has(keyword)) {
+                    throw new UnsupportedSchemaException("Keyword " + keyword + " is not supported");
+                }
+            }
+
+            //as in ajv, other keywords next to a reference are ignored
+            if (schema.has("$ref")) {
+                return compileReference(schema.get("$ref").asText());
+            }
+
+            List<Check> checks = new ArrayList<>();
+            JsonNode type = schema.get("type");
+            List<String> types = new ArrayList<>();
+            if (type != null) {
+                if (type.isArray()) {
+                    type.forEach(t -> types.add(t.asText()));
+                } else {
+                    types.add(type.asText());
+                }
+            }
+            String singleType = type != null && type.isTextual() ? type.asText() : null;
+
+            //ajv reports a wrong type where the keywords for that type would be checked, if there are any,
+            //otherwise before anything else
+            boolean typeInGroup = singleType != null && (
+                    (singleType.equals("number") && uses(schema, NUMBER_KEYWORDS))
+                    || (singleType.equals("string") && uses(schema, STRING_KEYWORDS))
+                    || (singleType.equals("array") && uses(schema, ARRAY_KEYWORDS))
+                    || (singleType.equals("object") && uses(schema, OBJECT_KEYWORDS)));
+            Check typeCheck = types.isEmpty() ? null : compileType(types);
+            if (typeCheck != null && !typeInGroup) {
+                checks.add(typeCheck);
+            }
+
+            addGroup(checks, schema, NUMBER_KEYWORDS, "number", JsonNode::isNumber, typeInGroup ? typeCheck : null,
+                    singleType, this::compileNumber);
+            addGroup(checks, schema, STRING_KEYWORDS, "string", JsonNode::isTextual, typeInGroup ? typeCheck : null,
+                    singleType, this::compileString);
+            addGroup(checks, schema, ARRAY_KEYWORDS, "array", JsonNode::isArray, typeInGroup ? typeCheck : null,
+                    singleType, this::compileArray);
+            addGroup(checks, schema, OBJECT_KEYWORDS, "object", JsonNode::isObject, typeInGroup ? typeCheck : null,
+                    singleType, this::compileObject);
+            compileGeneral(schema, checks);
+
+            if (checks.isEmpty()) {
+                return (data, path, errors) -> true;
+            }
+            if (checks.size() == 1) {
+                return checks.get(0);
+            }
+            Check[] array = checks.toArray(new Check[checks.size()]);
+            return (data, path, errors) -> {
+                boolean valid = true;
+                for (Check check : array) {
+                    valid &= check.check(data, path, errors);
+                }
+                return valid;
+            };
+        }
+
+        private interface TypeTest {
+            boolean test(JsonNode data);
+        }
+
+        private interface GroupCompiler {
+            void compile(JsonNode schema, List<Check> checks);
+        }
+
+        private static boolean uses(JsonNode schema, String[] keywords) {
+            for (String keyword : keywords) {
+                if (schema.has(keyword)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void addGroup(List<Check> checks, JsonNode schema, String[] keywords, String groupType, TypeTest typeTest,
+                              Check typeCheck, String singleType, GroupCompiler groupCompiler) {
+            if (!uses(schema, keywords)) {
+                return;
+            }
+            List<Check> groupChecks = new ArrayList<>();
+            groupCompiler.compile(schema, groupChecks);
+            Check[] array = groupChecks.toArray(new Check[groupChecks.size()]);
+            boolean reportsType = typeCheck != null && groupType.equals(singleType);
+            checks.add((data, path, errors) -> {
+                if (typeTest.test(data)) {
+                    boolean valid = true;
+                    for (Check check : array) {
+                        valid &= check.check(data, path, errors);
+                    }
+                    return valid;
+                } else if (reportsType) {
+                    return typeCheck.check(data, path, errors);
+                }
+                return true;
+            });
+        }
+
+        private Check compileType(List<String> types) {
+            List<TypeTest> tests = new ArrayList<>();
+            for (String type : types) {
+                tests.add(typeTest(type));
+            }
+            String message = "should be " + String.join(",", types);
+            return (data, path, errors) -> {
+                for (TypeTest test : tests) {
+                    if (test.test(data)) {
+                        return true;
+                    }
+                }
+                errors.add(error("type", path, message));
+                return false;
+            };
+        }
+
+        private static TypeTest typeTest(String type) {
+            switch (type) {
+                case "string":
+                    return JsonNode::isTextual;
+                case "number":
+                    return JsonNode::isNumber;
+                case "integer":
+                    return data -> data.isIntegralNumber()
+                            || (data.isNumber() && isIntegral(data.decimalValue()));
+                case "boolean":
+                    return JsonNode::isBoolean;
+                case "null":
+                    return JsonNode::isNull;
+                case "object":
+                    return JsonNode::isObject;
+                case "array":
+                    return JsonNode::isArray;
+                default:
+                    throw new IllegalArgumentException("Unknown type " + type);
+            }
+        }
+
+        private static boolean isIntegral(BigDecimal value) {
+            return value.signum() == 0 || value.stripTrailingZeros().scale() <= 0;
+        }
+
+        private void compileNumber(JsonNode schema, List<Check> checks) {
+            JsonNode exclusiveMaximum = schema.get("exclusiveMaximum");
+            JsonNode exclusiveMinimum = schema.get("exclusiveMinimum");
+            if (schema.has("maximum")) {
+                //draft-04 style boolean exclusive limits change the limit they are next to
+                boolean exclusive = exclusiveMaximum != null && exclusiveMaximum.asBoolean(false);
+                checks.add(compileLimit("maximum", schema.get("maximum"), exclusive ? "<" : "<="));
+            }
+            if (exclusiveMaximum != null && exclusiveMaximum.isNumber()) {
+                checks.add(compileLimit("exclusiveMaximum", exclusiveMaximum, "<"));
+            }
+            if (schema.has("minimum")) {
+                boolean exclusive = exclusiveMinimum != null && exclusiveMinimum.asBoolean(false);
+                checks.add(compileLimit("minimum", schema.get("minimum"), exclusive ? ">" : ">="));
+            }
+            if (exclusiveMinimum != null && exclusiveMinimum.isNumber()) {
+                checks.add(compileLimit("exclusiveMinimum", exclusiveMinimum, ">"));
+            }
+            if (schema.has("multipleOf")) {
+                BigDecimal multipleOf = schema.get("multipleOf").decimalValue();
+                String message = "should be multiple of " + number(schema.get("multipleOf"));
+                checks.add((data, path, errors) -> {
+                    if (data.decimalValue().remainder(multipleOf).signum() != 0) {
+                        errors.add(error("multipleOf", path, message));
+                        return false;
+                    }
+                    return true;
+                });
+            }
+        }
+
+        private Check compileLimit(String keyword, JsonNode limitNode, String operator) {
+            if (!limitNode.isNumber()) {
+                throw new IllegalArgumentException(keyword + " should be a number");
+            }
+            BigDecimal limit = limitNode.decimalValue();
+            String message = "should be " + operator + " " + number(limitNode);
+            return (data, path, errors) -> {
+                int comparison = data.decimalValue().compareTo(limit);
+                boolean valid;
+                switch (operator) {
+                    case "<":
+                        valid = comparison < 0;
+                        break;
+                    case "<=":
+                        valid = comparison <= 0;
+                        break;
+                    case ">":
+                        valid = comparison > 0;
+                        break;
+                    default:
+                        valid = comparison >= 0;
+                }
+                if (!valid) {
+                    errors.add(error(keyword, path, message));
+                }
+                return valid;
+            };
+        }
+
+        /**
+         * Writes a number from a schema as javascript would, e.g. 1 rather than 1.0
+         */
+        private static String number(JsonNode node) {
+            if (node.isIntegralNumber()) {
+                return node.asText();
+            }
+            BigDecimal value = node.decimalValue();
+            return value.signum() == 0 ? "0" : value.stripTrailingZeros().toPlainString();
+        }
+
+        private void compileString(JsonNode schema, List<Check> checks) {
+            if (schema.has("maxLength")) {
+                int maxLength = schema.get("maxLength").asInt();
+                String message = "should NOT be longer than " + maxLength + " characters";
+                checks.add((data, path, errors) -> {
+                    String text = data.textValue();
+                    if (text.codePointCount(0, text.length()) > maxLength) {
+                        errors.add(error("maxLength", path, message));
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            if (schema.has("minLength")) {
+                int minLength = schema.get("minLength").asInt();
+                String message = "should NOT be shorter than " + minLength + " characters";
+                checks.add((data, path, errors) -> {
+                    String text = data.textValue();
+                    if (text.codePointCount(0, text.length()) < minLength) {
+                        errors.add(error("minLength", path, message));
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            if (schema.has("pattern")) {
+                String regex = schema.get("pattern").asText();
+                Pattern pattern = pattern(regex);
+                String message = "should match pattern \"" + regex + "\"";
+                checks.add((data, path, errors) -> {
+                    if (!pattern.matcher(data.textValue()).find()) {
+                        errors.add(error("pattern", path, message));
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            if (schema.has("format")) {
+                String format = schema.get("format").asText();
+                String message = "should match format \"" + format + "\"";
+                if (format.equals("regex")) {
+                    checks.add((data, path, errors) -> {
+                        try {
+                            Pattern.compile(data.textValue());
+                            return true;
+                        } catch (PatternSyntaxException e) {
+                            errors.add(error("format", path, message));
+                            return false;
+                        }
+                    });
+                } else {
+                    Pattern pattern = FORMATS.get(format);
+                    if (pattern == null) {
+                        throw new UnsupportedSchemaException("Format " + format + " is not supported");
+                    }
+                    checks.add((data, path, errors) -> {
+                        if (!pattern.matcher(data.textValue()).matches()) {
+                            errors.add(error("format", path, message));
+                            return false;
+                        }
+                        return true;
+                    });
+                }
+            }
+        }
+
+        private static Pattern pattern(String regex) {
+            try {
+                return Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid pattern " + regex, e);
+            }
+        }
+
+        private void compileArray(JsonNode schema, List<Check> checks) {
+            if (schema.has("maxItems")) {
+                int maxItems = schema.get("maxItems").asInt();
+                String message = "should NOT have more than " + maxItems + " items";
+                checks.add((data, path, errors) -> {
+                    if (data.size() > maxItems) {
+                        errors.add(error("maxItems", path, message));
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            if (schema.has("minItems")) {
+                int minItems = schema.get("minItems").asInt();
+                String message = "should NOT have fewer than " + minItems + " items";
+                checks.add((data, path, errors) -> {
+                    if (data.size() < minItems) {
+                        errors.add(error("minItems", path, message));
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            JsonNode items = schema.get("items");
+            if (items != null && items.isArray()) {
+                Check[] itemChecks = new Check[items.size()];
+                for (int i = 0; i < itemChecks.length; i++) {
+                    itemChecks[i] = compileChild(items.get(i));
+                }
+                JsonNode additionalItems = schema.get("additionalItems");
+                Check additionalCheck = additionalItems == null || additionalItems.isBoolean() ? null : compileChild(additionalItems);
+                boolean noAdditional = additionalItems != null && additionalItems.isBoolean() && !additionalItems.booleanValue();
+                String message = "should NOT have more than " + itemChecks.length + " items";
+                checks.add((data, path, errors) -> {
+                    boolean valid = true;
+                    if (noAdditional && data.size() > itemChecks.length) {
+                        errors.add(error("additionalItems", path, message));
+                        valid = false;
+                    }
+                    for (int i = 0; i < itemChecks.length && i < data.size(); i++) {
+                        valid &= itemChecks[i].check(data.get(i), path.item(i), errors);
+                    }
+                    if (additionalCheck != null) {
+                        for (int i = itemChecks.length; i < data.size(); i++) {
+                            valid &= additionalCheck.check(data.get(i), path.item(i), errors);
+                        }
+                    }
+                    return valid;
+                });
+            } else if (items != null) {
+                Check itemCheck = compileChild(items);
+                checks.add((data, path, errors) -> {
+                    boolean valid = true;
+                    for (int i = 0; i < data.size(); i++) {
+                        valid &= itemCheck.check(data.get(i), path.item(i), errors);
+                    }
+                    return valid;
+                });
+            }
+            if (schema.has("contains")) {
+                Check containsCheck = compileChild(schema.get("contains"));
+                checks.add((data, path, errors) -> {
+                    int size = errors.size();
+                    for (int i = 0; i < data.size(); i++) {
+                        if (containsCheck.check(data.get(i), path.item(i), errors)) {
+                            truncate(errors, size);
+                            return true;
+                        }
+                    }
+                    errors.add(error("contains", path, "should contain a valid item"));
+                    return false;
+                });
+            }
+            if (schema.path("uniqueItems").asBoolean(false)) {
+                checks.add((data, path, errors) -> {
+                    //the same pair of items as ajv reports, searching from the end
+                    for (int i = data.size() - 1; i > 0; i--) {
+                        for (int j = i - 1; j >= 0; j--) {
+                            if (equal(data.get(i), data.get(j))) {
+                                errors.add(error("uniqueItems", path,
+                                        "should NOT have duplicate items (items ## " + j + " and " + i + " are identical)"));
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                });
+            }
+        }
+
+        private void compileObject(JsonNode schema, List<Check> checks) {
+            if (schema.has("maxProperties")) {
+                int maxProperties = schema.get("maxProperties").asInt();
+                String message = "should NOT have more than " + maxProperties + " properties";
+                checks.add((data, path, errors) -> {
+                    if (data.size() > maxProperties) {
+                        errors.add(error("maxProperties", path, message));
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            if (schema.has("minProperties")) {
+                int minProperties = schema.get("minProperties").asInt();
+                String message = "should NOT have fewer than " + minProperties + " properties";
+                checks.add((data, path, errors) -> {
+                    if (data.size() < minProperties) {
+                        errors.add(error("minProperties", path, message));
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            if (schema.has("required")) {
+                //as in ajv, required properties with a schema of their own are checked with the other properties
+                List<String> required = new ArrayList<>();
+                schema.get("required").forEach(r -> {
+                    if (!hasChecks(schema.path("properties").get(r.asText()))) {
+                        required.add(r.asText());
+                    }
+                });
+                checks.add((data, path, errors) -> {
+                    boolean valid = true;
+                    for (String property : required) {
+                        if (!data.has(property)) {
+                            errors.add(new Error("required", path.toString(),
+                                    "should have required property '" + property + "'", property, null));
+                            valid = false;
+                        }
+                    }
+                    return valid;
+                });
+            }
+            if (schema.has("dependencies")) {
+                Iterator<Map.Entry<String, JsonNode>> dependencies = schema.get("dependencies").fields();
+                while (dependencies.hasNext()) {
+                    Map.Entry<String, JsonNode> dependency = dependencies.next();
+                    String property = dependency.getKey();
+                    if (dependency.getValue().isArray()) {
+                        List<String> needed = new ArrayList<>();
+                        dependency.getValue().forEach(d -> needed.add(d.asText()));
+                        String message = "should have " + (needed.size() == 1 ? "property " : "properties ")
+                                + String.join(", ", needed) + " when property " + property + " is present";
+                        checks.add((data, path, errors) -> {
+                            boolean valid = true;
+                            if (data.has(property)) {
+                                for (String neededProperty : needed) {
+                                    if (!data.has(neededProperty)) {
+                                        errors.add(new Error("dependencies", path.toString(), message, neededProperty, null));
+                                        valid = false;
+                                    }
+                                }
+                            }
+                            return valid;
+                        });
+                    } else {
+                        Check dependencyCheck = compile(dependency.getValue());
+                        checks.add((data, path, errors) -> !data.has(property) || dependencyCheck.check(data, path, errors));
+                    }
+                }
+            }
+            if (schema.has("propertyNames")) {
+                Check nameCheck = compileChild(schema.get("propertyNames"));
+                checks.add((data, path, errors) -> {
+                    boolean valid = true;
+                    Iterator<String> names = data.fieldNames();
+                    while (names.hasNext()) {
+                        String name = names.next();
+                        if (!nameCheck.check(TextNode.valueOf(name), path, errors)) {
+                            errors.add(error("propertyNames", path, "property name '" + name + "' is invalid"));
+                            valid = false;
+                        }
+                    }
+                    return valid;
+                });
+            }
+            if (schema.has("properties") || schema.has("patternProperties") || schema.has("additionalProperties")) {
+                checks.add(compileProperties(schema));
+            }
+        }
+
+        private Check compileProperties(JsonNode schema) {
+            Map<String, Check> properties = new LinkedHashMap<>();
+            Map<String, String> propertyParts = new HashMap<>();
+            Set<String> required = new HashSet<>();
+            if (schema.has("properties")) {
+                Iterator<Map.Entry<String, JsonNode>> fields = schema.get("properties").fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    properties.put(field.getKey(), compileChild(field.getValue()));
+                    propertyParts.put(field.getKey(), DataPath.propertyPart(field.getKey()));
+                }
+            }
+            for (JsonNode property : schema.path("required")) {
+                if (hasChecks(schema.path("properties").get(property.asText()))) {
+                    required.add(property.asText());
+                }
+            }
+            Map<Pattern, Check> patternProperties = new LinkedHashMap<>();
+            if (schema.has("patternProperties")) {
+                Iterator<Map.Entry<String, JsonNode>> fields = schema.get("patternProperties").fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    patternProperties.put(pattern(field.getKey()), compileChild(field.getValue()));
+                }
+            }
+            JsonNode additionalProperties = schema.get("additionalProperties");
+            boolean noAdditional = additionalProperties != null && additionalProperties.isBoolean()
+                    && !additionalProperties.booleanValue();
+            Check additionalCheck = additionalProperties == null || additionalProperties.isBoolean()
+                    ? null : compileChild(additionalProperties);
+
+            return (data, path, errors) -> {
+                boolean valid = true;
+                //ajv checks for additional properties first, then the named properties, then the patterns
+                if (noAdditional || additionalCheck != null) {
+                    Iterator<String> names = data.fieldNames();
+                    while (names.hasNext()) {
+                        String name = names.next();
+                        if (properties.containsKey(name) || matchesAny(patternProperties.keySet(), name)) {
+                            continue;
+                        }
+                        if (noAdditional) {
+                            errors.add(error("additionalProperties", path, "should NOT have additional properties"));
+                            valid = false;
+                        } else {
+                            valid &= additionalCheck.check(data.get(name), path.key(name), errors);
+                        }
+                    }
+                }
+                for (Map.Entry<String, Check> property : properties.entrySet()) {
+                    JsonNode value = data.get(property.getKey());
+                    if (value == null && required.contains(property.getKey())) {
+                        errors.add(new Error("required", path.toString(),
+                                "should have required property '" + property.getKey() + "'", property.getKey(), null));
+                        valid = false;
+                    } else if (value != null) {
+                        valid &= property.getValue().check(value, path.child(propertyParts.get(property.getKey())), errors);
+                    }
+                }
+                for (Map.Entry<Pattern, Check> patternProperty : patternProperties.entrySet()) {
+                    Iterator<Map.Entry<String, JsonNode>> fields = data.fields();
+                    while (fields.hasNext()) {
+                        Map.Entry<String, JsonNode> field = fields.next();
+                        if (patternProperty.getKey().matcher(field.getKey()).find()) {
+                            valid &= patternProperty.getValue().check(field.getValue(), path.key(field.getKey()), errors);
+                        }
+                    }
+                }
+                return valid;
+            };
+        }
+
+        /**
+         * Whether a schema has any keywords that ajv checks, rather than being empty or only describing the data
+         */
+        private static boolean hasChecks(JsonNode schema) {
+            if (schema == null) {
+                return false;
+            }
+            if (schema.isBoolean()) {
+                return !schema.booleanValue();
+            }
+            return uses(schema, NUMBER_KEYWORDS) || uses(schema, STRING_KEYWORDS) || uses(schema, ARRAY_KEYWORDS)
+                    || uses(schema, OBJECT_KEYWORDS) || uses(schema, GENERAL_KEYWORDS);
+        }
+
+        private static boolean matchesAny(Set<Pattern> patterns, String name) {
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(name).find()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void compileGeneral(JsonNode schema, List<Check> checks) {
+            if (schema.has("const")) {
+                JsonNode constant = schema.get("const");
+                checks.add((data, path, errors) -> {
+                    if (!equal(data, constant)) {
+                        errors.add(error("const", path, "should be equal to constant"));
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            if (schema.has("enum")) {
+                JsonNode allowed = schema.get("enum");
+                checks.add((data, path, errors) -> {
+                    for (JsonNode value : allowed) {
+                        if (equal(data, value)) {
+                            return true;
+                        }
+                    }
+                    errors.add(new Error("enum", path.toString(), "should be equal to one of the allowed values", null, allowed));
+                    return false;
+                });
+            }
+            if (schema.has("not")) {
+                Check notCheck = compile(schema.get("not"));
+                checks.add((data, path, errors) -> {
+                    if (notCheck.check(data, path, new ArrayList<>())) {
+                        errors.add(error("not", path, "should NOT be valid"));
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            if (schema.has("anyOf")) {
+                Check[] anyOf = compileAll(schema.get("anyOf"));
+                checks.add((data, path, errors) -> {
+                    int size = errors.size();
+                    for (Check check : anyOf) {
+                        if (check.check(data, path, errors)) {
+                            truncate(errors, size);
+                            return true;
+                        }
+                    }
+                    errors.add(error("anyOf", path, "should match some schema in anyOf"));
+                    return false;
+                });
+            }
+            if (schema.has("oneOf")) {
+                Check[] oneOf = compileAll(schema.get("oneOf"));
+                checks.add((data, path, errors) -> {
+                    int size = errors.size();
+                    int passing = 0;
+                    for (Check check : oneOf) {
+                        if (check.check(data, path, errors)) {
+                            passing += 1;
+                        }
+                    }
+                    if (passing == 1) {
+                        truncate(errors, size);
+                        return true;
+                    }
+                    errors.add(error("oneOf", path, "should match exactly one schema in oneOf"));
+                    return false;
+                });
+            }
+            if (schema.has("allOf")) {
+                Check[] allOf = compileAll(schema.get("allOf"));
+                checks.add((data, path, errors) -> {
+                    boolean valid = true;
+                    for (Check check : allOf) {
+                        valid &= check.check(data, path, errors);
+                    }
+                    return valid;
+                });
+            }
+            if (schema.has("if") && (schema.has("then") || schema.has("else"))) {
+                Check ifCheck = compile(schema.get("if"));
+                Check thenCheck = schema.has("then") ? compile(schema.get("then")) : null;
+                Check elseCheck = schema.has("else") ? compile(schema.get("else")) : null;
+                checks.add((data, path, errors) -> {
+                    boolean matches = ifCheck.check(data, path, new ArrayList<>());
+                    Check branch = matches ? thenCheck : elseCheck;
+                    if (branch == null || branch.check(data, path, errors)) {
+                        return true;
+                    }
+                    errors.add(error("if", path, "should match \"" + (matches ? "then" : "else") + "\" schema"));
+                    return false;
+                });
+            }
+        }
+
+        /**
+         * Compiles a schema for a property or item of the data, so a reference in it can lead back
+         * to the schema it is in without validating the same data again
+         */
+        private Check compileChild(JsonNode schema) {
+            Reference parent = current;
+            current = null;
+            try {
+                return compile(schema);
+            } finally {
+                current = parent;
+            }
+        }
+
+        private Check[] compileAll(JsonNode schemas) {
+            Check[] compiled = new Check[schemas.size()];
+            for (int i = 0; i < compiled.length; i++) {
+                compiled[i] = compile(schemas.get(i));
+            }
+            return compiled;
+        }
+
+        private Check compileReference(String ref) {
+            String local = ref;
+            if (rootId != null && ref.startsWith(rootId + "#")) {
+                local = ref.substring(rootId.length());
+            }
+            JsonNode target;
+            if (local.equals("#") || (rootId != null && local.equals(rootId))) {
+                target = root;
+            } else if (local.startsWith("#/")) {
+                target = root.at(JsonPointer.compile(decode(local.substring(1))));
+            } else if (local.startsWith("#")) {
+                target = anchors.get(local);
+            } else {
+                throw new UnsupportedSchemaException("Reference " + ref + " is not supported");
+            }
+            if (target == null || target.isMissingNode()) {
+                throw new IllegalArgumentException("Can't resolve reference " + ref);
+            }
+            Reference reference = references.get(target);
+            if (reference == null) {
+                reference = new Reference();
+                references.put(target, reference);
+                sameDataReferences.put(reference, Collections.newSetFromMap(new IdentityHashMap<>()));
+                if (current != null) {
+                    sameDataReferences.get(current).add(reference);
+                }
+                Reference parent = current;
+                current = reference;
+                try {
+                    reference.target = compile(target);
+                } finally {
+                    current = parent;
+                }
+            } else if (current != null) {
+                sameDataReferences.get(current).add(reference);
+            }
+            return reference;
+        }
+
+        /**
+         * Rejects the schema if a reference leads back to itself on the same data, e.g. {"$ref": "#"},
+         * as validating it would never finish
+         */
+        private void checkCycles() {
+            Set<Reference> finished = Collections.newSetFromMap(new IdentityHashMap<>());
+            Set<Reference> visiting = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Reference reference : sameDataReferences.keySet()) {
+                checkCycles(reference, visiting, finished);
+            }
+        }
+
+        private void checkCycles(Reference reference, Set<Reference> visiting, Set<Reference> finished) {
+            if (finished.contains(reference)) {
+                return;
+            }
+            if (!visiting.add(reference)) {
+                throw new IllegalArgumentException("Schema refers to itself without validating a property or item");
+            }
+            for (Reference next : sameDataReferences.get(reference)) {
+                checkCycles(next, visiting, finished);
+            }
+            visiting.remove(reference);
+            finished.add(reference);
+        }
+
+        private static String decode(String pointer) {
+            try {
+                return URLDecoder.decode(pointer.replace("+", "%2B"), "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * A reference to a schema, which may not have been compiled yet when the reference is
+     * made if the schema refers to itself
+     */
+    private static class Reference implements Check {
+        private Check target;
+
+        @Override
+        public boolean check(JsonNode data, DataPath path, List<Error> errors) {
+            return target.check(data, path, errors);
+        }
+    }
+
+    private static void truncate(List<Error> errors, int size) {
+        while (errors.size() > size) {
+            errors.remove(errors.size() - 1);
+        }
+    }
+
+    /**
+     * Whether two values are the same in javascript, where e.g. 1 and 1.0 are equal
+     */
+    static boolean equal(JsonNode a, JsonNode b) {
+        if (a.isNumber() && b.isNumber()) {
+            return a.decimalValue().compareTo(b.decimalValue()) == 0;
+        }
+        if (a.isArray() && b.isArray()) {
+            if (a.size() != b.size()) {
+                return false;
+            }
+            for (int i = 0; i < a.size(); i++) {
+                if (!equal(a.get(i), b.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a.isObject() && b.isObject()) {
+            if (a.size() != b.size()) {
+                return false;
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = a.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode other = b.get(field.getKey());
+                if (other == null || !equal(field.getValue(), other)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return a.equals(b);
+    }
+}
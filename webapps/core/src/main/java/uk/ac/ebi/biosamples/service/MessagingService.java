@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
 import uk.ac.ebi.biosamples.MessageContent;
 import uk.ac.ebi.biosamples.Messaging;
 import uk.ac.ebi.biosamples.model.CurationLink;
@@ -12,10 +13,10 @@ import uk.ac.ebi.biosamples.model.Sample;
 import uk.ac.ebi.biosamples.model.StaticViewWrapper;
 import uk.ac.ebi.biosamples.mongo.repo.MongoSampleRepository;
 import uk.ac.ebi.biosamples.mongo.service.SampleToMongoSampleConverter;
+import uk.ac.ebi.biosamples.utils.CoalescingWorkQueue;
 
+import javax.annotation.PreDestroy;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 
 @Service
 public class MessagingService {
@@ -25,15 +26,24 @@ public class MessagingService {
 	private final AmqpTemplate amqpTemplate;
 	private final MongoSampleRepository mongoSampleRepository;
 	private final SampleToMongoSampleConverter sampleToMongoSampleConverter;
+	private final BioSamplesProperties bioSamplesProperties;
+
+	//related samples are rebuilt off the request thread, and a sample related to
+	//many others that are updated together is only rebuilt once per window
+	private final CoalescingWorkQueue<String> relatedQueue;
 	
 	public MessagingService(SampleReadService sampleReadService,
 							AmqpTemplate amqpTemplate,
 							MongoSampleRepository mongoSampleRepository,
-							SampleToMongoSampleConverter sampleToMongoSampleConverter) {
+							SampleToMongoSampleConverter sampleToMongoSampleConverter,
+							BioSamplesProperties bioSamplesProperties) {
 		this.sampleReadService = sampleReadService;
 		this.amqpTemplate = amqpTemplate;
 		this.mongoSampleRepository = mongoSampleRepository;
 		this.sampleToMongoSampleConverter = sampleToMongoSampleConverter;
+		this.bioSamplesProperties = bioSamplesProperties;
+		this.relatedQueue = new CoalescingWorkQueue<>(bioSamplesProperties.getBiosamplesCoreRelationshipsWindow(),
+				bioSamplesProperties.getBiosamplesCoreRelationshipsThreadCount(), 10000, this::fetchThenSendRelatedMessage);
 	}
 	
 	public void fetchThenSendMessage(String accession) {
@@ -46,55 +56,69 @@ public class MessagingService {
 		
 		Optional<Sample> sample = sampleReadService.fetch(accession, Optional.empty());
 		if (sample.isPresent()) {
-			//save sample with curations and relationships in static view collection
-			mongoSampleRepository.insertSampleToCollection(
-					sampleToMongoSampleConverter.convert(sample.get()), StaticViewWrapper.StaticView.SAMPLES_CURATED);
-
-			
-			//for each sample we have a relationship to, update it to index this sample as an inverse relationship	
-			//TODO do this async
-			List<Sample> related = updateInverseRelationships(sample.get(), existingRelationshipTargets);
-
-			//send the original sample with the extras as related samples
-			amqpTemplate.convertAndSend(Messaging.exchangeForIndexingSolr, "", 
-					MessageContent.build(sample.get(), null, related, false));
+			sendMessage(sample.get(), existingRelationshipTargets);
 		}
-		
 	}
 
-	private List<Sample> updateInverseRelationships(Sample sample, List<String> existingRelationshipTargets) {
-		List<Future<Optional<Sample>>> futures = new ArrayList<>();
+	/**
+	 * Stores and sends a sample that has already been fetched with curation and inverse relationships
+	 * applied, e.g. one that has just been written, to avoid reading it back again.
+	 */
+	public void sendMessage(Sample sample, List<String> existingRelationshipTargets) {
+		//save sample with curations and relationships in static view collection
+		mongoSampleRepository.insertSampleToCollection(
+				sampleToMongoSampleConverter.convert(sample), StaticViewWrapper.StaticView.SAMPLES_CURATED);
 
-		//remove deleted relationships
-		for (String accession : existingRelationshipTargets) {
-			futures.add(sampleReadService.fetchAsync(accession, Optional.empty()));
-		}
+		//send the original sample, related samples are sent separately once rebuilt
+		amqpTemplate.convertAndSend(Messaging.exchangeForIndexingSolr, "", 
+				MessageContent.build(sample, null, Collections.emptyList(), false));
 
+		//for each sample we have a relationship to, update it to index this sample as an inverse relationship	
+		queueInverseRelationships(sample, existingRelationshipTargets);
+	}
+
+	private void queueInverseRelationships(Sample sample, List<String> existingRelationshipTargets) {
+		//include old targets so that removed relationships are removed from them too
+		Set<String> targets = new LinkedHashSet<>(existingRelationshipTargets);
 		for (Relationship relationship : sample.getRelationships()) {
 			if (relationship.getSource() != null
-					&& relationship.getSource().equals(sample.getAccession())
-					&& !existingRelationshipTargets.contains(sample.getAccession())) {
-				futures.add(sampleReadService.fetchAsync(relationship.getTarget(), Optional.empty()));
+					&& relationship.getSource().equals(sample.getAccession())) {
+				targets.add(relationship.getTarget());
 			}
 		}
+		targets.remove(sample.getAccession());
 
-		List<Sample> related = new ArrayList<>();
-		for (Future<Optional<Sample>> future : futures) {
-			try {
-				Optional<Sample> optionalSample = future.get();
-				if (optionalSample.isPresent()) {
-					related.add(optionalSample.get());
-					//todo if we  add inverse relationships we also have to think about deleting them
-					mongoSampleRepository.insertSampleToCollection(
-							sampleToMongoSampleConverter.convert(optionalSample.get()), StaticViewWrapper.StaticView.SAMPLES_CURATED);
-				}
-			} catch (InterruptedException e) {
-				log.warn("Interrupted fetching future relationships", e);
-			} catch (ExecutionException e) {
-				log.error("Problem fetching future relationships", e);
+		int fanoutMax = bioSamplesProperties.getBiosamplesCoreRelationshipsFanoutMax();
+		if (targets.size() > fanoutMax) {
+			log.warn("Sample " + sample.getAccession() + " has " + targets.size()
+					+ " related samples, only updating the first " + fanoutMax);
+		}
+		int count = 0;
+		for (String target : targets) {
+			if (count >= fanoutMax) {
+				break;
 			}
+			relatedQueue.submit(target);
+			count += 1;
 		}
-		return related;
+	}
+
+	private void fetchThenSendRelatedMessage(String accession) {
+		Optional<Sample> sample = sampleReadService.fetch(accession, Optional.empty());
+		if (sample.isPresent()) {
+			mongoSampleRepository.insertSampleToCollection(
+					sampleToMongoSampleConverter.convert(sample.get()), StaticViewWrapper.StaticView.SAMPLES_CURATED);
+			amqpTemplate.convertAndSend(Messaging.exchangeForIndexingSolr, "",
+					MessageContent.build(sample.get(), null, Collections.emptyList(), false));
+		} else {
+			log.warn("Unable to fetch related sample " + accession);
+		}
+	}
+
+	@PreDestroy
+	public void close() throws InterruptedException {
+		//flush any related samples still waiting so they are not left stale
+		relatedQueue.close();
 	}
 
 	@Deprecated
@@ -108,20 +132,40 @@ public class MessagingService {
 		fetchThenSendMessage(sample.getAccession());
 	}
 	
+	/**
+	 * Walks the "derived from" relationships out from the given sample, adding each
+	 * sample reached to the related list. The walk is breadth first and stops at the
+	 * configured maximum depth and number of related samples, so a cyclic or very
+	 * large graph cannot hold up the caller indefinitely.
+	 */
 	public List<Sample> getDerivedFromSamples(Sample sample, List<Sample> related) {
-		
-		for (Relationship relationship : sample.getRelationships()) {
-			if (relationship.getSource().equals(sample.getAccession())) {
-				if (relationship.getType().toLowerCase().equals("derived from")) {
-					Optional<Sample> target = sampleReadService.fetch(relationship.getTarget(), Optional.empty());
-					if (target.isPresent()) {
-						if (!related.contains(target.get())) {
+		int depthMax = bioSamplesProperties.getBiosamplesCoreRelationshipsDepthMax();
+		int fanoutMax = bioSamplesProperties.getBiosamplesCoreRelationshipsFanoutMax();
+
+		Set<String> visited = new HashSet<>();
+		visited.add(sample.getAccession());
+		List<Sample> level = Collections.singletonList(sample);
+		for (int depth = 0; depth < depthMax && !level.isEmpty(); depth++) {
+			List<Sample> nextLevel = new ArrayList<>();
+			for (Sample current : level) {
+				for (Relationship relationship : current.getRelationships()) {
+					if (relationship.getSource().equals(current.getAccession())
+							&& relationship.getType().toLowerCase().equals("derived from")
+							&& visited.add(relationship.getTarget())) {
+						if (related.size() >= fanoutMax) {
+							log.warn("Stopped following derived from relationships of " + sample.getAccession()
+									+ " after " + fanoutMax + " samples");
+							return related;
+						}
+						Optional<Sample> target = sampleReadService.fetch(relationship.getTarget(), Optional.empty());
+						if (target.isPresent() && !related.contains(target.get())) {
 							related.add(target.get());
-							getDerivedFromSamples(target.get(), related);
+							nextLevel.add(target.get());
 						}
 					}
 				}
 			}
+			level = nextLevel;
 		}
 		return related;
 	}
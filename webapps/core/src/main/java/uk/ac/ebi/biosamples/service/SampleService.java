@@ -7,6 +7,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import uk.ac.ebi.biosamples.model.Autocomplete;
+import uk.ac.ebi.biosamples.model.CurationLink;
 import uk.ac.ebi.biosamples.model.Sample;
 import uk.ac.ebi.biosamples.model.StaticViewWrapper;
 import uk.ac.ebi.biosamples.model.filter.Filter;
@@ -17,9 +18,10 @@ import uk.ac.ebi.biosamples.mongo.service.MongoAccessionService;
 import uk.ac.ebi.biosamples.mongo.service.MongoInverseRelationshipService;
 import uk.ac.ebi.biosamples.mongo.service.MongoSampleToSampleConverter;
 import uk.ac.ebi.biosamples.mongo.service.SampleToMongoSampleConverter;
-import uk.ac.ebi.biosamples.solr.service.SolrSampleService;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Service layer business logic for centralising repository access and
@@ -52,7 +54,7 @@ public class SampleService {
 	private SampleValidator sampleValidator;
 	
 	@Autowired
-	private SolrSampleService solrSampleService;
+	private AutocompleteService autocompleteService;
 	
 	@Autowired
 	private SampleReadService sampleReadService;
@@ -75,7 +77,7 @@ public class SampleService {
 	}
 	
 	public Autocomplete getAutocomplete(String autocompletePrefix, Collection<Filter> filters, int noSuggestions) {
-		return solrSampleService.getAutocomplete(autocompletePrefix, filters, noSuggestions);
+		return autocompleteService.getAutocomplete(autocompletePrefix, filters, noSuggestions);
 	}
 
 	//because the fetchUsing caches the sample, if an updated version is stored, we need to make sure that any cached version
@@ -95,23 +97,44 @@ public class SampleService {
 		}
 
 		if (sample.hasAccession()) {
+			String accession = sample.getAccession();
 			// TODO compare to existing version to check if changes
-			List<String> existingRelationshipTargets = getExistingRelationshipTargets(sample.getAccession());
 
+			//this is four requests to mongo, three one after the other: the save that also returns the
+			//previous relationship targets, the curation links and inverse relationships together, then
+			//the curated view write in sendMessage. The curated view is another collection, so can't
+			//be written with the save, and is built from the reads that have to follow the save
 			MongoSample mongoSample = sampleToMongoSampleConverter.convert(sample);
-			mongoSample = mongoSampleRepository.save(mongoSample);
-			sample = mongoSampleToSampleConverter.convert(mongoSample);
+			List<String> existingRelationshipTargets = getRelationshipTargets(accession,
+					mongoSampleRepository.saveReturningOldRelationships(mongoSample));
+
+			//read after the save, so a curation link or relationship written meanwhile is not
+			//missed, and build the response from them rather than reading the sample back
+			Future<List<MongoRelationship>> inverseRelationships = sampleReadService.fetchInverseRelationshipsAsync(accession);
+			Future<Collection<CurationLink>> curationLinks = sampleReadService.fetchCurationLinksAsync(accession);
+			sample = sampleReadService.buildSample(mongoSample, getFuture(inverseRelationships), getFuture(curationLinks));
 
 			//send a message for storage and further processing, send relationship targets to identify deleted relationships
-			messagingSerivce.fetchThenSendMessage(sample.getAccession(), existingRelationshipTargets);
+			messagingSerivce.sendMessage(sample, existingRelationshipTargets);
 		} else {
+			//a newly accessioned sample cannot have any curation or inverse relationships yet
 			sample = mongoAccessionService.generateAccession(sample);
-			messagingSerivce.fetchThenSendMessage(sample.getAccession());
+			messagingSerivce.sendMessage(sample, Collections.emptyList());
 		}
 		
 		//return the sample in case we have modified it i.e accessioned
-		//do a fetch to return it with curation objects and inverse relationships
-		return fetch(sample.getAccession(), Optional.empty(), null).get();
+		return sample;
+	}
+
+	private <T> T getFuture(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
 	}
 
 	public void validateSample(Map sampleAsMap) {
@@ -152,10 +175,9 @@ public class SampleService {
 		}
 	}
 
-	private List<String> getExistingRelationshipTargets(String accession) {
+	private List<String> getRelationshipTargets(String accession, MongoSample mongoOldSample) {
 		List<String> oldRelationshipTargets = new ArrayList<>();
-		MongoSample mongoOldSample = mongoSampleRepository.findOne(accession);
-		if (mongoOldSample != null) {
+		if (mongoOldSample != null && mongoOldSample.getRelationships() != null) {
 			for (MongoRelationship relationship : mongoOldSample.getRelationships()) {
 				if (relationship.getSource().equals(accession)) {
 					oldRelationshipTargets.add(relationship.getTarget());
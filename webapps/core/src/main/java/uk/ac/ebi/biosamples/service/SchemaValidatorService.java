@@ -1,6 +1,15 @@
 package uk.ac.ebi.biosamples.service;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.web.client.RestTemplateBuilder;
@@ -11,76 +20,184 @@ import org.springframework.http.MediaType;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import uk.ac.ebi.biosamples.BioSamplesProperties;
 
 import java.io.*;
 import java.net.URI;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Validates objects against JSON schemas in-process, compiling each schema once and keeping it
+ * for later requests. The response is the same as the external json-schema-validator would give:
+ * a list of the invalid data paths with their errors, empty if the object is valid.
+ *
+ * Compiled schemas are kept by the uri they were read from, or by a digest of their content when
+ * they are given in the request. The $id of a schema in a request is chosen by the client, so
+ * another client could give a different schema the same $id, and a revised schema may keep it.
+ *
+ * Schemas that can't be validated in-process, such as those checking ontology terms, are sent to
+ * the external validator if biosamples.schema.validator.fallback is enabled.
+ */
 @Service
 public class SchemaValidatorService {
 
     Logger log = LoggerFactory.getLogger(getClass());
 
-    private final String noErrorBody = "[]";
     private final RestTemplate restTemplate;
     private final BioSamplesProperties bioSamplesProperties;
     private final ObjectMapper objectMapper;
+    private final ObjectMapper canonicalMapper;
     private final ApplicationContext applicationContext;
+    private final Cache<String, JsonSchema> compiledSchemas;
+    private final Cache<URI, JsonNode> schemaResources;
 
     public SchemaValidatorService(RestTemplateBuilder restTemplateBuilder, ObjectMapper mapper, BioSamplesProperties bioSamplesProperties, ApplicationContext applicationContext) {
         this.restTemplate = restTemplateBuilder.build();
         this.objectMapper = mapper;
+        this.canonicalMapper = new ObjectMapper()
+                .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
         this.bioSamplesProperties = bioSamplesProperties;
         this.applicationContext = applicationContext;
+        this.compiledSchemas = CacheBuilder.newBuilder()
+                .maximumSize(bioSamplesProperties.getBiosamplesSchemaValidatorCacheMaxSize())
+                .build();
+        this.schemaResources = CacheBuilder.newBuilder()
+                .maximumSize(bioSamplesProperties.getBiosamplesSchemaValidatorCacheMaxSize())
+                .build();
     }
 
+    /**
+     * @param objectToValidate a JSON object with the schema to use and the object to validate
+     */
     public ResponseEntity<String> validate(String objectToValidate) {
-        //TODO reanable this later
-//        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
-//        headers.add("accept", MediaType.APPLICATION_JSON_VALUE);
-//
-//        RequestEntity<String> request = RequestEntity
-//            .post(this.bioSamplesProperties.getBiosamplesSchemaValidatorServiceUri())
-//            .contentType(MediaType.APPLICATION_JSON)
-//            .body(objectToValidate);
-//
-//        return restTemplate.exchange(request, String.class);
-        return ResponseEntity.ok(noErrorBody);
+        JsonNode request;
+        try {
+            request = objectMapper.readTree(objectToValidate);
+        } catch (IOException e) {
+            return error(HttpStatus.BAD_REQUEST, "Received malformed JSON.");
+        }
+        if (request == null || request.get("schema") == null || request.get("object") == null) {
+            return error(HttpStatus.BAD_REQUEST, "Something is missing, both schema and object are required to execute validation.");
+        }
+        JsonNode schema = request.get("schema");
+        return validate(schema, digest(schema), request.get("object"), objectToValidate);
+    }
 
+    /**
+     * A digest of the schema that is the same however its properties are ordered
+     */
+    private String digest(JsonNode schema) {
+        try {
+            byte[] canonical = canonicalMapper.writeValueAsBytes(canonicalMapper.treeToValue(schema, Object.class));
+            return "sha256:" + Hashing.sha256().hashBytes(canonical).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public ResponseEntity<String> validate(Object object, URI schema) {
-        Resource schemaResource = applicationContext.getResource(schema.toString());
-
-        if (!schemaResource.exists()) {
-            log.error("Schema resource for " + schema + " doesn't exists");
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Provided schema at " + schema + " doesn't exists");
+        JsonNode jsonSchema = schemaResources.getIfPresent(schema);
+        if (jsonSchema == null) {
+            Resource schemaResource = applicationContext.getResource(schema.toString());
+
+            if (!schemaResource.exists()) {
+                log.error("Schema resource for " + schema + " doesn't exists");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Provided schema at " + schema + " doesn't exists");
+            }
+
+            try {
+                jsonSchema = this.objectMapper.readTree(schemaResource.getInputStream());
+            } catch (IOException e) {
+                log.error("Error while reading schema file " + schema);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body("An error occurred while reading the schema at " + schema + ". Please try later or contact biosamples@ebi.ac.uk");
+            }
+            schemaResources.put(schema, jsonSchema);
         }
 
-        try {
-
-            Object jsonSchema = this.objectMapper.readValue(schemaResource.getInputStream(), Object.class);
-
-            Map<String, Object> body = new HashMap<>();
-            body.put("schema", jsonSchema);
-            body.put("object", object);
-
-            return this.validate(this.objectMapper.writeValueAsString(body));
+        return validate(jsonSchema, schema.toString(), this.objectMapper.valueToTree(object), null);
+    }
 
-        } catch (IOException e) {
-            log.error("Error while reading schema file " + schema);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("An error occurred while reading the schema at " + schema + ". Please try later or contact biosamples@ebi.ac.uk");
+    /**
+     * @param key what the compiled schema is kept by
+     */
+    private ResponseEntity<String> validate(JsonNode schema, String key, JsonNode object, String request) {
+        JsonSchema jsonSchema;
+        try {
+            jsonSchema = compiledSchemas.get(key, () -> JsonSchema.compile(schema));
+        } catch (ExecutionException | RuntimeException e) {
+            //compiling through the cache wraps the exception
+            Throwable cause = e instanceof ExecutionException || e instanceof UncheckedExecutionException ? e.getCause() : e;
+            if (cause instanceof JsonSchema.UnsupportedSchemaException
+                    && bioSamplesProperties.getBiosamplesSchemaValidatorFallback()) {
+                log.debug("Using external validator for schema: " + cause.getMessage());
+                if (request == null) {
+                    ObjectNode body = objectMapper.createObjectNode();
+                    body.set("schema", schema);
+                    body.set("object", object);
+                    request = body.toString();
+                }
+                return validateExternally(request);
+            }
+            log.error("Unable to compile schema", cause);
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "An error ocurred while running the validation.");
         }
+        return ResponseEntity.ok(toResponseBody(jsonSchema.validate(object)));
+    }
 
-
+    private ResponseEntity<String> validateExternally(String request) {
+        RequestEntity<String> requestEntity = RequestEntity
+                .post(this.bioSamplesProperties.getBiosamplesSchemaValidatorServiceUri())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(request);
+        try {
+            return restTemplate.exchange(requestEntity, String.class);
+        } catch (HttpStatusCodeException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
+        } catch (RestClientException e) {
+            log.error("Unable to use external validator", e);
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "An error ocurred while running the validation.");
+        }
     }
 
+    /**
+     * Groups the errors by the path of the data they are for, in the order they were found.
+     * The path of a missing property includes the property.
+     */
+    String toResponseBody(List<JsonSchema.Error> errors) {
+        Map<String, List<String>> errorsByPath = new LinkedHashMap<>();
+        for (JsonSchema.Error error : errors) {
+            String dataPath = error.getDataPath();
+            if (error.getMissingProperty() != null) {
+                dataPath = dataPath + "." + error.getMissingProperty();
+            }
+            String message = error.getMessage();
+            if (error.getAllowedValues() != null) {
+                message = message + ": " + error.getAllowedValues().toString();
+            }
+            errorsByPath.computeIfAbsent(dataPath, k -> new ArrayList<>()).add(message);
+        }
+        ArrayNode body = objectMapper.createArrayNode();
+        for (Map.Entry<String, List<String>> entry : errorsByPath.entrySet()) {
+            ObjectNode validationError = body.addObject();
+            validationError.put("dataPath", entry.getKey());
+            ArrayNode messages = validationError.putArray("errors");
+            entry.getValue().forEach(messages::add);
+        }
+        return body.toString();
+    }
 
+    private ResponseEntity<String> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(objectMapper.createObjectNode().put("error", message).toString());
+    }
 
 }
@@ -0,0 +1,215 @@
+package uk.ac.ebi.biosamples;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Curation;
+import uk.ac.ebi.biosamples.model.CurationLink;
+import uk.ac.ebi.biosamples.model.CurationLinkQuery;
+import uk.ac.ebi.biosamples.model.CurationLinkUndoReport;
+import uk.ac.ebi.biosamples.mongo.model.MongoCuration;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLink;
+import uk.ac.ebi.biosamples.mongo.model.MongoCurationLinkUndoJob;
+import uk.ac.ebi.biosamples.mongo.repo.MongoCurationLinkRepository;
+import uk.ac.ebi.biosamples.mongo.repo.MongoCurationLinkUndoJobRepository;
+import uk.ac.ebi.biosamples.mongo.repo.MongoCurationRepository;
+import uk.ac.ebi.biosamples.mongo.service.CurationLinkToMongoCurationLinkConverter;
+import uk.ac.ebi.biosamples.mongo.service.CurationToMongoCurationConverter;
+import uk.ac.ebi.biosamples.mongo.service.MongoCurationLinkToCurationLinkConverter;
+import uk.ac.ebi.biosamples.service.CurationPersistService;
+import uk.ac.ebi.biosamples.service.MessagingService;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CurationPersistServiceTest {
+
+	@Mock
+	private MongoCurationLinkRepository mongoCurationLinkRepository;
+	@Mock
+	private MongoCurationRepository mongoCurationRepository;
+	@Mock
+	private MongoCurationLinkUndoJobRepository mongoCurationLinkUndoJobRepository;
+	@Mock
+	private MessagingService messagingService;
+	@Spy
+	private CurationLinkToMongoCurationLinkConverter curationLinkToMongoCurationLinkConverter = new CurationLinkToMongoCurationLinkConverter();
+	@Spy
+	private MongoCurationLinkToCurationLinkConverter mongoCurationLinkToCurationLinkConverter = new MongoCurationLinkToCurationLinkConverter();
+	@Spy
+	private CurationToMongoCurationConverter curationToMongoCurationConverter = new CurationToMongoCurationConverter();
+
+	@InjectMocks
+	private CurationPersistService curationPersistService;
+
+	private final Curation curation = Curation.build(Attribute.build("sex", "M"), Attribute.build("sex", "male"));
+	private final Instant created = Instant.parse("2018-01-01T00:00:00Z");
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_only_new_links_are_reindexed() {
+		CurationLink existing = CurationLink.build("SAMEA1", curation, "self.test", created);
+		CurationLink first = CurationLink.build("SAMEA2", curation, "self.test", created);
+		CurationLink second = CurationLink.build("SAMEA2", Curation.build(Attribute.build("sex", "F"), Attribute.build("sex", "female")), "self.test", created);
+
+		when(mongoCurationLinkRepository.insertAllIfAbsent(anyCollectionOf(MongoCurationLink.class))).thenAnswer(invocation -> {
+			List<MongoCurationLink> inserted = new ArrayList<>((Collection<MongoCurationLink>) invocation.getArguments()[0]);
+			inserted.removeIf(mongoCurationLink -> mongoCurationLink.getSample().equals("SAMEA1"));
+			return inserted;
+		});
+
+		List<CurationLink> stored = curationPersistService.storeAll(Arrays.asList(existing, first, second));
+
+		Assert.assertEquals(Arrays.asList(first, second), stored);
+		ArgumentCaptor<Collection> curations = ArgumentCaptor.forClass(Collection.class);
+		verify(mongoCurationRepository).insertAllIfAbsent(curations.capture());
+		Assert.assertEquals(2, curations.getValue().size());
+		verify(messagingService).fetchThenSendMessage("SAMEA2");
+		verify(messagingService, never()).fetchThenSendMessage("SAMEA1");
+		verify(mongoCurationLinkRepository, never()).findOne(any(String.class));
+		verify(mongoCurationRepository, never()).findOne(any(String.class));
+	}
+
+	@Test
+	public void test_existing_link_is_not_reindexed() {
+		when(mongoCurationLinkRepository.insertAllIfAbsent(anyCollectionOf(MongoCurationLink.class))).thenReturn(Collections.emptyList());
+
+		CurationLink curationLink = CurationLink.build("SAMEA1", curation, "self.test", created);
+		Assert.assertFalse(curationPersistService.store(curationLink));
+
+		verify(mongoCurationRepository).insertAllIfAbsent(anyCollectionOf(MongoCuration.class));
+		Mockito.verifyZeroInteractions(messagingService);
+	}
+
+	private Stream<MongoCurationLink> storedLinks() {
+		Curation na = Curation.build(Attribute.build("sex", "n/a"), null);
+		Curation unknownSex = Curation.build(Attribute.build("sex", "unknown sex"), null);
+		return Stream.of(
+				MongoCurationLink.build("SAMEA1", unknownSex, "self.BiosampleCuration", created),
+				MongoCurationLink.build("SAMEA1", curation, "self.BiosampleCuration", created),
+				MongoCurationLink.build("SAMEA2", unknownSex, "self.BiosampleCuration", created),
+				MongoCurationLink.build("SAMEA3", na, "self.BiosampleCuration", created));
+	}
+
+	private final Instant from = created.minusSeconds(1);
+	private final CurationLinkQuery query = CurationLinkQuery.build("self.BiosampleCuration", from, null,
+			"sex", ".*(n/a|unknown).*", "(n/a|unknown)");
+
+	private MongoCurationLinkUndoJob job(boolean dryRun) {
+		when(mongoCurationLinkUndoJobRepository.save(any(MongoCurationLinkUndoJob.class)))
+				.thenAnswer(invocation -> invocation.getArguments()[0]);
+		return MongoCurationLinkUndoJob.build("1", query, dryRun, created);
+	}
+
+	@Test
+	public void test_undo_dry_run_only_reports() {
+		when(mongoCurationLinkRepository.streamByDomainAndCreated("self.BiosampleCuration", from, null)).thenReturn(storedLinks());
+
+		CurationLinkUndoReport report = curationPersistService.runUndo(job(true));
+
+		Assert.assertEquals(2, report.getMatched());
+		Assert.assertEquals(0, report.getDeleted());
+		Assert.assertEquals(2, report.getSamples());
+		Assert.assertEquals(2, report.getExamples().size());
+		Assert.assertEquals(CurationLinkUndoReport.Status.FINISHED, report.getStatus());
+		verify(mongoCurationLinkRepository, never()).deleteAllByHash(anyCollectionOf(String.class));
+		Mockito.verifyZeroInteractions(messagingService);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_undo_deletes_then_reindexes_each_sample_once() {
+		when(mongoCurationLinkRepository.streamByDomainAndCreated("self.BiosampleCuration", from, null)).thenReturn(storedLinks());
+		when(mongoCurationLinkRepository.deleteAllByHash(anyCollectionOf(String.class)))
+				.thenAnswer(invocation -> (long) ((Collection<String>) invocation.getArguments()[0]).size());
+
+		CurationLinkUndoReport report = curationPersistService.runUndo(job(false));
+
+		Assert.assertEquals(2, report.getDeleted());
+		ArgumentCaptor<Collection> hashes = ArgumentCaptor.forClass(Collection.class);
+		verify(mongoCurationLinkRepository).deleteAllByHash(hashes.capture());
+		Assert.assertEquals(2, hashes.getValue().size());
+		verify(messagingService, times(1)).fetchThenSendMessage(eq("SAMEA1"));
+		verify(messagingService, times(1)).fetchThenSendMessage(eq("SAMEA2"));
+		verify(messagingService, never()).fetchThenSendMessage(eq("SAMEA3"));
+	}
+
+	@Test
+	public void test_failed_undo_is_resumed_with_its_progress() {
+		when(mongoCurationLinkRepository.streamByDomainAndCreated("self.BiosampleCuration", from, null))
+				.thenThrow(new IllegalStateException("connection lost"));
+
+		CurationLinkUndoReport report = curationPersistService.runUndo(job(false));
+
+		Assert.assertEquals(CurationLinkUndoReport.Status.FAILED, report.getStatus());
+
+		//the links deleted before it failed are no longer stored, so are not selected again
+		MongoCurationLinkUndoJob failed = MongoCurationLinkUndoJob.build("1", query, false, created)
+				.update(CurationLinkUndoReport.Status.RUNNING, 1, 1, 1, Collections.emptyList(),
+						Collections.singletonList("SAMEA1"), created);
+		Mockito.doReturn(storedLinks().skip(1)).when(mongoCurationLinkRepository)
+				.streamByDomainAndCreated("self.BiosampleCuration", from, null);
+		when(mongoCurationLinkRepository.deleteAllByHash(anyCollectionOf(String.class))).thenReturn(1L);
+
+		report = curationPersistService.runUndo(failed);
+
+		Assert.assertEquals(CurationLinkUndoReport.Status.FINISHED, report.getStatus());
+		Assert.assertEquals(2, report.getMatched());
+		Assert.assertEquals(2, report.getDeleted());
+		Assert.assertEquals(2, report.getSamples());
+		//the sample whose link was deleted before it failed is still reindexed
+		verify(messagingService).fetchThenSendMessage(eq("SAMEA1"));
+		verify(messagingService).fetchThenSendMessage(eq("SAMEA2"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_undo_reindexes_sample_in_several_batches_once() {
+		List<MongoCurationLink> links = new ArrayList<>();
+		for (int i = 0; i < 1500; i++) {
+			links.add(MongoCurationLink.build("SAMEA1", Curation.build(Attribute.build("sex", "unknown " + i), null),
+					"self.BiosampleCuration", created));
+			if (i == 999) {
+				links.add(MongoCurationLink.build("SAMEA2", Curation.build(Attribute.build("sex", "n/a " + i), null),
+						"self.BiosampleCuration", created));
+			}
+		}
+		when(mongoCurationLinkRepository.streamByDomainAndCreated("self.BiosampleCuration", from, null)).thenReturn(links.stream());
+		when(mongoCurationLinkRepository.deleteAllByHash(anyCollectionOf(String.class)))
+				.thenAnswer(invocation -> (long) ((Collection<String>) invocation.getArguments()[0]).size());
+		ArgumentCaptor<MongoCurationLinkUndoJob> saved = ArgumentCaptor.forClass(MongoCurationLinkUndoJob.class);
+
+		CurationLinkUndoReport report = curationPersistService.runUndo(job(false));
+
+		Assert.assertEquals(CurationLinkUndoReport.Status.FINISHED, report.getStatus());
+		Assert.assertEquals(1501, report.getDeleted());
+		verify(mongoCurationLinkRepository, times(2)).deleteAllByHash(anyCollectionOf(String.class));
+		verify(messagingService, times(1)).fetchThenSendMessage(eq("SAMEA1"));
+		verify(messagingService, times(1)).fetchThenSendMessage(eq("SAMEA2"));
+		//after the first batch the sample is kept with the job to reindex, and when finished it is not
+		verify(mongoCurationLinkUndoJobRepository, times(2)).save(saved.capture());
+		Assert.assertEquals(Collections.singletonList("SAMEA1"), saved.getAllValues().get(0).getReindex());
+		Assert.assertEquals(Collections.emptyList(), saved.getAllValues().get(1).getReindex());
+	}
+}
@@ -0,0 +1,221 @@
+package uk.ac.ebi.biosamples;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+import uk.ac.ebi.biosamples.service.JsonSchema;
+import uk.ac.ebi.biosamples.service.SchemaValidatorService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks the in-process validation gives the same response as the external json-schema-validator,
+ * over the cases in src/test/resources/schema-validation. Each case has the schema, the object and
+ * the response the external validator gives for them.
+ *
+ * To check the cases against a running external validator, set the system property
+ * schema.validator.uri to its validate endpoint, e.g. http://localhost:3020/validate
+ */
+public class SchemaValidationParityTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private BioSamplesProperties bioSamplesProperties;
+	private SchemaValidatorService schemaValidatorService;
+
+	@Before
+	public void setup() {
+		bioSamplesProperties = Mockito.mock(BioSamplesProperties.class);
+		Mockito.when(bioSamplesProperties.getBiosamplesSchemaValidatorCacheMaxSize()).thenReturn(10);
+		schemaValidatorService = new SchemaValidatorService(new RestTemplateBuilder(), objectMapper, bioSamplesProperties, null);
+	}
+
+	private List<JsonNode> readCases() throws IOException {
+		List<JsonNode> cases = new ArrayList<>();
+		for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath:schema-validation/*.json")) {
+			ObjectNode validationCase = (ObjectNode) objectMapper.readTree(resource.getInputStream());
+			validationCase.put("name", resource.getFilename());
+			cases.add(validationCase);
+		}
+		Assert.assertFalse(cases.isEmpty());
+		return cases;
+	}
+
+	private String request(JsonNode validationCase) {
+		ObjectNode request = objectMapper.createObjectNode();
+		request.set("schema", validationCase.get("schema"));
+		request.set("object", validationCase.get("object"));
+		return request.toString();
+	}
+
+	@Test
+	public void testCasesMatchExternalValidatorResponses() throws IOException {
+		for (JsonNode validationCase : readCases()) {
+			ResponseEntity<String> response = schemaValidatorService.validate(request(validationCase));
+			Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+			Assert.assertEquals(validationCase.get("name").asText(),
+					validationCase.get("expected"), objectMapper.readTree(response.getBody()));
+		}
+	}
+
+	@Test
+	public void testCasesMatchRunningExternalValidator() throws IOException {
+		String uri = System.getProperty("schema.validator.uri");
+		Assume.assumeNotNull(uri);
+		Mockito.when(bioSamplesProperties.getBiosamplesSchemaValidatorServiceUri()).thenReturn(URI.create(uri));
+		Mockito.when(bioSamplesProperties.getBiosamplesSchemaValidatorFallback()).thenReturn(true);
+		for (JsonNode validationCase : readCases()) {
+			String external = new RestTemplateBuilder().build().postForObject(uri, objectMapper.readTree(request(validationCase)), String.class);
+			String internal = schemaValidatorService.validate(request(validationCase)).getBody();
+			Assert.assertEquals(validationCase.get("name").asText(), objectMapper.readTree(external), objectMapper.readTree(internal));
+		}
+	}
+
+	@Test
+	public void testConcurrentValidationOfCompiledSchema() throws Exception {
+		List<JsonNode> cases = readCases();
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				JsonNode validationCase = cases.get(i % cases.size());
+				futures.add(executorService.submit((Callable<Void>) () -> {
+					String body = schemaValidatorService.validate(request(validationCase)).getBody();
+					Assert.assertEquals(validationCase.get("expected"), objectMapper.readTree(body));
+					return null;
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testInvalidObjectFixture() throws IOException {
+		String request = StreamUtils.copyToString(new ClassPathResource("json_schema_not_valid_object.json").getInputStream(),
+				StandardCharsets.UTF_8);
+		ResponseEntity<String> response = schemaValidatorService.validate(request);
+		Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+		Assert.assertEquals(objectMapper.readTree("["
+				+ "{\"dataPath\":\"[0].antibiotic\",\"errors\":[\"should have required property 'antibiotic'\"]},"
+				+ "{\"dataPath\":\"[0].measurement_sign\",\"errors\":[\"should have required property 'measurement_sign'\"]},"
+				+ "{\"dataPath\":\"[0].measurement\",\"errors\":[\"should be string\"]},"
+				+ "{\"dataPath\":\"[0].measurement_units\",\"errors\":[\"should have required property 'measurement_units'\"]}]"),
+				objectMapper.readTree(response.getBody()));
+	}
+
+	@Test
+	public void testMalformedRequests() throws IOException {
+		ResponseEntity<String> response = schemaValidatorService.validate("{\"schema\": {");
+		Assert.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+		Assert.assertEquals("Received malformed JSON.", objectMapper.readTree(response.getBody()).get("error").asText());
+
+		response = schemaValidatorService.validate("{\"schema\": {}}");
+		Assert.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+	}
+
+	@Test
+	public void testUnsupportedSchemaWithoutFallback() {
+		ResponseEntity<String> response = schemaValidatorService.validate(
+				"{\"schema\": {\"$async\": true, \"properties\": {\"url\": {\"isValidTerm\": true}}}, \"object\": {}}");
+		Assert.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+	}
+
+	@Test
+	public void testUnsupportedSchemaWithFallback() throws IOException {
+		String externalResponse = "[{\"dataPath\":\".url\",\"errors\":[\"provided term does not exist in OLS\"]}]";
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/validate", exchange -> {
+			byte[] body = externalResponse.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream outputStream = exchange.getResponseBody()) {
+				outputStream.write(body);
+			}
+		});
+		server.start();
+		try {
+			Mockito.when(bioSamplesProperties.getBiosamplesSchemaValidatorServiceUri())
+					.thenReturn(URI.create("http://localhost:" + server.getAddress().getPort() + "/validate"));
+			Mockito.when(bioSamplesProperties.getBiosamplesSchemaValidatorFallback()).thenReturn(true);
+			ResponseEntity<String> response = schemaValidatorService.validate(
+					"{\"schema\": {\"$async\": true, \"properties\": {\"url\": {\"isValidTerm\": true}}}, \"object\": {\"url\": \"x\"}}");
+			Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+			Assert.assertEquals(externalResponse, response.getBody());
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnresolvableReference() throws IOException {
+		JsonSchema.compile(objectMapper.readTree("{\"properties\": {\"a\": {\"$ref\": \"#/definitions/missing\"}}}"));
+	}
+
+	@Test
+	public void testSchemasWithTheSameIdAreKeptApart() throws IOException {
+		String first = "{\"schema\": {\"$id\": \"https://example.org/sample.json\", \"required\": [\"name\"]}, \"object\": {}}";
+		String second = "{\"schema\": {\"$id\": \"https://example.org/sample.json\", \"required\": [\"age\"]}, \"object\": {}}";
+		Assert.assertEquals(objectMapper.readTree("[{\"dataPath\":\".name\",\"errors\":[\"should have required property 'name'\"]}]"),
+				objectMapper.readTree(schemaValidatorService.validate(first).getBody()));
+		Assert.assertEquals(objectMapper.readTree("[{\"dataPath\":\".age\",\"errors\":[\"should have required property 'age'\"]}]"),
+				objectMapper.readTree(schemaValidatorService.validate(second).getBody()));
+	}
+
+	@Test
+	public void testSelfReferenceOnTheSameDataIsRejected() throws IOException {
+		String[] schemas = {
+				"{\"$ref\": \"#\"}",
+				"{\"allOf\": [{\"$ref\": \"#/definitions/a\"}], \"definitions\": {\"a\": {\"anyOf\": [{\"$ref\": \"#\"}]}}}",
+				//the cycle is only on the same data through allOf, the first reference to a is for a property
+				"{\"properties\": {\"x\": {\"$ref\": \"#/definitions/a\"}}, \"allOf\": [{\"$ref\": \"#/definitions/a\"}],"
+						+ " \"definitions\": {\"a\": {\"not\": {\"$ref\": \"#\"}}}}"};
+		for (String schema : schemas) {
+			try {
+				JsonSchema.compile(objectMapper.readTree(schema));
+				Assert.fail("Compiled " + schema);
+			} catch (IllegalArgumentException e) {
+				Assert.assertFalse(e instanceof JsonSchema.UnsupportedSchemaException);
+			}
+		}
+		ResponseEntity<String> response = schemaValidatorService.validate("{\"schema\": {\"$ref\": \"#\"}, \"object\": {}}");
+		Assert.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+	}
+
+	@Test
+	public void testSelfReferenceThroughAPropertyIsValidated() throws IOException {
+		JsonSchema schema = JsonSchema.compile(objectMapper.readTree(
+				"{\"required\": [\"name\"], \"properties\": {\"child\": {\"$ref\": \"#\"}}}"));
+		Assert.assertTrue(schema.validate(objectMapper.readTree("{\"name\": \"a\", \"child\": {\"name\": \"b\"}}")).isEmpty());
+		List<JsonSchema.Error> errors = schema.validate(objectMapper.readTree(
+				"{\"name\": \"a\", \"child\": {\"name\": \"b\", \"child\": {}}}"));
+		Assert.assertEquals(1, errors.size());
+		Assert.assertEquals(".child.child", errors.get(0).getDataPath());
+		Assert.assertEquals("name", errors.get(0).getMissingProperty());
+	}
+}
@@ -0,0 +1,112 @@
+package uk.ac.ebi.biosamples.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import uk.ac.ebi.biosamples.model.filter.Filter;
+import uk.ac.ebi.biosamples.service.AccessionsService;
+import uk.ac.ebi.biosamples.service.FilterBuilder;
+import uk.ac.ebi.biosamples.service.FilterService;
+import uk.ac.ebi.biosamples.solr.repo.CursorArrayList;
+import uk.ac.ebi.biosamples.utils.LinkUtils;
+
+public class AccessionsRestControllerTest {
+
+	private final String filter = "acc:SAMEA[0-9]+";
+	//solr cursor marks are base64, so can have characters that must be encoded in the link
+	private final String nextCursor = "AoE/U0FNRUEx+w==";
+
+	private AccessionsService accessionsService;
+	private MockMvc mockMvc;
+
+	@Before
+	public void setup() {
+		accessionsService = mock(AccessionsService.class);
+		mockMvc = MockMvcBuilders.standaloneSetup(new AccessionsRestController(accessionsService, new FilterService()))
+				.build();
+	}
+
+	@Test
+	public void test_next_page_is_linked() throws Exception {
+		when(accessionsService.getAccessions(anyCollectionOf(Filter.class), eq("*"), eq(2)))
+				.thenReturn(new CursorArrayList<>(Arrays.asList("SAMEA1", "SAMEA2"), nextCursor));
+
+		MvcResult result = mockMvc.perform(get("/accessions").param("filter", filter).param("cursor", "*")
+				.param("size", "2").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().json("[\"SAMEA1\",\"SAMEA2\"]"))
+				.andReturn();
+
+		Link next = Link.valueOf(result.getResponse().getHeader(HttpHeaders.LINK));
+		assertEquals(Link.REL_NEXT, next.getRel());
+		MultiValueMap<String, String> params = UriComponentsBuilder.fromUriString(next.getHref()).build().getQueryParams();
+		assertEquals(nextCursor, LinkUtils.decodeText(params.getFirst("cursor")));
+		assertEquals(filter, LinkUtils.decodeText(params.getFirst("filter")));
+		assertEquals("2", params.getFirst("size"));
+
+		verify(accessionsService).getAccessions(
+				eq(Collections.singletonList(FilterBuilder.create().onAccession("SAMEA[0-9]+").build())), eq("*"), eq(2));
+	}
+
+	@Test
+	public void test_next_page_is_requested_with_its_cursor() throws Exception {
+		when(accessionsService.getAccessions(anyCollectionOf(Filter.class), eq(nextCursor), eq(2)))
+				.thenReturn(new CursorArrayList<>(Collections.singletonList("SAMEA3"), "AoE/U0FNRUEz"));
+
+		mockMvc.perform(get("/accessions").param("cursor", nextCursor).param("size", "2")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().json("[\"SAMEA3\"]"));
+
+		verify(accessionsService).getAccessions(anyCollectionOf(Filter.class), eq(nextCursor), eq(2));
+	}
+
+	@Test
+	public void test_last_page_is_not_linked() throws Exception {
+		//solr returns the same cursor once there are no more results
+		when(accessionsService.getAccessions(anyCollectionOf(Filter.class), eq(nextCursor), eq(2)))
+				.thenReturn(new CursorArrayList<>(Collections.emptyList(), nextCursor));
+
+		MvcResult result = mockMvc.perform(get("/accessions").param("cursor", nextCursor).param("size", "2")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().json("[]"))
+				.andReturn();
+
+		assertNull(result.getResponse().getHeader(HttpHeaders.LINK));
+	}
+
+	@Test
+	public void test_no_results_are_not_linked() throws Exception {
+		when(accessionsService.getAccessions(anyCollectionOf(Filter.class), eq("*"), eq(1000)))
+				.thenReturn(new CursorArrayList<>(Collections.emptyList(), "*"));
+
+		MvcResult result = mockMvc.perform(get("/accessions").param("cursor", "*").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn();
+
+		assertNull(result.getResponse().getHeader(HttpHeaders.LINK));
+	}
+}
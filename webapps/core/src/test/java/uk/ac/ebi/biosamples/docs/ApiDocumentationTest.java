@@ -311,7 +311,7 @@ public class ApiDocumentationTest {
     public void postCurationLink() throws Exception {
         CurationLink curationLink = this.faker.getExampleCurationLink();
         when(aapService.handleCurationLinkDomain(eq(curationLink))).thenReturn(curationLink);
-        when(curationPersistService.store(curationLink)).thenReturn(curationLink);
+        when(curationPersistService.store(curationLink)).thenReturn(true);
 
         this.mockMvc.perform(
                 post("/biosamples/samples/{accession}/curationlinks", curationLink.getSample()).contentType(MediaType.APPLICATION_JSON).content(serialize(curationLink)).header("Authorization", "Bearer $TOKEN"))
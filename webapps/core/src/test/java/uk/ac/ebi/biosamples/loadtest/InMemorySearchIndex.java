@@ -0,0 +1,144 @@
+package uk.ac.ebi.biosamples.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import uk.ac.ebi.biosamples.MessageContent;
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Sample;
+import uk.ac.ebi.biosamples.solr.model.SolrSample;
+import uk.ac.ebi.biosamples.solr.repo.CursorArrayList;
+
+/**
+ * Stands in for solr during a load test. It is fed the same messages the webapp sends
+ * for indexing, so samples written during the run become searchable as they would
+ * through the solr agent.
+ *
+ * Text searches match samples containing every word of the text in their name, or
+ * attribute types and values. Filters and domains are not supported, as the aim is to
+ * load the webapp and mongo rather than to reproduce solr relevance.
+ */
+public class InMemorySearchIndex {
+
+    private final Map<String, NavigableSet<String>> accessionsByToken = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> tokensByAccession = new ConcurrentHashMap<>();
+    private final NavigableSet<String> accessions = new ConcurrentSkipListSet<>();
+
+    public void index(Object message) {
+        if (message instanceof MessageContent) {
+            MessageContent messageContent = (MessageContent) message;
+            if (messageContent.hasSample()) {
+                index(messageContent.getSample());
+            }
+            for (Sample related : messageContent.getRelated()) {
+                index(related);
+            }
+        }
+    }
+
+    public synchronized void index(Sample sample) {
+        String accession = sample.getAccession();
+        Set<String> tokens = new HashSet<>(tokenize(sample.getName()));
+        for (Attribute attribute : sample.getCharacteristics()) {
+            tokens.addAll(tokenize(attribute.getType()));
+            tokens.addAll(tokenize(attribute.getValue()));
+        }
+
+        Set<String> previous = tokensByAccession.put(accession, tokens);
+        if (previous != null) {
+            for (String token : previous) {
+                if (!tokens.contains(token)) {
+                    accessionsByToken.get(token).remove(accession);
+                }
+            }
+        }
+        for (String token : tokens) {
+            accessionsByToken.computeIfAbsent(token, k -> new ConcurrentSkipListSet<>()).add(accession);
+        }
+        accessions.add(accession);
+    }
+
+    public Page<SolrSample> search(String text, Pageable pageable) {
+        NavigableSet<String> matches = match(text);
+        List<SolrSample> content = new ArrayList<>(pageable.getPageSize());
+        Iterator<String> iterator = matches.iterator();
+        for (int i = 0; i < pageable.getOffset() && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+        while (iterator.hasNext() && content.size() < pageable.getPageSize()) {
+            content.add(toSolrSample(iterator.next()));
+        }
+        return new PageImpl<>(content, pageable, matches.size());
+    }
+
+    public CursorArrayList<SolrSample> search(String text, String cursorMark, int size) {
+        NavigableSet<String> matches = match(text);
+        //cursor is the last accession of the previous page, in the same order solr sorts by id
+        if (cursorMark != null && !"*".equals(cursorMark)) {
+            matches = matches.tailSet(cursorMark, false);
+        }
+        List<SolrSample> content = new ArrayList<>(size);
+        String nextCursorMark = cursorMark;
+        for (String accession : matches) {
+            if (content.size() >= size) {
+                break;
+            }
+            content.add(toSolrSample(accession));
+            nextCursorMark = accession;
+        }
+        return new CursorArrayList<>(content, nextCursorMark);
+    }
+
+    private NavigableSet<String> match(String text) {
+        List<String> tokens = tokenize(text);
+        if (tokens.isEmpty() || "*:*".equals(text.trim())) {
+            return accessions;
+        }
+        //start from the rarest word, and keep those with all the others
+        NavigableSet<String> rarest = null;
+        for (String token : tokens) {
+            NavigableSet<String> withToken = accessionsByToken.getOrDefault(token, Collections.emptyNavigableSet());
+            if (rarest == null || withToken.size() < rarest.size()) {
+                rarest = withToken;
+            }
+        }
+        NavigableSet<String> matches = new ConcurrentSkipListSet<>();
+        for (String accession : rarest) {
+            Set<String> sampleTokens = tokensByAccession.get(accession);
+            if (sampleTokens != null && sampleTokens.containsAll(tokens)) {
+                matches.add(accession);
+            }
+        }
+        return matches;
+    }
+
+    private SolrSample toSolrSample(String accession) {
+        return SolrSample.build(null, accession, null, null, null, null, null,
+                null, null, null, null, null, null, Collections.emptyList());
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() > 0) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
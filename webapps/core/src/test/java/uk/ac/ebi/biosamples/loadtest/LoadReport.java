@@ -0,0 +1,137 @@
+package uk.ac.ebi.biosamples.loadtest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the latency of each operation of a load test, and writes the percentiles and
+ * throughput of each kind of operation as a tab separated file.
+ *
+ * The file starts with comment lines describing the run, followed by one row per
+ * operation, so two runs can be compared with a diff or read back by {@link #compare(Path)}.
+ */
+public class LoadReport {
+
+	private static final String HEADER = "operation\tcount\terrors\tthroughput_per_s\tmean_ms\tp50_ms\tp90_ms\tp95_ms\tp99_ms\tmax_ms";
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final SortedMap<String, Operation> operations = new ConcurrentSkipListMap<>();
+	private final SortedMap<String, String> settings = new ConcurrentSkipListMap<>();
+
+	public void setting(String name, Object value) {
+		settings.put(name, String.valueOf(value));
+	}
+
+	public void record(String operation, long nanos, boolean error) {
+		operations.computeIfAbsent(operation, k -> new Operation()).record(nanos, error);
+	}
+
+	/**
+	 * Sets the wall clock time taken by the phase an operation was run in, which its
+	 * throughput is calculated from.
+	 */
+	public void elapsed(String operation, long nanos) {
+		operations.computeIfAbsent(operation, k -> new Operation()).elapsedNanos = nanos;
+	}
+
+	public long getErrors() {
+		return operations.values().stream().mapToLong(o -> o.errors).sum();
+	}
+
+	public void write(Path path) throws IOException {
+		if (path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+			for (Map.Entry<String, String> setting : settings.entrySet()) {
+				writer.println("# " + setting.getKey() + "=" + setting.getValue());
+			}
+			writer.println(HEADER);
+			for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+				writer.println(entry.getKey() + "\t" + entry.getValue().toRow());
+			}
+		}
+		log.info("Wrote load test report to " + path.toAbsolutePath());
+	}
+
+	/**
+	 * Logs the change in throughput and 95th percentile latency of each operation
+	 * compared to the report of an earlier run.
+	 */
+	public void compare(Path baseline) throws IOException {
+		Map<String, String[]> baselineRows = new HashMap<>();
+		List<String> lines = Files.readAllLines(baseline, StandardCharsets.UTF_8);
+		for (String line : lines) {
+			if (!line.startsWith("#") && !line.equals(HEADER)) {
+				String[] row = line.split("\t");
+				baselineRows.put(row[0], row);
+			}
+		}
+		for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+			String[] baselineRow = baselineRows.get(entry.getKey());
+			if (baselineRow == null) {
+				log.info(entry.getKey() + " not in baseline " + baseline);
+				continue;
+			}
+			String[] row = entry.getValue().toRow().split("\t");
+			log.info(String.format(Locale.ROOT, "%s throughput %s/s (baseline %s/s), p95 %sms (baseline %sms)",
+					entry.getKey(), row[2], baselineRow[3], row[6], baselineRow[7]));
+		}
+	}
+
+	private static class Operation {
+		private long[] latencies = new long[1024];
+		private int count = 0;
+		private long errors = 0;
+		private volatile long elapsedNanos = 0;
+
+		private synchronized void record(long nanos, boolean error) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = nanos;
+			if (error) {
+				errors += 1;
+			}
+		}
+
+		private synchronized String toRow() {
+			long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+			double throughput = elapsedNanos > 0 ? count / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0.0;
+			double mean = count > 0 ? Arrays.stream(sorted).average().getAsDouble() : 0.0;
+			return String.format(Locale.ROOT, "%d\t%d\t%.1f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f",
+					count, errors, throughput, toMs(mean),
+					toMs(percentile(sorted, 50)), toMs(percentile(sorted, 90)), toMs(percentile(sorted, 95)),
+					toMs(percentile(sorted, 99)), toMs(count > 0 ? sorted[count - 1] : 0));
+		}
+
+		private static long percentile(long[] sorted, double percentile) {
+			if (sorted.length == 0) {
+				return 0;
+			}
+			//nearest rank
+			int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+			return sorted[Math.max(rank, 1) - 1];
+		}
+
+		private static double toMs(double nanos) {
+			return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package uk.ac.ebi.biosamples.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.data.domain.Pageable;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import uk.ac.ebi.biosamples.model.CurationLink;
+import uk.ac.ebi.biosamples.model.Sample;
+import uk.ac.ebi.biosamples.model.facet.Facet;
+import uk.ac.ebi.biosamples.service.BioSamplesAapService;
+import uk.ac.ebi.biosamples.solr.service.SolrFacetService;
+import uk.ac.ebi.biosamples.solr.service.SolrSampleService;
+
+/**
+ * Loads a synthetic corpus into the core webapp and then runs a mix of reads, writes,
+ * searches and cursor traversals against it over http, reporting latency percentiles and
+ * throughput to a file that can be compared between runs.
+ *
+ * Mongo is embedded. Solr and rabbit are replaced by an {@link InMemorySearchIndex} that
+ * is fed the messages the webapp would send for indexing, and AAP accepts everything.
+ *
+ * This is excluded from the normal build, run it with
+ * <pre>mvn -Ploadtest test -Dloadtest.samples=10000 -Dloadtest.baseline=previous.tsv</pre>
+ * Settings are read from system properties, see the fields below for their defaults.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+public class LoadTest {
+
+	private static final String DOMAIN = "self.BiosampleLoadTest";
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final long seed = Long.getLong("loadtest.seed", 42);
+	private final int corpusSize = Integer.getInteger("loadtest.samples", 2000);
+	private final double meanRelationships = Double.parseDouble(System.getProperty("loadtest.relationships", "1.5"));
+	private final double curationDensity = Double.parseDouble(System.getProperty("loadtest.curations", "0.3"));
+	private final int threads = Integer.getInteger("loadtest.threads", 8);
+	private final int operations = Integer.getInteger("loadtest.operations", 20000);
+	private final String mix = System.getProperty("loadtest.mix", "read:60,search:20,write:10,curate:5,cursor:5");
+	private final int cursorPages = Integer.getInteger("loadtest.cursor.pages", 5);
+	private final int pageSize = Integer.getInteger("loadtest.page.size", 50);
+	private final Path reportPath = Paths.get(System.getProperty("loadtest.report", "target/loadtest/report.tsv"));
+	private final String baselinePath = System.getProperty("loadtest.baseline");
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@MockBean
+	private BioSamplesAapService bioSamplesAapService;
+
+	@MockBean
+	private SolrSampleService solrSampleService;
+
+	@MockBean
+	private SolrFacetService solrFacetService;
+
+	@MockBean
+	private RabbitTemplate rabbitTemplate;
+
+	private final InMemorySearchIndex searchIndex = new InMemorySearchIndex();
+
+	@SuppressWarnings("unchecked")
+	@Before
+	public void setup() {
+		when(bioSamplesAapService.handleSampleDomain(any(Sample.class)))
+			.thenAnswer(invocation -> invocation.getArguments()[0]);
+		when(bioSamplesAapService.handleCurationLinkDomain(any(CurationLink.class)))
+			.thenAnswer(invocation -> invocation.getArguments()[0]);
+
+		doAnswer(invocation -> {
+			searchIndex.index(invocation.getArguments()[2]);
+			return null;
+		}).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
+
+		when(solrSampleService.fetchSolrSampleByText(anyString(), any(Collection.class), any(Collection.class), any(Pageable.class)))
+			.thenAnswer(invocation -> searchIndex.search((String) invocation.getArguments()[0], (Pageable) invocation.getArguments()[3]));
+		when(solrSampleService.fetchSolrSampleByText(anyString(), any(Collection.class), any(Collection.class), anyString(), anyInt()))
+			.thenAnswer(invocation -> searchIndex.search((String) invocation.getArguments()[0],
+					(String) invocation.getArguments()[3], (Integer) invocation.getArguments()[4]));
+		when(solrFacetService.getFacets(anyString(), any(Collection.class), any(Collection.class), any(Pageable.class), any(Pageable.class)))
+			.thenReturn(Collections.<Facet>emptyList());
+	}
+
+	@Test
+	public void run() throws Exception {
+		LoadReport report = new LoadReport();
+		report.setting("seed", seed);
+		report.setting("samples", corpusSize);
+		report.setting("relationships", meanRelationships);
+		report.setting("curations", curationDensity);
+		report.setting("threads", threads);
+		report.setting("operations", operations);
+		report.setting("mix", mix);
+		report.setting("started", Instant.now());
+
+		SyntheticCorpus corpus = new SyntheticCorpus(seed, corpusSize, meanRelationships, curationDensity, DOMAIN);
+		log.info("Generated " + corpus.getSamples().size() + " samples and " + corpus.getCurationLinks().size() + " curations");
+
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		try {
+			//load samples before curations, so that curations are applied to existing samples
+			List<Callable<Void>> loadSamples = new ArrayList<>();
+			for (Sample sample : corpus.getSamples()) {
+				loadSamples.add(() -> {
+					timed(report, "load sample", () -> putSample(sample));
+					return null;
+				});
+			}
+			runPhase(executorService, loadSamples, report, "load sample");
+
+			List<Callable<Void>> loadCurations = new ArrayList<>();
+			for (CurationLink curationLink : corpus.getCurationLinks()) {
+				loadCurations.add(() -> {
+					timed(report, "load curation", () -> postCurationLink(curationLink));
+					return null;
+				});
+			}
+			runPhase(executorService, loadCurations, report, "load curation");
+
+			//warm up with a separate report so it doesn't count
+			runWorkload(executorService, corpus, new LoadReport(), seed - 1, operations / 10);
+			runWorkload(executorService, corpus, report, seed, operations);
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		report.write(reportPath);
+		if (baselinePath != null) {
+			report.compare(Paths.get(baselinePath));
+		}
+		assertThat(report.getErrors()).isZero();
+	}
+
+	private void runWorkload(ExecutorService executorService, SyntheticCorpus corpus, LoadReport report,
+			long workloadSeed, int workloadOperations) throws Exception {
+		Map<String, Integer> weights = parseMix(mix);
+		int totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		AtomicInteger remaining = new AtomicInteger(workloadOperations);
+		for (int i = 0; i < threads; i++) {
+			//each thread has its own random so the sequence of operations is repeatable
+			Random random = new Random(workloadSeed + i);
+			tasks.add(() -> {
+				while (remaining.getAndDecrement() > 0) {
+					runOperation(corpus, report, pickOperation(weights, totalWeight, random), random);
+				}
+				return null;
+			});
+		}
+		long start = System.nanoTime();
+		for (Future<Void> future : executorService.invokeAll(tasks)) {
+			future.get();
+		}
+		long elapsed = System.nanoTime() - start;
+		for (String operation : weights.keySet()) {
+			report.elapsed(operation, elapsed);
+		}
+	}
+
+	private void runOperation(SyntheticCorpus corpus, LoadReport report, String operation, Random random) {
+		switch (operation) {
+		case "read":
+			String accession = corpus.getAccession(random);
+			timed(report, operation, () -> get(UriComponentsBuilder.fromPath("/samples/{accession}")
+					.buildAndExpand(accession).toUri()));
+			break;
+		case "search":
+			String text = corpus.getSearchText(random);
+			timed(report, operation, () -> get(UriComponentsBuilder.fromPath("/samples")
+					.queryParam("text", text).queryParam("size", pageSize).build().encode().toUri()));
+			break;
+		case "write":
+			Sample sample = corpus.revise(corpus.getAccession(random), random);
+			timed(report, operation, () -> putSample(sample));
+			break;
+		case "curate":
+			CurationLink curationLink = corpus.curate(corpus.getAccession(random), random);
+			timed(report, operation, () -> postCurationLink(curationLink));
+			break;
+		case "cursor":
+			//each page of the cursor is timed separately, as a client would fetch them
+			URI uri = UriComponentsBuilder.fromPath("/samples").queryParam("text", corpus.getSearchText(random))
+					.queryParam("cursor", "*").queryParam("size", pageSize).build().encode().toUri();
+			for (int page = 0; page < cursorPages && uri != null; page++) {
+				URI pageUri = uri;
+				ResponseEntity<String> response = timed(report, operation, () -> get(pageUri));
+				uri = response == null ? null : getNextLink(response);
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unrecognized operation " + operation);
+		}
+	}
+
+	private ResponseEntity<String> get(URI uri) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setAccept(Collections.singletonList(MediaTypes.HAL_JSON));
+		return restTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+	}
+
+	private ResponseEntity<String> putSample(Sample sample) {
+		return restTemplate.exchange(UriComponentsBuilder.fromPath("/samples/{accession}").buildAndExpand(sample.getAccession()).toUri(),
+				HttpMethod.PUT, new HttpEntity<>(sample, getWriteHeaders()), String.class);
+	}
+
+	private ResponseEntity<String> postCurationLink(CurationLink curationLink) {
+		return restTemplate.exchange(UriComponentsBuilder.fromPath("/samples/{accession}/curationlinks").buildAndExpand(curationLink.getSample()).toUri(),
+				HttpMethod.POST, new HttpEntity<>(curationLink, getWriteHeaders()), String.class);
+	}
+
+	private HttpHeaders getWriteHeaders() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		headers.setAccept(Collections.singletonList(MediaTypes.HAL_JSON));
+		headers.set(HttpHeaders.AUTHORIZATION, "Bearer $TOKEN");
+		return headers;
+	}
+
+	private URI getNextLink(ResponseEntity<String> response) {
+		try {
+			JsonNode next = objectMapper.readTree(response.getBody()).path("_links").path("next").path("href");
+			return next.isMissingNode() ? null : URI.create(next.asText());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private ResponseEntity<String> timed(LoadReport report, String operation, Callable<ResponseEntity<String>> request) {
+		long start = System.nanoTime();
+		ResponseEntity<String> response = null;
+		boolean error;
+		try {
+			response = request.call();
+			error = !response.getStatusCode().is2xxSuccessful();
+			if (error) {
+				log.warn(operation + " returned " + response.getStatusCode());
+			}
+		} catch (Exception e) {
+			log.warn(operation + " failed", e);
+			error = true;
+		}
+		report.record(operation, System.nanoTime() - start, error);
+		return error ? null : response;
+	}
+
+	private void runPhase(ExecutorService executorService, List<Callable<Void>> tasks, LoadReport report,
+			String operation) throws Exception {
+		long start = System.nanoTime();
+		for (Future<Void> future : executorService.invokeAll(tasks)) {
+			future.get();
+		}
+		report.elapsed(operation, System.nanoTime() - start);
+	}
+
+	private static Map<String, Integer> parseMix(String mix) {
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.trim().split(":");
+			weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+		}
+		return weights;
+	}
+
+	private static String pickOperation(Map<String, Integer> weights, int totalWeight, Random random) {
+		int choice = random.nextInt(totalWeight);
+		for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+			choice -= weight.getValue();
+			if (choice < 0) {
+				return weight.getKey();
+			}
+		}
+		throw new IllegalStateException("Unable to pick operation from " + weights);
+	}
+}
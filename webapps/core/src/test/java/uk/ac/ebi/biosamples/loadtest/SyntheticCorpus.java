@@ -0,0 +1,201 @@
+package uk.ac.ebi.biosamples.loadtest;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import uk.ac.ebi.biosamples.model.Attribute;
+import uk.ac.ebi.biosamples.model.Curation;
+import uk.ac.ebi.biosamples.model.CurationLink;
+import uk.ac.ebi.biosamples.model.ExternalReference;
+import uk.ac.ebi.biosamples.model.Relationship;
+import uk.ac.ebi.biosamples.model.Sample;
+
+/**
+ * Generates a repeatable set of samples and curations to load test against. The same
+ * seed and size always produce the same corpus, so runs can be compared.
+ *
+ * Relationships only point from a sample to ones generated before it, and favour the
+ * earliest samples, so a few samples become hubs with many incoming relationships as
+ * happens with e.g. reference samples. Each sample has a number of relationships drawn
+ * from a geometric distribution with the given mean.
+ */
+public class SyntheticCorpus {
+
+	private static final String[][] ORGANISMS = {
+			{"Homo sapiens", "http://purl.obolibrary.org/obo/NCBITaxon_9606"},
+			{"Mus musculus", "http://purl.obolibrary.org/obo/NCBITaxon_10090"},
+			{"Danio rerio", "http://purl.obolibrary.org/obo/NCBITaxon_7955"},
+			{"Arabidopsis thaliana", "http://purl.obolibrary.org/obo/NCBITaxon_3702"},
+			{"Escherichia coli", "http://purl.obolibrary.org/obo/NCBITaxon_562"},
+			{"Saccharomyces cerevisiae", "http://purl.obolibrary.org/obo/NCBITaxon_4932"}};
+	private static final String[] ORGANISM_PARTS = {
+			"liver", "lung", "heart", "brain", "kidney", "blood", "skin", "leaf", "root", "muscle"};
+	private static final String[] SEXES = {"male", "female", "hermaphrodite", "not determined"};
+	private static final String[] WORDS = {
+			"control", "treated", "tumour", "normal", "biopsy", "culture", "strain", "wild", "type",
+			"knockout", "replicate", "timepoint", "infected", "healthy", "adult", "juvenile"};
+	//most relationships are derivations, as in the archive
+	private static final String[] RELATIONSHIP_TYPES = {
+			"derived from", "derived from", "derived from", "derived from", "same as", "child of"};
+	private static final int EXTRA_ATTRIBUTE_TYPES = 50;
+
+	private final String domain;
+	private final List<Sample> samples;
+	private final List<CurationLink> curationLinks;
+
+	public SyntheticCorpus(long seed, int size, double meanRelationships, double curationDensity, String domain) {
+		this.domain = domain;
+		Random random = new Random(seed);
+		Instant start = Instant.parse("2017-01-01T00:00:00Z");
+
+		List<Sample> samples = new ArrayList<>(size);
+		List<CurationLink> curationLinks = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			String accession = getAccession(i);
+			Instant update = start.plus(i, ChronoUnit.MINUTES);
+			Sample.Builder builder = new Sample.Builder("sample " + i + " " + word(random) + " " + word(random), accession)
+					.withDomain(domain)
+					.withRelease(start)
+					.withUpdate(update);
+
+			String[] organism = pick(random, ORGANISMS);
+			builder.addAttribute(Attribute.build("organism", organism[0], organism[1], null));
+			builder.addAttribute(Attribute.build("organism part", pick(random, ORGANISM_PARTS)));
+			builder.addAttribute(Attribute.build("sex", pick(random, SEXES)));
+			builder.addAttribute(Attribute.build("age", Integer.toString(random.nextInt(100)), Collections.emptyList(), "year"));
+			builder.addAttribute(Attribute.build("description", word(random) + " " + word(random) + " " + word(random)));
+			int extraAttributes = random.nextInt(10);
+			for (int j = 0; j < extraAttributes; j++) {
+				builder.addAttribute(Attribute.build("characteristic " + random.nextInt(EXTRA_ATTRIBUTE_TYPES),
+						"value " + random.nextInt(1000)));
+			}
+			if (random.nextInt(4) == 0) {
+				builder.addExternalReference(ExternalReference.build("https://www.ebi.ac.uk/ena/data/view/ERS" + i));
+			}
+
+			int relationships = i == 0 ? 0 : geometric(random, meanRelationships);
+			for (int j = 0; j < relationships; j++) {
+				//cube the random number so that early samples are targeted far more often
+				int target = (int) (i * Math.pow(random.nextDouble(), 3));
+				builder.addRelationship(Relationship.build(accession, pick(random, RELATIONSHIP_TYPES), getAccession(target)));
+			}
+
+			Sample sample = builder.build();
+			samples.add(sample);
+
+			if (random.nextDouble() < curationDensity) {
+				int curations = 1 + geometric(random, 1.0);
+				for (int j = 0; j < curations; j++) {
+					curationLinks.add(CurationLink.build(accession, curate(sample, random), domain, update));
+				}
+			}
+		}
+		this.samples = Collections.unmodifiableList(samples);
+		this.curationLinks = Collections.unmodifiableList(curationLinks);
+	}
+
+	public List<Sample> getSamples() {
+		return samples;
+	}
+
+	public List<CurationLink> getCurationLinks() {
+		return curationLinks;
+	}
+
+	/**
+	 * Picks a search text that will match some of the samples in the corpus.
+	 */
+	public String getSearchText(Random random) {
+		switch (random.nextInt(3)) {
+		case 0:
+			return pick(random, ORGANISMS)[0];
+		case 1:
+			return pick(random, ORGANISM_PARTS);
+		default:
+			return word(random);
+		}
+	}
+
+	/**
+	 * Picks an accession from the corpus, favouring some samples over others as real
+	 * traffic does.
+	 */
+	public String getAccession(Random random) {
+		int index = (int) (samples.size() * Math.pow(random.nextDouble(), 2));
+		return samples.get(index).getAccession();
+	}
+
+	/**
+	 * Produces a new revision of a sample in the corpus, as a resubmission would.
+	 */
+	public Sample revise(String accession, Random random) {
+		Sample sample = samples.get(getIndex(accession));
+		SortedSet<Attribute> attributes = new TreeSet<>(sample.getAttributes());
+		attributes.removeIf(a -> a.getType().equals("revision"));
+		attributes.add(Attribute.build("revision", Integer.toString(random.nextInt(1000))));
+		return new Sample.Builder(sample.getName(), sample.getAccession())
+				.withDomain(domain)
+				.withRelease(sample.getRelease())
+				.withUpdate(Instant.now())
+				.withAttributes(attributes)
+				.withRelationships(sample.getRelationships())
+				.withExternalReferences(sample.getExternalReferences())
+				.build();
+	}
+
+	/**
+	 * Produces a new curation of a sample in the corpus.
+	 */
+	public CurationLink curate(String accession, Random random) {
+		Sample sample = samples.get(getIndex(accession));
+		return CurationLink.build(accession, curate(sample, random), domain, Instant.now());
+	}
+
+	private Curation curate(Sample sample, Random random) {
+		List<Attribute> attributes = new ArrayList<>(sample.getAttributes());
+		Attribute pre = attributes.get(random.nextInt(attributes.size()));
+		switch (random.nextInt(3)) {
+		case 0:
+			//add an ontology term
+			return Curation.build(pre, Attribute.build(pre.getType(), pre.getValue(),
+					"http://purl.obolibrary.org/obo/UBERON_" + random.nextInt(10000), pre.getUnit()));
+		case 1:
+			//normalise the case of the value
+			return Curation.build(pre, Attribute.build(pre.getType(), pre.getValue().toUpperCase(), pre.getIri(), pre.getUnit()));
+		default:
+			//rename the type
+			return Curation.build(pre, Attribute.build(pre.getType() + " curated", pre.getValue(), pre.getIri(), pre.getUnit()));
+		}
+	}
+
+	private static String getAccession(int index) {
+		return "SAMEA" + (900000000 + index);
+	}
+
+	private static int getIndex(String accession) {
+		return Integer.parseInt(accession.substring("SAMEA".length())) - 900000000;
+	}
+
+	private static int geometric(Random random, double mean) {
+		double p = mean / (1.0 + mean);
+		int count = 0;
+		while (random.nextDouble() < p) {
+			count += 1;
+		}
+		return count;
+	}
+
+	private static String word(Random random) {
+		return pick(random, WORDS);
+	}
+
+	private static <T> T pick(Random random, T[] values) {
+		return values[random.nextInt(values.length)];
+	}
+}
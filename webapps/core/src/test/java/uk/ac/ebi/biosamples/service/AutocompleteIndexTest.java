@@ -0,0 +1,46 @@
+package uk.ac.ebi.biosamples.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class AutocompleteIndexTest {
+
+	private AutocompleteIndex buildIndex(int precomputedSize) {
+		Map<String, Long> terms = new LinkedHashMap<>();
+		terms.put("homo sapiens", 50L);
+		terms.put("human", 20L);
+		terms.put("horse", 20L);
+		terms.put("mus musculus", 40L);
+		terms.put("organism", 100L);
+		terms.put("hom", 1L);
+		return new AutocompleteIndex(terms, precomputedSize);
+	}
+
+	@Test
+	public void testPrecomputedPrefix() {
+		AutocompleteIndex index = buildIndex(10);
+		Assert.assertEquals(Arrays.asList("homo sapiens", "horse", "human", "hom"), index.getSuggestions("h", 10));
+		Assert.assertEquals(Arrays.asList("homo sapiens", "horse"), index.getSuggestions("ho", 2));
+		Assert.assertEquals(Arrays.asList("organism", "homo sapiens"), index.getSuggestions(null, 2));
+	}
+
+	@Test
+	public void testScannedPrefix() {
+		AutocompleteIndex index = buildIndex(10);
+		Assert.assertEquals(Arrays.asList("homo sapiens", "hom"), index.getSuggestions("hom", 10));
+		Assert.assertEquals(Collections.singletonList("homo sapiens"), index.getSuggestions("hom", 1));
+		Assert.assertEquals(Collections.emptyList(), index.getSuggestions("zebra", 10));
+	}
+
+	@Test
+	public void testMoreThanPrecomputed() {
+		AutocompleteIndex index = buildIndex(1);
+		Assert.assertEquals(Arrays.asList("homo sapiens", "horse", "human", "hom"), index.getSuggestions("h", 10));
+		Assert.assertEquals(Collections.singletonList("homo sapiens"), index.getSuggestions("h", 1));
+	}
+}
@@ -0,0 +1,92 @@
+package uk.ac.ebi.biosamples.service;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.model.Autocomplete;
+import uk.ac.ebi.biosamples.solr.service.SolrSampleService;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AutocompleteServiceTest {
+
+	private SolrSampleService solrSampleService;
+	private BioSamplesProperties bioSamplesProperties;
+	private AutocompleteService autocompleteService;
+
+	@Before
+	public void setup() {
+		solrSampleService = Mockito.mock(SolrSampleService.class);
+		bioSamplesProperties = Mockito.mock(BioSamplesProperties.class);
+		when(bioSamplesProperties.getBiosamplesCoreAutocompleteRefresh()).thenReturn(3600);
+		when(bioSamplesProperties.getBiosamplesCoreAutocompleteTermsMax()).thenReturn(3);
+		when(solrSampleService.getAutocomplete(any(), any(), anyInt()))
+				.thenReturn(new Autocomplete("ho", Arrays.asList("homo sapiens", "horse", "hordeum")));
+	}
+
+	@After
+	public void teardown() {
+		autocompleteService.close();
+	}
+
+	private void start(Map<String, Long> terms) {
+		when(solrSampleService.getAutocompleteTerms(3)).thenReturn(terms);
+		autocompleteService = new AutocompleteService(solrSampleService, bioSamplesProperties);
+		//rather than wait for the background load
+		autocompleteService.refresh();
+	}
+
+	@Test
+	public void complete_index_is_used_even_with_few_suggestions() {
+		Map<String, Long> terms = new LinkedHashMap<>();
+		terms.put("homo sapiens", 50L);
+		terms.put("mus musculus", 40L);
+		start(terms);
+
+		Autocomplete autocomplete = autocompleteService.getAutocomplete("ho", Collections.emptyList(), 10);
+
+		Assert.assertEquals(Collections.singletonList("homo sapiens"), autocomplete.getSuggestions());
+		verify(solrSampleService, never()).getAutocomplete(any(), any(), anyInt());
+	}
+
+	@Test
+	public void truncated_index_falls_back_to_solr_with_few_suggestions() {
+		Map<String, Long> terms = new LinkedHashMap<>();
+		terms.put("homo sapiens", 50L);
+		terms.put("horse", 45L);
+		terms.put("mus musculus", 40L);
+		start(terms);
+
+		Autocomplete autocomplete = autocompleteService.getAutocomplete("ho", Collections.emptyList(), 3);
+
+		Assert.assertEquals(Arrays.asList("homo sapiens", "horse", "hordeum"), autocomplete.getSuggestions());
+		verify(solrSampleService).getAutocomplete(eq("ho"), any(), eq(3));
+	}
+
+	@Test
+	public void truncated_index_is_used_with_enough_suggestions() {
+		Map<String, Long> terms = new LinkedHashMap<>();
+		terms.put("homo sapiens", 50L);
+		terms.put("horse", 45L);
+		terms.put("mus musculus", 40L);
+		start(terms);
+
+		Autocomplete autocomplete = autocompleteService.getAutocomplete("ho", Collections.emptyList(), 2);
+
+		Assert.assertEquals(Arrays.asList("homo sapiens", "horse"), autocomplete.getSuggestions());
+		verify(solrSampleService, never()).getAutocomplete(any(), any(), anyInt());
+	}
+}
@@ -0,0 +1,75 @@
+package uk.ac.ebi.biosamples.service;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.model.facet.Facet;
+import uk.ac.ebi.biosamples.solr.service.SolrFacetService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.when;
+
+public class FacetServiceTest {
+
+	private FacetService facetService;
+
+	@Before
+	public void setup() {
+		BioSamplesProperties bioSamplesProperties = Mockito.mock(BioSamplesProperties.class);
+		when(bioSamplesProperties.getBiosamplesCoreFacetThreadCount()).thenReturn(1);
+		when(bioSamplesProperties.getBiosamplesCoreFacetQueueMax()).thenReturn(1);
+		when(bioSamplesProperties.getBiosamplesCoreFacetTimeout()).thenReturn(50);
+		facetService = new FacetService(Mockito.mock(SolrFacetService.class), bioSamplesProperties);
+	}
+
+	@After
+	public void teardown() {
+		facetService.close();
+	}
+
+	@Test
+	public void test_facets_are_returned_when_complete() {
+		List<Facet> facets = Collections.singletonList(Mockito.mock(Facet.class));
+
+		Assert.assertEquals(facets, facetService.getFacets(CompletableFuture.completedFuture(facets), facetService.getDeadline()));
+	}
+
+	@Test
+	public void test_late_facets_are_cancelled() {
+		CompletableFuture<List<Facet>> future = new CompletableFuture<>();
+		long start = System.nanoTime();
+
+		Assert.assertEquals(Collections.emptyList(), facetService.getFacets(future, facetService.getDeadline()));
+
+		Assert.assertTrue(future.isCancelled());
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+	}
+
+	@Test
+	public void test_failed_facets_are_skipped() {
+		CompletableFuture<List<Facet>> future = new CompletableFuture<>();
+		future.completeExceptionally(new IllegalStateException("solr unavailable"));
+
+		Assert.assertEquals(Collections.emptyList(), facetService.getFacets(future, facetService.getDeadline()));
+	}
+
+	@Test
+	public void test_interrupt_is_kept() {
+		CompletableFuture<List<Facet>> future = new CompletableFuture<>();
+		Thread.currentThread().interrupt();
+
+		List<Facet> facets = facetService.getFacets(future, System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+
+		//clears the flag, so it doesn't leak into other tests
+		Assert.assertTrue(Thread.interrupted());
+		Assert.assertEquals(Collections.emptyList(), facets);
+		Assert.assertTrue(future.isCancelled());
+	}
+}
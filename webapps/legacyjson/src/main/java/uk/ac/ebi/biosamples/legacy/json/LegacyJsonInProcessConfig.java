@@ -0,0 +1,26 @@
+package uk.ac.ebi.biosamples.legacy.json;
+
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import uk.ac.ebi.biosamples.mongo.MongoConfig;
+import uk.ac.ebi.biosamples.service.CurationReadService;
+import uk.ac.ebi.biosamples.service.SampleReadService;
+
+/**
+ * Reads samples through the same mongo services as the core webapp, instead of requesting
+ * each one from it over http. Enabled with biosamples.webapp.legacyjson.inprocess=true
+ */
+@Configuration
+@ConditionalOnProperty(name = "biosamples.webapp.legacyjson.inprocess", havingValue = "true")
+@ImportAutoConfiguration({MongoAutoConfiguration.class, MongoDataAutoConfiguration.class})
+@ComponentScan(basePackageClasses = MongoConfig.class)
+@Import({SampleReadService.class, CurationReadService.class})
+public class LegacyJsonInProcessConfig {
+
+}
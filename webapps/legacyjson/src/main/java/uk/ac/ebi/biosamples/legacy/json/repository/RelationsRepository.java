@@ -1,14 +1,24 @@
 package uk.ac.ebi.biosamples.legacy.json.repository;
 
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import uk.ac.ebi.biosamples.BioSamplesProperties;
 import uk.ac.ebi.biosamples.legacy.json.domain.GroupsRelations;
 import uk.ac.ebi.biosamples.legacy.json.domain.KnownRelationsMapping;
 import uk.ac.ebi.biosamples.legacy.json.domain.SamplesRelations;
@@ -17,15 +27,30 @@ import uk.ac.ebi.biosamples.legacy.json.domain.SupportedSamplesRelationships;
 import uk.ac.ebi.biosamples.model.Relationship;
 import uk.ac.ebi.biosamples.model.Sample;
 
+/**
+ * The accessions of the related samples are held in memory by the accession and update time of
+ * the sample they were found for, so a new version of the sample finds them again. The
+ * relationships are also part of the key, as inverse relationships are added by other samples
+ * without changing the update time of this one.
+ *
+ * The related samples themselves are not kept, they can change or stop being public without
+ * this sample changing. They are looked up together on each request.
+ */
 @Service
 public class RelationsRepository {
 
+    private static final String GROUPS = "groups";
+
     private final KnownRelationsMapping relationshipMapping;
     private final SampleRepository sampleRepository;
+    private final Cache<RelationsKey, Set<String>> relatedAccessionsCache;
 
-    public RelationsRepository(SampleRepository sampleRepository) {
+    public RelationsRepository(SampleRepository sampleRepository, BioSamplesProperties bioSamplesProperties) {
         this.relationshipMapping = new KnownRelationsMapping();
         this.sampleRepository = sampleRepository;
+        this.relatedAccessionsCache = CacheBuilder.newBuilder()
+                .maximumSize(bioSamplesProperties.getBiosamplesLegacyJsonRelationsCacheMaxSize())
+                .build();
     }
 
     public List<GroupsRelations> getGroupsRelationships(String accession){
@@ -52,34 +77,31 @@ public class RelationsRepository {
     }
 
     private List<Sample> samplesRelatedTo(Sample sample, String relationType) {
-
-        List<Relationship> validRelationships = new ArrayList<>();
-
-        for (Relationship rel: sample.getRelationships()) {
-            if (relationshipsOfTypeAndAccession(relationType).test(rel)) {
-                validRelationships.add(rel);
+        return sampleRepository.findAllByAccession(cachedRelatedTo(sample, relationType, () -> {
+            Set<String> relatedSampleAccessions = new LinkedHashSet<>();
+            for (Relationship rel: sample.getRelationships()) {
+                if (relationshipsOfTypeAndAccession(relationType).test(rel)) {
+                    relatedSampleAccessions.add(rel.getSource().equals(sample.getAccession()) ? rel.getTarget() : rel.getSource());
+                }
             }
-        }
-
-        List<Sample> relatedSamples = new ArrayList<>();
-        for (Relationship rel: validRelationships) {
-
-            String relatedSampleAccession = rel.getSource().equals(sample.getAccession()) ? rel.getTarget() : rel.getSource();
-            Optional<Sample> relSample = sampleRepository.findByAccession(relatedSampleAccession);
-            relSample.ifPresent(relatedSamples::add);
-        }
-        return relatedSamples;
+            return relatedSampleAccessions;
+        }));
     }
 
     private List<Sample> groupsRelatedTo(Sample sample) {
+        return sampleRepository.findAllByAccession(cachedRelatedTo(sample, GROUPS, () ->
+                sample.getRelationships().stream()
+                        .filter(groupRelationships())
+                        .map(r -> r.getType().equals("groups") ? r.getTarget() : r.getSource())
+                        .collect(Collectors.toCollection(LinkedHashSet::new))));
+    }
 
-        return sample.getRelationships().stream()
-                .filter(groupRelationships())
-                .map(r -> r.getType().equals("groups") ? r.getTarget() : r.getSource())
-                .map(sampleRepository::findByAccession)
-                .filter(Optional::isPresent).map(Optional::get)
-                .collect(Collectors.toList());
-
+    private Set<String> cachedRelatedTo(Sample sample, String relationType, Callable<Set<String>> lookup) {
+        try {
+            return relatedAccessionsCache.get(new RelationsKey(sample, relationType), lookup);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
     }
 
     private Predicate<? super Relationship> groupRelationships() {
@@ -113,4 +135,36 @@ public class RelationsRepository {
     public boolean isSupportedGroupsRelations(String relationType) {
         return SupportedGroupsRelationships.getFromName(relationType) != null;
     }
+
+    private static class RelationsKey {
+        private final String accession;
+        private final Instant update;
+        private final String relationType;
+        private final Set<Relationship> relationships;
+
+        private RelationsKey(Sample sample, String relationType) {
+            this.accession = sample.getAccession();
+            this.update = sample.getUpdate();
+            this.relationType = relationType;
+            this.relationships = sample.getRelationships();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof RelationsKey)) {
+                return false;
+            }
+            RelationsKey other = (RelationsKey) o;
+            return Objects.equals(this.accession, other.accession)
+                    && Objects.equals(this.update, other.update)
+                    && Objects.equals(this.relationType, other.relationType)
+                    && Objects.equals(this.relationships, other.relationships);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accession, update, relationType, relationships);
+        }
+    }
 }
@@ -1,32 +1,87 @@
 package uk.ac.ebi.biosamples.legacy.json.repository;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.hateoas.PagedResources;
 import org.springframework.hateoas.Resource;
 import org.springframework.stereotype.Service;
 
+import uk.ac.ebi.biosamples.BioSamplesProperties;
 import uk.ac.ebi.biosamples.client.BioSamplesClient;
 import uk.ac.ebi.biosamples.model.Sample;
 import uk.ac.ebi.biosamples.model.filter.Filter;
 import uk.ac.ebi.biosamples.service.FilterBuilder;
+import uk.ac.ebi.biosamples.service.SampleReadService;
 
+/**
+ * Samples are read either from the core webapp over http, or when enabled through the mongo
+ * services in this process, see {@link uk.ac.ebi.biosamples.legacy.json.LegacyJsonInProcessConfig}.
+ * Searches always go to the core webapp.
+ */
 @Service
 public class SampleRepository {
 
     private final BioSamplesClient client;
+    private final SampleReadService sampleReadService;
 
     private final Filter GROUP_FILTER = FilterBuilder.create().onAccession("SAMEG[0-9]+").build();
     private final Filter SAMPLE_FILTER = FilterBuilder.create().onAccession("SAM(N|D|EA|E)[0-9]+").build();
 
-    public SampleRepository(BioSamplesClient client) {
+    public SampleRepository(BioSamplesClient client, BioSamplesProperties bioSamplesProperties,
+                            ObjectProvider<SampleReadService> sampleReadService) {
         this.client = client;
+        this.sampleReadService = bioSamplesProperties.getBiosamplesLegacyJsonInProcess() ? sampleReadService.getObject() : null;
     }
 
     public Optional<Sample> findByAccession(String accession) {
+        if (sampleReadService == null) {
+            return client.fetchSample(accession);
+        }
+        return sampleReadService.fetch(accession, Optional.empty()).filter(SampleRepository::isPublic);
+    }
+
+    /**
+     * Finds the samples with any of the accessions, e.g. all the samples related to one, with the
+     * lookups made concurrently rather than one after another.
+     *
+     * @return the samples that were found, in the order of the accessions
+     */
+    public List<Sample> findAllByAccession(Collection<String> accessions) {
+        List<Sample> samples = new ArrayList<>(accessions.size());
+        if (sampleReadService == null) {
+            for (Optional<Resource<Sample>> sample : client.fetchSampleResourceAll(accessions)) {
+                sample.ifPresent(resource -> samples.add(resource.getContent()));
+            }
+            return samples;
+        }
+
+        List<Future<Optional<Sample>>> futures = new ArrayList<>(accessions.size());
+        for (String accession : accessions) {
+            futures.add(sampleReadService.fetchAsync(accession, Optional.empty()));
+        }
+        for (Future<Optional<Sample>> future : futures) {
+            try {
+                future.get().filter(SampleRepository::isPublic).ifPresent(samples::add);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return samples;
+    }
 
-        return client.fetchSample(accession);
+    //the legacy api is not authenticated, so as over http only public samples can be seen
+    private static boolean isPublic(Sample sample) {
+        return sample.getRelease().isBefore(Instant.now());
     }
 
     /**
@@ -2,6 +2,7 @@ package uk.ac.ebi.biosamples.legacy.json.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.when;
@@ -10,12 +11,14 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.hamcrest.Matchers;
+import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -58,6 +61,17 @@ public class LegacySamplesRelationsControllerIntegrationTest {
     @Autowired
     PagedResourcesAssembler<Sample> pagedResourcesAssembler;
 
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        //related samples are looked up together, so answer with the samples each test sets up one at a time
+        when(sampleRepository.findAllByAccession(anyCollectionOf(String.class))).thenAnswer(invocation ->
+                ((Collection<String>) invocation.getArguments()[0]).stream()
+                        .map(sampleRepository::findByAccession)
+                        .filter(Optional::isPresent).map(Optional::get)
+                        .collect(Collectors.toList()));
+    }
+
     private ResultActions getSamplesRelationsHAL(String accession) throws Exception {
         return mockMvc.perform(get("/samplesrelations/{accession}", accession).accept(MediaTypes.HAL_JSON_VALUE));
     }
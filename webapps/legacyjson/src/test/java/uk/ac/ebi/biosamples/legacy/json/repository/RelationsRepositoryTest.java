@@ -0,0 +1,103 @@
+package uk.ac.ebi.biosamples.legacy.json.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.legacy.json.domain.SamplesRelations;
+import uk.ac.ebi.biosamples.legacy.json.domain.TestSample;
+import uk.ac.ebi.biosamples.model.Relationship;
+import uk.ac.ebi.biosamples.model.Sample;
+import uk.ac.ebi.biosamples.service.SampleReadService;
+
+public class RelationsRepositoryTest {
+
+    private final SampleRepository sampleRepository = mock(SampleRepository.class);
+    private final BioSamplesProperties bioSamplesProperties = mock(BioSamplesProperties.class);
+    private RelationsRepository relationsRepository;
+
+    private final Sample derived1 = new TestSample("SAMEA2").build();
+    private final Sample derived2 = new TestSample("SAMEA3").build();
+
+    @Before
+    public void setUp() {
+        when(bioSamplesProperties.getBiosamplesLegacyJsonRelationsCacheMaxSize()).thenReturn(100);
+        when(sampleRepository.findAllByAccession(anyCollectionOf(String.class))).thenReturn(Arrays.asList(derived1, derived2));
+        relationsRepository = new RelationsRepository(sampleRepository, bioSamplesProperties);
+    }
+
+    private static Sample sample(String... derivedFrom) {
+        TestSample testSample = new TestSample("SAMEA1");
+        for (String accession : derivedFrom) {
+            testSample.withRelationship(Relationship.build("SAMEA1", "derivedFrom", accession));
+        }
+        return testSample.build();
+    }
+
+    private static List<String> accessions(List<SamplesRelations> relations) {
+        return relations.stream().map(SamplesRelations::accession).collect(Collectors.toList());
+    }
+
+    @Test
+    public void test_related_samples_are_looked_up_together() {
+        when(sampleRepository.findByAccession("SAMEA1")).thenReturn(Optional.of(sample("SAMEA2", "SAMEA3")));
+
+        assertThat(accessions(relationsRepository.getSamplesRelations("SAMEA1", "derivedFrom"))).containsExactly("SAMEA2", "SAMEA3");
+        assertThat(accessions(relationsRepository.getSamplesRelations("SAMEA1", "derivedFrom"))).containsExactly("SAMEA2", "SAMEA3");
+
+        //the related samples are read again each time, as they can change without this sample changing
+        verify(sampleRepository, times(2)).findAllByAccession(new LinkedHashSet<>(Arrays.asList("SAMEA2", "SAMEA3")));
+    }
+
+    @Test
+    public void test_new_relationships_are_looked_up() {
+        when(sampleRepository.findByAccession("SAMEA1")).thenReturn(Optional.of(sample("SAMEA2")));
+        relationsRepository.getSamplesRelations("SAMEA1", "derivedFrom");
+
+        when(sampleRepository.findByAccession("SAMEA1")).thenReturn(Optional.of(sample("SAMEA2", "SAMEA3")));
+        relationsRepository.getSamplesRelations("SAMEA1", "derivedFrom");
+
+        verify(sampleRepository).findAllByAccession(Collections.singleton("SAMEA2"));
+        verify(sampleRepository).findAllByAccession(new LinkedHashSet<>(Arrays.asList("SAMEA2", "SAMEA3")));
+    }
+
+    @Test
+    public void test_related_sample_made_private_is_not_listed() {
+        SampleReadService sampleReadService = mock(SampleReadService.class);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<SampleReadService> sampleReadServiceProvider = mock(ObjectProvider.class);
+        when(sampleReadServiceProvider.getObject()).thenReturn(sampleReadService);
+        when(bioSamplesProperties.getBiosamplesLegacyJsonInProcess()).thenReturn(true);
+        relationsRepository = new RelationsRepository(
+                new SampleRepository(null, bioSamplesProperties, sampleReadServiceProvider), bioSamplesProperties);
+
+        when(sampleReadService.fetch(eq("SAMEA1"), any())).thenReturn(Optional.of(sample("SAMEA2", "SAMEA3")));
+        when(sampleReadService.fetchAsync(eq("SAMEA2"), any())).thenReturn(CompletableFuture.completedFuture(Optional.of(derived1)));
+        when(sampleReadService.fetchAsync(eq("SAMEA3"), any())).thenReturn(CompletableFuture.completedFuture(Optional.of(derived2)));
+        assertThat(accessions(relationsRepository.getSamplesRelations("SAMEA1", "derivedFrom"))).containsExactly("SAMEA2", "SAMEA3");
+
+        //the sample it is derived from doesn't change
+        Sample embargoed = new TestSample("SAMEA2").releasedOn(Instant.now().plusSeconds(3600)).build();
+        when(sampleReadService.fetchAsync(eq("SAMEA2"), any())).thenReturn(CompletableFuture.completedFuture(Optional.of(embargoed)));
+        assertThat(accessions(relationsRepository.getSamplesRelations("SAMEA1", "derivedFrom"))).containsExactly("SAMEA3");
+    }
+}
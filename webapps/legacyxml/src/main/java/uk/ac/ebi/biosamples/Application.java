@@ -17,7 +17,7 @@ import org.springframework.oxm.jaxb.Jaxb2Marshaller;
 
 import uk.ac.ebi.biosamples.model.Sample;
 import uk.ac.ebi.biosamples.service.SampleAsXMLHttpMessageConverter;
-import uk.ac.ebi.biosamples.service.SampleToXmlConverter;
+import uk.ac.ebi.biosamples.service.SampleToXmlStreamWriter;
 
 @SpringBootApplication
 public class Application extends SpringBootServletInitializer {
@@ -29,8 +29,8 @@ public class Application extends SpringBootServletInitializer {
 	}
 	
 	@Bean
-	public HttpMessageConverter<Sample> getXmlSampleHttpMessageConverter(SampleToXmlConverter sampleToXmlConverter) {
-		return new SampleAsXMLHttpMessageConverter(sampleToXmlConverter);
+	public HttpMessageConverter<Sample> getXmlSampleHttpMessageConverter(SampleToXmlStreamWriter sampleToXmlStreamWriter) {
+		return new SampleAsXMLHttpMessageConverter(sampleToXmlStreamWriter);
 	}
 
 
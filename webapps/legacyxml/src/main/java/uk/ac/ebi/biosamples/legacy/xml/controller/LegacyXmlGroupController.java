@@ -19,6 +19,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import uk.ac.ebi.biosamples.client.BioSamplesClient;
 import uk.ac.ebi.biosamples.exception.SampleNotFoundException;
+import uk.ac.ebi.biosamples.legacy.xml.model.LegacyQuery;
 import uk.ac.ebi.biosamples.legacy.xml.service.LegacyQueryParser;
 import uk.ac.ebi.biosamples.legacy.xml.service.SummaryInfoService;
 import uk.ac.ebi.biosamples.model.Sample;
@@ -84,20 +85,9 @@ public class LegacyXmlGroupController {
 		List<Filter> filterList = new ArrayList<>();
 		filterList.add(groupAccessionFilter);
 
-		if (legacyQueryParser.queryContainsDateRangeFilter(query)) {
-
-			Optional<Filter> dateRangeFilters = legacyQueryParser.extractDateFilterFromQuery(query);
-			dateRangeFilters.ifPresent(filterList::add);
-
-		}
-
-		if (legacyQueryParser.queryContainsSampleFilter(query)) {
-			Optional<Filter> accessionFilter = legacyQueryParser.extractAccessionFilterFromQuery(query);
-			accessionFilter.ifPresent(filterList::add);
-
-		}
-
-		query = legacyQueryParser.cleanQueryFromKnownFilters(query);
+		LegacyQuery legacyQuery = legacyQueryParser.parse(query);
+		filterList.addAll(legacyQuery.getFilters());
+		query = legacyQuery.getText();
 
 
 		PagedResources<Resource<Sample>> results = client.fetchPagedSampleResource(
@@ -147,20 +137,9 @@ public class LegacyXmlGroupController {
 		List<Filter> filterList = new ArrayList<>();
 		filterList.add(FilterBuilder.create().onInverseRelation("has member").withValue(groupAccession).build());
 
-		if (legacyQueryParser.queryContainsDateRangeFilter(query)) {
-
-			Optional<Filter> dateRangeFilters = legacyQueryParser.extractDateFilterFromQuery(query);
-			dateRangeFilters.ifPresent(filterList::add);
-
-		}
-
-		if (legacyQueryParser.queryContainsSampleFilter(query)) {
-			Optional<Filter> accessionFilter = legacyQueryParser.extractAccessionFilterFromQuery(query);
-			accessionFilter.ifPresent(filterList::add);
-
-		}
-
-		query = legacyQueryParser.cleanQueryFromKnownFilters(query);
+		LegacyQuery legacyQuery = legacyQueryParser.parse(query);
+		filterList.addAll(legacyQuery.getFilters());
+		query = legacyQuery.getText();
 
 		PagedResources<Resource<Sample>> results =
 				client.fetchPagedSampleResource(query,
@@ -18,6 +18,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import uk.ac.ebi.biosamples.client.BioSamplesClient;
 import uk.ac.ebi.biosamples.exception.SampleNotFoundException;
+import uk.ac.ebi.biosamples.legacy.xml.model.LegacyQuery;
 import uk.ac.ebi.biosamples.legacy.xml.service.LegacyQueryParser;
 import uk.ac.ebi.biosamples.legacy.xml.service.SummaryInfoService;
 import uk.ac.ebi.biosamples.model.Sample;
@@ -80,20 +81,9 @@ public class LegacyXmlSampleController {
 		List<Filter> filterList = new ArrayList<>();
 	    filterList.add(sampleAccessionFilter);
 
-		if (legacyQueryParser.queryContainsDateRangeFilter(query)) {
-
-			Optional<Filter> dateRangeFilters = legacyQueryParser.extractDateFilterFromQuery(query);
-			dateRangeFilters.ifPresent(filterList::add);
-			query = legacyQueryParser.cleanQueryFromDateFilters(query);
-
-		}
-
-		if (legacyQueryParser.queryContainsSampleFilter(query)) {
-			Optional<Filter> accessionFilter = legacyQueryParser.extractAccessionFilterFromQuery(query);
-			accessionFilter.ifPresent(filterList::add);
-			query = legacyQueryParser.cleanQueryFromAccessionFilter(query);
-
-		}
+		LegacyQuery legacyQuery = legacyQueryParser.parse(query);
+		filterList.addAll(legacyQuery.getFilters());
+		query = legacyQuery.getText();
 
 		PagedResources<Resource<Sample>> results = client.fetchPagedSampleResource(
 				query,
@@ -0,0 +1,77 @@
+package uk.ac.ebi.biosamples.legacy.xml.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import uk.ac.ebi.biosamples.model.filter.Filter;
+
+/**
+ * A legacy query string split into the filters it contains and the free text left for the
+ * search, as produced by {@link uk.ac.ebi.biosamples.legacy.xml.service.LegacyQueryParser}
+ */
+public class LegacyQuery {
+
+    private final String text;
+    private final List<Filter> dateRangeFilters;
+    private final Filter accessionFilter;
+
+    public LegacyQuery(String text, List<Filter> dateRangeFilters, Filter accessionFilter) {
+        this.text = text;
+        this.dateRangeFilters = Collections.unmodifiableList(new ArrayList<>(dateRangeFilters));
+        this.accessionFilter = accessionFilter;
+    }
+
+    /**
+     * The query without the filters, or the match all query if nothing else is left
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * At most one update date and one release date range
+     */
+    public List<Filter> getDateRangeFilters() {
+        return dateRangeFilters;
+    }
+
+    public Optional<Filter> getAccessionFilter() {
+        return Optional.ofNullable(accessionFilter);
+    }
+
+    /**
+     * The date range filters followed by the accession filter, if any
+     */
+    public List<Filter> getFilters() {
+        List<Filter> filters = new ArrayList<>(dateRangeFilters);
+        if (accessionFilter != null) {
+            filters.add(accessionFilter);
+        }
+        return filters;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof LegacyQuery)) {
+            return false;
+        }
+        LegacyQuery other = (LegacyQuery) o;
+        return Objects.equals(this.text, other.text)
+                && Objects.equals(this.dateRangeFilters, other.dateRangeFilters)
+                && Objects.equals(this.accessionFilter, other.accessionFilter);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(text, dateRangeFilters, accessionFilter);
+    }
+
+    @Override
+    public String toString() {
+        return "LegacyQuery(" + text + "," + getFilters() + ")";
+    }
+}
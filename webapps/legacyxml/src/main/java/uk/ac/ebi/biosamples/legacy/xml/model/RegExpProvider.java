@@ -1,6 +0,0 @@
-package uk.ac.ebi.biosamples.legacy.xml.model;
-
-public interface RegExpProvider {
-
-    String getPattern();
-}
@@ -1,92 +1,127 @@
 package uk.ac.ebi.biosamples.legacy.xml.service;
 
-import static uk.ac.ebi.biosamples.legacy.xml.model.LegacyQueryRegularExpressions.AND;
-import static uk.ac.ebi.biosamples.legacy.xml.model.LegacyQueryRegularExpressions.DATE_RANGE_FILTER_QUERY;
-import static uk.ac.ebi.biosamples.legacy.xml.model.LegacyQueryRegularExpressions.SAMPLE_ACCESSION_FILTER_QUERY;
-
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.springframework.stereotype.Service;
 
-import uk.ac.ebi.biosamples.model.filter.DateRangeFilter;
+import uk.ac.ebi.biosamples.legacy.xml.model.LegacyQuery;
 import uk.ac.ebi.biosamples.model.filter.Filter;
 import uk.ac.ebi.biosamples.service.FilterBuilder;
 
+/**
+ * Splits a legacy query into the filters the legacy API understood and the free text left
+ * for the search.
+ *
+ * The query is read once as a sequence of terms separated by plain or url encoded spaces,
+ * where a [...] range is part of its term. A term is one of
+ * <ul>
+ *     <li>updatedate:[yyyy-mm-dd TO yyyy-mm-dd] or releasedate:[yyyy-mm-dd TO yyyy-mm-dd]</li>
+ *     <li>a sample accession, where * matches anything, e.g. SAMEA*</li>
+ *     <li>AND, which is dropped together with a filter it joins</li>
+ *     <li>anything else, which is kept as free text</li>
+ * </ul>
+ * If the same kind of filter is given more than once, the last one is used.
+ */
 @Service
 public class LegacyQueryParser {
 
-    private final String CLEAN_QUERY = "*:*";
-
-    public boolean queryContainsDateRangeFilter(String query) {
-        return Pattern.compile(DATE_RANGE_FILTER_QUERY.getPattern()).matcher(query).find();
-    }
-
-    public boolean queryContainsSampleFilter(String query) {
-        return Pattern.compile(SAMPLE_ACCESSION_FILTER_QUERY.getPattern()).matcher(query).find();
-    }
+    private static final String CLEAN_QUERY = "*:*";
 
-    public Optional<Filter> extractDateFilterFromQuery(String query) {
+    private static final String AND = "AND";
 
-        Filter dateRangeFilters = null;
+    private static final Pattern DATE_RANGE_FILTER = Pattern.compile(
+            "(?<type>update|release)date:\\[(?<from>\\d{4}-\\d{2}-\\d{2})(?:\\s|%20)+TO(?:\\s|%20)+(?<until>\\d{4}-\\d{2}-\\d{2})]");
 
-        if (queryContainsDateRangeFilter(query)) {
-            Matcher rangeMatcher = Pattern.compile(DATE_RANGE_FILTER_QUERY.getPattern()).matcher(query);
-            while (rangeMatcher.find()) {
-                String type = rangeMatcher.group("type");
-                String from = rangeMatcher.group("from");
-                String until = rangeMatcher.group("until");
+    private static final Pattern SAMPLE_ACCESSION_FILTER = Pattern.compile("SAM[EAN]\\S*");
 
-                DateRangeFilter.DateRangeFilterBuilder filterBuilder;
-                if (type.equals("update"))
-                    filterBuilder = FilterBuilder.create().onUpdateDate();
-                else
-                    filterBuilder = FilterBuilder.create().onReleaseDate();
+    public LegacyQuery parse(String query) {
+        List<String> text = new ArrayList<>();
+        Filter updateDateFilter = null;
+        Filter releaseDateFilter = null;
+        Filter accessionFilter = null;
+        boolean filtered = false;
+        boolean dropNextAnd = false;
+
+        int position = skipSpaces(query, 0);
+        while (position < query.length()) {
+            int end = endOfTerm(query, position);
+            String term = query.substring(position, end);
+            position = skipSpaces(query, end);
+
+            Filter filter = null;
+            Matcher dateRangeMatcher = DATE_RANGE_FILTER.matcher(term);
+            if (dateRangeMatcher.matches()) {
+                if (dateRangeMatcher.group("type").equals("update")) {
+                    filter = updateDateFilter = FilterBuilder.create().onUpdateDate()
+                            .from(dateRangeMatcher.group("from")).until(dateRangeMatcher.group("until")).build();
+                } else {
+                    filter = releaseDateFilter = FilterBuilder.create().onReleaseDate()
+                            .from(dateRangeMatcher.group("from")).until(dateRangeMatcher.group("until")).build();
+                }
+            } else if (SAMPLE_ACCESSION_FILTER.matcher(term).matches()) {
+                filter = accessionFilter = FilterBuilder.create().onAccession(term.replace("*", ".*")).build();
+            }
 
-                dateRangeFilters = filterBuilder.from(from).until(until).build();
+            if (filter != null) {
+                filtered = true;
+                // a filter takes the AND joining it to the rest of the query with it
+                if (!text.isEmpty() && text.get(text.size() - 1).equals(AND)) {
+                    text.remove(text.size() - 1);
+                } else {
+                    dropNextAnd = true;
+                }
+            } else if (dropNextAnd && term.equals(AND)) {
+                dropNextAnd = false;
+            } else {
+                text.add(term);
+                dropNextAnd = false;
             }
         }
-        return Optional.ofNullable(dateRangeFilters);
 
-    }
-
-    public Optional<Filter> extractAccessionFilterFromQuery(String query) {
-        Filter accessionFilter = null;
+        List<Filter> dateRangeFilters = new ArrayList<>(2);
+        if (updateDateFilter != null) {
+            dateRangeFilters.add(updateDateFilter);
+        }
+        if (releaseDateFilter != null) {
+            dateRangeFilters.add(releaseDateFilter);
+        }
 
-        if (queryContainsSampleFilter(query)) {
-            Matcher sampleAccessionMatcher = Pattern.compile(SAMPLE_ACCESSION_FILTER_QUERY.getPattern()).matcher(query);
-            while (sampleAccessionMatcher.find()) {
-                String accession = sampleAccessionMatcher.group("accession");
-                accession = accession.replaceAll("\\*", ".*");
-                accessionFilter = FilterBuilder.create().onAccession(accession).build();
-            }
+        String cleanQuery;
+        if (!filtered) {
+            cleanQuery = query;
+        } else if (text.isEmpty()) {
+            cleanQuery = CLEAN_QUERY;
+        } else {
+            cleanQuery = String.join(" ", text);
         }
-        return Optional.ofNullable(accessionFilter);
+        return new LegacyQuery(cleanQuery, dateRangeFilters, accessionFilter);
     }
 
-    public String cleanQueryFromAccessionFilter(String query) {
-        if (queryContainsSampleFilter(query)) {
-            query = query.replaceAll(AND.getPattern() + SAMPLE_ACCESSION_FILTER_QUERY.getPattern(), "").trim();
-            if (query.isEmpty()) {
-                query = CLEAN_QUERY;
-            }
-        }
-        return query;
+    private static boolean isSpace(String query, int position) {
+        return Character.isWhitespace(query.charAt(position)) || query.startsWith("%20", position);
     }
 
-    public String cleanQueryFromDateFilters(String query) {
-        if (queryContainsDateRangeFilter(query)) {
-            query = query.replaceAll(AND.getPattern() + DATE_RANGE_FILTER_QUERY.getPattern(), "").trim();
-            if (query.isEmpty()) {
-                query = CLEAN_QUERY;
-            }
+    private static int skipSpaces(String query, int position) {
+        while (position < query.length() && isSpace(query, position)) {
+            position += Character.isWhitespace(query.charAt(position)) ? 1 : 3;
         }
-        return query;
+        return position;
     }
 
-
-    public String cleanQueryFromKnownFilters(String query) {
-        return this.cleanQueryFromAccessionFilter(this.cleanQueryFromDateFilters(query));
+    private static int endOfTerm(String query, int position) {
+        boolean inRange = false;
+        while (position < query.length() && (inRange || !isSpace(query, position))) {
+            char c = query.charAt(position);
+            if (c == '[') {
+                inRange = true;
+            } else if (c == ']') {
+                inRange = false;
+            }
+            position++;
+        }
+        return position;
     }
 }
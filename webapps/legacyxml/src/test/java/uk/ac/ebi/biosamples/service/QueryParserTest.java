@@ -4,11 +4,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.util.Optional;
 
-import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import uk.ac.ebi.biosamples.legacy.xml.model.LegacyQuery;
 import uk.ac.ebi.biosamples.legacy.xml.service.LegacyQueryParser;
 import uk.ac.ebi.biosamples.model.filter.Filter;
 
@@ -20,99 +20,119 @@ public class QueryParserTest {
     @Test
     public void itShouldNotFindDateFiltersInBaseQuery(){
         String queryString = "test";
-        boolean containsDateRangeFilter = queryParser.queryContainsDateRangeFilter(queryString);
-        assertThat(containsDateRangeFilter).isFalse();
+        LegacyQuery legacyQuery = queryParser.parse(queryString);
+        assertThat(legacyQuery.getDateRangeFilters()).isEmpty();
+        assertThat(legacyQuery.getText()).isEqualTo(queryString);
     }
 
     @Test
     public void itShouldFindDateDateFiltersInDateFilterQuery() {
         String queryWithDateFilter = "updatedate:[2017-01-01 TO 2017-01-01]";
-        boolean containsDateRangeFilter = queryParser.queryContainsDateRangeFilter(queryWithDateFilter);
-        assertThat(containsDateRangeFilter).isTrue();
+        assertThat(queryParser.parse(queryWithDateFilter).getDateRangeFilters()).isNotEmpty();
     }
 
     @Test
     public void itShouldReturnAFilterFromDateRangeFilterQuery() {
         String queryWithDateFilter = "updatedate:[2017-01-01 TO 2017-01-01]";
-        Optional<Filter> parsedFilter = queryParser.extractDateFilterFromQuery(queryWithDateFilter);
+        LegacyQuery legacyQuery = queryParser.parse(queryWithDateFilter);
         Filter expectedFilter = FilterBuilder.create().onUpdateDate().from("2017-01-01").until("2017-01-01").build();
-        assertThat(parsedFilter.get()).isEqualTo(expectedFilter);
+        assertThat(legacyQuery.getDateRangeFilters()).containsExactly(expectedFilter);
     }
 
     @Test
-    @Ignore
-    public void itShoudlKeepQueryAsItIs() {
+    public void itShouldKeepTheTextAndReadBothDateRanges() {
         String queryWithDateFiltersAndRegularText = "test updatedate:[2017-01-01 TO 2018-01-01] releasedate:[2018-01-01 TO 2018-01-01]";
-        Optional<Filter> parsedFilter = queryParser.extractDateFilterFromQuery(queryWithDateFiltersAndRegularText);
-        String cleanQuery = queryParser.cleanQueryFromDateFilters(queryWithDateFiltersAndRegularText);
-        Optional<Filter> expectedFilters = Optional.empty();
-        assertThat(parsedFilter).isEqualTo(expectedFilters);
-        assertThat(cleanQuery).isEqualToIgnoringWhitespace(queryWithDateFiltersAndRegularText);
+        LegacyQuery legacyQuery = queryParser.parse(queryWithDateFiltersAndRegularText);
+        assertThat(legacyQuery.getDateRangeFilters()).containsExactly(
+                FilterBuilder.create().onUpdateDate().from("2017-01-01").until("2018-01-01").build(),
+                FilterBuilder.create().onReleaseDate().from("2018-01-01").until("2018-01-01").build());
+        assertThat(legacyQuery.getText()).isEqualTo("test");
     }
 
     @Test
     public void itShouldCleanTheQueryParameterAndExtractAFilter() {
         String queryWithDateFilter = "releasedate:[2010-01-01 TO 2017-01-01]";
-        Optional<Filter> parsedFilter = queryParser.extractDateFilterFromQuery(queryWithDateFilter);
-        String cleanQueryParameter = queryParser.cleanQueryFromDateFilters(queryWithDateFilter);
+        LegacyQuery legacyQuery = queryParser.parse(queryWithDateFilter);
         Filter expectedFilter = FilterBuilder.create().onReleaseDate().from("2010-01-01").until("2017-01-01").build();
 
-        assertThat(parsedFilter).isEqualTo(Optional.of(expectedFilter));
-        assertThat(cleanQueryParameter).isEqualTo("*:*");
+        assertThat(legacyQuery.getFilters()).containsExactly(expectedFilter);
+        assertThat(legacyQuery.getText()).isEqualTo("*:*");
     }
 
     @Test
     public void itShouldBeAbleToReadRangeWithEncodedSpaces() {
         String queryWithDateFilter = "releasedate:[2010-01-01%20TO%202017-01-01]";
-        Optional<Filter> parsedFilter = queryParser.extractDateFilterFromQuery(queryWithDateFilter);
-        String cleanQueryParameter = queryParser.cleanQueryFromDateFilters(queryWithDateFilter);
+        LegacyQuery legacyQuery = queryParser.parse(queryWithDateFilter);
         Filter expectedFilter = FilterBuilder.create().onReleaseDate().from("2010-01-01").until("2017-01-01").build();
 
-        assertThat(parsedFilter).isEqualTo(Optional.of(expectedFilter));
-        assertThat(cleanQueryParameter).isEqualTo("*:*");
+        assertThat(legacyQuery.getFilters()).containsExactly(expectedFilter);
+        assertThat(legacyQuery.getText()).isEqualTo("*:*");
 
     }
 
     @Test
     public void itShouldBeAbleToReadSampleAccessionAfterDateRange() {
         String queryWithDateFilterAndSampleAccession = "updatedate:[2018-01-01 TO 2018-01-01] AND SAMEA*";
-        Optional<Filter> dateRangeFilter = queryParser.extractDateFilterFromQuery(queryWithDateFilterAndSampleAccession);
-        Optional<Filter> accessionFilter = queryParser.extractAccessionFilterFromQuery(queryWithDateFilterAndSampleAccession);
+        LegacyQuery legacyQuery = queryParser.parse(queryWithDateFilterAndSampleAccession);
         Filter expectedDateRangeFilter = FilterBuilder.create().onUpdateDate().from("2018-01-01").until("2018-01-01").build();
         Filter expectedAccessionFilter = FilterBuilder.create().onAccession("SAMEA.*").build();
 
-        assertThat(dateRangeFilter).isEqualTo(Optional.of(expectedDateRangeFilter));
-        assertThat(accessionFilter).isEqualTo(Optional.of(expectedAccessionFilter));
+        assertThat(legacyQuery.getDateRangeFilters()).containsExactly(expectedDateRangeFilter);
+        assertThat(legacyQuery.getAccessionFilter()).isEqualTo(Optional.of(expectedAccessionFilter));
     }
 
     @Test
     public void itShouldBeAbleToReadFiltersEvenIfOrderIsInverted() {
         String queryWithDateFilterAndSampleAccession = "SAMEA* AND updatedate:[2018-01-01 TO 2018-01-01]";
-        Optional<Filter> dateRangeFilter = queryParser.extractDateFilterFromQuery(queryWithDateFilterAndSampleAccession);
-        Optional<Filter> accessionFilter = queryParser.extractAccessionFilterFromQuery(queryWithDateFilterAndSampleAccession);
+        LegacyQuery legacyQuery = queryParser.parse(queryWithDateFilterAndSampleAccession);
         Filter expectedDateRangeFilter = FilterBuilder.create().onUpdateDate().from("2018-01-01").until("2018-01-01").build();
         Filter expectedAccessionFilter = FilterBuilder.create().onAccession("SAMEA.*").build();
 
-        assertThat(dateRangeFilter).isEqualTo(Optional.of(expectedDateRangeFilter));
-        assertThat(accessionFilter).isEqualTo(Optional.of(expectedAccessionFilter));
+        assertThat(legacyQuery.getDateRangeFilters()).containsExactly(expectedDateRangeFilter);
+        assertThat(legacyQuery.getAccessionFilter()).isEqualTo(Optional.of(expectedAccessionFilter));
 
     }
 
     @Test
     public void itShouldCleanTheQueryFromAllKnowFilters() {
         String queryWithDateFilterAndSampleAccession = "updatedate:[2018-01-01 TO 2018-01-01] AND SAMEA*";
-        String finalQuery = queryParser.cleanQueryFromKnownFilters(queryWithDateFilterAndSampleAccession);
-
-        assertThat(finalQuery).isEqualTo("*:*");
+        assertThat(queryParser.parse(queryWithDateFilterAndSampleAccession).getText()).isEqualTo("*:*");
 
     }
 
     @Test
     public void itShouldCleanTheQueryEvenWithEncodedSpaces() {
         String queryWithDateFilterAndSampleAccession = "updatedate:[2018-01-01%20TO%202018-01-01]%20AND%20SAMEA*";
-        String finalQuery = queryParser.cleanQueryFromKnownFilters(queryWithDateFilterAndSampleAccession);
+        assertThat(queryParser.parse(queryWithDateFilterAndSampleAccession).getText()).isEqualTo("*:*");
+
+    }
+
+    @Test
+    public void itShouldDropTheAndJoiningAFilterToText() {
+        assertThat(queryParser.parse("liver AND SAMN*").getText()).isEqualTo("liver");
+        assertThat(queryParser.parse("releasedate:[2010-01-01 TO 2017-01-01] AND liver").getText()).isEqualTo("liver");
+        assertThat(queryParser.parse("liver AND SAMEA1 AND heart").getText()).isEqualTo("liver AND heart");
+    }
 
-        assertThat(finalQuery).isEqualTo("*:*");
+    @Test
+    public void itShouldLeaveQueriesWithoutFiltersAsTheyAre() {
+        String query = "organism:\"Homo sapiens\" AND  sex:female";
+        LegacyQuery legacyQuery = queryParser.parse(query);
+        assertThat(legacyQuery.getFilters()).isEmpty();
+        assertThat(legacyQuery.getText()).isEqualTo(query);
+        assertThat(queryParser.parse("*").getText()).isEqualTo("*");
+    }
+
+    @Test
+    public void itShouldNotTreatTextContainingAnAccessionAsAFilter() {
+        assertThat(queryParser.parse("derived:SAMEA1").getFilters()).isEmpty();
+        assertThat(queryParser.parse("updatedate:[2018-01-01 TO 2018]").getFilters()).isEmpty();
+    }
 
+    @Test
+    public void itShouldUseTheLastFilterOfAKind() {
+        LegacyQuery legacyQuery = queryParser.parse("SAMEA1 SAMN2");
+        assertThat(legacyQuery.getAccessionFilter()).isEqualTo(Optional.of(FilterBuilder.create().onAccession("SAMN2").build()));
+        assertThat(legacyQuery.getText()).isEqualTo("*:*");
     }
 }